@@ -3,6 +3,7 @@ package com.vladte.devhack.ai;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Import;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.scheduling.annotation.EnableAsync;
 
@@ -16,6 +17,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 )
 @EnableAsync(proxyTargetClass = true)
 @EnableKafka
+@Import({com.vladte.devhack.infra.config.MessageTransportConfig.class, com.vladte.devhack.infra.config.ClaimCheckConfig.class})
 public class AiApplication {
 
     public static void main(String[] args) {
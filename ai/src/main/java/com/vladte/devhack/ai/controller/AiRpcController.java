@@ -0,0 +1,83 @@
+package com.vladte.devhack.ai.controller;
+
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.consumer.AnswerFeedbackConsumer;
+import com.vladte.devhack.ai.service.kafka.consumer.KafkaAiRequestConsumer;
+import com.vladte.devhack.ai.service.kafka.consumer.QuestionGenerateConsumer;
+import com.vladte.devhack.ai.service.kafka.consumer.VacancyParsingConsumer;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.topics.Topics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Receives AI requests over HTTP, see {@link HttpRpcClient}. Requests are answered by the consumer of their
+ * request topic, with the same deadline, idempotency and fair scheduling handling as requests consumed from Kafka.
+ * <ul>
+ *     <li>200 with the response envelope</li>
+ *     <li>504 when the request expired and was dropped</li>
+ *     <li>503 when the AI provider failed transiently</li>
+ * </ul>
+ */
+@Slf4j
+@RestController
+@ConditionalOnProperty(name = "devhack.ai.rpc.enabled", havingValue = "true", matchIfMissing = true)
+public class AiRpcController {
+
+    private final Map<String, KafkaAiRequestConsumer<AiRenderedRequestPayload, ?>> consumersByTopic;
+
+    public AiRpcController(AnswerFeedbackConsumer answerFeedbackConsumer,
+                           QuestionGenerateConsumer questionGenerateConsumer,
+                           VacancyParsingConsumer vacancyParsingConsumer) {
+        this.consumersByTopic = Map.of(
+                Topics.ANSWER_FEEDBACK_REQUEST, answerFeedbackConsumer,
+                Topics.QUESTION_GENERATE_REQUEST, questionGenerateConsumer,
+                Topics.VACANCY_PARSING_REQUEST, vacancyParsingConsumer);
+    }
+
+    @PostMapping(path = HttpRpcClient.PATH + "{topic}",
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> call(@PathVariable String topic,
+                                       @RequestHeader HttpHeaders headers,
+                                       @RequestBody byte[] body) {
+        KafkaAiRequestConsumer<AiRenderedRequestPayload, ?> consumer = consumersByTopic.get(topic);
+        if (consumer == null) {
+            return ResponseEntity.notFound().build();
+        }
+        KafkaMessage<AiRenderedRequestPayload> request =
+                KafkaMessageCodecs.JSON.decode(body, AiRenderedRequestPayload.class);
+        headers.forEach((name, values) -> {
+            String header = name.toLowerCase(Locale.ROOT);
+            if (header.startsWith(MessageHeaders.PREFIX) && !values.isEmpty()) {
+                request.getHeaders().put(header, values.getFirst());
+            }
+        });
+
+        try {
+            return consumer.answer(request)
+                    .map(response -> ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(KafkaMessageCodecs.JSON.encode(response)))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build());
+        } catch (TransientAiProviderException e) {
+            log.warn("Transient AI provider failure for request {} received over HTTP: {}", request.getId(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
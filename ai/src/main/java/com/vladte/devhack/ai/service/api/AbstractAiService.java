@@ -1,36 +1,51 @@
 package com.vladte.devhack.ai.service.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiter;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
 import com.vladte.devhack.ai.util.ResponseExtractorUtil;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * Abstract base class for AI service implementations.
  * This class provides common functionality for different AI service implementations.
  * It follows SOLID principles with separation of concerns between API communication,
  * response parsing, and business logic.
+ * <p>
+ * Requests are sent with the non-blocking {@link WebClient} of the provider, see
+ * {@link com.vladte.devhack.ai.service.api.http.ProviderWebClients}: the returned futures complete on its I/O threads
+ * and no thread waits for the provider meanwhile.
+ * <p>
+ * Requests wait for the requests and tokens budgets of the provider's model, see {@link ProviderRateLimiter};
+ * requests rejected with 429 are queued again. Cancelling the future of a request takes it out of the queue of the
+ * rate limiter, or cancels its exchange with the provider.
  */
 public abstract class AbstractAiService implements OpenAiService {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractAiService.class);
 
-    protected final RestTemplate restTemplate;
+    private static final int CHARACTERS_PER_TOKEN = 4;
+
     protected final WebClient webClient;
     protected final ObjectMapper objectMapper;
+    private final ProviderRateLimiters rateLimiters;
+    private final String provider;
 
     // Abstract methods for configuration
     protected abstract String getApiKey();
@@ -43,11 +58,15 @@ public abstract class AbstractAiService implements OpenAiService {
 
     protected abstract HttpEntity<Map<String, Object>> createApiRequestBody(String prompt);
 
-    protected AbstractAiService(ObjectMapper objectMapper) {
+    /**
+     * @param provider name of the provider, selects its rate limits
+     */
+    protected AbstractAiService(ObjectMapper objectMapper, WebClient webClient, ProviderRateLimiters rateLimiters,
+                                String provider) {
         this.objectMapper = objectMapper;
-        this.restTemplate = new RestTemplate();
-        this.webClient = WebClient.builder().build();
-        log.debug("Initialized AbstractAiService with default RestTemplate and WebClient");
+        this.webClient = webClient;
+        this.rateLimiters = rateLimiters;
+        this.provider = provider;
     }
 
     private void handleApiCallException(Exception e) {
@@ -114,11 +133,22 @@ public abstract class AbstractAiService implements OpenAiService {
     }
 
 
-    private CompletableFuture<String> sendAiRequest(String prompt) {
+    /**
+     * @param extractor turns the generated text into the result
+     * @return the result; cancelling it cancels the request wherever it waits
+     */
+    private <T> CompletableFuture<T> sendAiRequest(String prompt, Function<String, T> extractor) {
         log.debug("Executing text generation asynchronously with prompt length: {}", prompt.length());
         try {
             HttpEntity<Map<String, Object>> request = createApiRequestBody(prompt);
-            return callApiInternally(request)
+            CompletableFuture<T> result = new CompletableFuture<>();
+            InFlight inFlight = new InFlight(result);
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    inFlight.cancel();
+                }
+            });
+            callApiInternally(request, estimateTokens(prompt), inFlight)
                     .thenApply(responseBody -> {
                         try {
                             return parseApiResponse(responseBody);
@@ -126,24 +156,44 @@ public abstract class AbstractAiService implements OpenAiService {
                             log.error("Error parsing API response: {}", e.getMessage(), e);
                             throw new CompletionException(e);
                         }
+                    })
+                    .thenApply(extractor)
+                    .whenComplete((value, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(value);
+                        }
                     });
+            return result;
         } catch (Exception e) {
             log.error("Error preparing async API request: {}", e.getMessage(), e);
-            CompletableFuture<String> future = new CompletableFuture<>();
+            CompletableFuture<T> future = new CompletableFuture<>();
             future.completeExceptionally(e);
             return future;
         }
     }
 
-    private CompletableFuture<Map<String, Object>> callApiInternally(HttpEntity<Map<String, Object>> request) {
+    /**
+     * Prompt tokens estimated from the prompt length plus the completion tokens at most.
+     */
+    private long estimateTokens(String prompt) {
+        return prompt.length() / CHARACTERS_PER_TOKEN + getMaxTokens();
+    }
+
+    private CompletableFuture<Map<String, Object>> callApiInternally(HttpEntity<Map<String, Object>> request,
+                                                                     long estimatedTokens, InFlight inFlight) {
         log.debug("Calling AI API asynchronously at: {}", getApiUrl());
-        return postRequest(request)
+        ProviderRateLimiter rateLimiter = rateLimiters.forModel(provider, getModel());
+        return postRequest(request, rateLimiter, estimatedTokens, 0, inFlight)
                 .thenApply(response -> {
                     log.debug("Async API call successful");
                     return response;
                 })
                 .exceptionally(e -> {
-                    if (e instanceof Exception) {
+                    if (inFlight.isCancelled()) {
+                        log.debug("Async API call cancelled");
+                    } else if (e instanceof Exception) {
                         handleApiCallException((Exception) e);
                     } else {
                         log.error("Unexpected error type during async API call: {}", e.getMessage(), e);
@@ -152,8 +202,41 @@ public abstract class AbstractAiService implements OpenAiService {
                 });
     }
 
+    /**
+     * Sends the request once the rate limiter lets it through; a 429 pauses the limiter and queues the request
+     * again, until it was requeued {@link ProviderRateLimiter#maxRequeues()} times.
+     */
+    private CompletableFuture<Map<String, Object>> postRequest(HttpEntity<Map<String, Object>> request,
+                                                               ProviderRateLimiter rateLimiter,
+                                                               long estimatedTokens,
+                                                               int requeues,
+                                                               InFlight inFlight) {
+        return inFlight.track(rateLimiter.acquire(estimatedTokens))
+                .thenCompose(granted -> inFlight.track(send(request)))
+                .thenApply(response -> {
+                    rateLimiter.onResponse(response.getHeaders());
+                    return response.getBody();
+                })
+                .exceptionallyCompose(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    if (cause instanceof WebClientResponseException.TooManyRequests tooManyRequests) {
+                        rateLimiter.onRateLimited(tooManyRequests.getHeaders());
+                        if (requeues < rateLimiter.maxRequeues()) {
+                            log.debug("AI request rejected with 429, queuing it again");
+                            return postRequest(request, rateLimiter, estimatedTokens, requeues + 1, inFlight);
+                        }
+                    }
+                    return CompletableFuture.failedFuture(error);
+                });
+    }
+
+    /**
+     * Sends the request; cancelling the returned future cancels the exchange.
+     */
     @SuppressWarnings("unchecked")
-    private CompletableFuture<Map<String, Object>> postRequest(HttpEntity<Map<String, Object>> request) {
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> send(HttpEntity<Map<String, Object>> request) {
         return webClient.post()
                 .uri(getApiUrl())
                 .headers(headers -> {
@@ -161,45 +244,71 @@ public abstract class AbstractAiService implements OpenAiService {
                 })
                 .bodyValue(request.getBody())
                 .retrieve()
-                .bodyToMono(Map.class)
-                .map(map -> (Map<String, Object>) map)
+                .toEntity(Map.class)
+                .map(entity -> (ResponseEntity<Map<String, Object>>) (ResponseEntity<?>) entity)
                 .toFuture();
     }
 
 
     @Override
-    @Async
     public CompletableFuture<String> generateQuestionsForTagAsync(AiRenderedRequestPayload payload) {
         log.debug("Generating questions asynchronously via chat request");
         String prompt = payload.getInput() != null ? payload.getInput() : "";
-        return sendAiRequest(prompt);
+        return sendAiRequest(prompt, Function.identity());
     }
 
     @Override
-    @Async
     public CompletableFuture<Boolean> checkAnswerForCheatingAsync(AiRenderedRequestPayload payload) {
         log.debug("Checking if answer contains cheating asynchronously (generic JSON payload)");
         String prompt = payload.getInput() != null ? payload.getInput() : "";
-        return sendAiRequest(prompt)
-                .thenApply(ResponseExtractorUtil::extractCheatingResultFromResponse);
+        return sendAiRequest(prompt, ResponseExtractorUtil::extractCheatingResultFromResponse);
     }
 
     @Override
-    @Async
     public CompletableFuture<Map<String, Object>> checkAnswerWithFeedbackAsync(AiRenderedRequestPayload payload) {
         log.debug("Checking answer with feedback asynchronously (generic JSON payload)");
         String prompt = payload.getInput() != null ? payload.getInput() : "";
-        return sendAiRequest(prompt)
-                .thenApply(ResponseExtractorUtil::extractScoreAndFeedbackFromResponse);
+        return sendAiRequest(prompt, ResponseExtractorUtil::extractScoreAndFeedbackFromResponse);
     }
 
     @Override
-    @Async
     public CompletableFuture<Map<String, Object>> extractVacancyModelFromDescription(AiRenderedRequestPayload payload) {
         log.debug("Extracting vacancy model from description asynchronously (generic JSON payload)");
         String prompt = payload.getInput() != null ? payload.getInput() : "";
-        return sendAiRequest(prompt)
-                .thenApply(responseFromAi -> ResponseExtractorUtil.extractVacancyModelFromResponse(responseFromAi, objectMapper));
+        return sendAiRequest(prompt,
+                responseFromAi -> ResponseExtractorUtil.extractVacancyModelFromResponse(responseFromAi, objectMapper));
     }
 
-}
\ No newline at end of file
+    /**
+     * Stage a request is waiting in, for the rate limiter or for the provider; cancelled with the request.
+     */
+    private static final class InFlight {
+
+        private final CompletableFuture<?> request;
+        private volatile Future<?> stage;
+
+        private InFlight(CompletableFuture<?> request) {
+            this.request = request;
+        }
+
+        private <F extends Future<?>> F track(F next) {
+            stage = next;
+            if (request.isCancelled()) {
+                // cancelled before the stage started
+                next.cancel(true);
+            }
+            return next;
+        }
+
+        private boolean isCancelled() {
+            return request.isCancelled();
+        }
+
+        private void cancel() {
+            Future<?> current = stage;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+    }
+}
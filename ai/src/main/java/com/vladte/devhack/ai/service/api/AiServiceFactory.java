@@ -2,9 +2,17 @@ package com.vladte.devhack.ai.service.api;
 
 import com.vladte.devhack.ai.service.api.impl.GptJServiceImpl;
 import com.vladte.devhack.ai.service.api.impl.OpenAiServiceImpl;
+import com.vladte.devhack.ai.service.api.impl.ReplayStubAiService;
+import com.vladte.devhack.ai.service.api.routing.AiProviderRouter;
+import com.vladte.devhack.ai.service.api.routing.RouterSettings;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.util.Map;
 
 @Configuration
 public class AiServiceFactory {
@@ -12,14 +20,29 @@ public class AiServiceFactory {
     @Value("${ai.service.provider}")
     private String provider;
 
+    /**
+     * Capture file answered from by the {@code replay-stub} provider.
+     */
+    @Value("${ai.replay-stub.capture-file:kafka-capture.jsonl}")
+    private String replayCaptureFile;
+
+    /**
+     * The provider answering AI requests; {@code router} routes them across the providers listed in
+     * {@code devhack.ai.router.providers}, see {@link AiProviderRouter}.
+     */
     @Bean
-    public AbstractAiService aiService(
+    public OpenAiService aiService(
             OpenAiServiceImpl openAi,
-            GptJServiceImpl gptj
+            GptJServiceImpl gptj,
+            Environment environment,
+            MeterRegistry meterRegistry
     ) {
         return switch (provider.toLowerCase()) {
             case "openai" -> openAi;
             case "gptj" -> gptj;
+            case "replay-stub" -> ReplayStubAiService.fromCapture(Path.of(replayCaptureFile));
+            case "router" -> new AiProviderRouter(Map.of("openai", openAi, "gptj", gptj),
+                    RouterSettings.from(environment), meterRegistry);
             default -> throw new IllegalArgumentException("Unknown AI provider: " + provider);
         };
     }
@@ -7,6 +7,7 @@ import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface for interacting with the OpenAI API.
+ * Cancelling a returned future should stop the request, callers cancel requests nobody waits for anymore.
  */
 public interface OpenAiService {
 
@@ -0,0 +1,46 @@
+package com.vladte.devhack.ai.service.api;
+
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Failure of the AI provider that is expected to go away on its own: rate limiting (429),
+ * provider side errors (5xx), timeouts and connection failures. Requests failing with it are retried later.
+ */
+public class TransientAiProviderException extends RuntimeException {
+
+    public TransientAiProviderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Whether the error, or one of its causes, is a transient AI provider failure.
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            boolean isTransient = switch (current) {
+                case TransientAiProviderException ignored -> true;
+                case WebClientResponseException response ->
+                        response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+                case WebClientRequestException ignored -> true;
+                case HttpServerErrorException ignored -> true;
+                case HttpClientErrorException.TooManyRequests ignored -> true;
+                case ResourceAccessException ignored -> true;
+                case TimeoutException ignored -> true;
+                default -> false;
+            };
+            if (isTransient) {
+                return true;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+}
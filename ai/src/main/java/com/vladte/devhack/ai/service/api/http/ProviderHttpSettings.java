@@ -0,0 +1,58 @@
+package com.vladte.devhack.ai.service.api.http;
+
+import org.springframework.core.env.PropertyResolver;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeouts of the HTTP client of an AI provider.
+ *
+ * @param maxConnections         connections to the provider at most, requests beyond wait for one
+ * @param pendingAcquireMaxCount requests waiting for a connection at most, requests beyond fail right away
+ * @param pendingAcquireTimeout  time a request waits for a connection before it fails
+ * @param maxIdleTime            idle connections are closed after it, before the provider's load balancer drops them
+ * @param maxLifeTime            connections are closed after it, so DNS changes of the provider are picked up
+ * @param connectTimeout         time to establish a connection
+ * @param responseTimeout        time to wait for the response once the request was sent
+ * @param http2                  negotiates HTTP/2 over TLS, falling back to HTTP/1.1 when the provider does not
+ *                               support it
+ * @param compression            requests gzip compressed responses
+ */
+public record ProviderHttpSettings(int maxConnections,
+                                   int pendingAcquireMaxCount,
+                                   Duration pendingAcquireTimeout,
+                                   Duration maxIdleTime,
+                                   Duration maxLifeTime,
+                                   Duration connectTimeout,
+                                   Duration responseTimeout,
+                                   boolean http2,
+                                   boolean compression) {
+
+    public static final String PREFIX = "devhack.ai.http.";
+
+    /**
+     * Reads the settings of a provider: {@code devhack.ai.http.<provider>.<setting>}, falling back to the setting
+     * shared by all providers, {@code devhack.ai.http.<setting>}, and then to the default.
+     */
+    public static ProviderHttpSettings from(PropertyResolver properties, String provider) {
+        Settings settings = new Settings(properties, provider);
+        return new ProviderHttpSettings(
+                settings.get("max-connections", Integer.class, 100),
+                settings.get("pending-acquire-max-count", Integer.class, 1_000),
+                settings.get("pending-acquire-timeout", Duration.class, Duration.ofSeconds(10)),
+                settings.get("max-idle-time", Duration.class, Duration.ofSeconds(30)),
+                settings.get("max-life-time", Duration.class, Duration.ofMinutes(5)),
+                settings.get("connect-timeout", Duration.class, Duration.ofSeconds(5)),
+                settings.get("response-timeout", Duration.class, Duration.ofSeconds(90)),
+                settings.get("http2", Boolean.class, true),
+                settings.get("compression", Boolean.class, true));
+    }
+
+    private record Settings(PropertyResolver properties, String provider) {
+
+        private <T> T get(String name, Class<T> type, T defaultValue) {
+            T shared = properties.getProperty(PREFIX + name, type, defaultValue);
+            return properties.getProperty(PREFIX + provider + "." + name, type, shared);
+        }
+    }
+}
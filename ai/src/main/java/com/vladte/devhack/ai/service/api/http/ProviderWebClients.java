@@ -0,0 +1,92 @@
+package com.vladte.devhack.ai.service.api.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The {@link WebClient}s of the AI providers, one per provider, each with its own connection pool.
+ * Clients are created on first use and shared by every caller of the provider.
+ * <p>
+ * The pools publish the Reactor Netty metrics {@code reactor.netty.connection.provider.*} tagged with the pool
+ * name {@code ai-<provider>}: active, idle and pending connections and the time requests waited for a connection.
+ * {@code devhack.ai.http.connections} counts the connections opened and reused from the pool.
+ */
+public class ProviderWebClients implements AutoCloseable {
+
+    private final Function<String, ProviderHttpSettings> settings;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ConnectionProvider> pools = new ConcurrentHashMap<>();
+    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param settings settings of a provider by its name
+     */
+    public ProviderWebClients(Function<String, ProviderHttpSettings> settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public WebClient forProvider(String provider) {
+        return clients.computeIfAbsent(provider, this::create);
+    }
+
+    private WebClient create(String provider) {
+        ProviderHttpSettings providerSettings = settings.apply(provider);
+        ConnectionProvider pool = ConnectionProvider.builder("ai-" + provider)
+                .maxConnections(providerSettings.maxConnections())
+                .pendingAcquireMaxCount(providerSettings.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(providerSettings.pendingAcquireTimeout())
+                .maxIdleTime(providerSettings.maxIdleTime())
+                .maxLifeTime(providerSettings.maxLifeTime())
+                .evictInBackground(providerSettings.maxIdleTime())
+                .metrics(true)
+                .build();
+        pools.put(provider, pool);
+
+        Counter opened = connectionCounter(provider, "opened");
+        Counter reused = connectionCounter(provider, "reused");
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) providerSettings.connectTimeout().toMillis())
+                .responseTimeout(providerSettings.responseTimeout())
+                .compress(providerSettings.compression())
+                .protocol(providerSettings.http2()
+                        ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11})
+                .observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.CONNECTED) {
+                        opened.increment();
+                    } else if (state == ConnectionObserver.State.ACQUIRED) {
+                        reused.increment();
+                    }
+                });
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private Counter connectionCounter(String provider, String outcome) {
+        return Counter.builder("devhack.ai.http.connections")
+                .description("Connections to the AI provider, opened anew or reused from the pool")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(ConnectionProvider::dispose);
+        pools.clear();
+        clients.clear();
+    }
+}
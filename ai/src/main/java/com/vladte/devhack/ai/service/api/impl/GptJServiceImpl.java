@@ -2,6 +2,8 @@ package com.vladte.devhack.ai.service.api.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.ai.service.api.AbstractAiService;
+import com.vladte.devhack.ai.service.api.http.ProviderWebClients;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -34,8 +36,10 @@ public class GptJServiceImpl extends AbstractAiService {
 
     private static final Logger log = LoggerFactory.getLogger(GptJServiceImpl.class);
 
-    public GptJServiceImpl(ObjectMapper objectMapper) {
-        super(objectMapper);
+    private static final String PROVIDER = "gptj";
+
+    public GptJServiceImpl(ObjectMapper objectMapper, ProviderWebClients webClients, ProviderRateLimiters rateLimiters) {
+        super(objectMapper, webClients.forProvider(PROVIDER), rateLimiters, PROVIDER);
     }
 
 
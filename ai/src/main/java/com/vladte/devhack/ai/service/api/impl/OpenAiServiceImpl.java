@@ -2,6 +2,8 @@ package com.vladte.devhack.ai.service.api.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.ai.service.api.AbstractAiService;
+import com.vladte.devhack.ai.service.api.http.ProviderWebClients;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,6 +22,12 @@ import java.util.Map;
 @Service("openApiService")
 public class OpenAiServiceImpl extends AbstractAiService {
 
+    /**
+     * Read once, the key does not change while the application runs.
+     */
+    @Value("${OPENAI_API_KEY:}")
+    private String apiKey;
+
     @Value("${openai.model}")
     private String model;
 
@@ -30,8 +38,10 @@ public class OpenAiServiceImpl extends AbstractAiService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAiServiceImpl.class);
 
-    public OpenAiServiceImpl(ObjectMapper objectMapper) {
-        super(objectMapper);
+    private static final String PROVIDER = "openai";
+
+    public OpenAiServiceImpl(ObjectMapper objectMapper, ProviderWebClients webClients, ProviderRateLimiters rateLimiters) {
+        super(objectMapper, webClients.forProvider(PROVIDER), rateLimiters, PROVIDER);
     }
 
     @Override
@@ -54,11 +64,10 @@ public class OpenAiServiceImpl extends AbstractAiService {
 
     @Override
     protected String getApiKey() {
-        String key = System.getenv("OPENAI_API_KEY");
-        if (key == null) {
+        if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalStateException("OPENAI_API_KEY not set in environment");
         }
-        return key;
+        return apiKey;
     }
 
     @Override
@@ -0,0 +1,100 @@
+package com.vladte.devhack.ai.service.api.impl;
+
+import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
+import com.vladte.devhack.infra.service.kafka.replay.CapturedExchange;
+import com.vladte.devhack.infra.service.kafka.replay.TrafficCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Stand-in for the AI provider during traffic replays, selected with {@code ai.service.provider=replay-stub}.
+ * Every call is answered with a response captured for a request with the same prompt, after the provider latency
+ * captured with it; prompts without a capture get one of the captured exchanges of the same response type.
+ * The latency distribution of the replay therefore follows the captured one, without calling a model.
+ */
+public class ReplayStubAiService implements OpenAiService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayStubAiService.class);
+
+    private final List<CapturedExchange> exchanges;
+
+    public ReplayStubAiService(List<CapturedExchange> exchanges) {
+        this.exchanges = List.copyOf(exchanges);
+    }
+
+    public static ReplayStubAiService fromCapture(Path file) {
+        List<CapturedExchange> exchanges = TrafficCapture.exchanges(TrafficCapture.read(file));
+        log.info("Replay stub provider loaded {} captured exchanges from {}", exchanges.size(), file);
+        return new ReplayStubAiService(exchanges);
+    }
+
+    @Override
+    public CompletableFuture<String> generateQuestionsForTagAsync(AiRenderedRequestPayload payload) {
+        return answer(payload, QuestionGenerateResponsePayload.class,
+                response -> String.join("\n", response.getArguments().getQuestions()));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> checkAnswerWithFeedbackAsync(AiRenderedRequestPayload payload) {
+        return answer(payload, AnswerCheckResponsePayload.class, response -> Map.of(
+                "score", response.getArguments().getScore(),
+                "feedback", String.valueOf(response.getArguments().getFeedback())));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkAnswerForCheatingAsync(AiRenderedRequestPayload payload) {
+        return answer(payload, AnswerCheckResponsePayload.class, response -> response.getArguments().isHasCheating());
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> extractVacancyModelFromDescription(AiRenderedRequestPayload payload) {
+        return answer(payload, VacancyParseResponsePayload.class, response -> Map.of(
+                "success", true,
+                "data", String.valueOf(response.getArguments().getVacancyJson())));
+    }
+
+    /**
+     * Completes with the result of a sampled exchange after its provider latency.
+     * Captured error responses fail the call, as the provider did.
+     */
+    private <P extends ResponsePayload<?>, R> CompletableFuture<R> answer(AiRenderedRequestPayload payload,
+                                                                          Class<P> responseType,
+                                                                          Function<P, R> result) {
+        CapturedExchange exchange = sample(payload != null ? payload.getPromptKey() : null, responseType);
+        if (exchange == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "No captured " + responseType.getSimpleName() + " to answer with"));
+        }
+        P response = responseType.cast(exchange.response());
+        return CompletableFuture.supplyAsync(() -> {
+            if (response.isHasErrors() || response.getArguments() == null) {
+                throw new IllegalStateException(String.valueOf(response.getErrorMessage()));
+            }
+            return result.apply(response);
+        }, CompletableFuture.delayedExecutor(exchange.providerMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private CapturedExchange sample(String promptKey, Class<?> responseType) {
+        List<CapturedExchange> candidates = exchanges.stream()
+                .filter(exchange -> responseType.isInstance(exchange.response()))
+                .toList();
+        List<CapturedExchange> samePrompt = candidates.stream()
+                .filter(exchange -> promptKey != null && promptKey.equals(exchange.promptKey()))
+                .toList();
+        List<CapturedExchange> pool = samePrompt.isEmpty() ? candidates : samePrompt;
+        return pool.isEmpty() ? null : pool.get(ThreadLocalRandom.current().nextInt(pool.size()));
+    }
+}
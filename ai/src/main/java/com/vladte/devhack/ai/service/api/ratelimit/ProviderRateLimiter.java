@@ -0,0 +1,274 @@
+package com.vladte.devhack.ai.service.api.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Requests-per-minute and tokens-per-minute budgets of one model of an AI provider, shared by all its callers.
+ * <p>
+ * Callers {@link #acquire} before sending a request and are queued in order of arrival until both budgets have
+ * room for it: work waits instead of failing, and no thread waits meanwhile. The budgets adapt to the
+ * {@code x-ratelimit-*} headers of the responses, and a 429 pauses them for its {@code Retry-After}.
+ * <p>
+ * The time requests waited is recorded in {@code devhack.ai.rate-limit.wait}, the requests waiting in
+ * {@code devhack.ai.rate-limit.queued} and the 429 responses in {@code devhack.ai.rate-limit.rejected}.
+ */
+@Slf4j
+public class ProviderRateLimiter {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private final String name;
+    private final int maxRequeues;
+    private final ScheduledExecutorService scheduler;
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Timer waitTimer;
+    private final Counter rejected;
+    private ScheduledFuture<?> scheduledDrain;
+
+    /**
+     * @param scheduler wakes up queued requests once the budgets refilled
+     */
+    public ProviderRateLimiter(String provider, String model, RateLimitSettings settings,
+                               ScheduledExecutorService scheduler, MeterRegistry meterRegistry) {
+        this.name = provider + "/" + model;
+        this.maxRequeues = settings.maxRequeues();
+        this.scheduler = scheduler;
+        long now = System.nanoTime();
+        this.requests = new TokenBucket(settings.requestsPerMinute(), now);
+        this.tokens = new TokenBucket(settings.tokensPerMinute(), now);
+
+        this.waitTimer = Timer.builder("devhack.ai.rate-limit.wait")
+                .description("Time AI requests waited for the rate limit budget of the provider")
+                .tag("provider", provider)
+                .tag("model", model)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("devhack.ai.rate-limit.rejected")
+                .description("AI requests rejected by the provider with 429 Too Many Requests")
+                .tag("provider", provider)
+                .tag("model", model)
+                .register(meterRegistry);
+        Gauge.builder("devhack.ai.rate-limit.queued", this, ProviderRateLimiter::queued)
+                .description("AI requests waiting for the rate limit budget of the provider")
+                .tag("provider", provider)
+                .tag("model", model)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one request and the estimated tokens from the budgets, once they have room for them.
+     *
+     * @param estimatedTokens prompt and completion tokens the request is expected to use
+     * @return a future completed when the request may be sent; cancelling it leaves the queue
+     */
+    public CompletableFuture<Void> acquire(long estimatedTokens) {
+        Waiter waiter = new Waiter(estimatedTokens, System.nanoTime());
+        synchronized (this) {
+            waiters.addLast(waiter);
+        }
+        waiter.granted.whenComplete((ignored, error) -> {
+            if (waiter.granted.isCancelled()) {
+                leave(waiter);
+            }
+        });
+        drain();
+        return waiter.granted;
+    }
+
+    private void leave(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            removed = waiters.remove(waiter);
+        }
+        if (removed) {
+            // the requests behind it may fit the budgets
+            drain();
+        }
+    }
+
+    /**
+     * Times a request rejected with 429 is queued again before the rejection is returned to the caller.
+     */
+    public int maxRequeues() {
+        return maxRequeues;
+    }
+
+    /**
+     * Adapts the budgets to the limits and remaining budgets the provider reported.
+     */
+    public void onResponse(HttpHeaders headers) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            adapt(requests, headers, "requests", now);
+            adapt(tokens, headers, "tokens", now);
+        }
+        drain();
+    }
+
+    /**
+     * Pauses the budgets after a 429, for the {@code Retry-After} of the response or until the budgets reset.
+     */
+    public void onRateLimited(HttpHeaders headers) {
+        rejected.increment();
+        long now = System.nanoTime();
+        Duration retryAfter = retryAfter(headers);
+        synchronized (this) {
+            adapt(requests, headers, "requests", now);
+            adapt(tokens, headers, "tokens", now);
+            if (retryAfter != null) {
+                requests.pauseUntil(now + retryAfter.toNanos());
+                tokens.pauseUntil(now + retryAfter.toNanos());
+            } else {
+                // out of budget as far as the provider is concerned
+                requests.remaining(0, now);
+            }
+        }
+        log.warn("AI provider {} rate limited the requests, pausing for {}", name, retryAfter);
+        drain();
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    /**
+     * Grants the queued requests the budgets have room for, in order, and schedules the next attempt.
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            long wait = 0;
+            while (!waiters.isEmpty()) {
+                Waiter head = waiters.peekFirst();
+                wait = Math.max(requests.nanosUntil(1, now), tokens.nanosUntil(head.tokens, now));
+                if (wait > 0) {
+                    break;
+                }
+                requests.take(1, now);
+                tokens.take(head.tokens, now);
+                granted.add(waiters.removeFirst());
+            }
+            if (wait > 0 && scheduledDrain == null) {
+                scheduledDrain = scheduler.schedule(this::scheduledDrain, wait, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Waiter waiter : granted) {
+            waitTimer.record(now - waiter.queuedNanos, TimeUnit.NANOSECONDS);
+            waiter.granted.complete(null);
+        }
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            scheduledDrain = null;
+        }
+        drain();
+    }
+
+    private static void adapt(TokenBucket bucket, HttpHeaders headers, String budget, long now) {
+        Long limit = longHeader(headers, "x-ratelimit-limit-" + budget);
+        if (limit != null) {
+            bucket.limit(limit, now);
+        }
+        Long remaining = longHeader(headers, "x-ratelimit-remaining-" + budget);
+        if (remaining != null) {
+            bucket.remaining(remaining, now);
+            Duration reset = parseDuration(headers.getFirst("x-ratelimit-reset-" + budget));
+            if (remaining == 0 && reset != null) {
+                bucket.pauseUntil(now + reset.toNanos());
+            }
+        }
+    }
+
+    private static Long longHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the {@code Retry-After} of the response, in seconds or as HTTP date, {@code null} when absent
+     */
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1_000));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Parses the reset durations of the {@code x-ratelimit-reset-*} headers, e.g. {@code 20ms}, {@code 1.5s}
+     * or {@code 6m0s}.
+     *
+     * @return the duration, {@code null} when absent or not understood
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "ms" -> amount;
+                case "s" -> amount * 1_000;
+                case "m" -> amount * 60_000;
+                default -> amount * 3_600_000;
+            };
+            end = matcher.end();
+        }
+        return end == value.trim().length() && end > 0 ? Duration.ofMillis((long) millis) : null;
+    }
+
+    private static final class Waiter {
+        private final long tokens;
+        private final long queuedNanos;
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        private Waiter(long tokens, long queuedNanos) {
+            this.tokens = tokens;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.vladte.devhack.ai.service.api.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * The {@link ProviderRateLimiter}s of the AI providers, one per provider and model, created on first use.
+ */
+public class ProviderRateLimiters implements AutoCloseable {
+
+    private final Function<String, RateLimitSettings> settings;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ai-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param settings settings of a provider by its name
+     */
+    public ProviderRateLimiters(Function<String, RateLimitSettings> settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ProviderRateLimiter forModel(String provider, String model) {
+        return limiters.computeIfAbsent(provider + "/" + model,
+                key -> new ProviderRateLimiter(provider, model, settings.apply(provider), scheduler, meterRegistry));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
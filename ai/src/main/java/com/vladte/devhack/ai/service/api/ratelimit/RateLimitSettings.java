@@ -0,0 +1,31 @@
+package com.vladte.devhack.ai.service.api.ratelimit;
+
+import org.springframework.core.env.PropertyResolver;
+
+/**
+ * Budgets of the requests sent to an AI provider.
+ *
+ * @param requestsPerMinute requests per minute at most, {@code 0} for no limit
+ * @param tokensPerMinute   estimated prompt and completion tokens per minute at most, {@code 0} for no limit
+ * @param maxRequeues       times a request rejected with 429 is queued again before the rejection is returned
+ */
+public record RateLimitSettings(long requestsPerMinute, long tokensPerMinute, int maxRequeues) {
+
+    public static final String PREFIX = "devhack.ai.rate-limit.";
+
+    /**
+     * Reads the settings of a provider: {@code devhack.ai.rate-limit.<provider>.<setting>}, falling back to the
+     * setting shared by all providers, {@code devhack.ai.rate-limit.<setting>}, and then to no limit.
+     */
+    public static RateLimitSettings from(PropertyResolver properties, String provider) {
+        return new RateLimitSettings(
+                get(properties, provider, "requests-per-minute", Long.class, 0L),
+                get(properties, provider, "tokens-per-minute", Long.class, 0L),
+                get(properties, provider, "max-requeues", Integer.class, 2));
+    }
+
+    private static <T> T get(PropertyResolver properties, String provider, String name, Class<T> type, T defaultValue) {
+        T shared = properties.getProperty(PREFIX + name, type, defaultValue);
+        return properties.getProperty(PREFIX + provider + "." + name, type, shared);
+    }
+}
@@ -0,0 +1,91 @@
+package com.vladte.devhack.ai.service.api.ratelimit;
+
+/**
+ * Budget refilled continuously up to its capacity, one capacity per minute.
+ * Not thread safe, guarded by its {@link ProviderRateLimiter}; times are {@link System#nanoTime()} values.
+ */
+class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = 60_000_000_000d;
+
+    private double capacity;
+    private double available;
+    private long updatedNanos;
+    private long pausedUntilNanos;
+
+    /**
+     * @param perMinute capacity refilled per minute, {@code 0} for no limit
+     */
+    TokenBucket(long perMinute, long nowNanos) {
+        this.capacity = perMinute;
+        this.available = perMinute;
+        this.updatedNanos = nowNanos;
+        this.pausedUntilNanos = nowNanos;
+    }
+
+    /**
+     * @return nanoseconds until {@code amount} can be taken, {@code 0} when it can be taken now.
+     * An amount above the capacity can be taken once the bucket is full.
+     */
+    long nanosUntil(long amount, long nowNanos) {
+        if (pausedUntilNanos - nowNanos > 0) {
+            return pausedUntilNanos - nowNanos;
+        }
+        if (capacity <= 0) {
+            return 0;
+        }
+        refill(nowNanos);
+        double needed = Math.min(amount, capacity);
+        if (available >= needed) {
+            return 0;
+        }
+        return (long) Math.ceil((needed - available) * NANOS_PER_MINUTE / capacity);
+    }
+
+    void take(long amount, long nowNanos) {
+        if (capacity > 0) {
+            refill(nowNanos);
+            available -= amount;
+        }
+    }
+
+    /**
+     * Adopts the limit reported by the provider.
+     */
+    void limit(long perMinute, long nowNanos) {
+        refill(nowNanos);
+        capacity = perMinute;
+        available = Math.min(available, capacity);
+    }
+
+    /**
+     * Adopts the remaining budget reported by the provider when it is lower, e.g. because other instances
+     * share the budget.
+     */
+    void remaining(long remaining, long nowNanos) {
+        refill(nowNanos);
+        available = Math.min(available, remaining);
+    }
+
+    /**
+     * Nothing is taken until the time passed.
+     */
+    void pauseUntil(long untilNanos) {
+        if (untilNanos - pausedUntilNanos > 0) {
+            pausedUntilNanos = untilNanos;
+        }
+    }
+
+    double available(long nowNanos) {
+        refill(nowNanos);
+        return available;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - updatedNanos;
+        if (elapsed > 0) {
+            available = Math.min(capacity, available + elapsed * capacity / NANOS_PER_MINUTE);
+            updatedNanos = nowNanos;
+        }
+    }
+}
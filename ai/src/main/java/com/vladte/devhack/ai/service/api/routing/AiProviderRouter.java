@@ -0,0 +1,346 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Routes AI requests across several providers, selected with {@code ai.service.provider=router}.
+ * <p>
+ * Each call goes to the available provider with the lowest median latency of its recent calls; providers without
+ * calls yet are tried first, in the configured order. A call failing transiently is sent to the next provider.
+ * Each provider has a {@link ProviderCircuitBreaker}: while its circuit is open the provider is skipped.
+ * <p>
+ * With hedging, a call that has not completed after the {@code hedging.percentile} latency of its provider is also
+ * sent to the next provider, and the first successful answer is taken. A hedged call is paid for twice.
+ * <p>
+ * Once a call completed, or its caller cancelled it, the attempts still running are cancelled. Providers extending
+ * {@link com.vladte.devhack.ai.service.api.AbstractAiService} then leave the queue of their rate limiter or cancel
+ * their exchange, so a losing attempt stops using a connection.
+ * <p>
+ * Calls are timed in {@code devhack.ai.router.calls} by provider and outcome, hedges are counted in
+ * {@code devhack.ai.router.hedges} by provider and outcome, fired or won, and {@code devhack.ai.router.circuit.open}
+ * is 1 while the circuit of a provider is not closed.
+ */
+@Slf4j
+public class AiProviderRouter implements OpenAiService, AutoCloseable {
+
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final List<Route> routes;
+    private final RouterSettings settings;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ai-router-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param services the providers by name, those listed in the settings are routed
+     */
+    public AiProviderRouter(Map<String, ? extends OpenAiService> services, RouterSettings settings,
+                            MeterRegistry meterRegistry) {
+        this(services, settings, meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock clock in nanoseconds that latencies and open circuits are measured with
+     */
+    AiProviderRouter(Map<String, ? extends OpenAiService> services, RouterSettings settings,
+                     MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        List<Route> configured = new ArrayList<>();
+        for (String name : settings.providers()) {
+            OpenAiService service = services.get(name);
+            if (service == null) {
+                throw new IllegalArgumentException("Unknown AI provider to route to: " + name);
+            }
+            configured.add(new Route(name, configured.size(), service,
+                    new ProviderCircuitBreaker(settings.circuitWindowSize(), settings.circuitMinimumCalls(),
+                            settings.circuitFailureRate(), settings.circuitOpenDuration()),
+                    new ProviderLatency(LATENCY_SAMPLES)));
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalArgumentException("No AI provider to route to");
+        }
+        this.routes = List.copyOf(configured);
+        for (Route route : routes) {
+            Gauge.builder("devhack.ai.router.circuit.open", route.breaker(),
+                            breaker -> breaker.state() == ProviderCircuitBreaker.State.CLOSED ? 0 : 1)
+                    .description("Whether the circuit of the AI provider is open or half-open")
+                    .tag("provider", route.name())
+                    .register(meterRegistry);
+        }
+        log.info("Routing AI requests across {}, hedging {}", settings.providers(), settings.hedging() ? "on" : "off");
+    }
+
+    @Override
+    public CompletableFuture<String> generateQuestionsForTagAsync(AiRenderedRequestPayload payload) {
+        return route(service -> service.generateQuestionsForTagAsync(payload));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> checkAnswerWithFeedbackAsync(AiRenderedRequestPayload payload) {
+        return route(service -> service.checkAnswerWithFeedbackAsync(payload));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkAnswerForCheatingAsync(AiRenderedRequestPayload payload) {
+        return route(service -> service.checkAnswerForCheatingAsync(payload));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> extractVacancyModelFromDescription(AiRenderedRequestPayload payload) {
+        return route(service -> service.extractVacancyModelFromDescription(payload));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> route(Function<OpenAiService, CompletableFuture<T>> call) {
+        long now = nanoClock.getAsLong();
+        List<Route> candidates = routes.stream()
+                .filter(route -> route.breaker().isAvailable(now))
+                .sorted(Comparator.comparingLong(Route::medianNanos).thenComparingInt(Route::order))
+                .toList();
+        return new RoutedCall<>(candidates, call).start();
+    }
+
+    private static Exception failureOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception exception ? exception : new CompletionException(cause);
+    }
+
+    private record Route(String name, int order, OpenAiService service, ProviderCircuitBreaker breaker,
+                         ProviderLatency latency) {
+
+        /**
+         * Median latency of the recent calls, {@code 0} while there was none so the provider is tried.
+         */
+        long medianNanos() {
+            Duration median = latency.percentile(0.5);
+            return median != null ? median.toNanos() : 0;
+        }
+    }
+
+    /**
+     * One call across the providers: the first successful attempt completes it.
+     * The state is guarded by the call; providers are called and the result is completed outside the lock,
+     * so the callers' continuations never run while holding it.
+     */
+    private final class RoutedCall<T> {
+
+        private final Deque<Route> remaining;
+        private final Function<OpenAiService, CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> attempts = new ArrayList<>();
+        private int running;
+        private boolean answered;
+        private Exception lastFailure;
+        private Exception exhausted;
+        private ScheduledFuture<?> hedge;
+
+        private RoutedCall(List<Route> candidates, Function<OpenAiService, CompletableFuture<T>> call) {
+            this.remaining = new ArrayDeque<>(candidates);
+            this.call = call;
+        }
+
+        private CompletableFuture<T> start() {
+            result.whenComplete((value, error) -> {
+                List<CompletableFuture<T>> started;
+                synchronized (this) {
+                    if (hedge != null) {
+                        hedge.cancel(false);
+                    }
+                    started = List.copyOf(attempts);
+                }
+                started.forEach(attempt -> attempt.cancel(false));
+            });
+            Route primary;
+            synchronized (this) {
+                primary = next();
+                if (primary != null && settings.hedging() && !remaining.isEmpty()) {
+                    hedge = scheduler.schedule(this::hedge, hedgeDelay(primary).toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            launch(primary, false);
+            settle();
+            return result;
+        }
+
+        private void hedge() {
+            Route route;
+            synchronized (this) {
+                route = result.isDone() ? null : next();
+            }
+            if (route != null) {
+                hedges(route, "fired").increment();
+            }
+            launch(route, true);
+            settle();
+        }
+
+        /**
+         * Takes the next provider whose circuit lets a call through. When there is none left and no attempt is
+         * running, the call is failed by {@link #settle}.
+         *
+         * @return the provider to call, {@code null} when there is none
+         */
+        private Route next() {
+            Route route;
+            do {
+                route = remaining.pollFirst();
+            } while (route != null && !route.breaker().tryAcquire(nanoClock.getAsLong()));
+            if (route != null) {
+                running++;
+            } else if (running == 0) {
+                exhausted = lastFailure != null
+                        ? lastFailure
+                        : new TransientAiProviderException("No AI provider available, all circuits are open", null);
+            }
+            return route;
+        }
+
+        private void launch(Route route, boolean hedged) {
+            if (route == null) {
+                return;
+            }
+            long startedNanos = nanoClock.getAsLong();
+            CompletableFuture<T> attempt;
+            try {
+                attempt = call.apply(route.service());
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            attempt.whenComplete((value, error) ->
+                    completed(route, hedged, Duration.ofNanos(nanoClock.getAsLong() - startedNanos), value, error));
+        }
+
+        private void completed(Route route, boolean hedged, Duration latency, T value, Throwable error) {
+            if (error == null) {
+                route.breaker().onSuccess();
+                route.latency().record(latency);
+                calls(route, "success").record(latency);
+                boolean first;
+                synchronized (this) {
+                    running--;
+                    first = !answered;
+                    answered = true;
+                }
+                if (first && hedged) {
+                    // counted before the caller can see the answer
+                    hedges(route, "won").increment();
+                }
+                result.complete(value);
+                return;
+            }
+            Exception failure = failureOf(error);
+            if (failure instanceof CancellationException) {
+                route.breaker().onIgnored();
+                synchronized (this) {
+                    running--;
+                }
+                return;
+            }
+            boolean isTransient = TransientAiProviderException.isTransient(failure);
+            if (isTransient) {
+                route.breaker().onFailure(nanoClock.getAsLong());
+            } else {
+                // the provider answered, the request itself was at fault
+                route.breaker().onSuccess();
+            }
+            calls(route, "failure").record(latency);
+
+            Route next = null;
+            synchronized (this) {
+                running--;
+                if (result.isDone()) {
+                    return;
+                }
+                lastFailure = failure;
+                if (running == 0) {
+                    if (isTransient) {
+                        log.warn("AI provider {} failed transiently, trying the next one: {}",
+                                route.name(), failure.getMessage());
+                        next = next();
+                    } else {
+                        exhausted = failure;
+                    }
+                }
+            }
+            launch(next, false);
+            settle();
+        }
+
+        /**
+         * Fails the call once no provider is left to try.
+         */
+        private void settle() {
+            Exception failure;
+            synchronized (this) {
+                failure = exhausted;
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        private Duration hedgeDelay(Route route) {
+            Duration percentile = route.latency().percentile(settings.hedgePercentile());
+            if (percentile == null) {
+                return settings.hedgeMaxDelay();
+            }
+            if (percentile.compareTo(settings.hedgeMinDelay()) < 0) {
+                return settings.hedgeMinDelay();
+            }
+            return percentile.compareTo(settings.hedgeMaxDelay()) > 0 ? settings.hedgeMaxDelay() : percentile;
+        }
+    }
+
+    private Timer calls(Route route, String outcome) {
+        return Timer.builder("devhack.ai.router.calls")
+                .description("Calls of the AI providers made by the router, by outcome")
+                .tag("provider", route.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter hedges(Route route, String outcome) {
+        return Counter.builder("devhack.ai.router.hedges")
+                .description("Hedged calls of the AI providers: fired, and won against the hedged call")
+                .tag("provider", route.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,129 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import java.time.Duration;
+
+/**
+ * Circuit of one AI provider: opens when too many of its recent calls failed, so calls skip it for a while,
+ * then lets a single probe call through and closes again when the probe succeeds.
+ * Times are {@link System#nanoTime()} values.
+ */
+public class ProviderCircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final boolean[] failed;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private int calls;
+    private int next;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedNanos;
+    private boolean probing;
+
+    public ProviderCircuitBreaker(int windowSize, int minimumCalls, double failureRate, Duration openDuration) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.failed = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRate = failureRate;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return whether a call would be let through now, without taking the probe of a half-open circuit
+     */
+    public synchronized boolean isAvailable(long nowNanos) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nowNanos - openedNanos >= openNanos;
+            case HALF_OPEN -> !probing;
+        };
+    }
+
+    /**
+     * Lets a call through when the circuit is closed, or as the probe of a circuit that was open long enough.
+     * A call let through must be reported with {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public synchronized boolean tryAcquire(long nowNanos) {
+        if (state == State.OPEN && nowNanos - openedNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probing) {
+                    yield false;
+                }
+                probing = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            probing = false;
+            reset();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(long nowNanos) {
+        if (state == State.HALF_OPEN) {
+            open(nowNanos);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRate * calls) {
+                open(nowNanos);
+            }
+        }
+    }
+
+    /**
+     * Reports a call that ended without telling whether the provider is healthy, e.g. it was cancelled.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == failed.length) {
+            if (failed[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % failed.length;
+    }
+
+    private void open(long nowNanos) {
+        state = State.OPEN;
+        openedNanos = nowNanos;
+        probing = false;
+        reset();
+    }
+
+    private void reset() {
+        calls = 0;
+        next = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Latencies of the recent successful calls of one AI provider.
+ */
+public class ProviderLatency {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    public ProviderLatency(int size) {
+        this.samples = new long[size];
+    }
+
+    public synchronized void record(Duration latency) {
+        samples[next] = latency.toNanos();
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the latency percentile of the recent calls, {@code null} when there was no call yet
+     */
+    public synchronized Duration percentile(double percentile) {
+        if (count == 0) {
+            return null;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return Duration.ofNanos(sorted[Math.clamp(index, 0, count - 1)]);
+    }
+}
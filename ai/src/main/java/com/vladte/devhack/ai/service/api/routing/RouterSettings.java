@@ -0,0 +1,49 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import org.springframework.core.env.PropertyResolver;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settings of the {@link AiProviderRouter}, read from {@code devhack.ai.router.*}.
+ *
+ * @param providers           names of the routed providers, in order of preference while their latency is unknown
+ * @param hedging             whether a slow call is hedged with a call to the next provider
+ * @param hedgePercentile     latency percentile of the provider after which its call is hedged
+ * @param hedgeMinDelay       hedges are not fired sooner, even for a fast provider
+ * @param hedgeMaxDelay       hedges are not fired later; also the delay while the latency of the provider is unknown
+ * @param circuitWindowSize   recent calls of a provider its failure rate is computed from
+ * @param circuitMinimumCalls calls needed in the window before the circuit of a provider can open
+ * @param circuitFailureRate  failure rate opening the circuit of a provider
+ * @param circuitOpenDuration time an open circuit skips its provider before one probe call is let through
+ */
+public record RouterSettings(List<String> providers,
+                             boolean hedging,
+                             double hedgePercentile,
+                             Duration hedgeMinDelay,
+                             Duration hedgeMaxDelay,
+                             int circuitWindowSize,
+                             int circuitMinimumCalls,
+                             double circuitFailureRate,
+                             Duration circuitOpenDuration) {
+
+    public static final String PREFIX = "devhack.ai.router.";
+
+    public static RouterSettings from(PropertyResolver properties) {
+        return new RouterSettings(
+                Arrays.stream(properties.getProperty(PREFIX + "providers", "openai,gptj").split(","))
+                        .map(String::trim)
+                        .filter(name -> !name.isEmpty())
+                        .toList(),
+                properties.getProperty(PREFIX + "hedging.enabled", Boolean.class, false),
+                properties.getProperty(PREFIX + "hedging.percentile", Double.class, 0.95),
+                properties.getProperty(PREFIX + "hedging.min-delay", Duration.class, Duration.ofMillis(500)),
+                properties.getProperty(PREFIX + "hedging.max-delay", Duration.class, Duration.ofSeconds(10)),
+                properties.getProperty(PREFIX + "circuit.window-size", Integer.class, 20),
+                properties.getProperty(PREFIX + "circuit.minimum-calls", Integer.class, 10),
+                properties.getProperty(PREFIX + "circuit.failure-rate", Double.class, 0.5),
+                properties.getProperty(PREFIX + "circuit.open-duration", Duration.class, Duration.ofSeconds(30)));
+    }
+}
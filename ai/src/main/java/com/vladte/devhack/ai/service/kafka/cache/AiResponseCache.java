@@ -0,0 +1,159 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Answers AI requests whose rendered prompt was answered before without calling the provider.
+ * <p>
+ * The key is the SHA-256 of the canonical JSON of what decides the answer: the message type, the model and its
+ * parameters, the prompt key and version, the rendered input and messages. Requests of other payloads are not cached.
+ * <p>
+ * Each message type has its own time-to-live, types without one are not cached. A prompt opts out with
+ * {@code "cache": false} in its {@code parameters}. Only successful responses are cached.
+ * <p>
+ * Lookups are counted in {@code devhack.ai.cache.requests} by type and result, hit or miss;
+ * {@code devhack.ai.cache.saved-latency} records for every hit how long the cached request took to be answered.
+ * An unavailable store counts as a miss.
+ */
+@Slf4j
+public class AiResponseCache {
+
+    /**
+     * Parameter of a prompt turning the cache off for it when {@code false}.
+     */
+    public static final String CACHE_PARAMETER = "cache";
+
+    private static final ObjectMapper CANONICAL_MAPPER = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .build();
+
+    private final ResponseCacheStore store;
+    private final Map<String, Duration> ttls;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param ttls time-to-live of the responses by message type
+     */
+    public AiResponseCache(ResponseCacheStore store, Map<String, Duration> ttls, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.ttls = Map.copyOf(ttls);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return the cached response to the request, empty when it is not cached or not cacheable
+     */
+    public Optional<ResponsePayload<?>> find(KafkaMessage<?> message) {
+        Optional<String> key = keyOf(message);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<CachedResponse> cached;
+        try {
+            cached = store.find(key.get());
+        } catch (RuntimeException e) {
+            // an unavailable cache must not stop requests from being answered
+            log.warn("Response cache lookup failed for request {}: {}", message.getId(), e.getMessage());
+            cached = Optional.empty();
+        }
+        String type = String.valueOf(message.getType());
+        requests(type, cached.isPresent() ? "hit" : "miss").increment();
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+        log.debug("AI request {} of type {} answered from the response cache", message.getId(), type);
+        Timer.builder("devhack.ai.cache.saved-latency")
+                .description("Latency of the cached AI requests, saved again by every cache hit")
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(cached.get().getLatencyMillis()));
+        return Optional.of(cached.get().getResponse());
+    }
+
+    /**
+     * Caches a response to the request when it is successful and the request is cacheable.
+     *
+     * @param latency time the request took to be answered
+     */
+    public void save(KafkaMessage<?> message, ResponsePayload<?> response, Duration latency) {
+        if (response.isHasErrors()) {
+            return;
+        }
+        Optional<String> key = keyOf(message);
+        if (key.isEmpty()) {
+            return;
+        }
+        Instant expiresAt = Instant.now().plus(ttls.get(message.getType()));
+        try {
+            store.save(key.get(), new CachedResponse(response, latency.toMillis(), expiresAt));
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache the response to request {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the cache key of the request, empty when its responses are not cached
+     */
+    Optional<String> keyOf(KafkaMessage<?> message) {
+        Duration ttl = ttls.get(message.getType());
+        if (ttl == null || !ttl.isPositive() || !(message.getPayload() instanceof AiRenderedRequestPayload payload)) {
+            return Optional.empty();
+        }
+        Map<String, Object> parameters = payload.getParameters() != null
+                ? new TreeMap<>(payload.getParameters())
+                : new TreeMap<>();
+        Object cache = parameters.remove(CACHE_PARAMETER);
+        if (cache != null && !Boolean.parseBoolean(cache.toString())) {
+            return Optional.empty();
+        }
+        if (payload.getInput() == null && payload.getMessages() == null) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> canonical = new LinkedHashMap<>();
+        canonical.put("type", message.getType());
+        canonical.put("model", payload.getModel());
+        canonical.put("parameters", parameters);
+        canonical.put("promptKey", payload.getPromptKey());
+        canonical.put("version", payload.getVersion());
+        canonical.put("input", payload.getInput());
+        canonical.put("messages", payload.getMessages());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(CANONICAL_MAPPER.writeValueAsBytes(canonical));
+            return Optional.of(HexFormat.of().formatHex(digest));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.warn("Request {} is not cached, its prompt could not be hashed: {}", message.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Counter requests(String type, String result) {
+        return Counter.builder("devhack.ai.cache.requests")
+                .description("Lookups of AI requests in the response cache, by result: hit or miss")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
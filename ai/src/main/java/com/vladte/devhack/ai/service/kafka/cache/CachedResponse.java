@@ -0,0 +1,31 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A response kept in a {@link ResponseCacheStore}.
+ * Not a record: the Redis tier writes the type of the value with it, which Jackson only does for non-final classes.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedResponse {
+
+    private ResponsePayload<?> response;
+
+    /**
+     * Time the request that produced the response took to be answered, saved again by every hit.
+     */
+    private long latencyMillis;
+
+    private Instant expiresAt;
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
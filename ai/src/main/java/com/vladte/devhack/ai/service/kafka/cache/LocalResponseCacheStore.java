@@ -0,0 +1,49 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link ResponseCacheStore} in the memory of this instance.
+ * Holds at most {@code maxEntries} responses, the least recently used are evicted first.
+ */
+public class LocalResponseCacheStore implements ResponseCacheStore {
+
+    private final Map<String, CachedResponse> entries;
+
+    public LocalResponseCacheStore(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<CachedResponse> find(String key) {
+        CachedResponse cached = entries.get(key);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (cached.isExpired(Instant.now())) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(cached);
+    }
+
+    @Override
+    public synchronized void save(String key, CachedResponse cached) {
+        entries.put(key, cached);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
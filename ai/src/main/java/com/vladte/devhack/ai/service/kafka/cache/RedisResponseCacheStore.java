@@ -0,0 +1,36 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * {@link ResponseCacheStore} in Redis, shared by all instances of the AI module.
+ * Entries expire through the Redis key TTL.
+ */
+public class RedisResponseCacheStore implements ResponseCacheStore {
+
+    public static final String KEY_PREFIX = "devhack:ai:response-cache:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public RedisResponseCacheStore(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Optional<CachedResponse> find(String key) {
+        Object stored = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        return stored instanceof CachedResponse cached ? Optional.of(cached) : Optional.empty();
+    }
+
+    @Override
+    public void save(String key, CachedResponse cached) {
+        Duration ttl = Duration.between(Instant.now(), cached.getExpiresAt());
+        if (ttl.isPositive()) {
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, cached, ttl);
+        }
+    }
+}
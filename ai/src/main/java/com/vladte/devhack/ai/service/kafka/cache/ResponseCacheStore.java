@@ -0,0 +1,17 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import java.util.Optional;
+
+/**
+ * Responses of AI requests by the key of their rendered prompt, see {@link AiResponseCache}.
+ * Entries expire at {@link CachedResponse#getExpiresAt()}.
+ */
+public interface ResponseCacheStore {
+
+    /**
+     * @return the response cached under the key, empty when there is none or it expired
+     */
+    Optional<CachedResponse> find(String key);
+
+    void save(String key, CachedResponse cached);
+}
@@ -0,0 +1,36 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import java.util.Optional;
+
+/**
+ * A {@link ResponseCacheStore} of this instance in front of a shared one.
+ * Responses found in the shared store are kept locally until they expire, so popular prompts are answered
+ * without a round trip to the shared store.
+ */
+public class TieredResponseCacheStore implements ResponseCacheStore {
+
+    private final ResponseCacheStore local;
+    private final ResponseCacheStore shared;
+
+    public TieredResponseCacheStore(ResponseCacheStore local, ResponseCacheStore shared) {
+        this.local = local;
+        this.shared = shared;
+    }
+
+    @Override
+    public Optional<CachedResponse> find(String key) {
+        Optional<CachedResponse> cached = local.find(key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        cached = shared.find(key);
+        cached.ifPresent(response -> local.save(key, response));
+        return cached;
+    }
+
+    @Override
+    public void save(String key, CachedResponse cached) {
+        local.save(key, cached);
+        shared.save(key, cached);
+    }
+}
@@ -2,19 +2,34 @@ package com.vladte.devhack.ai.service.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.idempotency.IdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import com.vladte.devhack.ai.util.KafkaPipelineConfig;
 import com.vladte.devhack.infra.message.MessageTypes;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
 import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for consuming answer feedback request messages.
@@ -22,64 +37,111 @@ import java.util.Map;
 @Service
 public class AnswerFeedbackConsumer extends KafkaAiRequestConsumer<AiRenderedRequestPayload, AnswerCheckResponsePayload> {
 
+    static final String LISTENER_ID = "answer-feedback";
+
     private static final Logger log = LoggerFactory.getLogger(AnswerFeedbackConsumer.class);
     private final OpenAiService openAiService;
 
     public AnswerFeedbackConsumer(@Qualifier("AnswerKafkaProvider") KafkaResponsePublisher<AnswerCheckResponsePayload> responsePublisher,
                                   OpenAiService aiService,
-                                  ObjectMapper objectMapper) {
-        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class);
+                                  ObjectMapper objectMapper,
+                                  ObservationRegistry observationRegistry,
+                                  FairRequestScheduler scheduler,
+                                  MeterRegistry meterRegistry,
+                                  IdempotencyStore idempotencyStore,
+                                  PartitionWindow partitionWindow,
+                                  RetryTopicForwarder retryTopicForwarder,
+                                  AiResponseCache responseCache) {
+        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class, observationRegistry, scheduler, meterRegistry,
+                idempotencyStore, partitionWindow, retryTopicForwarder, responseCache);
         this.openAiService = aiService;
     }
 
-    @KafkaListener(topics = Topics.ANSWER_FEEDBACK_REQUEST, groupId = "${spring.kafka.consumer.group-id}", concurrency = "2")
-    protected void listen(KafkaMessage<AiRenderedRequestPayload> message) {
-        processMessage(message);
+    @RetryableTopic(
+            attempts = "${devhack.kafka.retry.attempts}",
+            backoff = @Backoff(
+                    delayExpression = "${devhack.kafka.retry.delay}",
+                    multiplierExpression = "${devhack.kafka.retry.multiplier}",
+                    maxDelayExpression = "${devhack.kafka.retry.max-delay}"),
+            include = TransientAiProviderException.class,
+            traversingCauses = "true",
+            numPartitions = "3",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            listenerContainerFactory = KafkaPipelineConfig.CONTAINER_FACTORY
+    )
+    @KafkaListener(id = LISTENER_ID, containerFactory = KafkaPipelineConfig.CONTAINER_FACTORY,
+            topics = Topics.ANSWER_FEEDBACK_REQUEST, groupId = "${spring.kafka.consumer.group-id}", concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "answerFeedbackFilter",
+            autoStartup = "#{!${devhack.kafka.batch.enabled:false}}")
+    protected void listen(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processRecordAsync(LISTENER_ID, record, acknowledgment);
+    }
+
+    /**
+     * Batch variant of {@link #listen}, started instead of it when {@code devhack.kafka.batch.enabled} is set.
+     * Requests failing transiently go to the retry topics of {@link #listen}.
+     */
+    @KafkaListener(topics = Topics.ANSWER_FEEDBACK_REQUEST, groupId = "${spring.kafka.consumer.group-id}", concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "answerFeedbackFilter",
+            containerFactory = KafkaPipelineConfig.BATCH_CONTAINER_FACTORY, autoStartup = "${devhack.kafka.batch.enabled:false}")
+    protected void listenBatch(List<ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>>> records) {
+        processRecords(LISTENER_ID, records);
+    }
+
+    @DltHandler
+    public void listenDlt(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processDeadLetter(record, acknowledgment);
     }
 
     @Override
-    protected AnswerCheckResponsePayload performAiRequest(KafkaMessage<AiRenderedRequestPayload> message) {
+    protected CompletableFuture<AnswerCheckResponsePayload> performAiRequestAsync(KafkaMessage<AiRenderedRequestPayload> message) {
         AiRenderedRequestPayload payload = message.getPayload();
 
         if (!isValidPayload(payload)) {
             log.error("Invalid payload received: null arguments");
-            return AnswerCheckResponsePayload.error("Invalid payload format");
+            return CompletableFuture.completedFuture(AnswerCheckResponsePayload.error("Invalid payload format"));
         }
 
+        CompletableFuture<AnswerCheckResponsePayload> response;
         try {
-            return switch (MessageTypes.fromValue(message.getType())) {
-                case MessageTypes.CHECK_ANSWER_FOR_CHEATING -> handleCheatingCheck(payload);
-                case MessageTypes.CHECK_ANSWER_WITH_FEEDBACK -> handleAnswerFeedback(payload);
+            response = switch (MessageTypes.fromValue(message.getType())) {
+                case MessageTypes.CHECK_ANSWER_FOR_CHEATING -> handleCheatingCheck(message);
+                case MessageTypes.CHECK_ANSWER_WITH_FEEDBACK -> handleAnswerFeedback(message);
                 default -> {
                     log.error("Unknown message type: {}", message.getType());
-                    yield AnswerCheckResponsePayload.error("Unknown message type: " + message.getType());
+                    yield CompletableFuture.completedFuture(AnswerCheckResponsePayload.error("Unknown message type: " + message.getType()));
                 }
             };
         } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.exceptionally(error -> {
+            Exception e = failureOf(error);
+            rethrowIfTransient(message, e);
             log.error("Error processing message: {}", message.getId(), e);
             return AnswerCheckResponsePayload.error("Internal error: " + e.getMessage());
-        }
+        });
     }
 
     private boolean isValidPayload(AiRenderedRequestPayload payload) {
         return payload != null && payload.getArguments() != null;
     }
 
-    private AnswerCheckResponsePayload handleCheatingCheck(AiRenderedRequestPayload payload) {
+    private CompletableFuture<AnswerCheckResponsePayload> handleCheatingCheck(KafkaMessage<AiRenderedRequestPayload> message) {
         log.debug("Handling CHECK_ANSWER_FOR_CHEATING message");
-        Boolean isCheating = openAiService.checkAnswerForCheatingAsync(payload).join();
-        return AnswerCheckResponsePayload.fromCheatingResult(isCheating);
+        return withinDeadline(message, openAiService.checkAnswerForCheatingAsync(message.getPayload()))
+                .thenApply(AnswerCheckResponsePayload::fromCheatingResult);
     }
 
-    private AnswerCheckResponsePayload handleAnswerFeedback(AiRenderedRequestPayload payload) {
+    private CompletableFuture<AnswerCheckResponsePayload> handleAnswerFeedback(KafkaMessage<AiRenderedRequestPayload> message) {
         log.debug("Handling CHECK_ANSWER_WITH_FEEDBACK message");
-        Map<String, Object> result = openAiService.checkAnswerWithFeedbackAsync(payload).join();
-        return AnswerCheckResponsePayload.fromScoreAndFeedback(result);
+        return withinDeadline(message, openAiService.checkAnswerWithFeedbackAsync(message.getPayload()))
+                .thenApply(AnswerCheckResponsePayload::fromScoreAndFeedback);
     }
 
 
     @Override
     protected AnswerCheckResponsePayload createErrorResponse(String message) {
-        return null;
+        return AnswerCheckResponsePayload.error(message);
     }
 }
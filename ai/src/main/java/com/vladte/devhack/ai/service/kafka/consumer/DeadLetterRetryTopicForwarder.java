@@ -0,0 +1,33 @@
+package com.vladte.devhack.ai.service.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forwards with the recoverer of the {@code @RetryableTopic} of the listener: the destination, the back-off
+ * headers and the attempt count are the same as when the container forwards a failed record.
+ * <p>
+ * The topic resolver is looked up on first use, it is only registered once the retryable listeners were processed.
+ */
+public class DeadLetterRetryTopicForwarder implements RetryTopicForwarder {
+
+    private final ObjectProvider<DestinationTopicResolver> destinationTopicResolver;
+    private final Map<String, DeadLetterPublishingRecoverer> recoverers = new ConcurrentHashMap<>();
+
+    public DeadLetterRetryTopicForwarder(ObjectProvider<DestinationTopicResolver> destinationTopicResolver) {
+        this.destinationTopicResolver = destinationTopicResolver;
+    }
+
+    @Override
+    public void forward(String listenerId, ConsumerRecord<?, ?> record, Exception error) {
+        recoverers.computeIfAbsent(listenerId, id ->
+                        new DeadLetterPublishingRecovererFactory(destinationTopicResolver.getObject()).create(id))
+                .accept(record, null, error);
+    }
+}
@@ -0,0 +1,11 @@
+package com.vladte.devhack.ai.service.kafka.consumer;
+
+/**
+ * Thrown when the deadline of an AI request passed before the AI provider answered.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
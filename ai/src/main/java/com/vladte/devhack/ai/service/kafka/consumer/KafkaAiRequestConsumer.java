@@ -1,15 +1,59 @@
 package com.vladte.devhack.ai.service.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.idempotency.IdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import com.vladte.devhack.infra.message.MessageHeaders;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.RequestPayload;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
 import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.consumer.KafkaMessageProcessor;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Abstract base class for AI module Kafka consumers.
+ * <p>
+ * Requests carry the deadline of their sender (see {@link KafkaMessage#getDeadline()}). Expired requests are
+ * dropped without a response when they are received, when their user gets a turn and when the provider
+ * call returns; provider calls are given up once the deadline passed.
+ * <p>
+ * Provider calls never block a thread: they run on the futures of the provider client, holding a worker of the
+ * {@link FairRequestScheduler} until they complete. Record listeners hand each record on and return right away,
+ * see {@link #processRecordAsync}; its offset is acknowledged once the response was published, so the requests
+ * in flight are bounded by the {@link PartitionWindow} instead of the number of listener threads.
+ * <p>
+ * Answered requests are remembered in an {@link IdempotencyStore}: a request redelivered by Kafka is answered
+ * again with the stored response, without calling the provider. Requests whose rendered prompt was answered before
+ * are answered from the {@link AiResponseCache}, also without calling the provider.
+ * <p>
+ * Batch listeners, started instead of the record listeners with {@code devhack.kafka.batch.enabled}, hand all polled
+ * requests to the {@link FairRequestScheduler} at once and wait for the whole batch, see {@link #processRecords(String, List)}.
  *
  * @param <KafkaMessageRequestPayload>  The type of request payload expected
  * @param <KafkaMessageResponsePayload> The type of response payload to return
@@ -19,28 +63,428 @@ public abstract class KafkaAiRequestConsumer<KafkaMessageRequestPayload extends
         extends KafkaMessageProcessor<KafkaMessageRequestPayload> {
 
     private final KafkaResponsePublisher<KafkaMessageResponsePayload> responsePublisher;
+    private final ObservationRegistry observationRegistry;
+    private final FairRequestScheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final IdempotencyStore idempotencyStore;
+    private final PartitionWindow partitionWindow;
+    private final RetryTopicForwarder retryTopicForwarder;
+    private final AiResponseCache responseCache;
 
     protected KafkaAiRequestConsumer(KafkaResponsePublisher<KafkaMessageResponsePayload> responsePublisher,
                                      ObjectMapper objectMapper,
-                                     Class<KafkaMessageRequestPayload> requestPayloadClass) {
+                                     Class<KafkaMessageRequestPayload> requestPayloadClass,
+                                     ObservationRegistry observationRegistry,
+                                     FairRequestScheduler scheduler,
+                                     MeterRegistry meterRegistry,
+                                     IdempotencyStore idempotencyStore,
+                                     PartitionWindow partitionWindow,
+                                     RetryTopicForwarder retryTopicForwarder,
+                                     AiResponseCache responseCache) {
         super(objectMapper, requestPayloadClass);
         this.responsePublisher = responsePublisher;
+        this.observationRegistry = observationRegistry;
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+        this.idempotencyStore = idempotencyStore;
+        this.partitionWindow = partitionWindow;
+        this.retryTopicForwarder = retryTopicForwarder;
+        this.responseCache = responseCache;
     }
 
-    protected abstract KafkaMessageResponsePayload performAiRequest(KafkaMessage<KafkaMessageRequestPayload> message);
+    /**
+     * Starts the AI request without waiting for the provider.
+     *
+     * @return a future of the response; it fails with {@link TransientAiProviderException} when the request is
+     * worth retrying later, other failures should be answered with an error response
+     */
+    protected abstract CompletableFuture<KafkaMessageResponsePayload> performAiRequestAsync(KafkaMessage<KafkaMessageRequestPayload> message);
 
     protected abstract KafkaMessageResponsePayload createErrorResponse(String message);
 
     @Override
     protected void processIncomingMessage(KafkaMessage<KafkaMessageRequestPayload> message) {
         log.info("Processing AI request with ID: {}", message.getId());
+        KafkaHopRecorder.stampReceived(message);
+        respond(message).ifPresent(response -> responsePublisher.reply(message, response));
+    }
+
+    /**
+     * Entry point of record listeners consuming with manual acknowledgment: the request is handed on and the
+     * listener returns right away. While the window of the record's partition is full, the record is parked and
+     * the partition paused, see {@link PartitionWindow#execute}; the listener never waits for the provider.
+     * The record is acknowledged when it is settled: its response was published, it was dropped, answered
+     * with an error or forwarded to a retry topic. A record that could not be forwarded is not acknowledged,
+     * it is redelivered after the next rebalance or restart.
+     *
+     * @param listenerId id of the {@code @KafkaListener} of the main topic, selects the retry topics
+     */
+    protected void processRecordAsync(String listenerId,
+                                      ConsumerRecord<String, ? extends KafkaMessage<?>> record,
+                                      Acknowledgment acknowledgment) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        partitionWindow.execute(partition, () -> {
+            KafkaMessage<?> rawMessage;
+            CompletableFuture<Void> reply;
+            try {
+                rawMessage = withHeaders(record);
+                reply = startReply(rawMessage);
+            } catch (RuntimeException e) {
+                partitionWindow.release(partition);
+                throw e;
+            }
+            reply.whenComplete((ignored, error) -> {
+                boolean settled = true;
+                try {
+                    if (error != null) {
+                        settled = settleFailure(listenerId, record, rawMessage, error);
+                    }
+                } finally {
+                    partitionWindow.release(partition);
+                }
+                if (settled) {
+                    acknowledgment.acknowledge();
+                }
+            });
+        });
+    }
+
+    /**
+     * @return whether the failed record was settled and can be acknowledged
+     */
+    private boolean settleFailure(String listenerId,
+                                  ConsumerRecord<String, ? extends KafkaMessage<?>> record,
+                                  KafkaMessage<?> rawMessage,
+                                  Throwable error) {
+        Exception failure = failureOf(error);
+        log.error("Error processing Kafka message: {}", rawMessage.getId(), failure);
         try {
-            KafkaMessageResponsePayload response = performAiRequest(message);
-            responsePublisher.buildAndSend(message.getId(), response);
-        } catch (Exception e) {
-            log.error("Failed to process message: {}", e.getMessage(), e);
-            responsePublisher.buildAndSend(message.getId(), createErrorResponse("Internal error: " + e.getMessage()));
+            handleError(rawMessage, failure);
+            return true;
+        } catch (TransientAiProviderException transientError) {
+            try {
+                retryTopicForwarder.forward(listenerId, record, transientError);
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Failed to forward AI request {} to a retry topic, it is redelivered", rawMessage.getId(), e);
+                return false;
+            }
         }
     }
 
+    /**
+     * Answers a request received over HTTP instead of Kafka, the same way as a consumed one.
+     *
+     * @return the response, empty when the request expired and was dropped
+     * @throws TransientAiProviderException when the provider failed transiently
+     */
+    public Optional<KafkaMessage<KafkaMessageResponsePayload>> answer(KafkaMessage<KafkaMessageRequestPayload> message) {
+        log.info("Processing AI request with ID {} received over HTTP", message.getId());
+        KafkaHopRecorder.stampReceived(message);
+        return respond(message).map(response -> responsePublisher.buildResponse(message, response));
+    }
+
+    /**
+     * Entry point of batch listeners: starts the requests of the batch together and replies to each as soon as it is
+     * answered. Failures are settled like in {@link #processRecordAsync}, transient ones are forwarded to the retry
+     * topics of the record listener, so both modes share the retry and dead letter policy.
+     * The listener thread waits for the whole batch. When a failed record could not be forwarded, a
+     * {@link BatchListenerFailedException} makes the container commit the records before it and redeliver the rest;
+     * requests after it that were answered already are answered from the {@link IdempotencyStore} then.
+     *
+     * @param listenerId id of the record {@code @KafkaListener} of the main topic, selects the retry topics
+     */
+    protected void processRecords(String listenerId,
+                                  List<? extends ConsumerRecord<String, ? extends KafkaMessage<?>>> records) {
+        log.debug("Received batch of {} AI requests", records.size());
+        List<KafkaMessage<?>> rawMessages = new ArrayList<>(records.size());
+        List<CompletableFuture<Void>> replies = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ? extends KafkaMessage<?>> record : records) {
+            KafkaMessage<?> rawMessage = withHeaders(record);
+            rawMessages.add(rawMessage);
+            replies.add(startReply(rawMessage));
+        }
+        for (int index = 0; index < records.size(); index++) {
+            try {
+                replies.get(index).join();
+            } catch (CompletionException e) {
+                if (!settleFailure(listenerId, records.get(index), rawMessages.get(index), e)) {
+                    throw new BatchListenerFailedException("Failed to settle message " + rawMessages.get(index).getId(),
+                            failureOf(e), records.get(index));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a future completed once the response was published, or right away when there is none
+     */
+    private CompletableFuture<Void> startReply(KafkaMessage<?> rawMessage) {
+        try {
+            KafkaMessage<KafkaMessageRequestPayload> message = convertMessage(rawMessage);
+            log.info("Processing AI request with ID: {}", message.getId());
+            KafkaHopRecorder.stampReceived(message);
+            return respondAsync(message)
+                    .thenCompose(response -> response
+                            .map(payload -> responsePublisher.reply(message, payload).<Void>thenApply(sent -> null))
+                            .orElseGet(() -> CompletableFuture.completedFuture(null)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Optional<KafkaMessageResponsePayload> respond(KafkaMessage<KafkaMessageRequestPayload> message) {
+        try {
+            return respondAsync(message).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Answers a request once the fair scheduler gives its user a turn.
+     *
+     * @return a future of the response, empty when the request expired and was dropped; it fails with
+     * {@link TransientAiProviderException} when the request is worth retrying later
+     */
+    private CompletableFuture<Optional<KafkaMessageResponsePayload>> respondAsync(KafkaMessage<KafkaMessageRequestPayload> message) {
+        if (dropIfExpired(message, "received")) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        Optional<KafkaMessageResponsePayload> answered = findAnswered(message);
+        if (answered.isPresent()) {
+            return CompletableFuture.completedFuture(answered);
+        }
+        Optional<KafkaMessageResponsePayload> cached = findCached(message);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long startedNanos = System.nanoTime();
+        return scheduler.submitAsync(message.getHeader(MessageHeaders.USER_ID), estimateCost(message),
+                        () -> dropIfExpired(message, "queued")
+                                ? CompletableFuture.<KafkaMessageResponsePayload>completedFuture(null)
+                                : observeAiRequest(message))
+                .handle((response, error) -> complete(message, response, error,
+                        Duration.ofNanos(System.nanoTime() - startedNanos)));
+    }
+
+    /**
+     * Turns the outcome of a provider call into the response, {@code null} responses were dropped while queued.
+     *
+     * @param latency time from the request being handed to the scheduler until the call completed
+     */
+    private Optional<KafkaMessageResponsePayload> complete(KafkaMessage<KafkaMessageRequestPayload> message,
+                                                           KafkaMessageResponsePayload response,
+                                                           Throwable error,
+                                                           Duration latency) {
+        if (error == null) {
+            if (response == null || dropIfExpired(message, "answered")) {
+                return Optional.empty();
+            }
+            remember(message, response);
+            responseCache.save(message, response, latency);
+            return Optional.of(response);
+        }
+        if (dropIfExpired(message, "answered")) {
+            return Optional.empty();
+        }
+        Exception e = failureOf(error);
+        rethrowIfTransient(message, e);
+        log.error("Failed to process message: {}", e.getMessage(), e);
+        return Optional.of(createErrorResponse("Internal error: " + e.getMessage()));
+    }
+
+    /**
+     * Bounds a provider call by the deadline of the request.
+     * The call is given up once the deadline passed, the caller no longer waits for the response anyway.
+     *
+     * @return a future of the call that fails with a {@link DeadlineExceededException} when the deadline passed first
+     */
+    protected <T> CompletableFuture<T> withinDeadline(KafkaMessage<?> message, CompletableFuture<T> call) {
+        Instant deadline = message.getDeadline();
+        if (deadline == null) {
+            return call;
+        }
+        long remainingMillis = Math.max(0L, Duration.between(Instant.now(), deadline).toMillis());
+        CompletableFuture<T> bounded = call.copy().orTimeout(remainingMillis, TimeUnit.MILLISECONDS);
+        return bounded.exceptionallyCompose(error -> {
+            if (error instanceof TimeoutException && !call.isDone()) {
+                call.cancel(true);
+                return CompletableFuture.failedFuture(new DeadlineExceededException(
+                        "Deadline of request " + message.getId() + " passed while waiting for the AI provider"));
+            }
+            return CompletableFuture.failedFuture(error);
+        });
+    }
+
+    /**
+     * Unwraps the failure of a provider call for {@link #rethrowIfTransient} and logging.
+     */
+    protected static Exception failureOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception exception ? exception : new CompletionException(cause);
+    }
+
+    /**
+     * Looks up the stored response when the request was answered before.
+     *
+     * @return the stored response, empty when the request was not answered yet
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<KafkaMessageResponsePayload> findAnswered(KafkaMessage<?> message) {
+        Optional<ResponsePayload<?>> stored;
+        try {
+            stored = idempotencyStore.find(message.getId());
+        } catch (RuntimeException e) {
+            // an unavailable store must not stop requests from being answered
+            log.warn("Idempotency store lookup failed for request {}: {}", message.getId(), e.getMessage());
+            return Optional.empty();
+        }
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("AI request {} of type {} was already answered, republishing the stored response",
+                message.getId(), message.getType());
+        Counter.builder("devhack.ai.idempotency.duplicates")
+                .description("Redelivered AI requests answered with the stored response instead of a provider call")
+                .tag("type", String.valueOf(message.getType()))
+                .register(meterRegistry)
+                .increment();
+        return Optional.of((KafkaMessageResponsePayload) stored.get());
+    }
+
+    /**
+     * Looks up the response to an identical prompt answered before.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<KafkaMessageResponsePayload> findCached(KafkaMessage<?> message) {
+        return responseCache.find(message).map(response -> (KafkaMessageResponsePayload) response);
+    }
+
+    /**
+     * Stores a successful response, failed requests are answered anew when redelivered.
+     */
+    private void remember(KafkaMessage<?> message, KafkaMessageResponsePayload response) {
+        if (response.isHasErrors()) {
+            return;
+        }
+        try {
+            idempotencyStore.save(message.getId(), response);
+        } catch (RuntimeException e) {
+            log.warn("Failed to store the response to request {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @param stage where the request was found expired, used as metric tag
+     * @return whether the request expired and was dropped
+     */
+    private boolean dropIfExpired(KafkaMessage<?> message, String stage) {
+        if (!message.isExpired()) {
+            return false;
+        }
+        log.warn("Dropping AI request {} of type {}: its deadline {} passed ({})",
+                message.getId(), message.getType(), message.getDeadline(), stage);
+        Counter.builder("devhack.ai.deadline.expired")
+                .description("AI requests dropped because their sender stopped waiting for the response")
+                .tag("type", String.valueOf(message.getType()))
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+
+    /**
+     * Relative cost of a request for fair scheduling: one unit per started thousand characters of prompt.
+     */
+    protected int estimateCost(KafkaMessage<KafkaMessageRequestPayload> message) {
+        int length = 0;
+        if (message.getPayload() instanceof AiRenderedRequestPayload payload) {
+            length += payload.getInput() != null ? payload.getInput().length() : 0;
+            if (payload.getMessages() != null) {
+                for (Message chatMessage : payload.getMessages()) {
+                    length += chatMessage.getContent() != null ? chatMessage.getContent().length() : 0;
+                }
+            }
+        }
+        return 1 + length / 1_000;
+    }
+
+    /**
+     * Performs the AI request inside its own span, stamping when the provider call started and finished.
+     * The span ends when the call completes.
+     */
+    private CompletableFuture<KafkaMessageResponsePayload> observeAiRequest(KafkaMessage<KafkaMessageRequestPayload> message) {
+        KafkaHopRecorder.stamp(message, KafkaHopRecorder.PROVIDER_STARTED);
+        Observation observation = Observation.createNotStarted("devhack.ai.provider.call", observationRegistry)
+                .contextualName("ai provider call")
+                .lowCardinalityKeyValue("type", String.valueOf(message.getType()))
+                .highCardinalityKeyValue("message.id", String.valueOf(message.getId()))
+                .start();
+        CompletableFuture<KafkaMessageResponsePayload> call;
+        try (Observation.Scope scope = observation.openScope()) {
+            call = performAiRequestAsync(message);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.whenComplete((response, error) -> {
+            KafkaHopRecorder.stamp(message, KafkaHopRecorder.PROVIDER_FINISHED);
+            if (error != null) {
+                observation.error(error);
+            }
+            observation.stop();
+        });
+    }
+
+    /**
+     * Transient provider failures are not answered with an error; they leave the listener,
+     * so the request is forwarded to the next retry topic.
+     */
+    @Override
+    protected void handleError(KafkaMessage<?> message, Exception error) {
+        if (error instanceof TransientAiProviderException transientError) {
+            throw transientError;
+        }
+        super.handleError(message, error);
+    }
+
+    /**
+     * Rethrows the error as {@link TransientAiProviderException} when the request is worth retrying later.
+     * Expired requests are never worth retrying.
+     */
+    protected void rethrowIfTransient(KafkaMessage<?> message, Exception error) {
+        if (message.isExpired()) {
+            // a retry would be dropped anyway
+            return;
+        }
+        if (TransientAiProviderException.isTransient(error)) {
+            log.warn("Transient AI provider failure for message {}, retrying later: {}", message.getId(), error.getMessage());
+            throw error instanceof TransientAiProviderException transientError
+                    ? transientError
+                    : new TransientAiProviderException("AI provider failure for message " + message.getId(), error);
+        }
+    }
+
+    /**
+     * Handles a request that exhausted its retries: the caller is answered with an error instead of waiting for a timeout.
+     */
+    protected void processDeadLetter(ConsumerRecord<String, ? extends KafkaMessage<?>> record, Acknowledgment acknowledgment) {
+        processDeadLetter(record);
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * Handles a request that exhausted its retries: the caller is answered with an error instead of waiting for a timeout.
+     */
+    protected void processDeadLetter(ConsumerRecord<String, ? extends KafkaMessage<?>> record) {
+        KafkaMessage<?> message = withHeaders(record);
+        String failure = message.getHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE);
+        log.error("AI request {} from {} moved to {} after retries, {}: {}", message.getId(),
+                message.getHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC), record.topic(),
+                message.getHeader(KafkaHeaders.DLT_EXCEPTION_FQCN), failure);
+        responsePublisher.reply(message, createErrorResponse("AI provider unavailable: " + failure));
+    }
 }
@@ -2,60 +2,158 @@ package com.vladte.devhack.ai.service.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.idempotency.IdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import com.vladte.devhack.ai.util.KafkaPipelineConfig;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
 import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service for consuming question generation request messages.
  */
 @Service
 public class QuestionGenerateConsumer extends KafkaAiRequestConsumer<AiRenderedRequestPayload, QuestionGenerateResponsePayload> {
 
+    static final String LISTENER_ID = "question-generate";
+    static final String BULK_LISTENER_ID = "question-generate-bulk";
+
     private static final Logger log = LoggerFactory.getLogger(QuestionGenerateConsumer.class);
     private final OpenAiService openAiService;
 
     public QuestionGenerateConsumer(@Qualifier("QuestionKafkaProvider") KafkaResponsePublisher<QuestionGenerateResponsePayload> responsePublisher,
-                                    OpenAiService aiService, ObjectMapper objectMapper) {
-        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class);
+                                    OpenAiService aiService, ObjectMapper objectMapper,
+                                    ObservationRegistry observationRegistry,
+                                    FairRequestScheduler scheduler,
+                                    MeterRegistry meterRegistry,
+                                    IdempotencyStore idempotencyStore,
+                                    PartitionWindow partitionWindow,
+                                    RetryTopicForwarder retryTopicForwarder,
+                                    AiResponseCache responseCache) {
+        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class, observationRegistry, scheduler, meterRegistry,
+                idempotencyStore, partitionWindow, retryTopicForwarder, responseCache);
         this.openAiService = aiService;
     }
 
+    @RetryableTopic(
+            attempts = "${devhack.kafka.retry.attempts}",
+            backoff = @Backoff(
+                    delayExpression = "${devhack.kafka.retry.delay}",
+                    multiplierExpression = "${devhack.kafka.retry.multiplier}",
+                    maxDelayExpression = "${devhack.kafka.retry.max-delay}"),
+            include = TransientAiProviderException.class,
+            traversingCauses = "true",
+            numPartitions = "3",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            listenerContainerFactory = KafkaPipelineConfig.CONTAINER_FACTORY
+    )
+    @KafkaListener(
+            id = LISTENER_ID,
+            containerFactory = KafkaPipelineConfig.CONTAINER_FACTORY,
+            topics = Topics.QUESTION_GENERATE_REQUEST,
+            groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "questionGenerateFilter",
+            autoStartup = "#{!${devhack.kafka.batch.enabled:false}}"
+    )
+    public void listen(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processRecordAsync(LISTENER_ID, record, acknowledgment);
+    }
+
+    /**
+     * Bulk lane: multi-tag generation runs arrive on their own topic and get their own consumers,
+     * so they do not hold up interactive requests consumed by {@link #listen}.
+     * Polling a single record at a time keeps a bulk consumer from sitting on a backlog; unlike {@link #listen}
+     * the record is answered on the listener thread and acknowledged after that.
+     */
+    @RetryableTopic(
+            attempts = "${devhack.kafka.retry.attempts}",
+            backoff = @Backoff(
+                    delayExpression = "${devhack.kafka.retry.delay}",
+                    multiplierExpression = "${devhack.kafka.retry.multiplier}",
+                    maxDelayExpression = "${devhack.kafka.retry.max-delay}"),
+            include = TransientAiProviderException.class,
+            traversingCauses = "true",
+            numPartitions = "3",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            listenerContainerFactory = KafkaPipelineConfig.CONTAINER_FACTORY
+    )
+    @KafkaListener(
+            id = BULK_LISTENER_ID,
+            containerFactory = KafkaPipelineConfig.CONTAINER_FACTORY,
+            topics = Topics.QUESTION_GENERATE_BULK_REQUEST,
+            groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${devhack.kafka.lanes.bulk.concurrency}",
+            filter = "questionGenerateFilter",
+            properties = "max.poll.records=${devhack.kafka.lanes.bulk.max-poll-records}"
+    )
+    public void listenBulk(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processRecord(record);
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * Batch variant of {@link #listen}, started instead of it when {@code devhack.kafka.batch.enabled} is set.
+     * Requests failing transiently go to the retry topics of {@link #listen}.
+     */
     @KafkaListener(
             topics = Topics.QUESTION_GENERATE_REQUEST,
             groupId = "${spring.kafka.consumer.group-id}",
-            concurrency = "2"
+            concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "questionGenerateFilter",
+            containerFactory = KafkaPipelineConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "${devhack.kafka.batch.enabled:false}"
     )
-    public void listen(KafkaMessage<AiRenderedRequestPayload> message) {
-        processMessage(message);
+    public void listenBatch(List<ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>>> records) {
+        processRecords(LISTENER_ID, records);
+    }
+
+    @DltHandler
+    public void listenDlt(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processDeadLetter(record, acknowledgment);
     }
 
     @Override
-    protected QuestionGenerateResponsePayload performAiRequest(KafkaMessage<AiRenderedRequestPayload> message) {
+    protected CompletableFuture<QuestionGenerateResponsePayload> performAiRequestAsync(KafkaMessage<AiRenderedRequestPayload> message) {
         AiRenderedRequestPayload payload = message.getPayload();
         if (payload == null || payload.getArguments() == null) {
             log.error("Invalid payload received: null or empty arguments");
-            return QuestionGenerateResponsePayload.error("Invalid payload format");
+            return CompletableFuture.completedFuture(QuestionGenerateResponsePayload.error("Invalid payload format"));
         }
 
-        try {
-            String result = openAiService.generateQuestionsForTagAsync(payload).join();
-            return QuestionGenerateResponsePayload.fromGeneratedText(result);
-        } catch (Exception e) {
-            log.error("Error generating questions for message: {}", message.getId(), e);
-            return QuestionGenerateResponsePayload.error("Internal error: " + e.getMessage());
-        }
+        return withinDeadline(message, openAiService.generateQuestionsForTagAsync(payload))
+                .thenApply(QuestionGenerateResponsePayload::fromGeneratedText)
+                .exceptionally(error -> {
+                    Exception e = failureOf(error);
+                    rethrowIfTransient(message, e);
+                    log.error("Error generating questions for message: {}", message.getId(), e);
+                    return QuestionGenerateResponsePayload.error("Internal error: " + e.getMessage());
+                });
     }
 
     @Override
     protected QuestionGenerateResponsePayload createErrorResponse(String message) {
-        return null;
+        return QuestionGenerateResponsePayload.error(message);
     }
 }
@@ -0,0 +1,20 @@
+package com.vladte.devhack.ai.service.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Forwards a request that failed after its listener returned to the next retry topic of the listener,
+ * the way the container forwards requests whose listener threw.
+ */
+@FunctionalInterface
+public interface RetryTopicForwarder {
+
+    /**
+     * Forwards the record and waits until it was sent.
+     *
+     * @param listenerId id of the {@code @KafkaListener} of the main topic
+     * @param record     the record as it was consumed, from the main or a retry topic
+     * @param error      the failure, decides between the next retry topic and the dead letter topic
+     */
+    void forward(String listenerId, ConsumerRecord<?, ?> record, Exception error);
+}
@@ -2,18 +2,34 @@ package com.vladte.devhack.ai.service.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.idempotency.IdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import com.vladte.devhack.ai.util.KafkaPipelineConfig;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
 import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for consuming vacancy parsing request messages.
@@ -21,51 +37,102 @@ import java.util.Map;
 @Service
 public class VacancyParsingConsumer extends KafkaAiRequestConsumer<AiRenderedRequestPayload, VacancyParseResponsePayload> {
 
+    static final String LISTENER_ID = "vacancy-parsing";
+
     private static final Logger log = LoggerFactory.getLogger(VacancyParsingConsumer.class);
     private final OpenAiService openAiService;
 
     public VacancyParsingConsumer(@Qualifier("VacancyKafkaProvider") KafkaResponsePublisher<VacancyParseResponsePayload> responsePublisher,
                                   OpenAiService aiService,
-                                  ObjectMapper objectMapper) {
-        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class);
+                                  ObjectMapper objectMapper,
+                                  ObservationRegistry observationRegistry,
+                                  FairRequestScheduler scheduler,
+                                  MeterRegistry meterRegistry,
+                                  IdempotencyStore idempotencyStore,
+                                  PartitionWindow partitionWindow,
+                                  RetryTopicForwarder retryTopicForwarder,
+                                  AiResponseCache responseCache) {
+        super(responsePublisher, objectMapper, AiRenderedRequestPayload.class, observationRegistry, scheduler, meterRegistry,
+                idempotencyStore, partitionWindow, retryTopicForwarder, responseCache);
         this.openAiService = aiService;
     }
 
+    @RetryableTopic(
+            attempts = "${devhack.kafka.retry.attempts}",
+            backoff = @Backoff(
+                    delayExpression = "${devhack.kafka.retry.delay}",
+                    multiplierExpression = "${devhack.kafka.retry.multiplier}",
+                    maxDelayExpression = "${devhack.kafka.retry.max-delay}"),
+            include = TransientAiProviderException.class,
+            traversingCauses = "true",
+            numPartitions = "3",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            listenerContainerFactory = KafkaPipelineConfig.CONTAINER_FACTORY
+    )
     @KafkaListener(
+            id = LISTENER_ID,
+            containerFactory = KafkaPipelineConfig.CONTAINER_FACTORY,
             topics = Topics.VACANCY_PARSING_REQUEST,
             groupId = "${spring.kafka.consumer.group-id}",
-            concurrency = "2"
+            concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "vacancyParsingFilter",
+            autoStartup = "#{!${devhack.kafka.batch.enabled:false}}"
     )
-    public void listen(KafkaMessage<AiRenderedRequestPayload> message) {
-        processMessage(message);
+    public void listen(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processRecordAsync(LISTENER_ID, record, acknowledgment);
+    }
+
+    /**
+     * Batch variant of {@link #listen}, started instead of it when {@code devhack.kafka.batch.enabled} is set.
+     * Requests failing transiently go to the retry topics of {@link #listen}.
+     */
+    @KafkaListener(
+            topics = Topics.VACANCY_PARSING_REQUEST,
+            groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${devhack.kafka.lanes.interactive.concurrency}",
+            filter = "vacancyParsingFilter",
+            containerFactory = KafkaPipelineConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "${devhack.kafka.batch.enabled:false}"
+    )
+    public void listenBatch(List<ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>>> records) {
+        processRecords(LISTENER_ID, records);
+    }
+
+    @DltHandler
+    public void listenDlt(ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record, Acknowledgment acknowledgment) {
+        processDeadLetter(record, acknowledgment);
     }
 
     @Override
-    protected VacancyParseResponsePayload performAiRequest(KafkaMessage<AiRenderedRequestPayload> message) {
+    protected CompletableFuture<VacancyParseResponsePayload> performAiRequestAsync(KafkaMessage<AiRenderedRequestPayload> message) {
         AiRenderedRequestPayload payload = message.getPayload();
 
         if (payload == null || payload.getArguments() == null) {
             log.error("Invalid vacancy parsing request payload: null");
-            return VacancyParseResponsePayload.error("Invalid payload format for vacancy parsing");
+            return CompletableFuture.completedFuture(VacancyParseResponsePayload.error("Invalid payload format for vacancy parsing"));
         }
 
-        try {
-            log.debug("Extracting vacancy model for incoming payload");
-            Map<String, Object> result = openAiService.extractVacancyModelFromDescription(payload).join();
+        log.debug("Extracting vacancy model for incoming payload");
+        return withinDeadline(message, openAiService.extractVacancyModelFromDescription(payload))
+                .thenApply(this::toResponse)
+                .exceptionally(error -> {
+                    Exception e = failureOf(error);
+                    rethrowIfTransient(message, e);
+                    log.error("Exception while extracting vacancy model", e);
+                    return VacancyParseResponsePayload.error("Error extracting vacancy: " + e.getMessage());
+                });
+    }
 
-            if (Boolean.TRUE.equals(result.get("success"))) {
-                return VacancyParseResponsePayload.fromJson((String) result.get("data"));
-            } else {
-                return VacancyParseResponsePayload.error((String) result.get("message"));
-            }
-        } catch (Exception e) {
-            log.error("Exception while extracting vacancy model", e);
-            return VacancyParseResponsePayload.error("Error extracting vacancy: " + e.getMessage());
+    private VacancyParseResponsePayload toResponse(Map<String, Object> result) {
+        if (Boolean.TRUE.equals(result.get("success"))) {
+            return VacancyParseResponsePayload.fromJson((String) result.get("data"));
+        } else {
+            return VacancyParseResponsePayload.error((String) result.get("message"));
         }
     }
 
     @Override
     protected VacancyParseResponsePayload createErrorResponse(String message) {
-        return null;
+        return VacancyParseResponsePayload.error(message);
     }
 }
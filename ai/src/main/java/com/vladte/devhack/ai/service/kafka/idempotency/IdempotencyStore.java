@@ -0,0 +1,28 @@
+package com.vladte.devhack.ai.service.kafka.idempotency;
+
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+
+import java.util.Optional;
+
+/**
+ * Responses of processed AI requests, keyed by the id of the request message.
+ * A request redelivered by Kafka, e.g. after a rebalance or a crash before its offset was committed,
+ * is answered with the stored response instead of calling the AI provider again.
+ * Entries expire after a time-to-live set by the implementation.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @param requestId id of the request message
+     * @return the response stored for the request, empty when it was not answered yet or its entry expired
+     */
+    Optional<ResponsePayload<?>> find(String requestId);
+
+    /**
+     * Stores the response to a request.
+     *
+     * @param requestId id of the request message
+     * @param response  the response published for it
+     */
+    void save(String requestId, ResponsePayload<?> response);
+}
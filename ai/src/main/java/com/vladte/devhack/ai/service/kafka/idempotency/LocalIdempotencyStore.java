@@ -0,0 +1,61 @@
+package com.vladte.devhack.ai.service.kafka.idempotency;
+
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link IdempotencyStore} in the memory of this instance.
+ * Redeliveries caused by a rebalance usually reach another instance, so this store only suppresses
+ * duplicates redelivered to the instance that answered them; use {@link RedisIdempotencyStore} to share
+ * the responses between instances.
+ * <p>
+ * Holds at most {@code maxEntries} responses, the oldest are evicted first.
+ */
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    public LocalIdempotencyStore(Duration ttl, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<ResponsePayload<?>> find(String requestId) {
+        Entry entry = entries.get(requestId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.storedNanos() > ttlNanos) {
+            entries.remove(requestId);
+            return Optional.empty();
+        }
+        return Optional.of(entry.response());
+    }
+
+    @Override
+    public synchronized void save(String requestId, ResponsePayload<?> response) {
+        entries.remove(requestId);
+        entries.put(requestId, new Entry(response, System.nanoTime()));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(ResponsePayload<?> response, long storedNanos) {
+    }
+}
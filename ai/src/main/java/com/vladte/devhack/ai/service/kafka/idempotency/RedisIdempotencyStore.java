@@ -0,0 +1,35 @@
+package com.vladte.devhack.ai.service.kafka.idempotency;
+
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@link IdempotencyStore} in Redis, shared by all instances of the AI module.
+ * Entries expire through the Redis key TTL.
+ */
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    public static final String KEY_PREFIX = "devhack:ai:idempotency:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration ttl;
+
+    public RedisIdempotencyStore(RedisTemplate<String, Object> redisTemplate, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Optional<ResponsePayload<?>> find(String requestId) {
+        Object stored = redisTemplate.opsForValue().get(KEY_PREFIX + requestId);
+        return stored instanceof ResponsePayload<?> response ? Optional.of(response) : Optional.empty();
+    }
+
+    @Override
+    public void save(String requestId, ResponsePayload<?> response) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + requestId, response, ttl);
+    }
+}
@@ -3,11 +3,10 @@ package com.vladte.devhack.ai.service.kafka.producers.impl;
 import com.vladte.devhack.ai.service.kafka.producers.KafkaResponseProvider;
 import com.vladte.devhack.infra.message.MessageDestinations;
 import com.vladte.devhack.infra.message.MessageTypes;
-import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import com.vladte.devhack.infra.topics.Topics;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 /**
@@ -19,8 +18,8 @@ public class QuestionKafkaProviderImpl
         implements KafkaResponseProvider<QuestionGenerateResponsePayload> {
 
 
-    public QuestionKafkaProviderImpl(KafkaTemplate<String, KafkaMessage<QuestionGenerateResponsePayload>> kafkaTemplate) {
-        super(kafkaTemplate);
+    public QuestionKafkaProviderImpl(MessageTransport transport) {
+        super(transport);
     }
 
     @Override
@@ -3,11 +3,10 @@ package com.vladte.devhack.ai.service.kafka.producers.impl;
 import com.vladte.devhack.ai.service.kafka.producers.KafkaResponseProvider;
 import com.vladte.devhack.infra.message.MessageDestinations;
 import com.vladte.devhack.infra.message.MessageTypes;
-import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
 import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import com.vladte.devhack.infra.topics.Topics;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 /**
@@ -18,8 +17,8 @@ public class VacancyKafkaProviderImpl
         extends KafkaResponsePublisher<VacancyParseResponsePayload>
         implements KafkaResponseProvider<VacancyParseResponsePayload> {
 
-    public VacancyKafkaProviderImpl(KafkaTemplate<String, KafkaMessage<VacancyParseResponsePayload>> kafkaTemplate) {
-        super(kafkaTemplate);
+    public VacancyKafkaProviderImpl(MessageTransport transport) {
+        super(transport);
     }
 
     @Override
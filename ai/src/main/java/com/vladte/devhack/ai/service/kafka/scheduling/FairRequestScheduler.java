@@ -0,0 +1,281 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fair-queueing stage between the Kafka listeners and the AI provider.
+ * Every user gets its own FIFO queue; a fixed number of workers serves the queues by deficit round robin,
+ * so a user with hundreds of queued requests only gets its share of the workers, while requests of other
+ * users keep being served at their usual latency.
+ * <p>
+ * Each visit of a queue adds {@code quantum} to its deficit, a request is served once the deficit of its
+ * queue covers its cost. With equal costs this is plain round robin; expensive requests take proportionally
+ * more turns.
+ * <p>
+ * The number of workers can be changed at runtime with {@link #resize(int)}. Worker threads are started on demand
+ * and stop after a minute without work, so shrinking releases them once the running requests finished.
+ * <p>
+ * A worker is a slot for one running task rather than a thread: tasks submitted with {@link #submitAsync} only
+ * start their call on a worker thread and hold the slot until the returned future completes, so non-blocking
+ * provider calls do not tie up a thread while they wait for the provider.
+ */
+public class FairRequestScheduler implements AutoCloseable {
+
+    public static final String ANONYMOUS = "anonymous";
+
+    /**
+     * Weight of the latest request in the average service time.
+     */
+    private static final double SERVICE_TIME_WEIGHT = 0.2;
+
+    private final int quantum;
+    private final ExecutorService workers;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, UserQueue> queues = new HashMap<>();
+    private final Deque<UserQueue> activeQueues = new ArrayDeque<>();
+    private int workerCount;
+    private int idleWorkers;
+    private int queuedTasks;
+    private double serviceNanos;
+
+    private final Timer waitTimer;
+
+    public FairRequestScheduler(int workerCount, int quantum, MeterRegistry meterRegistry) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+        }
+        this.quantum = quantum;
+        this.workerCount = workerCount;
+        this.idleWorkers = workerCount;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ai-fair-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("devhack.ai.fair.queued", this, FairRequestScheduler::queued)
+                .description("Number of AI requests waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("devhack.ai.fair.users", this, FairRequestScheduler::activeUsers)
+                .description("Number of users with AI requests waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("devhack.ai.fair.workers", this, FairRequestScheduler::workers)
+                .description("Number of workers calling the AI provider")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("devhack.ai.fair.wait")
+                .description("Time an AI request waited in its user queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a task of a user.
+     *
+     * @param userId identifier of the user the task is done for, {@code null} for anonymous requests
+     * @param cost   relative cost of the task, at least 1
+     * @param task   the task, run on a worker thread
+     * @return a future completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(String userId, int cost, Supplier<T> task) {
+        return submitAsync(userId, cost, () -> CompletableFuture.completedFuture(task.get()));
+    }
+
+    /**
+     * Queues a task of a user that completes asynchronously. The task holds its worker until its future completes;
+     * the returned future is completed on a worker thread, never on the thread completing the task's future.
+     *
+     * @param userId identifier of the user the task is done for, {@code null} for anonymous requests
+     * @param cost   relative cost of the task, at least 1
+     * @param task   starts the task on a worker thread and returns its future
+     * @return a future completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submitAsync(String userId, int cost, Supplier<CompletableFuture<T>> task) {
+        QueuedTask<T> queued = new QueuedTask<>(Math.max(1, cost), task, new CompletableFuture<>(), System.nanoTime());
+        synchronized (this) {
+            String key = userId != null ? userId : ANONYMOUS;
+            UserQueue queue = queues.computeIfAbsent(key, this::openQueue);
+            queue.tasks.addLast(queued);
+            queuedTasks++;
+            if (!queue.active) {
+                queue.active = true;
+                activeQueues.addLast(queue);
+            }
+            dispatch();
+        }
+        return queued.future;
+    }
+
+    public synchronized int queued() {
+        return queuedTasks;
+    }
+
+    public synchronized int activeUsers() {
+        return activeQueues.size();
+    }
+
+    public synchronized int workers() {
+        return workerCount;
+    }
+
+    /**
+     * @return number of workers running a task, may exceed {@link #workers()} right after shrinking
+     */
+    public synchronized int busyWorkers() {
+        return workerCount - idleWorkers;
+    }
+
+    /**
+     * @return moving average of the time a task ran, zero before the first task finished
+     */
+    public synchronized Duration averageServiceTime() {
+        return Duration.ofNanos((long) serviceNanos);
+    }
+
+    /**
+     * Changes the number of workers. Growing starts queued tasks right away; when shrinking,
+     * running tasks finish and no new task starts until fewer than {@code workerCount} are running.
+     */
+    public synchronized void resize(int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        idleWorkers += workerCount - this.workerCount;
+        this.workerCount = workerCount;
+        dispatch();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    // Called with the monitor held
+    private void dispatch() {
+        while (idleWorkers > 0) {
+            QueuedTask<?> next = nextTask();
+            if (next == null) {
+                return;
+            }
+            idleWorkers--;
+            queuedTasks--;
+            workers.execute(() -> run(next));
+        }
+    }
+
+    // Called with the monitor held
+    private QueuedTask<?> nextTask() {
+        while (!activeQueues.isEmpty()) {
+            UserQueue queue = activeQueues.peekFirst();
+            QueuedTask<?> head = queue.tasks.peekFirst();
+            if (head == null) {
+                deactivate(queue);
+                continue;
+            }
+            if (queue.deficit >= head.cost) {
+                queue.deficit -= head.cost;
+                queue.tasks.pollFirst();
+                if (queue.tasks.isEmpty()) {
+                    deactivate(queue);
+                }
+                return head;
+            }
+            queue.deficit += quantum;
+            activeQueues.addLast(activeQueues.pollFirst());
+        }
+        return null;
+    }
+
+    private void deactivate(UserQueue queue) {
+        activeQueues.remove(queue);
+        queue.active = false;
+        queue.deficit = 0;
+        queues.remove(queue.userId);
+        meterRegistry.remove(queue.depthGauge);
+    }
+
+    private <T> void run(QueuedTask<T> queued) {
+        long startNanos = System.nanoTime();
+        waitTimer.record(startNanos - queued.queuedNanos, TimeUnit.NANOSECONDS);
+        CompletableFuture<T> call;
+        try {
+            call = queued.task.get();
+        } catch (Throwable e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        if (call.isDone()) {
+            finish(queued, call, startNanos);
+        } else {
+            // the provider's I/O thread only hands the result over
+            CompletableFuture<T> started = call;
+            call.whenCompleteAsync((result, error) -> finish(queued, started, startNanos), workers);
+        }
+    }
+
+    private <T> void finish(QueuedTask<T> queued, CompletableFuture<T> call, long startNanos) {
+        try {
+            queued.future.complete(call.join());
+        } catch (CompletionException e) {
+            queued.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+        } catch (Throwable e) {
+            queued.future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                long elapsed = System.nanoTime() - startNanos;
+                serviceNanos = serviceNanos == 0 ? elapsed : serviceNanos + SERVICE_TIME_WEIGHT * (elapsed - serviceNanos);
+                idleWorkers++;
+                dispatch();
+            }
+        }
+    }
+
+    private UserQueue openQueue(String userId) {
+        UserQueue queue = new UserQueue(userId);
+        queue.depthGauge = Gauge.builder("devhack.ai.fair.queue.depth", queue, UserQueue::depth)
+                .description("Number of AI requests of a user waiting for a worker")
+                .tag("user", userId)
+                .register(meterRegistry);
+        return queue;
+    }
+
+    private final class UserQueue {
+        private final String userId;
+        private final Deque<QueuedTask<?>> tasks = new ArrayDeque<>();
+        private int deficit;
+        private boolean active;
+        private Gauge depthGauge;
+
+        private UserQueue(String userId) {
+            this.userId = userId;
+        }
+
+        private double depth() {
+            synchronized (FairRequestScheduler.this) {
+                return tasks.size();
+            }
+        }
+    }
+
+    private record QueuedTask<T>(int cost, Supplier<CompletableFuture<T>> task, CompletableFuture<T> future, long queuedNanos) {
+    }
+}
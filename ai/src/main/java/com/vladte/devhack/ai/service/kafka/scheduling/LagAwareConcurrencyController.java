@@ -0,0 +1,105 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Resizes the workers of the {@link FairRequestScheduler} from the consumer lag of the AI request topics
+ * and the latency of the AI provider, within {@code min} and {@code max}.
+ * <p>
+ * The backlog is the consumer lag plus the requests waiting for a worker. By Little's law, draining it
+ * within {@code drainTime} takes {@code backlog * latency / drainTime} concurrent provider calls; the workers
+ * grow to that right away. They shrink by at most one per adjustment, towards the number of busy workers when
+ * there is no backlog, so a short pause does not drop the capacity a steady load needs.
+ * <p>
+ * A provider slower than {@code latencyCeiling} is taken as saturated: the workers are not grown further,
+ * more concurrent calls would only make every call slower.
+ */
+@Slf4j
+public class LagAwareConcurrencyController {
+
+    private final FairRequestScheduler scheduler;
+    private final LongSupplier consumerLag;
+    private final int min;
+    private final int max;
+    private final Duration drainTime;
+    private final Duration latencyCeiling;
+    private final AtomicLong lastLag = new AtomicLong();
+
+    /**
+     * @param consumerLag total lag of the consumed request topics, may throw when it cannot be determined
+     */
+    public LagAwareConcurrencyController(FairRequestScheduler scheduler,
+                                         LongSupplier consumerLag,
+                                         int min,
+                                         int max,
+                                         Duration drainTime,
+                                         Duration latencyCeiling,
+                                         MeterRegistry meterRegistry) {
+        if (min <= 0 || min > max) {
+            throw new IllegalArgumentException("Invalid worker bounds: min " + min + ", max " + max);
+        }
+        this.scheduler = scheduler;
+        this.consumerLag = consumerLag;
+        this.min = min;
+        this.max = max;
+        this.drainTime = drainTime;
+        this.latencyCeiling = latencyCeiling;
+
+        Gauge.builder("devhack.ai.consumer.lag", lastLag, AtomicLong::get)
+                .description("Records of the AI request topics not consumed yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Measures lag and latency and resizes the scheduler once.
+     */
+    @Scheduled(fixedDelayString = "${devhack.ai.concurrency.interval:5000}")
+    public void adjust() {
+        long lag = measureLag();
+        int current = scheduler.workers();
+        int next = nextWorkerCount(current, scheduler.busyWorkers(), lag + scheduler.queued(), scheduler.averageServiceTime());
+        if (next != current) {
+            log.info("Resizing AI workers from {} to {}: lag {}, queued {}, provider latency {} ms",
+                    current, next, lag, scheduler.queued(), scheduler.averageServiceTime().toMillis());
+            scheduler.resize(next);
+        }
+    }
+
+    int nextWorkerCount(int current, int busy, long backlog, Duration latency) {
+        int target;
+        if (backlog > 0) {
+            // before the first answer the latency is unknown, one worker per waiting request then
+            long latencyMillis = latency.isZero() ? drainTime.toMillis() : Math.max(1L, latency.toMillis());
+            double needed = Math.ceil(backlog * (double) latencyMillis / Math.max(1L, drainTime.toMillis()));
+            target = Math.max(busy, (int) Math.min(needed, Integer.MAX_VALUE));
+            if (target > current && latency.compareTo(latencyCeiling) > 0) {
+                target = current;
+            }
+        } else {
+            target = busy;
+        }
+        if (target < current) {
+            target = Math.max(target, current - 1);
+        }
+        return Math.max(min, Math.min(max, target));
+    }
+
+    private long measureLag() {
+        try {
+            long lag = consumerLag.getAsLong();
+            lastLag.set(lag);
+            return lag;
+        } catch (RuntimeException e) {
+            // keep sizing on the queued requests alone
+            log.warn("Could not determine the consumer lag of AI requests: {}", e.getMessage());
+            return 0L;
+        }
+    }
+}
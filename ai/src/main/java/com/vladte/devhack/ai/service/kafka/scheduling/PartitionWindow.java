@@ -0,0 +1,200 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounds the records of each partition that were handed on by a listener but not acknowledged yet.
+ * A listener hands a record on through {@link #execute} and the slot it took is given back with {@link #release}
+ * once the record is settled. A record finding the window of its partition full is parked and the partition is
+ * paused, so the listener returns right away and its container keeps polling without fetching more records of the
+ * partition; parked records take the slots given back, and the partition is resumed once none is left and a slot
+ * is free. A paused partition parks at most the records of one poll, the rest stays in Kafka. Where pausing does
+ * nothing, as on the in-process bus, a listener finding {@code maxParked} records of its partition parked waits
+ * until one of them started, so the queue of the bus fills up and slows its senders down.
+ * <p>
+ * Offsets of a partition are committed in order, a slow request holds back the commits of the records behind it:
+ * the window also bounds the records redelivered after a crash or a rebalance.
+ */
+@Slf4j
+public class PartitionWindow {
+
+    /**
+     * Default of the records parked per partition, the default {@code max.poll.records} of a consumer.
+     */
+    public static final int DEFAULT_MAX_PARKED = 500;
+
+    /**
+     * Stops and restarts fetching the records of a partition, see
+     * {@link org.springframework.kafka.listener.MessageListenerContainer#pausePartition}.
+     */
+    public interface FlowControl {
+
+        FlowControl NONE = new FlowControl() {
+            @Override
+            public void pause(TopicPartition partition) {
+            }
+
+            @Override
+            public void resume(TopicPartition partition) {
+            }
+        };
+
+        void pause(TopicPartition partition);
+
+        void resume(TopicPartition partition);
+    }
+
+    // records parked on the releasing thread, started one after another instead of recursively
+    private static final ThreadLocal<Deque<Runnable>> UNPARKED = new ThreadLocal<>();
+
+    private final int size;
+    private final int maxParked;
+    private final FlowControl flowControl;
+    private final Map<TopicPartition, Integer> inFlight = new HashMap<>();
+    // present while the partition is paused, until a slot is free and no record is parked
+    private final Map<TopicPartition, Deque<Runnable>> parked = new HashMap<>();
+    private int total;
+    private int parkedTotal;
+
+    public PartitionWindow(int size, MeterRegistry meterRegistry) {
+        this(size, DEFAULT_MAX_PARKED, FlowControl.NONE, meterRegistry);
+    }
+
+    /**
+     * @param maxParked records parked per partition before {@link #execute} blocks, at least the
+     *                  {@code max.poll.records} of the listener containers so that a paused partition never blocks
+     */
+    public PartitionWindow(int size, int maxParked, FlowControl flowControl, MeterRegistry meterRegistry) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + size);
+        }
+        if (maxParked <= 0) {
+            throw new IllegalArgumentException("Max parked records must be positive: " + maxParked);
+        }
+        this.size = size;
+        this.maxParked = maxParked;
+        this.flowControl = flowControl;
+
+        Gauge.builder("devhack.ai.pipeline.in-flight", this, PartitionWindow::inFlight)
+                .description("AI request records handed on by the listeners and not acknowledged yet")
+                .register(meterRegistry);
+        Gauge.builder("devhack.ai.pipeline.parked", this, PartitionWindow::parked)
+                .description("AI request records waiting for a slot of their partition")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot of the partition and runs the record on the calling thread, or parks the record while the window
+     * of the partition is full; it then runs on the thread that gives back a slot. Blocks only while
+     * {@code maxParked} records of the partition are parked, until one of them started.
+     *
+     * @param record hands the record on; must give the slot back with {@link #release} once the record is settled
+     */
+    public void execute(TopicPartition partition, Runnable record) {
+        synchronized (this) {
+            awaitParkingSpace(partition);
+            Deque<Runnable> waiting = parked.get(partition);
+            if (waiting != null || inFlight.getOrDefault(partition, 0) >= size) {
+                if (waiting == null) {
+                    waiting = new ArrayDeque<>();
+                    parked.put(partition, waiting);
+                    log.debug("Window of partition {} is full, pausing it", partition);
+                    flowControl.pause(partition);
+                }
+                waiting.addLast(record);
+                parkedTotal++;
+                return;
+            }
+            inFlight.merge(partition, 1, Integer::sum);
+            total++;
+        }
+        record.run();
+    }
+
+    private void awaitParkingSpace(TopicPartition partition) {
+        Deque<Runnable> waiting;
+        while ((waiting = parked.get(partition)) != null && waiting.size() >= maxParked) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // parks the record beyond the limit rather than losing it
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot taken by {@link #execute}: the next parked record of the partition takes it, or the partition
+     * is resumed when it was paused.
+     */
+    public void release(TopicPartition partition) {
+        Runnable next;
+        synchronized (this) {
+            Deque<Runnable> waiting = parked.get(partition);
+            next = waiting != null ? waiting.pollFirst() : null;
+            if (waiting != null) {
+                notifyAll();
+            }
+            if (next != null) {
+                // the slot passes to the parked record, the in-flight count stays the same
+                parkedTotal--;
+            } else {
+                inFlight.computeIfPresent(partition, (key, count) -> count > 1 ? count - 1 : null);
+                total--;
+                if (waiting != null) {
+                    parked.remove(partition);
+                    log.debug("Window of partition {} has room, resuming it", partition);
+                    flowControl.resume(partition);
+                }
+            }
+        }
+        if (next != null) {
+            unpark(next);
+        }
+    }
+
+    private static void unpark(Runnable record) {
+        Deque<Runnable> unparked = UNPARKED.get();
+        if (unparked != null) {
+            // a record settled right away gave back its slot, run the next one after it returned
+            unparked.addLast(record);
+            return;
+        }
+        unparked = new ArrayDeque<>();
+        unparked.addLast(record);
+        UNPARKED.set(unparked);
+        try {
+            Runnable next;
+            while ((next = unparked.pollFirst()) != null) {
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    log.error("Failed to hand on a parked record", e);
+                }
+            }
+        } finally {
+            UNPARKED.remove();
+        }
+    }
+
+    public synchronized int inFlight(TopicPartition partition) {
+        return inFlight.getOrDefault(partition, 0);
+    }
+
+    public synchronized int inFlight() {
+        return total;
+    }
+
+    public synchronized int parked() {
+        return parkedTotal;
+    }
+}
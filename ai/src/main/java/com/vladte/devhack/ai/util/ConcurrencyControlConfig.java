@@ -0,0 +1,61 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.LagAwareConcurrencyController;
+import com.vladte.devhack.infra.service.kafka.consumer.ConsumerGroupLag;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.Admin;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Resizes the workers calling the AI provider from the consumer lag of the AI request topics,
+ * see {@link LagAwareConcurrencyController}. Disabled with {@code devhack.ai.concurrency.enabled=false},
+ * the workers then stay at {@code devhack.ai.fair-scheduling.workers}. Adjusts every
+ * {@code devhack.ai.concurrency.interval} milliseconds.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "devhack.ai.concurrency.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyControlConfig {
+
+    private static final Set<String> REQUEST_TOPICS = Set.of(
+            Topics.ANSWER_FEEDBACK_REQUEST,
+            Topics.QUESTION_GENERATE_REQUEST,
+            Topics.QUESTION_GENERATE_BULK_REQUEST,
+            Topics.VACANCY_PARSING_REQUEST);
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "devhack.ai.concurrency.kafka-lag", havingValue = "true", matchIfMissing = true)
+    public ConsumerGroupLag aiRequestConsumerLag(KafkaAdmin kafkaAdmin,
+                                                 @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        return new ConsumerGroupLag(Admin.create(kafkaAdmin.getConfigurationProperties()), groupId, REQUEST_TOPICS,
+                Duration.ofSeconds(kafkaAdmin.getOperationTimeout()));
+    }
+
+    /**
+     * Without the Kafka lag (e.g. on the in-process bus) the workers follow the queued requests alone.
+     */
+    @Bean
+    public LagAwareConcurrencyController lagAwareConcurrencyController(FairRequestScheduler scheduler,
+                                                                       ObjectProvider<ConsumerGroupLag> consumerLag,
+                                                                       @Value("${devhack.ai.concurrency.min:2}") int min,
+                                                                       @Value("${devhack.ai.concurrency.max:64}") int max,
+                                                                       @Value("${devhack.ai.concurrency.drain-time:30s}") Duration drainTime,
+                                                                       @Value("${devhack.ai.concurrency.latency-ceiling:60s}") Duration latencyCeiling,
+                                                                       MeterRegistry meterRegistry) {
+        ConsumerGroupLag groupLag = consumerLag.getIfAvailable();
+        LongSupplier lag = groupLag != null ? groupLag : () -> 0L;
+        return new LagAwareConcurrencyController(scheduler, lag, min, max, drainTime, latencyCeiling, meterRegistry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fair scheduling of AI requests between users, shared by all AI request listeners.
+ */
+@Configuration
+public class FairSchedulingConfig {
+
+    /**
+     * Initial number of workers, resized at runtime by the {@link ConcurrencyControlConfig concurrency controller}.
+     * Workers should stay below the number of requests that can be in flight, otherwise requests never queue
+     * and are served in the order they were polled.
+     */
+    @Bean(destroyMethod = "close")
+    public FairRequestScheduler fairRequestScheduler(@Value("${devhack.ai.fair-scheduling.workers:4}") int workers,
+                                                     @Value("${devhack.ai.fair-scheduling.quantum:4}") int quantum,
+                                                     MeterRegistry meterRegistry) {
+        return new FairRequestScheduler(workers, quantum, meterRegistry);
+    }
+}
@@ -0,0 +1,58 @@
+package com.vladte.devhack.ai.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.vladte.devhack.ai.service.kafka.idempotency.IdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.idempotency.LocalIdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.idempotency.RedisIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+
+/**
+ * Store of answered AI requests, so requests redelivered by Kafka are not sent to the provider again.
+ * {@code devhack.ai.idempotency.store} selects the store: {@code local} (default) or {@code redis}.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.ai.idempotency.store", havingValue = "local", matchIfMissing = true)
+    public IdempotencyStore localIdempotencyStore(@Value("${devhack.ai.idempotency.ttl:24h}") Duration ttl,
+                                                  @Value("${devhack.ai.idempotency.max-entries:10000}") int maxEntries) {
+        return new LocalIdempotencyStore(ttl, maxEntries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.ai.idempotency.store", havingValue = "redis")
+    public IdempotencyStore redisIdempotencyStore(RedisConnectionFactory connectionFactory,
+                                                  @Value("${devhack.ai.idempotency.ttl:24h}") Duration ttl) {
+        return new RedisIdempotencyStore(typedRedisTemplate(connectionFactory), ttl);
+    }
+
+    /**
+     * Template of values stored as JSON with their type information, so the concrete response payload is read back.
+     */
+    static RedisTemplate<String, Object> typedRedisTemplate(RedisConnectionFactory connectionFactory) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule())
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+                .activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer(objectMapper));
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+}
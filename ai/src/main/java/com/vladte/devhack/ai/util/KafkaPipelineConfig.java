@@ -0,0 +1,113 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Non-blocking consumption of AI requests: record listeners hand each request on and acknowledge its offset
+ * once it is answered, see {@link com.vladte.devhack.ai.service.kafka.consumer.KafkaAiRequestConsumer#processRecordAsync}.
+ */
+@Configuration
+public class KafkaPipelineConfig {
+
+    public static final String CONTAINER_FACTORY = "aiPipelineContainerFactory";
+    public static final String BATCH_CONTAINER_FACTORY = "aiBatchContainerFactory";
+
+    /**
+     * Listener containers of the AI request topics, their retry topics and dead letter topics.
+     * Configured like the default factory, but offsets are acknowledged manually and may be acknowledged out of
+     * order from any thread; the container commits them once there is no gap before them.
+     * Records discarded by the record filters are acknowledged right away.
+     */
+    @Bean(CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> aiPipelineContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            ObjectProvider<ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>> containerCustomizer) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        containerCustomizer.ifAvailable(factory::setContainerCustomizer);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setAckDiscarded(true);
+        return factory;
+    }
+
+    /**
+     * Listener containers of the batch listeners, see {@code devhack.kafka.batch.enabled}.
+     * The listeners forward failed requests to the retry topics themselves; a {@code BatchListenerFailedException}
+     * means a failed request could not be forwarded, the records before it are committed and the rest is redelivered
+     * after {@code devhack.kafka.batch.redelivery-delay}, for as long as it takes. Records are never skipped.
+     */
+    @Bean(BATCH_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> aiBatchContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            ObjectProvider<ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>> containerCustomizer,
+            @Value("${devhack.kafka.batch.redelivery-delay:1s}") Duration redeliveryDelay) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        containerCustomizer.ifAvailable(factory::setContainerCustomizer);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+                new FixedBackOff(redeliveryDelay.toMillis(), FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+
+    /**
+     * Requests of a partition handed on and not acknowledged yet, at most {@code devhack.ai.pipeline.partition-window}.
+     * A partition with a full window is paused in the listener container it is assigned to; a listener finding
+     * {@code devhack.ai.pipeline.max-parked} requests of its partition waiting waits too.
+     */
+    @Bean
+    public PartitionWindow partitionWindow(@Value("${devhack.ai.pipeline.partition-window:16}") int size,
+                                           @Value("${devhack.ai.pipeline.max-parked:500}") int maxParked,
+                                           KafkaListenerEndpointRegistry registry,
+                                           MeterRegistry meterRegistry) {
+        return new PartitionWindow(size, maxParked, new ListenerContainerFlowControl(registry), meterRegistry);
+    }
+
+    /**
+     * Pauses a partition in the containers it is assigned to; the container applies it before its next poll.
+     */
+    private record ListenerContainerFlowControl(KafkaListenerEndpointRegistry registry)
+            implements PartitionWindow.FlowControl {
+
+        @Override
+        public void pause(TopicPartition partition) {
+            registry.getListenerContainers().stream()
+                    .filter(container -> isAssigned(container, partition))
+                    .forEach(container -> container.pausePartition(partition));
+        }
+
+        @Override
+        public void resume(TopicPartition partition) {
+            registry.getListenerContainers().stream()
+                    .filter(container -> container.isPartitionPauseRequested(partition))
+                    .forEach(container -> container.resumePartition(partition));
+        }
+
+        private static boolean isAssigned(MessageListenerContainer container, TopicPartition partition) {
+            Collection<TopicPartition> assigned = container.getAssignedPartitions();
+            return assigned != null && assigned.contains(partition);
+        }
+    }
+}
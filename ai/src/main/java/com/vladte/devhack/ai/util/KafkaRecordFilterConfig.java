@@ -0,0 +1,30 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.infra.message.MessageDestinations;
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.service.kafka.consumer.MessageHeaderRecordFilterStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Header based record filters of the AI request listeners.
+ */
+@Configuration
+public class KafkaRecordFilterConfig {
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy questionGenerateFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.AI_APP, MessageTypes.QUESTION_GENERATE);
+    }
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy answerFeedbackFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.AI_APP,
+                MessageTypes.CHECK_ANSWER_FOR_CHEATING, MessageTypes.CHECK_ANSWER_WITH_FEEDBACK);
+    }
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy vacancyParsingFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.AI_APP, MessageTypes.VACANCY_PARSING);
+    }
+}
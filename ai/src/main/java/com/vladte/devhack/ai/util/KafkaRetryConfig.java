@@ -0,0 +1,80 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.kafka.consumer.DeadLetterRetryTopicForwarder;
+import com.vladte.devhack.ai.service.kafka.consumer.RetryTopicForwarder;
+import com.vladte.devhack.infra.config.MessageTransportConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.kafka.retrytopic.RetryTopicSchedulerWrapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.regex.Pattern;
+
+/**
+ * Infrastructure of the retry topics of the AI request listeners.
+ */
+@Slf4j
+@Configuration
+public class KafkaRetryConfig {
+
+    /**
+     * Ids of the containers of retry and dead letter topics: the listener id with the topic suffix.
+     */
+    private static final Pattern RETRY_CONTAINER_ID = Pattern.compile(".+-(retry(-\\d+)?|dlt)");
+
+    /**
+     * Scheduler resuming the partitions of retry topics once the back-off of their next record has passed.
+     * Listener threads are never blocked while a request waits for its retry.
+     */
+    @Bean
+    public RetryTopicSchedulerWrapper retryTopicSchedulerWrapper() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("kafka-retry-");
+        scheduler.initialize();
+        return new RetryTopicSchedulerWrapper(scheduler);
+    }
+
+    /**
+     * Forwards requests that failed transiently after their listener returned to the retry topics.
+     */
+    @Bean
+    @Profile("!" + MessageTransportConfig.IN_PROCESS_PROFILE)
+    public RetryTopicForwarder retryTopicForwarder(ObjectProvider<DestinationTopicResolver> destinationTopicResolver) {
+        return new DeadLetterRetryTopicForwarder(destinationTopicResolver);
+    }
+
+    /**
+     * Retry topics are not used in-process: a failed request is dropped like any record whose listener failed.
+     */
+    @Bean
+    @Profile(MessageTransportConfig.IN_PROCESS_PROFILE)
+    public RetryTopicForwarder inProcessRetryTopicForwarder() {
+        return (listenerId, record, error) ->
+                log.warn("Dropping AI request from {} after a transient failure: {}", record.topic(), error.getMessage());
+    }
+
+    /**
+     * In batch mode the record listeners are not started, and neither are the containers of their retry and dead
+     * letter topics, which share the listener's auto-startup. The batch listeners forward failed requests to those
+     * topics, so their containers are started here.
+     */
+    @Bean
+    @Profile("!" + MessageTransportConfig.IN_PROCESS_PROFILE)
+    @ConditionalOnProperty(name = "devhack.kafka.batch.enabled", havingValue = "true")
+    public ApplicationRunner batchModeRetryContainers(KafkaListenerEndpointRegistry registry) {
+        return args -> registry.getListenerContainers().stream()
+                .filter(container -> !container.isRunning())
+                .filter(container -> RETRY_CONTAINER_ID.matcher(String.valueOf(container.getListenerId())).matches())
+                .forEach(container -> {
+                    log.info("Starting retry topic container {} for the batch listeners", container.getListenerId());
+                    container.start();
+                });
+    }
+}
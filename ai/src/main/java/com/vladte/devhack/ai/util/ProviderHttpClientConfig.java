@@ -0,0 +1,28 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.api.http.ProviderHttpSettings;
+import com.vladte.devhack.ai.service.api.http.ProviderWebClients;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
+import com.vladte.devhack.ai.service.api.ratelimit.RateLimitSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * HTTP clients of the AI providers, configured with {@code devhack.ai.http.*}, see {@link ProviderHttpSettings},
+ * and their rate limits, configured with {@code devhack.ai.rate-limit.*}, see {@link RateLimitSettings}.
+ */
+@Configuration
+public class ProviderHttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public ProviderWebClients providerWebClients(Environment environment, MeterRegistry meterRegistry) {
+        return new ProviderWebClients(provider -> ProviderHttpSettings.from(environment, provider), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ProviderRateLimiters providerRateLimiters(Environment environment, MeterRegistry meterRegistry) {
+        return new ProviderRateLimiters(provider -> RateLimitSettings.from(environment, provider), meterRegistry);
+    }
+}
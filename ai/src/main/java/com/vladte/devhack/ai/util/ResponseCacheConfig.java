@@ -0,0 +1,61 @@
+package com.vladte.devhack.ai.util;
+
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.cache.LocalResponseCacheStore;
+import com.vladte.devhack.ai.service.kafka.cache.RedisResponseCacheStore;
+import com.vladte.devhack.ai.service.kafka.cache.ResponseCacheStore;
+import com.vladte.devhack.ai.service.kafka.cache.TieredResponseCacheStore;
+import com.vladte.devhack.infra.message.MessageTypes;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of AI responses by rendered prompt, see {@link AiResponseCache}.
+ * {@code devhack.ai.cache.store} selects the store: {@code local} (default) or {@code redis}, which keeps the
+ * responses of this instance in front of the shared Redis store.
+ * {@code devhack.ai.cache.ttl.<message type>} sets the time-to-live of the responses of a message type,
+ * types without one are not cached; {@code devhack.ai.cache.enabled=false} turns the cache off.
+ */
+@Configuration
+public class ResponseCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.ai.cache.store", havingValue = "local", matchIfMissing = true)
+    public ResponseCacheStore localResponseCacheStore(@Value("${devhack.ai.cache.max-entries:10000}") int maxEntries) {
+        return new LocalResponseCacheStore(maxEntries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.ai.cache.store", havingValue = "redis")
+    public ResponseCacheStore redisResponseCacheStore(RedisConnectionFactory connectionFactory,
+                                                      @Value("${devhack.ai.cache.max-entries:10000}") int maxEntries) {
+        return new TieredResponseCacheStore(new LocalResponseCacheStore(maxEntries),
+                new RedisResponseCacheStore(IdempotencyConfig.typedRedisTemplate(connectionFactory)));
+    }
+
+    @Bean
+    public AiResponseCache aiResponseCache(ResponseCacheStore responseCacheStore,
+                                           Environment environment,
+                                           @Value("${devhack.ai.cache.enabled:true}") boolean enabled,
+                                           MeterRegistry meterRegistry) {
+        Map<String, Duration> ttls = new HashMap<>();
+        if (enabled) {
+            for (MessageTypes type : MessageTypes.values()) {
+                Duration ttl = environment.getProperty("devhack.ai.cache.ttl." + type.getValue(), Duration.class);
+                if (ttl != null) {
+                    ttls.put(type.getValue(), ttl);
+                }
+            }
+        }
+        return new AiResponseCache(responseCacheStore, ttls, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.vladte.devhack.ai.service.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransientAiProviderExceptionTest {
+
+    @Test
+    void rateLimitAndServerErrorsAreTransient() {
+        assertTrue(TransientAiProviderException.isTransient(response(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(TransientAiProviderException.isTransient(response(HttpStatus.BAD_GATEWAY)));
+    }
+
+    @Test
+    void wrappedFailuresAreUnwrapped() {
+        assertTrue(TransientAiProviderException.isTransient(
+                new CompletionException(response(HttpStatus.SERVICE_UNAVAILABLE))));
+    }
+
+    @Test
+    void clientErrorsAreNotTransient() {
+        assertFalse(TransientAiProviderException.isTransient(response(HttpStatus.BAD_REQUEST)));
+        assertFalse(TransientAiProviderException.isTransient(new IllegalStateException("OPENAI_API_KEY not set")));
+    }
+
+    private static WebClientResponseException response(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), null, null, null);
+    }
+}
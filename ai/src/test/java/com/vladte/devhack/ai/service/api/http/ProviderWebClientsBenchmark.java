@@ -0,0 +1,96 @@
+package com.vladte.devhack.ai.service.api.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Compares the pooled client of {@link ProviderWebClients} with a client opening a new connection per request,
+ * both calling a local stub of a provider. Reports throughput and latency percentiles.
+ * Excluded from the regular test run, start it with {@code gradle :ai:benchmark}.
+ */
+@Tag("benchmark")
+class ProviderWebClientsBenchmark {
+
+    private static final String RESPONSE = "{\"choices\":[{\"message\":{\"content\":\"" + "x".repeat(1_000) + "\"}}]}";
+    private static final int CONCURRENCY = 32;
+    private static final int WARMUP_REQUESTS = 5_000;
+    private static final int REQUESTS = 20_000;
+
+    private static DisposableServer server;
+    private static String url;
+
+    @BeforeAll
+    static void startStub() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/v1/chat/completions", (request, response) -> request.receive()
+                        .then(response.header("Content-Type", "application/json").sendString(Mono.just(RESPONSE)).then())))
+                .bindNow();
+        url = "http://127.0.0.1:" + server.port() + "/v1/chat/completions";
+    }
+
+    @AfterAll
+    static void stopStub() {
+        server.disposeNow();
+    }
+
+    @Test
+    void pooledConnections() {
+        ProviderHttpSettings settings = new ProviderHttpSettings(CONCURRENCY, 1_000, Duration.ofSeconds(10),
+                Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(5), Duration.ofSeconds(90), true, true);
+        try (ProviderWebClients webClients = new ProviderWebClients(provider -> settings, new SimpleMeterRegistry())) {
+            measure("pooled", webClients.forProvider("stub"));
+        }
+    }
+
+    @Test
+    void newConnectionPerRequest() {
+        WebClient client = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.newConnection())))
+                .build();
+        measure("new connection", client);
+    }
+
+    private static void measure(String name, WebClient client) {
+        run(client, WARMUP_REQUESTS);
+        long start = System.nanoTime();
+        long[] latencies = run(client, REQUESTS);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-15s %,8.0f requests/s  p50 %,6d us  p99 %,6d us  max %,7d us%n",
+                name, REQUESTS / (elapsed / 1_000_000_000.0),
+                latencies[REQUESTS / 2] / 1_000, latencies[REQUESTS * 99 / 100] / 1_000, latencies[REQUESTS - 1] / 1_000);
+    }
+
+    private static long[] run(WebClient client, int requests) {
+        return Flux.range(0, requests)
+                .flatMap(i -> Mono.fromSupplier(System::nanoTime)
+                        .flatMap(start -> client.post()
+                                .uri(url)
+                                .bodyValue("{\"model\":\"stub\",\"messages\":[]}")
+                                .retrieve()
+                                .bodyToMono(String.class)
+                                .map(body -> System.nanoTime() - start)), CONCURRENCY)
+                .collectList()
+                .block()
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,140 @@
+package com.vladte.devhack.ai.service.api.http;
+
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderWebClientsTest {
+
+    private final CompletableFuture<String> release = new CompletableFuture<>();
+    private SimpleMeterRegistry meterRegistry;
+    private DisposableServer server;
+    private ProviderWebClients webClients;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .get("/fast", (request, response) -> response.sendString(Mono.just("fast")))
+                        .get("/slow", (request, response) -> response.sendString(Mono.fromFuture(release))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.complete("slow");
+        if (webClients != null) {
+            webClients.close();
+        }
+        server.disposeNow();
+    }
+
+    @Test
+    void settingsOfAProviderOverrideTheSharedOnes() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("devhack.ai.http.max-connections", "20")
+                .withProperty("devhack.ai.http.response-timeout", "30s")
+                .withProperty("devhack.ai.http.gptj.max-connections", "4")
+                .withProperty("devhack.ai.http.gptj.http2", "false");
+        environment.setConversionService(new ApplicationConversionService());
+
+        ProviderHttpSettings gptj = ProviderHttpSettings.from(environment, "gptj");
+        ProviderHttpSettings openai = ProviderHttpSettings.from(environment, "openai");
+
+        assertEquals(4, gptj.maxConnections());
+        assertEquals(Duration.ofSeconds(30), gptj.responseTimeout());
+        assertEquals(false, gptj.http2());
+        assertEquals(20, openai.maxConnections());
+        assertEquals(true, openai.http2());
+        assertEquals(Duration.ofSeconds(5), openai.connectTimeout());
+    }
+
+    @Test
+    void sequentialRequestsReuseTheConnection() {
+        webClients = new ProviderWebClients(provider -> settings(10, Duration.ofSeconds(5)), meterRegistry);
+        WebClient client = webClients.forProvider("reuse");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", get(client, "/fast").join());
+            awaitReleased("ai-reuse");
+        }
+
+        assertSame(client, webClients.forProvider("reuse"));
+        assertEquals(10.0, connections("opened") + connections("reused"));
+        // a connection is occasionally still on its way back to the pool when the next request starts
+        assertTrue(connections("opened") <= 2, "Opened " + connections("opened") + " connections");
+    }
+
+    @Test
+    void requestsBeyondThePoolWaitAndFailAfterThePendingAcquireTimeout() {
+        webClients = new ProviderWebClients(provider -> settings(1, Duration.ofMillis(200)), meterRegistry);
+        WebClient client = webClients.forProvider("exhaust");
+
+        CompletableFuture<String> slow = get(client, "/slow");
+        CompletableFuture<String> waiting = get(client, "/fast");
+
+        Throwable failure = waiting.handle((body, error) -> error).join();
+        assertTrue(TransientAiProviderException.isTransient(failure), "Pool exhaustion must be retried: " + failure);
+        release.complete("slow");
+        assertEquals("slow", slow.join());
+        assertEquals("fast", get(client, "/fast").join());
+    }
+
+    /**
+     * HTTP/2 is configured as in production, over plain text the client speaks HTTP/1.1 to the stub server.
+     */
+    private ProviderHttpSettings settings(int maxConnections, Duration pendingAcquireTimeout) {
+        return new ProviderHttpSettings(maxConnections, 10, pendingAcquireTimeout, Duration.ofSeconds(30),
+                Duration.ofMinutes(5), Duration.ofSeconds(1), Duration.ofSeconds(5), true, true);
+    }
+
+    private CompletableFuture<String> get(WebClient client, String path) {
+        return client.get()
+                .uri("http://127.0.0.1:" + server.port() + path)
+                .retrieve()
+                .bodyToMono(String.class)
+                .toFuture();
+    }
+
+    /**
+     * The response completes before its connection is back in the pool.
+     */
+    private static void awaitReleased(String pool) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Gauge active = Metrics.globalRegistry.find("reactor.netty.connection.provider.active.connections")
+                    .tag("name", pool).gauge();
+            if (active != null && active.value() == 0) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("Connection of " + pool + " not released");
+    }
+
+    private double connections(String outcome) {
+        return meterRegistry.get("devhack.ai.http.connections").tag("provider", "reuse").tag("outcome", outcome)
+                .counter().count();
+    }
+}
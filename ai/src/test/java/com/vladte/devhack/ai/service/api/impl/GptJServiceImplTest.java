@@ -0,0 +1,152 @@
+package com.vladte.devhack.ai.service.api.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.api.http.ProviderHttpSettings;
+import com.vladte.devhack.ai.service.api.http.ProviderWebClients;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiter;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
+import com.vladte.devhack.ai.service.api.ratelimit.RateLimitSettings;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GptJServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private DisposableServer server;
+    private ProviderWebClients webClients;
+    private ProviderRateLimiters rateLimiters;
+
+    @BeforeEach
+    void setUp() {
+        webClients = new ProviderWebClients(provider -> new ProviderHttpSettings(4, 10, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(1), Duration.ofSeconds(5), true, true),
+                meterRegistry);
+        rateLimiters = new ProviderRateLimiters(provider -> new RateLimitSettings(0, 0, 2), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        webClients.close();
+        rateLimiters.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void requestRejectedWithTooManyRequestsIsQueuedAgain() {
+        GptJServiceImpl service = serviceRejecting(1);
+
+        String questions = service.generateQuestionsForTagAsync(payload()).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals("What is a JVM?", questions);
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.rate-limit.rejected").counter().count());
+    }
+
+    @Test
+    void rejectionIsReturnedOnceTheRequeuesAreUsedUp() {
+        GptJServiceImpl service = serviceRejecting(Integer.MAX_VALUE);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> service.generateQuestionsForTagAsync(payload()).orTimeout(10, TimeUnit.SECONDS).join());
+
+        assertTrue(TransientAiProviderException.isTransient(failure), "Left for the retry topics: " + failure);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void cancelledRequestWaitingForTheBudgetIsNeverSent() {
+        GptJServiceImpl service = serviceRejecting(0);
+        ProviderRateLimiter rateLimiter = rateLimiters.forModel("gptj", "gpt-j");
+        HttpHeaders pause = new HttpHeaders();
+        pause.add(HttpHeaders.RETRY_AFTER, "0.2");
+        rateLimiter.onRateLimited(pause);
+
+        CompletableFuture<String> cancelled = service.generateQuestionsForTagAsync(payload());
+        assertEquals(1, rateLimiter.queued());
+        cancelled.cancel(true);
+
+        assertEquals(0, rateLimiter.queued());
+        service.generateQuestionsForTagAsync(payload()).orTimeout(10, TimeUnit.SECONDS).join();
+        assertEquals(1, calls.get(), "Only the request that was not cancelled is sent");
+    }
+
+    @Test
+    void cancellingARequestCancelsItsExchange() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        GptJServiceImpl service = service((request, response) -> {
+            calls.incrementAndGet();
+            response.withConnection(connection -> connection.onDispose(closed::countDown));
+            return Mono.never();
+        });
+
+        CompletableFuture<String> questions = service.generateQuestionsForTagAsync(payload());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, calls.get());
+        questions.cancel(true);
+
+        // well before the response timeout of 5 s closes it
+        assertTrue(closed.await(2, TimeUnit.SECONDS), "The connection of the cancelled exchange is closed");
+    }
+
+    /**
+     * @param rejections requests answered with 429 before the stub answers
+     */
+    private GptJServiceImpl serviceRejecting(int rejections) {
+        return service((request, response) -> request.receive().then(
+                calls.incrementAndGet() <= rejections
+                        ? response.status(HttpResponseStatus.TOO_MANY_REQUESTS)
+                        .header("Retry-After", "0")
+                        .send().then()
+                        : response.header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"choices\":[{\"text\":\"What is a JVM?\"}]}")).then()));
+    }
+
+    private GptJServiceImpl service(
+            BiFunction<HttpServerRequest, HttpServerResponse, ? extends Publisher<Void>> completions) {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/v1/completions", completions))
+                .bindNow();
+
+        GptJServiceImpl service = new GptJServiceImpl(new ObjectMapper(), webClients, rateLimiters);
+        ReflectionTestUtils.setField(service, "apiKey", "key");
+        ReflectionTestUtils.setField(service, "model", "gpt-j");
+        ReflectionTestUtils.setField(service, "maxTokens", 100);
+        ReflectionTestUtils.setField(service, "apiUrl", "http://127.0.0.1:" + server.port() + "/v1/completions");
+        return service;
+    }
+
+    private static AiRenderedRequestPayload payload() {
+        return AiRenderedRequestPayload.builder().input("Generate a question about Java").build();
+    }
+}
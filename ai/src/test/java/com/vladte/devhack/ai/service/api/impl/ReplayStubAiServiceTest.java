@@ -0,0 +1,65 @@
+package com.vladte.devhack.ai.service.api.impl;
+
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.service.kafka.replay.CapturedExchange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayStubAiServiceTest {
+
+    private final ReplayStubAiService stub = new ReplayStubAiService(List.of(
+            new CapturedExchange("answer.check", "check-answer-for-cheating", 50,
+                    AnswerCheckResponsePayload.fromCheatingResult(true)),
+            new CapturedExchange("answer.feedback", "check-answer-with-feedback", 0,
+                    AnswerCheckResponsePayload.fromScoreAndFeedback(Map.of("score", 80.0, "feedback", "Solid"))),
+            new CapturedExchange("question.generate", "question-generate", 0,
+                    QuestionGenerateResponsePayload.error("model overloaded"))));
+
+    @Test
+    void answersWithTheCapturedResponseAfterItsLatency() throws Exception {
+        long start = System.nanoTime();
+
+        Boolean cheating = stub.checkAnswerForCheatingAsync(payload("answer.check")).get(5, TimeUnit.SECONDS);
+
+        assertTrue(cheating);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    void answersUncapturedPromptsWithTheSameResponseType() throws Exception {
+        Map<String, Object> feedback = stub.checkAnswerWithFeedbackAsync(payload("answer.feedback")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(80.0, feedback.get("score"));
+        assertEquals("Solid", feedback.get("feedback"));
+    }
+
+    @Test
+    void failsLikeTheCapturedProvider() {
+        CompletableFuture<String> questions = stub.generateQuestionsForTagAsync(payload("question.generate.other"));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> questions.get(5, TimeUnit.SECONDS));
+        assertEquals("model overloaded", failure.getCause().getMessage());
+    }
+
+    @Test
+    void failsWithoutACapturedResponseType() {
+        CompletableFuture<Map<String, Object>> vacancy = stub.extractVacancyModelFromDescription(payload("vacancy.parse"));
+
+        assertTrue(vacancy.isCompletedExceptionally());
+    }
+
+    private static AiRenderedRequestPayload payload(String promptKey) {
+        return AiRenderedRequestPayload.builder().promptKey(promptKey).build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.vladte.devhack.ai.service.api.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void queuesRequestsBeyondTheRequestBudget() {
+        ProviderRateLimiter limiter = limiter(2, 0);
+
+        CompletableFuture<Void> first = limiter.acquire(100);
+        CompletableFuture<Void> second = limiter.acquire(100);
+        CompletableFuture<Void> third = limiter.acquire(100);
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.queued());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.rate-limit.queued").gauge().value());
+    }
+
+    @Test
+    void cancelledRequestLeavesTheQueue() {
+        ProviderRateLimiter limiter = limiter(1, 0);
+        limiter.acquire(1);
+        CompletableFuture<Void> queued = limiter.acquire(1);
+
+        queued.cancel(true);
+
+        assertEquals(0, limiter.queued());
+        assertEquals(0.0, meterRegistry.get("devhack.ai.rate-limit.queued").gauge().value());
+    }
+
+    @Test
+    void queuedRequestsAreLetThroughOnceTheTokenBudgetRefilled() {
+        // 1000 tokens per second
+        ProviderRateLimiter limiter = limiter(0, 60_000);
+
+        limiter.acquire(60_000).join();
+        long start = System.nanoTime();
+        limiter.acquire(300).orTimeout(5, TimeUnit.SECONDS).join();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 250, "Waited " + waitedMillis + " ms");
+        assertTrue(meterRegistry.get("devhack.ai.rate-limit.wait").timer().max(TimeUnit.MILLISECONDS) >= 250);
+    }
+
+    @Test
+    void followsTheRemainingBudgetReportedByTheProvider() {
+        ProviderRateLimiter limiter = limiter(1_000, 0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-ratelimit-remaining-requests", "0");
+        headers.add("x-ratelimit-reset-requests", "300ms");
+
+        limiter.onResponse(headers);
+        long start = System.nanoTime();
+        CompletableFuture<Void> next = limiter.acquire(1);
+
+        assertFalse(next.isDone());
+        next.orTimeout(5, TimeUnit.SECONDS).join();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    void pausesForTheRetryAfterOfARejection() {
+        ProviderRateLimiter limiter = limiter(1_000, 0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "1");
+
+        limiter.onRateLimited(headers);
+        CompletableFuture<Void> next = limiter.acquire(1);
+
+        assertFalse(next.isDone());
+        next.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(1.0, meterRegistry.get("devhack.ai.rate-limit.rejected").counter().count());
+    }
+
+    @Test
+    void parsesTheResetDurationsOfTheProvider() {
+        assertEquals(Duration.ofMinutes(6), ProviderRateLimiter.parseDuration("6m0s"));
+        assertEquals(Duration.ofMillis(20), ProviderRateLimiter.parseDuration("20ms"));
+        assertEquals(Duration.ofMillis(1_500), ProviderRateLimiter.parseDuration("1.5s"));
+        assertEquals(Duration.ofMillis(61_500), ProviderRateLimiter.parseDuration("1m1.5s"));
+        assertNull(ProviderRateLimiter.parseDuration("soon"));
+        assertNull(ProviderRateLimiter.parseDuration("5x"));
+    }
+
+    private ProviderRateLimiter limiter(long requestsPerMinute, long tokensPerMinute) {
+        return new ProviderRateLimiter("openai", "gpt-4o-mini", new RateLimitSettings(requestsPerMinute, tokensPerMinute, 2),
+                scheduler, meterRegistry);
+    }
+}
@@ -0,0 +1,224 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.api.http.ProviderHttpSettings;
+import com.vladte.devhack.ai.service.api.http.ProviderWebClients;
+import com.vladte.devhack.ai.service.api.impl.GptJServiceImpl;
+import com.vladte.devhack.ai.service.api.ratelimit.ProviderRateLimiters;
+import com.vladte.devhack.ai.service.api.ratelimit.RateLimitSettings;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiProviderRouterTest {
+
+    private static final AiRenderedRequestPayload PAYLOAD = AiRenderedRequestPayload.builder().input("prompt").build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // the providers answer right away and move the clock by their latency, so the router sees no real time pass
+    private final AtomicLong clock = new AtomicLong();
+    private final StubAiProvider openai = new StubAiProvider("openai", clock, Duration.ofMillis(10));
+    private final StubAiProvider gptj = new StubAiProvider("gptj", clock, Duration.ofMillis(10));
+    private AiProviderRouter router;
+    private DisposableServer server;
+    private ProviderWebClients webClients;
+    private ProviderRateLimiters rateLimiters;
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+        if (server != null) {
+            webClients.close();
+            rateLimiters.close();
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void routesToTheFasterProvider() {
+        router = router(false, Duration.ofSeconds(30));
+        openai.latency(Duration.ofMillis(150));
+
+        // both providers are tried while their latency is unknown
+        assertEquals("openai", ask());
+        assertEquals("gptj", ask());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("gptj", ask());
+        }
+
+        assertEquals(1, openai.calls());
+        assertEquals(6, gptj.calls());
+    }
+
+    @Test
+    void transientFailureMovesOnToTheNextProvider() {
+        router = router(false, Duration.ofSeconds(30));
+        openai.failing(() -> tooManyRequests());
+
+        assertEquals("gptj", ask());
+        assertEquals(1, openai.calls());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.router.calls").tag("provider", "openai")
+                .tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void failureOfTheRequestItselfIsNotRetriedElsewhere() {
+        router = router(false, Duration.ofSeconds(30));
+        openai.failing(() -> new IllegalArgumentException("Invalid prompt"));
+
+        CompletionException failure = assertThrows(CompletionException.class, this::ask);
+
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(0, gptj.calls());
+    }
+
+    @Test
+    void openCircuitSkipsTheProviderUntilAProbeSucceeds() {
+        router = router(false, Duration.ofMillis(300));
+        openai.failing(() -> tooManyRequests());
+        gptj.latency(Duration.ofMillis(50));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("gptj", ask());
+        }
+        // the circuit opened after the minimum of 2 calls failed
+        assertEquals(2, openai.calls());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.router.circuit.open").tag("provider", "openai").gauge().value());
+
+        openai.failing(null);
+        clock.addAndGet(Duration.ofMillis(400).toNanos());
+
+        assertEquals("openai", ask());
+        assertEquals(3, openai.calls());
+        assertEquals(0.0, meterRegistry.get("devhack.ai.router.circuit.open").tag("provider", "openai").gauge().value());
+    }
+
+    @Test
+    void allCircuitsOpenFailsTransiently() {
+        router = router(false, Duration.ofSeconds(30));
+        openai.failing(() -> tooManyRequests());
+        gptj.failing(() -> tooManyRequests());
+        ask(2);
+
+        CompletionException failure = assertThrows(CompletionException.class, this::ask);
+
+        assertTrue(TransientAiProviderException.isTransient(failure));
+        assertEquals(2, openai.calls());
+        assertEquals(2, gptj.calls());
+    }
+
+    @Test
+    void slowCallIsHedgedWithTheNextProvider() {
+        router = router(true, Duration.ofSeconds(30));
+        // learn the latencies: openai usually answers in 10 ms, gptj in 50 ms
+        openai.latency(Duration.ofMillis(10));
+        gptj.latency(Duration.ofMillis(50));
+        assertEquals("openai", ask());
+        assertEquals("gptj", ask());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("openai", ask());
+        }
+
+        // openai does not answer, the hedge fires after its p95 latency, raised to the minimum delay of 20 ms
+        openai.hold();
+        assertEquals("gptj", ask());
+
+        assertEquals(5, openai.calls());
+        assertEquals(1, openai.cancelled(), "The call of the slower provider is cancelled");
+        assertEquals(2, gptj.calls());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.router.hedges").tag("provider", "gptj")
+                .tag("outcome", "fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.router.hedges").tag("provider", "gptj")
+                .tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void hedgeCancelsTheExchangeOfTheSlowerProvider() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/v1/completions", (request, response) -> {
+                    response.withConnection(connection -> connection.onDispose(closed::countDown));
+                    return Mono.never();
+                }))
+                .bindNow();
+        router = router(Map.of("openai", unansweredHttpProvider(), "gptj", gptj), true);
+
+        // the latency of the HTTP provider is unknown, the hedge fires after the maximum delay of 1 s
+        assertEquals("gptj", ask());
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "The exchange of the slower provider is cancelled");
+    }
+
+    private AiProviderRouter router(boolean hedging, Duration openDuration) {
+        return router(Map.of("openai", openai, "gptj", gptj), hedging, openDuration);
+    }
+
+    private AiProviderRouter router(Map<String, OpenAiService> services, boolean hedging) {
+        return router(services, hedging, Duration.ofSeconds(30));
+    }
+
+    private AiProviderRouter router(Map<String, OpenAiService> services, boolean hedging, Duration openDuration) {
+        RouterSettings settings = new RouterSettings(List.of("openai", "gptj"), hedging, 0.95,
+                Duration.ofMillis(20), Duration.ofSeconds(1), 4, 2, 0.5, openDuration);
+        return new AiProviderRouter(services, settings, meterRegistry, clock::get);
+    }
+
+    /**
+     * A real provider sending its requests to the local server.
+     */
+    private GptJServiceImpl unansweredHttpProvider() {
+        webClients = new ProviderWebClients(provider -> new ProviderHttpSettings(4, 10, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofSeconds(1), Duration.ofSeconds(60), true, true),
+                meterRegistry);
+        rateLimiters = new ProviderRateLimiters(provider -> new RateLimitSettings(0, 0, 2), meterRegistry);
+        GptJServiceImpl service = new GptJServiceImpl(new ObjectMapper(), webClients, rateLimiters);
+        ReflectionTestUtils.setField(service, "apiKey", "key");
+        ReflectionTestUtils.setField(service, "model", "gpt-j");
+        ReflectionTestUtils.setField(service, "maxTokens", 100);
+        ReflectionTestUtils.setField(service, "apiUrl", "http://127.0.0.1:" + server.port() + "/v1/completions");
+        return service;
+    }
+
+    private String ask() {
+        return router.generateQuestionsForTagAsync(PAYLOAD).orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    private void ask(int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                ask();
+            } catch (CompletionException ignored) {
+                // failures are what the test is after
+            }
+        }
+    }
+
+    private static WebClientResponseException tooManyRequests() {
+        return WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests",
+                null, null, null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.vladte.devhack.ai.service.api.routing;
+
+import com.vladte.devhack.ai.service.api.OpenAiService;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Local stand-in of an AI provider. A call answers, or fails with the configured failure, right away after moving
+ * the shared test clock by the latency of the provider; a held provider leaves its calls pending.
+ */
+class StubAiProvider implements OpenAiService {
+
+    private final String name;
+    private final AtomicLong clock;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private volatile Duration latency;
+    private volatile Supplier<RuntimeException> failure;
+    private volatile boolean held;
+
+    StubAiProvider(String name, AtomicLong clock, Duration latency) {
+        this.name = name;
+        this.clock = clock;
+        this.latency = latency;
+    }
+
+    StubAiProvider latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param failure failure of every following call, {@code null} to answer again
+     */
+    StubAiProvider failing(Supplier<RuntimeException> failure) {
+        this.failure = failure;
+        return this;
+    }
+
+    /**
+     * Leaves the following calls pending, until they are cancelled.
+     */
+    StubAiProvider hold() {
+        this.held = true;
+        return this;
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return held calls that were cancelled
+     */
+    int cancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public CompletableFuture<String> generateQuestionsForTagAsync(AiRenderedRequestPayload payload) {
+        return answer(name);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> checkAnswerWithFeedbackAsync(AiRenderedRequestPayload payload) {
+        return answer(Map.of("score", 1.0, "feedback", name));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkAnswerForCheatingAsync(AiRenderedRequestPayload payload) {
+        return answer(false);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> extractVacancyModelFromDescription(AiRenderedRequestPayload payload) {
+        return answer(Map.of("provider", name));
+    }
+
+    private <T> CompletableFuture<T> answer(T value) {
+        calls.incrementAndGet();
+        if (held) {
+            CompletableFuture<T> pending = new CompletableFuture<>();
+            pending.whenComplete((ignored, error) -> {
+                if (pending.isCancelled()) {
+                    cancelled.incrementAndGet();
+                }
+            });
+            return pending;
+        }
+        clock.addAndGet(latency.toNanos());
+        Supplier<RuntimeException> currentFailure = failure;
+        return currentFailure != null
+                ? CompletableFuture.failedFuture(currentFailure.get())
+                : CompletableFuture.completedFuture(value);
+    }
+}
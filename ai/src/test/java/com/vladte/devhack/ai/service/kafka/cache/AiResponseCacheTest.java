@@ -0,0 +1,124 @@
+package com.vladte.devhack.ai.service.kafka.cache;
+
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiResponseCacheTest {
+
+    private static final String QUESTIONS = MessageTypes.QUESTION_GENERATE.getValue();
+    private static final String FEEDBACK = MessageTypes.CHECK_ANSWER_WITH_FEEDBACK.getValue();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalResponseCacheStore store = new LocalResponseCacheStore(10);
+    private final AiResponseCache cache = new AiResponseCache(store, Map.of(QUESTIONS, Duration.ofMinutes(1)), meterRegistry);
+
+    @Test
+    void answersAnIdenticalPromptFromTheCache() {
+        QuestionGenerateResponsePayload response = QuestionGenerateResponsePayload.fromGeneratedText("What is a monad?");
+
+        assertTrue(cache.find(request(QUESTIONS, "Java", Map.of())).isEmpty());
+        cache.save(request(QUESTIONS, "Java", Map.of()), response, Duration.ofSeconds(3));
+
+        assertSame(response, cache.find(request(QUESTIONS, "Java", Map.of())).orElseThrow());
+        assertTrue(cache.find(request(QUESTIONS, "Kotlin", Map.of())).isEmpty());
+        assertEquals(1.0, lookups("hit"));
+        assertEquals(2.0, lookups("miss"));
+        assertEquals(3.0, meterRegistry.get("devhack.ai.cache.saved-latency").timer()
+                .totalTime(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void keyIsCanonicalAndCoversWhatDecidesTheAnswer() {
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("temperature", 0.2);
+        ordered.put("max_tokens", 500);
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("max_tokens", 500);
+        reversed.put("temperature", 0.2);
+
+        String key = cache.keyOf(request(QUESTIONS, "Java", ordered)).orElseThrow();
+
+        assertEquals(key, cache.keyOf(request(QUESTIONS, "Java", reversed)).orElseThrow());
+        assertEquals(key, cache.keyOf(request(QUESTIONS, "Java", Map.of("cache", true, "temperature", 0.2, "max_tokens", 500)))
+                .orElseThrow());
+        assertNotEquals(key, cache.keyOf(request(QUESTIONS, "Java", Map.of("temperature", 0.9, "max_tokens", 500)))
+                .orElseThrow());
+
+        KafkaMessage<AiRenderedRequestPayload> newerPrompt = request(QUESTIONS, "Java", ordered);
+        newerPrompt.getPayload().setVersion(2);
+        assertNotEquals(key, cache.keyOf(newerPrompt).orElseThrow());
+    }
+
+    @Test
+    void skipsOptedOutPromptsTypesWithoutTimeToLiveAndErrors() {
+        cache.save(request(QUESTIONS, "Java", Map.of("cache", false)),
+                QuestionGenerateResponsePayload.fromGeneratedText("Q"), Duration.ZERO);
+        cache.save(request(FEEDBACK, "Java", Map.of()), AnswerCheckResponsePayload.fromCheatingResult(false), Duration.ZERO);
+        cache.save(request(QUESTIONS, "Java", Map.of()), QuestionGenerateResponsePayload.error("failed"), Duration.ZERO);
+
+        assertEquals(0, store.size());
+        assertTrue(cache.find(request(FEEDBACK, "Java", Map.of())).isEmpty());
+        assertTrue(meterRegistry.find("devhack.ai.cache.requests").counters().isEmpty());
+    }
+
+    @Test
+    void expiredResponsesAreNotServed() {
+        store.save(cache.keyOf(request(QUESTIONS, "Java", Map.of())).orElseThrow(), new CachedResponse(
+                QuestionGenerateResponsePayload.fromGeneratedText("Q"), 100, Instant.now().minusSeconds(1)));
+
+        assertTrue(cache.find(request(QUESTIONS, "Java", Map.of())).isEmpty());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void sharedTierFillsTheLocalOne() {
+        LocalResponseCacheStore local = new LocalResponseCacheStore(10);
+        LocalResponseCacheStore shared = new LocalResponseCacheStore(10);
+        CachedResponse cached = new CachedResponse(QuestionGenerateResponsePayload.fromGeneratedText("Q"), 100,
+                Instant.now().plusSeconds(60));
+        shared.save("key", cached);
+
+        TieredResponseCacheStore tiered = new TieredResponseCacheStore(local, shared);
+
+        assertSame(cached, tiered.find("key").orElseThrow());
+        assertSame(cached, local.find("key").orElseThrow());
+    }
+
+    private static KafkaMessage<AiRenderedRequestPayload> request(String type, String tag, Map<String, Object> parameters) {
+        return KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id(UUID.randomUUID().toString())
+                .type(type)
+                .payload(AiRenderedRequestPayload.builder()
+                        .promptKey("question-generate")
+                        .version(1)
+                        .model("gpt-3.5-turbo")
+                        .parameters(parameters)
+                        .input("Generate questions about " + tag)
+                        .messages(List.of(new Message("user", "Generate questions about " + tag)))
+                        .build())
+                .build();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("devhack.ai.cache.requests").tag("type", QUESTIONS).tag("result", result).counter().count();
+    }
+}
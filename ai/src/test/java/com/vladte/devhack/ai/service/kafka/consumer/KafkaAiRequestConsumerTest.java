@@ -0,0 +1,197 @@
+package com.vladte.devhack.ai.service.kafka.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.ai.service.api.TransientAiProviderException;
+import com.vladte.devhack.ai.service.kafka.cache.AiResponseCache;
+import com.vladte.devhack.ai.service.kafka.cache.LocalResponseCacheStore;
+import com.vladte.devhack.ai.service.kafka.idempotency.LocalIdempotencyStore;
+import com.vladte.devhack.ai.service.kafka.scheduling.FairRequestScheduler;
+import com.vladte.devhack.ai.service.kafka.scheduling.PartitionWindow;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaAiRequestConsumerTest {
+
+    private static final String LISTENER_ID = "question-generate";
+    private static final String TOPIC = "question.generate.request";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FairRequestScheduler scheduler = new FairRequestScheduler(4, 1, meterRegistry);
+    private final List<String> replies = new CopyOnWriteArrayList<>();
+    private final List<String> forwarded = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<CompletableFuture<QuestionGenerateResponsePayload>> slowCalls = new LinkedBlockingQueue<>();
+    private RetryTopicForwarder forwarder = (listenerId, record, error) -> forwarded.add(String.valueOf(record.key()));
+    private final PartitionWindow window = new PartitionWindow(1, meterRegistry);
+    private final StubConsumer consumer = new StubConsumer();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void batchForwardsTransientFailuresToTheRetryTopics() {
+        consumer.processRecords(LISTENER_ID, List.of(record(0, "id-1", "Java"), record(1, "id-2", "fail"),
+                record(2, "id-3", "Kotlin")));
+
+        assertEquals(List.of("id-2"), forwarded);
+        assertEquals(List.of("id-1", "id-3"), replies.stream().sorted().toList());
+    }
+
+    @Test
+    void batchIsRedeliveredFromARecordThatCouldNotBeForwarded() {
+        forwarder = (listenerId, record, error) -> {
+            throw new IllegalStateException("Kafka unavailable");
+        };
+        ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> failing = record(1, "id-2", "fail");
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.processRecords(LISTENER_ID, List.of(record(0, "id-1", "Java"), failing,
+                        record(2, "id-3", "Kotlin"))));
+
+        assertSame(failing, exception.getRecord());
+        // the requests of the batch were started together, the ones answered are answered again when redelivered
+        assertEquals(List.of("id-1", "id-3"), replies.stream().sorted().toList());
+    }
+
+    @Test
+    void fullWindowParksTheRecordInsteadOfBlockingTheListener() throws Exception {
+        List<String> acknowledged = new CopyOnWriteArrayList<>();
+        CountDownLatch settled = new CountDownLatch(2);
+
+        consumer.processRecordAsync(LISTENER_ID, record(0, "id-1", "slow"), () -> {
+            acknowledged.add("id-1");
+            settled.countDown();
+        });
+        CompletableFuture<QuestionGenerateResponsePayload> first = slowCalls.poll(5, TimeUnit.SECONDS);
+        // the window of the partition is full, the listener thread returns without waiting for the first request
+        consumer.processRecordAsync(LISTENER_ID, record(1, "id-2", "slow"), () -> {
+            acknowledged.add("id-2");
+            settled.countDown();
+        });
+
+        assertNotNull(first);
+        assertEquals(1, window.parked());
+        assertTrue(slowCalls.isEmpty());
+
+        first.complete(QuestionGenerateResponsePayload.fromGeneratedText("Java"));
+        CompletableFuture<QuestionGenerateResponsePayload> second = slowCalls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(second, "The parked record takes the slot given back");
+        second.complete(QuestionGenerateResponsePayload.fromGeneratedText("Kotlin"));
+        assertTrue(settled.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("id-1", "id-2"), acknowledged.stream().sorted().toList());
+        assertEquals(List.of("id-1", "id-2"), replies.stream().sorted().toList());
+        assertEquals(0, window.inFlight());
+    }
+
+    private static ConsumerRecord<String, KafkaMessage<AiRenderedRequestPayload>> record(long offset, String id, String input) {
+        KafkaMessage<AiRenderedRequestPayload> message = KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id(id)
+                .type("question-generate")
+                .payload(AiRenderedRequestPayload.builder().input(input).build())
+                .build();
+        return new ConsumerRecord<>(TOPIC, 0, offset, id, message);
+    }
+
+    /**
+     * Answers with the input of the request, fails transiently when the input is {@code fail} and leaves the answer
+     * to the test when it is {@code slow}.
+     */
+    private class StubConsumer extends KafkaAiRequestConsumer<AiRenderedRequestPayload, QuestionGenerateResponsePayload> {
+
+        StubConsumer() {
+            super(new RecordingPublisher(), new ObjectMapper(), AiRenderedRequestPayload.class, ObservationRegistry.NOOP,
+                    scheduler, meterRegistry, new LocalIdempotencyStore(Duration.ofMinutes(1), 100),
+                    window,
+                    (listenerId, record, error) -> forwarder.forward(listenerId, record, error),
+                    new AiResponseCache(new LocalResponseCacheStore(10), Map.of(), meterRegistry));
+        }
+
+        @Override
+        protected CompletableFuture<QuestionGenerateResponsePayload> performAiRequestAsync(
+                KafkaMessage<AiRenderedRequestPayload> message) {
+            String input = message.getPayload().getInput();
+            if ("slow".equals(input)) {
+                CompletableFuture<QuestionGenerateResponsePayload> call = new CompletableFuture<>();
+                slowCalls.add(call);
+                return call;
+            }
+            if ("fail".equals(input)) {
+                return CompletableFuture.failedFuture(new TransientAiProviderException("Provider unavailable", null));
+            }
+            return CompletableFuture.completedFuture(QuestionGenerateResponsePayload.fromGeneratedText(input));
+        }
+
+        @Override
+        protected QuestionGenerateResponsePayload createErrorResponse(String message) {
+            return QuestionGenerateResponsePayload.error(message);
+        }
+    }
+
+    private class RecordingPublisher extends KafkaResponsePublisher<QuestionGenerateResponsePayload> {
+
+        RecordingPublisher() {
+            super(new MessageTransport() {
+                @Override
+                public <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record) {
+                    throw new UnsupportedOperationException("Responses are recorded by reply");
+                }
+            });
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, KafkaMessage<QuestionGenerateResponsePayload>>> reply(
+                KafkaMessage<?> request, QuestionGenerateResponsePayload payload) {
+            replies.add(request.getId());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        protected String getTopic() {
+            return "question.generate.result";
+        }
+
+        @Override
+        protected String getMessageType() {
+            return "question-generate-result";
+        }
+
+        @Override
+        protected String getSource() {
+            return "ai-app";
+        }
+
+        @Override
+        protected String getDestination() {
+            return "main-app";
+        }
+    }
+}
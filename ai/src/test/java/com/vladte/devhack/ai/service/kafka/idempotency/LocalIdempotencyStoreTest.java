@@ -0,0 +1,47 @@
+package com.vladte.devhack.ai.service.kafka.idempotency;
+
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalIdempotencyStoreTest {
+
+    @Test
+    void returnsStoredResponse() {
+        LocalIdempotencyStore store = new LocalIdempotencyStore(Duration.ofMinutes(1), 10);
+        AnswerCheckResponsePayload response = AnswerCheckResponsePayload.fromCheatingResult(false);
+
+        store.save("id-1", response);
+
+        assertSame(response, store.find("id-1").orElseThrow());
+        assertTrue(store.find("id-2").isEmpty());
+    }
+
+    @Test
+    void forgetsExpiredResponses() throws Exception {
+        LocalIdempotencyStore store = new LocalIdempotencyStore(Duration.ofMillis(20), 10);
+        store.save("id-1", AnswerCheckResponsePayload.fromCheatingResult(false));
+
+        Thread.sleep(50);
+
+        assertTrue(store.find("id-1").isEmpty());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void evictsOldestResponsesAboveCapacity() {
+        LocalIdempotencyStore store = new LocalIdempotencyStore(Duration.ofMinutes(1), 2);
+        store.save("id-1", AnswerCheckResponsePayload.fromCheatingResult(false));
+        store.save("id-2", AnswerCheckResponsePayload.fromCheatingResult(false));
+        store.save("id-3", AnswerCheckResponsePayload.fromCheatingResult(true));
+
+        assertTrue(store.find("id-1").isEmpty());
+        assertTrue(store.find("id-2").isPresent());
+        assertTrue(store.find("id-3").isPresent());
+    }
+}
@@ -0,0 +1,162 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairRequestSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FairRequestScheduler scheduler;
+    private final List<String> served = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new FairRequestScheduler(1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void heavyUserDoesNotStarveOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = scheduler.submit("heavy", 1, () -> {
+            await(release);
+            return null;
+        });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(submit("heavy", "heavy-" + i));
+        }
+        futures.add(submit("light", "light-0"));
+        assertEquals(6, scheduler.queued());
+        assertNotNull(meterRegistry.find("devhack.ai.fair.queue.depth").tag("user", "light").gauge());
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(served.indexOf("light-0") <= 1, "Light user waited behind the heavy one: " + served);
+        assertEquals(0, scheduler.queued());
+        assertNull(meterRegistry.find("devhack.ai.fair.queue.depth").tag("user", "light").gauge());
+    }
+
+    @Test
+    void expensiveRequestsTakeMoreTurns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = scheduler.submit("a", 1, () -> {
+            await(release);
+            return null;
+        });
+
+        CompletableFuture<String> expensive = scheduler.submit("expensive", 3, () -> serve("expensive"));
+        List<CompletableFuture<String>> cheap = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cheap.add(submit("cheap", "cheap-" + i));
+        }
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        expensive.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(cheap.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(served.indexOf("expensive") >= 2, "Expensive request did not wait for its deficit: " + served);
+    }
+
+    @Test
+    void failuresCompleteTheFuture() {
+        CompletableFuture<String> failed = scheduler.submit(null, 1, () -> {
+            throw new IllegalStateException("provider down");
+        });
+
+        Throwable cause = failed.handle((result, ex) -> ex).join();
+        assertTrue(cause instanceof IllegalStateException);
+    }
+
+    @Test
+    void resizeStartsQueuedTasksAndShrinksOnceTheyFinish() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Void>> blocked = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            blocked.add(scheduler.submit("user-" + i, 1, () -> {
+                await(release);
+                return null;
+            }));
+        }
+        assertEquals(2, scheduler.queued());
+
+        scheduler.resize(3);
+        assertEquals(0, scheduler.queued());
+        assertEquals(3, scheduler.busyWorkers());
+
+        scheduler.resize(1);
+        assertEquals(3, scheduler.busyWorkers());
+        release.countDown();
+        CompletableFuture.allOf(blocked.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        submit("late", "late").get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, scheduler.workers());
+        assertEquals(1.0, meterRegistry.get("devhack.ai.fair.workers").gauge().value());
+        assertTrue(scheduler.averageServiceTime().toNanos() > 0);
+    }
+
+    @Test
+    void asyncTaskHoldsItsWorkerWithoutAThread() throws Exception {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> pending = scheduler.submitAsync("a", 1, () -> {
+            started.countDown();
+            return call;
+        });
+        CompletableFuture<String> next = submit("b", "next");
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.busyWorkers());
+        assertEquals(1, scheduler.queued());
+        CompletableFuture<String> completedOn = pending.thenApply(result -> Thread.currentThread().getName());
+
+        Thread provider = new Thread(() -> call.complete("answer"), "provider-io");
+        provider.start();
+        provider.join(5_000);
+
+        assertEquals("answer", pending.get(5, TimeUnit.SECONDS));
+        assertNotEquals("provider-io", completedOn.get(5, TimeUnit.SECONDS), "Completed on the I/O thread of the call");
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<String> submit(String user, String name) {
+        return scheduler.submit(user, 1, () -> serve(name));
+    }
+
+    private String serve(String name) {
+        served.add(name);
+        return name;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
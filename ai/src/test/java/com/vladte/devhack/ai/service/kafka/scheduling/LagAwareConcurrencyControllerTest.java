@@ -0,0 +1,73 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LagAwareConcurrencyControllerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FairRequestScheduler scheduler;
+    private final AtomicLong lag = new AtomicLong();
+    private LagAwareConcurrencyController controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new FairRequestScheduler(2, 1, meterRegistry);
+        controller = new LagAwareConcurrencyController(scheduler, lag::get, 2, 16,
+                Duration.ofSeconds(30), Duration.ofSeconds(60), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void growsToDrainTheBacklogWithinTheDrainTime() {
+        // 60 waiting requests taking 4 s each, drained within 30 s by 8 workers
+        assertEquals(8, controller.nextWorkerCount(2, 2, 60, Duration.ofSeconds(4)));
+        assertEquals(16, controller.nextWorkerCount(2, 2, 10_000, Duration.ofSeconds(4)));
+    }
+
+    @Test
+    void shrinksOneWorkerAtATime() {
+        assertEquals(7, controller.nextWorkerCount(8, 1, 0, Duration.ofSeconds(4)));
+        assertEquals(7, controller.nextWorkerCount(8, 1, 1, Duration.ofSeconds(4)));
+        assertEquals(8, controller.nextWorkerCount(8, 8, 0, Duration.ofSeconds(4)));
+        assertEquals(2, controller.nextWorkerCount(2, 0, 0, Duration.ofSeconds(4)));
+    }
+
+    @Test
+    void doesNotGrowWhileTheProviderIsSaturated() {
+        assertEquals(4, controller.nextWorkerCount(4, 4, 1_000, Duration.ofSeconds(90)));
+    }
+
+    @Test
+    void adjustResizesTheSchedulerFromTheConsumerLag() {
+        lag.set(5);
+
+        controller.adjust();
+
+        assertEquals(5, scheduler.workers());
+        assertEquals(5.0, meterRegistry.get("devhack.ai.consumer.lag").gauge().value());
+    }
+
+    @Test
+    void adjustKeepsWorkingWhenTheLagIsUnavailable() {
+        LagAwareConcurrencyController failing = new LagAwareConcurrencyController(scheduler, () -> {
+            throw new IllegalStateException("broker down");
+        }, 2, 16, Duration.ofSeconds(30), Duration.ofSeconds(60), new SimpleMeterRegistry());
+
+        failing.adjust();
+
+        assertEquals(2, scheduler.workers());
+    }
+}
@@ -0,0 +1,122 @@
+package com.vladte.devhack.ai.service.kafka.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PartitionWindowTest {
+
+    private static final TopicPartition FIRST = new TopicPartition("answer.feedback.request", 0);
+    private static final TopicPartition SECOND = new TopicPartition("answer.feedback.request", 1);
+
+    private final List<String> events = new ArrayList<>();
+    private final List<String> started = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private PartitionWindow window;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        window = new PartitionWindow(2, 10_000, new PartitionWindow.FlowControl() {
+            @Override
+            public void pause(TopicPartition partition) {
+                events.add("pause " + partition);
+            }
+
+            @Override
+            public void resume(TopicPartition partition) {
+                events.add("resume " + partition);
+            }
+        }, meterRegistry);
+    }
+
+    @Test
+    void fullWindowParksRecordsAndPausesThePartition() {
+        window.execute(FIRST, () -> started.add("first"));
+        window.execute(FIRST, () -> started.add("second"));
+        window.execute(FIRST, () -> started.add("third"));
+        window.execute(FIRST, () -> started.add("fourth"));
+
+        assertEquals(List.of("first", "second"), started, "The window of the partition is full");
+        assertEquals(List.of("pause " + FIRST), events);
+        assertEquals(2, window.parked());
+
+        window.release(FIRST);
+        assertEquals(List.of("first", "second", "third"), started);
+        window.release(FIRST);
+        assertEquals(List.of("first", "second", "third", "fourth"), started);
+        assertEquals(2, window.inFlight(FIRST));
+        assertEquals(List.of("pause " + FIRST), events, "No slot is free for a fetched record yet");
+
+        window.release(FIRST);
+        assertEquals(List.of("pause " + FIRST, "resume " + FIRST), events);
+        assertEquals(1, window.inFlight(FIRST));
+        assertEquals(0, window.parked());
+    }
+
+    @Test
+    void parkedRecordsSettledRightAwayRunOneAfterAnother() {
+        window.execute(FIRST, () -> started.add("first"));
+        window.execute(FIRST, () -> started.add("second"));
+        for (int i = 0; i < 10_000; i++) {
+            window.execute(FIRST, () -> window.release(FIRST));
+        }
+
+        window.release(FIRST);
+
+        assertEquals(0, window.parked());
+        assertEquals(1, window.inFlight(FIRST));
+        assertEquals(List.of("pause " + FIRST, "resume " + FIRST), events);
+    }
+
+    @Test
+    void fullParkingBlocksTheListenerWhenPausingDoesNothing() throws Exception {
+        PartitionWindow unpaused = new PartitionWindow(1, 2, PartitionWindow.FlowControl.NONE, meterRegistry);
+        unpaused.execute(FIRST, () -> started.add("first"));
+        unpaused.execute(FIRST, () -> started.add("second"));
+        unpaused.execute(FIRST, () -> started.add("third"));
+
+        Thread listener = new Thread(() -> unpaused.execute(FIRST, () -> started.add("fourth")));
+        listener.start();
+        awaitState(listener, Thread.State.WAITING);
+        assertEquals(2, unpaused.parked());
+
+        unpaused.release(FIRST);
+        listener.join(5_000);
+
+        assertFalse(listener.isAlive());
+        assertEquals(List.of("first", "second"), started);
+        assertEquals(2, unpaused.parked(), "The blocked record is parked once another one started");
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(state, thread.getState());
+    }
+
+    @Test
+    void partitionsHaveTheirOwnWindow() {
+        window.execute(FIRST, () -> started.add("first"));
+        window.execute(FIRST, () -> started.add("second"));
+
+        window.execute(SECOND, () -> started.add("third"));
+
+        assertEquals(List.of("first", "second", "third"), started);
+        assertEquals(3, window.inFlight());
+        assertEquals(3.0, meterRegistry.get("devhack.ai.pipeline.in-flight").gauge().value());
+        window.release(SECOND);
+        assertEquals(0, window.inFlight(SECOND));
+        assertEquals(List.of(), events);
+    }
+}
@@ -0,0 +1,22 @@
+package com.vladte.devhack.common.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+
+/**
+ * Carries the context of the calling thread into {@code @Async} methods.
+ * The security context lets AI requests be attributed to the user that started them,
+ * the observation context keeps their spans in the trace of the originating HTTP request.
+ */
+@Configuration
+public class AsyncContextConfig {
+
+    @Bean
+    public TaskDecorator asyncContextTaskDecorator() {
+        ContextPropagatingTaskDecorator contextPropagation = new ContextPropagatingTaskDecorator();
+        return runnable -> contextPropagation.decorate(DelegatingSecurityContextRunnable.create(runnable, null));
+    }
+}
@@ -1,5 +1,6 @@
 package com.vladte.devhack.common.controller.error;
 
+import com.vladte.devhack.infra.service.kafka.RequestRejectedException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,8 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Global exception handler for REST controllers.
@@ -154,6 +157,44 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Handle requests shed because the AI module is saturated.
+     *
+     * @param ex the exception
+     * @return a ResponseEntity with service unavailable error details and a Retry-After header
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecution(RejectedExecutionException ex) {
+        log.warn("Request rejected: {}", ex.getMessage());
+
+        ApiError apiError = new ApiError(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Service busy",
+                ex.getMessage(),
+                LocalDateTime.now()
+        );
+
+        HttpHeaders headers = new HttpHeaders();
+        if (ex instanceof RequestRejectedException rejected && rejected.getRetryAfter() != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, rejected.getRetryAfter().toSeconds())));
+        }
+        return new ResponseEntity<>(apiError, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handle failures of awaited asynchronous calls by their cause.
+     *
+     * @param ex the exception
+     * @return a ResponseEntity produced by the handler of the cause
+     */
+    @ExceptionHandler(CompletionException.class)
+    public ResponseEntity<Object> handleCompletion(CompletionException ex) {
+        if (ex.getCause() instanceof RejectedExecutionException rejected) {
+            return handleRejectedExecution(rejected);
+        }
+        return handleAllExceptions(ex);
+    }
+
     /**
      * Handle all other exceptions.
      *
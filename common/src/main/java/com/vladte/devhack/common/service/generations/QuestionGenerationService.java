@@ -22,6 +22,17 @@ public interface QuestionGenerationService {
      */
     CompletableFuture<List<InterviewQuestion>> generateAndSaveQuestions(String tagName, int count, String difficulty);
 
+    /**
+     * Generate interview questions for several tags with a single batch of AI requests
+     * and save them to the database asynchronously.
+     *
+     * @param tagNames   the names of the tags to generate questions for
+     * @param count      the number of questions to generate per tag
+     * @param difficulty the difficulty level of the questions
+     * @return a CompletableFuture containing the list of generated questions of all tags
+     */
+    CompletableFuture<List<InterviewQuestion>> generateAndSaveQuestionsForTags(List<String> tagNames, int count, String difficulty);
+
     @Transactional
     List<InterviewQuestion> saveQuestionsToDatabase(List<String> questionTexts, String difficulty, Tag tag);
 }
@@ -84,19 +84,18 @@ public class QuestionGenerationOrchestrationServiceImpl
 
     @Override
     public void startEasyQuestionGenerationForMultipleTags(List<UUID> tagIds) {
-        CompletableFuture
-                .allOf(
-                        tagIds.stream()
-                                .map(tagService::findById)
-                                .filter(Optional::isPresent)
-                                .map(Optional::get)
-                                .map(Tag::getName)
-                                .map(name -> dispatchGeneration(name, 3, "easy"))
-                                .toArray(CompletableFuture[]::new)
-                )
-                .thenAccept(v -> log.info(
-                        "Completed multi‑tag easy generation for {} tags",
-                        tagIds.size()
+        List<String> tagNames = tagIds.stream()
+                .map(tagService::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .map(Tag::getName)
+                .toList();
+
+        questionGenerationService
+                .generateAndSaveQuestionsForTags(tagNames, 3, "easy")
+                .thenAccept(questions -> log.info(
+                        "Completed multi‑tag easy generation for {} tags, {} questions saved",
+                        tagNames.size(), questions.size()
                 ))
                 .exceptionally(ex -> {
                     log.error("Error generating easy questions for tags {}: {}",
@@ -7,6 +7,7 @@ import com.vladte.devhack.domain.entities.global.Tag;
 import com.vladte.devhack.domain.service.global.InterviewQuestionService;
 import com.vladte.devhack.domain.service.global.TagService;
 import com.vladte.devhack.domain.service.user.UserService;
+import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
@@ -16,7 +17,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of the QuestionGenerationService interface for generating interview questions using AI.
@@ -63,11 +63,49 @@ public class QuestionGenerationServiceImpl implements QuestionGenerationService
         final Tag tag = findOrCreateTag(tagName);
         final String messageId = UUID.randomUUID().toString();
 
-        return questionKafkaProvider
-                .subscribeToQuestionGeneration(messageId, tagName, count, difficulty)
-                .orTimeout(30, TimeUnit.SECONDS)                        // avoid hanging forever
-                .thenApply(response -> {
-                    String[] arr = Objects.requireNonNull(response.getQuestions(),
+        return saveGeneratedQuestions(
+                questionKafkaProvider.subscribeToQuestionGeneration(messageId, tagName, count, difficulty),
+                tag, difficulty);
+    }
+
+    /**
+     * Generate interview questions for several tags, sending all AI requests as one batch,
+     * and save them to the database.
+     *
+     * @param tagNames   the names of the tags to generate questions for
+     * @param count      the number of questions to generate per tag
+     * @param difficulty the difficulty level of the questions
+     * @return the list of generated questions of all tags; tags whose generation failed are skipped
+     */
+    @Async
+    @Override
+    public CompletableFuture<List<InterviewQuestion>> generateAndSaveQuestionsForTags(
+            List<String> tagNames, int count, String difficulty) {
+
+        log.info("Generate {} {} questions for {} tags in one batch", count, difficulty, tagNames.size());
+
+        Map<String, Tag> tags = new LinkedHashMap<>();
+        tagNames.forEach(tagName -> tags.put(tagName, findOrCreateTag(tagName)));
+
+        List<CompletableFuture<List<InterviewQuestion>>> generations = questionKafkaProvider
+                .subscribeToQuestionGeneration(new ArrayList<>(tags.keySet()), count, difficulty)
+                .entrySet().stream()
+                .map(response -> saveGeneratedQuestions(response.getValue(), tags.get(response.getKey()), difficulty)
+                        .exceptionally(ex -> Collections.emptyList()))
+                .toList();
+
+        return CompletableFuture.allOf(generations.toArray(CompletableFuture[]::new))
+                .thenApply(v -> generations.stream()
+                        .flatMap(generation -> generation.join().stream())
+                        .toList());
+    }
+
+    private CompletableFuture<List<InterviewQuestion>> saveGeneratedQuestions(
+            CompletableFuture<QuestionGenerateResponseArguments> response, Tag tag, String difficulty) {
+        String tagName = tag.getName();
+        return response
+                .thenApply(arguments -> {
+                    String[] arr = Objects.requireNonNull(arguments.getQuestions(),
                             "No questions generated");
                     return Arrays.stream(arr)
                             .map(this::mapAiGeneratedTestToQuestion)    // String -> question text
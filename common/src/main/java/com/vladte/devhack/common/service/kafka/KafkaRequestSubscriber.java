@@ -2,39 +2,294 @@ package com.vladte.devhack.common.service.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.common.engine.ai.PromptEngine;
+import com.vladte.devhack.common.service.kafka.outbox.KafkaOutbox;
+import com.vladte.devhack.common.service.kafka.util.KafkaReplyTopics;
 import com.vladte.devhack.domain.entities.global.ai.AiPrompt;
+import com.vladte.devhack.infra.message.MessageHeaders;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.KafkaPayloadArguments;
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.service.kafka.RequestFingerprint;
+import com.vladte.devhack.infra.service.kafka.RequestRejectedException;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 public abstract class KafkaRequestSubscriber<ResponseArguments extends KafkaPayloadArguments> extends KafkaMessageSender<AiRenderedRequestPayload> {
 
     private final PendingRequestManager<ResponseArguments> pendingManager;
     private final PromptEngine promptEngine;
+    private final KafkaReplyTopics replyTopics;
+    private final RequestAdmission admission;
+    private final RequestCoalescer<ResponseArguments> coalescer;
+    private final KafkaOutbox outbox;
+    private final HttpRpcClient rpcClient;
 
-    protected KafkaRequestSubscriber(KafkaTemplate<String, KafkaMessage<AiRenderedRequestPayload>> kafkaTemplate,
-                                     PendingRequestManager<ResponseArguments> pendingManager, ObjectMapper objectMapper) {
-        super(kafkaTemplate);
+    protected KafkaRequestSubscriber(MessageTransport transport,
+                                     PendingRequestManager<ResponseArguments> pendingManager, ObjectMapper objectMapper,
+                                     KafkaReplyTopics replyTopics, RequestAdmission admission,
+                                     RequestCoalescer<ResponseArguments> coalescer, KafkaOutbox outbox,
+                                     HttpRpcClient rpcClient) {
+        super(transport);
         this.pendingManager = pendingManager;
         this.promptEngine = new PromptEngine(objectMapper);
+        this.replyTopics = replyTopics;
+        this.admission = admission;
+        this.coalescer = coalescer;
+        this.outbox = outbox;
+        this.rpcClient = rpcClient;
+    }
+
+    /**
+     * Shared topic the AI module publishes responses of this subscriber to.
+     */
+    protected abstract String getResponseTopic();
+
+    /**
+     * Topic of the bulk lane that batched requests are sent to, so they are consumed apart from interactive ones.
+     * Defaults to the request topic itself.
+     */
+    protected String getBulkTopic() {
+        return getTopic();
+    }
+
+    /**
+     * Admission control of the bulk lane. Defaults to the admission control of the request topic.
+     */
+    protected RequestAdmission getBulkAdmission() {
+        return admission;
+    }
+
+    @Override
+    protected String getReplyTopic() {
+        return replyTopics.resolve(getResponseTopic());
+    }
+
+    /**
+     * Builds the request message, stamped with the user it is made for and the deadline of its pending request,
+     * so the AI module schedules it fairly and drops it once nobody waits for it.
+     */
+    private KafkaMessage<AiRenderedRequestPayload> buildRequest(String messageId, AiRenderedRequestPayload payload,
+                                                                Caller caller, LocalDateTime timestamp) {
+        KafkaMessage<AiRenderedRequestPayload> message = buildMessage(messageId, payload, timestamp);
+        if (caller.userId() != null) {
+            message.getHeaders().put(MessageHeaders.USER_ID, caller.userId());
+        }
+        Duration remaining = pendingManager.remaining(messageId);
+        if (!remaining.isZero()) {
+            message.setDeadline(Instant.now().plus(remaining));
+        }
+        return message;
+    }
+
+    private KafkaMessage<AiRenderedRequestPayload> buildRequest(String messageId, AiRenderedRequestPayload payload,
+                                                                Caller caller) {
+        return buildRequest(messageId, payload, caller, LocalDateTime.now());
     }
 
     protected AiRenderedRequestPayload buildAiMessagePayloadFromSources(AiPrompt prompt, Object... sources) {
         return promptEngine.render(prompt, sources);
     }
 
+    /**
+     * Sends the request once admitted by the admission control of the topic.
+     * When an identical request is already in flight, no message is sent and the returned future
+     * completes with the response to that request.
+     * When the topic is saturated the returned future fails with {@link RequestRejectedException}.
+     */
     public CompletableFuture<ResponseArguments> subscribeToResponse(String messageId, AiRenderedRequestPayload payload) {
-        CompletableFuture<ResponseArguments> future = pendingManager.register(messageId);
-        super.buildAndSend(messageId, payload)
-                .exceptionally(ex -> {
-                    pendingManager.completeExceptionally(messageId, ex);
-                    return null;
-                });
+        return subscribeToResponse(messageId, messageId, payload);
+    }
+
+    /**
+     * Sends the request about an aggregate, see {@link #subscribeToResponse(String, AiRenderedRequestPayload)}.
+     * With the outbox enabled the request is written to the outbox and requests about the same aggregate are relayed
+     * to Kafka in the order they were written. Only a request admitted right away is written in the transaction of
+     * the caller: a request queued by admission control is written once admitted, in a transaction of its own,
+     * and is lost when the application stops before that.
+     * Message types selected for the HTTP transport are sent to the AI module directly, bypassing Kafka and the outbox.
+     *
+     * @param aggregateId identifier of the entity the request is about
+     */
+    public CompletableFuture<ResponseArguments> subscribeToResponse(String messageId, String aggregateId,
+                                                                    AiRenderedRequestPayload payload) {
+        Caller caller = Caller.current();
+        return coalescer.execute(RequestFingerprint.of(getTopic(), payload), () -> admission.submit(
+                caller.wrap(() -> sendAndSubscribe(messageId, aggregateId, payload, getTopic(), caller))));
+    }
+
+    /**
+     * @param caller the caller of {@link #subscribeToResponse}, admission control may run this on another thread
+     */
+    private CompletableFuture<ResponseArguments> sendAndSubscribe(String messageId, String aggregateId,
+                                                                  AiRenderedRequestPayload payload, String topic,
+                                                                  Caller caller) {
+        CompletableFuture<ResponseArguments> future = pendingManager.register(messageId, getMessageType());
+        if (future.isDone()) {
+            // rejected by the pending request registry, nobody would wait for the response
+            return future;
+        }
+        if (topic.equals(getTopic()) && rpcClient.handles(getMessageType())) {
+            call(messageId, aggregateId, payload, topic, caller);
+        } else {
+            send(messageId, aggregateId, payload, topic, caller);
+        }
         return future;
     }
+
+    private void send(String messageId, String aggregateId, AiRenderedRequestPayload payload, String topic,
+                      Caller caller) {
+        KafkaMessage<AiRenderedRequestPayload> message = buildRequest(messageId, payload, caller);
+        CompletableFuture<?> sent = outbox.isEnabled()
+                ? enqueue(topic, aggregateId, message)
+                : super.send(topic, message);
+        sent.exceptionally(ex -> {
+            pendingManager.completeExceptionally(messageId, ex);
+            return null;
+        });
+    }
+
+    /**
+     * Sends the request over HTTP and resolves its pending future with the response.
+     * When the AI module cannot be reached, the request is sent through Kafka instead.
+     */
+    private void call(String messageId, String aggregateId, AiRenderedRequestPayload payload, String topic,
+                      Caller caller) {
+        rpcClient.call(topic, getResponseTopic(), buildRequest(messageId, payload, caller)).whenComplete((response, ex) -> {
+            Throwable failure = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (failure == null) {
+                completeFromResponse(messageId, response);
+            } else if (isUnreachable(failure)) {
+                LoggerFactory.getLogger(getClass()).warn("AI module unreachable over HTTP, sending request {} through Kafka: {}",
+                        messageId, failure.getMessage());
+                send(messageId, aggregateId, payload, topic, caller);
+            } else {
+                pendingManager.completeExceptionally(messageId, failure);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeFromResponse(String messageId, KafkaMessage<?> response) {
+        ResponsePayload<ResponseArguments> payload = (ResponsePayload<ResponseArguments>) response.getPayload();
+        if (payload.isHasErrors()) {
+            pendingManager.completeExceptionally(messageId, new RuntimeException("AI module error: " + payload.getErrorMessage()));
+        } else {
+            pendingManager.complete(messageId, payload.getArguments());
+        }
+    }
+
+    private static boolean isUnreachable(Throwable failure) {
+        for (Throwable current = failure; current != null; current = current.getCause()) {
+            if (current instanceof ConnectException || current instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Void> enqueue(String topic, String aggregateId, KafkaMessage<AiRenderedRequestPayload> message) {
+        try {
+            return outbox.enqueue(topic, aggregateId, message);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Registers and sends several requests as one Kafka batch to the bulk lane, see {@link #getBulkTopic()}.
+     * With the outbox enabled the requests are written to the outbox instead, and the relay sends them in batches.
+     * Requests identical to one in flight are not sent, they share its response.
+     * Requests that find no free admission slot are queued and sent one by one once admitted.
+     *
+     * @param payloadsByMessageId request payloads keyed by their message ids
+     * @return response futures keyed by message id
+     */
+    public Map<String, CompletableFuture<ResponseArguments>> subscribeToResponses(Map<String, AiRenderedRequestPayload> payloadsByMessageId) {
+        Map<String, CompletableFuture<ResponseArguments>> responses = new LinkedHashMap<>();
+        Map<String, AiRenderedRequestPayload> accepted = new LinkedHashMap<>();
+        RequestAdmission bulkAdmission = getBulkAdmission();
+        Caller caller = Caller.current();
+        payloadsByMessageId.forEach((messageId, payload) -> responses.put(messageId,
+                coalescer.execute(RequestFingerprint.of(getTopic(), payload), () -> {
+                    if (!bulkAdmission.tryAcquire()) {
+                        return bulkAdmission.submit(caller.wrap(
+                                () -> sendAndSubscribe(messageId, messageId, payload, getBulkTopic(), caller)));
+                    }
+                    CompletableFuture<ResponseArguments> future = pendingManager.register(messageId, getMessageType());
+                    future.whenComplete((result, ex) -> bulkAdmission.release());
+                    if (!future.isDone()) {
+                        accepted.put(messageId, payload);
+                    }
+                    return future;
+                })));
+
+        LocalDateTime timestamp = LocalDateTime.now();
+        List<KafkaMessage<AiRenderedRequestPayload>> messages = new ArrayList<>(accepted.size());
+        accepted.forEach((messageId, payload) -> messages.add(buildRequest(messageId, payload, caller, timestamp)));
+        Map<String, ? extends CompletableFuture<?>> sent = outbox.isEnabled()
+                ? enqueueAll(messages)
+                : super.sendBatch(getBulkTopic(), messages).futures();
+        sent.forEach((messageId, sendFuture) -> sendFuture.exceptionally(ex -> {
+            pendingManager.completeExceptionally(messageId, ex);
+            return null;
+        }));
+        return responses;
+    }
+
+    private Map<String, CompletableFuture<Void>> enqueueAll(List<KafkaMessage<AiRenderedRequestPayload>> messages) {
+        Map<String, CompletableFuture<Void>> enqueued = new LinkedHashMap<>();
+        messages.forEach(message -> enqueued.put(message.getId(), enqueue(getBulkTopic(), message.getId(), message)));
+        return enqueued;
+    }
+
+    /**
+     * The user a request is made for and the tracing context of the thread making it. Both live in thread-locals
+     * of the caller, while a request queued by admission control is sent later from the thread that freed its slot.
+     */
+    private record Caller(String userId, ContextSnapshot context) {
+
+        private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+        static Caller current() {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            boolean user = authentication != null && authentication.isAuthenticated()
+                    && !(authentication instanceof AnonymousAuthenticationToken);
+            return new Caller(user ? authentication.getName() : null, CONTEXT_SNAPSHOTS.captureAll());
+        }
+
+        /**
+         * Runs the request with the tracing context of the caller, so its spans join the caller's trace.
+         */
+        <T> Supplier<T> wrap(Supplier<T> request) {
+            return () -> {
+                try (ContextSnapshot.Scope scope = context.setThreadLocals()) {
+                    return request.get();
+                }
+            };
+        }
+    }
 }
@@ -5,6 +5,7 @@ import com.vladte.devhack.infra.message.MessageTypes;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
 import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
 import com.vladte.devhack.infra.service.kafka.consumer.KafkaSubscribedMessageHandler;
 import com.vladte.devhack.infra.topics.Topics;
@@ -20,11 +21,14 @@ public class AnswerKafkaConsumer
         extends KafkaSubscribedMessageHandler<AnswerCheckResponseArguments, AnswerCheckResponsePayload> {
 
     public AnswerKafkaConsumer(ObjectMapper objectMapper,
-                               @Qualifier("answerPendingRequestManager") PendingRequestManager<AnswerCheckResponseArguments> pendingRequestManager) {
-        super(objectMapper, AnswerCheckResponsePayload.class, pendingRequestManager);
+                               @Qualifier("answerPendingRequestManager") PendingRequestManager<AnswerCheckResponseArguments> pendingRequestManager,
+                               KafkaHopRecorder hopRecorder) {
+        super(objectMapper, AnswerCheckResponsePayload.class, pendingRequestManager, hopRecorder);
     }
 
-    @KafkaListener(topics = Topics.ANSWER_FEEDBACK_RESULT, groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "#{@kafkaReplyTopics.resolve('" + Topics.ANSWER_FEEDBACK_RESULT + "')}",
+            groupId = "#{@kafkaReplyTopics.groupId()}",
+            filter = "answerResultFilter")
     public void listen(KafkaMessage<AnswerCheckResponsePayload> message) {
         processMessage(message);
     }
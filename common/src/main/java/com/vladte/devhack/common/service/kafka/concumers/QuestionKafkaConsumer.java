@@ -5,6 +5,7 @@ import com.vladte.devhack.infra.message.MessageTypes;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
 import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
 import com.vladte.devhack.infra.service.kafka.consumer.KafkaSubscribedMessageHandler;
 import com.vladte.devhack.infra.topics.Topics;
@@ -20,8 +21,9 @@ public class QuestionKafkaConsumer
         extends KafkaSubscribedMessageHandler<QuestionGenerateResponseArguments, QuestionGenerateResponsePayload> {
 
     public QuestionKafkaConsumer(ObjectMapper objectMapper,
-                                 @Qualifier("questionGeneratePendingRequestManager") PendingRequestManager<QuestionGenerateResponseArguments> pendingRequestManager) {
-        super(objectMapper, QuestionGenerateResponsePayload.class, pendingRequestManager);
+                                 @Qualifier("questionGeneratePendingRequestManager") PendingRequestManager<QuestionGenerateResponseArguments> pendingRequestManager,
+                                 KafkaHopRecorder hopRecorder) {
+        super(objectMapper, QuestionGenerateResponsePayload.class, pendingRequestManager, hopRecorder);
     }
 
     /**
@@ -29,7 +31,9 @@ public class QuestionKafkaConsumer
      *
      * @param message The message received from the AI module
      */
-    @KafkaListener(topics = Topics.QUESTION_GENERATE_RESULT, groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "#{@kafkaReplyTopics.resolve('" + Topics.QUESTION_GENERATE_RESULT + "')}",
+            groupId = "#{@kafkaReplyTopics.groupId()}",
+            filter = "questionGenerateResultFilter")
     public void listen(KafkaMessage<QuestionGenerateResponsePayload> message) {
         processMessage(message);
     }
@@ -5,6 +5,7 @@ import com.vladte.devhack.infra.message.MessageTypes;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.VacancyParseResultArguments;
 import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
 import com.vladte.devhack.infra.service.kafka.consumer.KafkaSubscribedMessageHandler;
 import com.vladte.devhack.infra.topics.Topics;
@@ -18,16 +19,18 @@ public class VacancyResponseKafkaConsumer
 
 
     public VacancyResponseKafkaConsumer(ObjectMapper objectMapper,
-                                        @Qualifier("vacancyPendingRequestManager") PendingRequestManager<VacancyParseResultArguments> pendingRequestManager) {
-        super(objectMapper, VacancyParseResponsePayload.class, pendingRequestManager);
+                                        @Qualifier("vacancyPendingRequestManager") PendingRequestManager<VacancyParseResultArguments> pendingRequestManager,
+                                        KafkaHopRecorder hopRecorder) {
+        super(objectMapper, VacancyParseResponsePayload.class, pendingRequestManager, hopRecorder);
     }
 
-    @KafkaListener(topics = Topics.VACANCY_PARSING_RESULT, groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(topics = "#{@kafkaReplyTopics.resolve('" + Topics.VACANCY_PARSING_RESULT + "')}",
+            groupId = "#{@kafkaReplyTopics.groupId()}",
+            filter = "vacancyParsingResultFilter")
     public void listen(KafkaMessage<VacancyParseResponsePayload> message) {
         processMessage(message);
     }
 
-
     @Override
     protected boolean isExpectedResponse(KafkaMessage<VacancyParseResponsePayload> message) {
         return MessageTypes.VACANCY_PARSING_RESULT.getValue().equals(message.getType());
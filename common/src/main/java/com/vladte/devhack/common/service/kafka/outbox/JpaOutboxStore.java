@@ -0,0 +1,75 @@
+package com.vladte.devhack.common.service.kafka.outbox;
+
+import com.vladte.devhack.domain.entities.global.OutboxMessage;
+import com.vladte.devhack.domain.repository.outbox.OutboxMessageRepository;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxRecord;
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxStore;
+import com.vladte.devhack.infra.topics.Topics;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link OutboxStore} backed by the {@code kafka_outbox} table.
+ * A relay holds a transaction scoped advisory lock while it works on a batch, so instances never relay
+ * the same messages concurrently. Dead messages stay in the table, with the error of their last attempt,
+ * until they are removed by hand.
+ */
+@Component
+public class JpaOutboxStore implements OutboxStore {
+
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private final OutboxMessageRepository repository;
+
+    public JpaOutboxStore(OutboxMessageRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Writes a message to the outbox, joining the transaction of the caller when there is one.
+     */
+    public OutboxMessage save(String topic, String aggregateId, KafkaMessage<?> message) {
+        OutboxMessage entry = OutboxMessage.builder()
+                .aggregateId(aggregateId)
+                .topic(topic)
+                .payload(new String(KafkaMessageCodecs.JSON.encode(message), StandardCharsets.UTF_8))
+                .headers(new HashMap<>(message.getHeaders()))
+                .build();
+        return repository.save(entry);
+    }
+
+    @Override
+    public List<OutboxRecord> claimBatch(int limit, int maxAttempts) {
+        if (!repository.tryLockRelay(RELAY_LOCK_KEY)) {
+            return List.of();
+        }
+        return repository.findOldest(limit, maxAttempts).stream()
+                .map(JpaOutboxStore::toRecord)
+                .toList();
+    }
+
+    @Override
+    public void markSent(Collection<String> ids) {
+        repository.deleteAllByIdInBatch(ids.stream().map(UUID::fromString).toList());
+    }
+
+    @Override
+    public void markFailed(String id, String error) {
+        repository.recordFailure(UUID.fromString(id), error);
+    }
+
+    private static OutboxRecord toRecord(OutboxMessage entry) {
+        KafkaMessage<?> message = KafkaMessageCodecs.JSON.decode(entry.getPayload().getBytes(StandardCharsets.UTF_8),
+                Topics.payloadType(entry.getTopic()));
+        message.getHeaders().putAll(entry.getHeaders());
+        return new OutboxRecord(entry.getId().toString(), entry.getAggregateId(), entry.getTopic(), message,
+                entry.getCreatedAt(), entry.getAttempts());
+    }
+}
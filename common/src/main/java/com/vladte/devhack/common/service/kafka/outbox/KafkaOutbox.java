@@ -0,0 +1,65 @@
+package com.vladte.devhack.common.service.kafka.outbox;
+
+import com.vladte.devhack.common.service.kafka.util.KafkaOutboxProperties;
+import com.vladte.devhack.domain.entities.global.OutboxMessage;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transactional outbox of Kafka messages, for AI requests and domain events alike.
+ * A message is written in the transaction of the caller and relayed to Kafka by {@link KafkaOutboxRelayJob}
+ * after the commit, so the caller never waits for the broker and a committed change never loses its message.
+ * <p>
+ * A caller inside a transaction must not wait for the response to its request before committing:
+ * the request is only sent after the commit.
+ */
+@Service
+public class KafkaOutbox {
+
+    private final JpaOutboxStore store;
+    private final KafkaOutboxRelayJob relayJob;
+    private final KafkaOutboxProperties properties;
+
+    public KafkaOutbox(JpaOutboxStore store, KafkaOutboxRelayJob relayJob, KafkaOutboxProperties properties) {
+        this.store = store;
+        this.relayJob = relayJob;
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Writes a message to the outbox.
+     *
+     * @param topic       topic the message is relayed to
+     * @param aggregateId identifier of the aggregate the message is about; messages of one aggregate are relayed
+     *                    in the order they were written
+     * @param message     the message, with its headers
+     * @return a future completed once the message is committed to the outbox, failed when the transaction rolled back
+     */
+    @Transactional
+    public CompletableFuture<Void> enqueue(String topic, String aggregateId, KafkaMessage<?> message) {
+        OutboxMessage entry = store.save(topic, aggregateId, message);
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    committed.complete(null);
+                    relayJob.trigger();
+                } else {
+                    committed.completeExceptionally(new IllegalStateException(
+                            "Transaction writing outbox message " + entry.getId() + " was rolled back"));
+                }
+            }
+        });
+        return committed;
+    }
+}
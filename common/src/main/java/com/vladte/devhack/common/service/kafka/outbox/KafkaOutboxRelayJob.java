@@ -0,0 +1,78 @@
+package com.vladte.devhack.common.service.kafka.outbox;
+
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxRelay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drains the outbox: on every poll and right after a transaction wrote to it.
+ * Each batch is relayed in its own transaction; draining continues while batches come back full and acknowledged,
+ * a batch with failures leaves the rest to the next poll.
+ */
+@Component
+public class KafkaOutboxRelayJob implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaOutboxRelayJob.class);
+
+    private final OutboxRelay relay;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock draining = new ReentrantLock();
+    private final AtomicBoolean triggered = new AtomicBoolean();
+    private final ExecutorService triggerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kafka-outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public KafkaOutboxRelayJob(OutboxRelay relay, TransactionTemplate transactionTemplate) {
+        this.relay = relay;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "#{@kafkaOutboxProperties.pollInterval.toMillis()}")
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * Relays the outbox in the background as soon as possible. Triggers arriving before the relay started are merged.
+     */
+    public void trigger() {
+        if (triggered.compareAndSet(false, true)) {
+            triggerExecutor.execute(() -> {
+                triggered.set(false);
+                drain();
+            });
+        }
+    }
+
+    private void drain() {
+        if (!draining.tryLock()) {
+            return;
+        }
+        try {
+            Boolean more;
+            do {
+                more = transactionTemplate.execute(status -> relay.relayBatch());
+            } while (Boolean.TRUE.equals(more));
+        } catch (RuntimeException e) {
+            log.error("Failed to relay the Kafka outbox: {}", e.getMessage(), e);
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        triggerExecutor.shutdownNow();
+    }
+}
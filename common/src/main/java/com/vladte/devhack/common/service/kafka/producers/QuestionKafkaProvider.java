@@ -2,6 +2,8 @@ package com.vladte.devhack.common.service.kafka.producers;
 
 import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -22,4 +24,15 @@ public interface QuestionKafkaProvider {
     CompletableFuture<QuestionGenerateResponseArguments> subscribeToQuestionGeneration(
             String messageId, String tagName, int count, String difficulty);
 
+    /**
+     * Sends requests to generate questions for several tags as one batch.
+     *
+     * @param tagNames   the names of the tags to generate questions for
+     * @param count      the number of questions to generate per tag
+     * @param difficulty the difficulty level of the questions
+     * @return response futures keyed by tag name
+     */
+    Map<String, CompletableFuture<QuestionGenerateResponseArguments>> subscribeToQuestionGeneration(
+            List<String> tagNames, int count, String difficulty);
+
 }
@@ -2,7 +2,9 @@ package com.vladte.devhack.common.service.kafka.producers.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.common.service.kafka.KafkaRequestSubscriber;
+import com.vladte.devhack.common.service.kafka.outbox.KafkaOutbox;
 import com.vladte.devhack.common.service.kafka.producers.AnswerKafkaProvider;
+import com.vladte.devhack.common.service.kafka.util.KafkaReplyTopics;
 import com.vladte.devhack.domain.entities.global.InterviewQuestion;
 import com.vladte.devhack.domain.entities.global.ai.AiPrompt;
 import com.vladte.devhack.domain.entities.global.ai.AiPromptCategory;
@@ -11,15 +13,17 @@ import com.vladte.devhack.domain.service.ai.AiPromptCategoryService;
 import com.vladte.devhack.domain.service.ai.AiPromptService;
 import com.vladte.devhack.infra.message.MessageDestinations;
 import com.vladte.devhack.infra.message.MessageTypes;
-import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import com.vladte.devhack.infra.topics.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
@@ -38,12 +42,17 @@ public class AnswerKafkaProviderImpl
 
     private static final Logger log = LoggerFactory.getLogger(AnswerKafkaProviderImpl.class);
 
-    public AnswerKafkaProviderImpl(KafkaTemplate<String, KafkaMessage<AiRenderedRequestPayload>> kafkaTemplate,
+    public AnswerKafkaProviderImpl(MessageTransport transport,
                                    @Qualifier("answerPendingRequestManager") PendingRequestManager<AnswerCheckResponseArguments> pendingRequestManager,
                                    ObjectMapper objectMapper,
+                                   KafkaReplyTopics replyTopics,
+                                   @Qualifier("answerRequestAdmission") RequestAdmission admission,
+                                   @Qualifier("answerRequestCoalescer") RequestCoalescer<AnswerCheckResponseArguments> coalescer,
+                                   KafkaOutbox outbox,
+                                   HttpRpcClient rpcClient,
                                    AiPromptService aiPromptService,
                                    AiPromptCategoryService aiPromptCategoryService) {
-        super(kafkaTemplate, pendingRequestManager, objectMapper);
+        super(transport, pendingRequestManager, objectMapper, replyTopics, admission, coalescer, outbox, rpcClient);
         this.aiPromptService = aiPromptService;
         this.aiPromptCategoryService = aiPromptCategoryService;
     }
@@ -53,6 +62,11 @@ public class AnswerKafkaProviderImpl
         return Topics.ANSWER_FEEDBACK_REQUEST;
     }
 
+    @Override
+    protected String getResponseTopic() {
+        return Topics.ANSWER_FEEDBACK_RESULT;
+    }
+
     @Override
     protected String getMessageType() {
         return MessageTypes.CHECK_ANSWER_WITH_FEEDBACK.getValue();
@@ -91,7 +105,7 @@ public class AnswerKafkaProviderImpl
 
         AiRenderedRequestPayload payload = super.buildAiMessagePayloadFromSources(prompt, question, answer);
 
-        return subscribeToResponse(messageId, payload);
+        return subscribeToResponse(messageId, String.valueOf(answer.getId()), payload);
     }
 
 }
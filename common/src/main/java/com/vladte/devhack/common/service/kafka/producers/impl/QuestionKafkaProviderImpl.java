@@ -2,26 +2,33 @@ package com.vladte.devhack.common.service.kafka.producers.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.common.service.kafka.KafkaRequestSubscriber;
+import com.vladte.devhack.common.service.kafka.outbox.KafkaOutbox;
 import com.vladte.devhack.common.service.kafka.producers.QuestionKafkaProvider;
+import com.vladte.devhack.common.service.kafka.util.KafkaReplyTopics;
 import com.vladte.devhack.domain.entities.global.ai.AiPrompt;
 import com.vladte.devhack.domain.entities.global.ai.AiPromptCategory;
 import com.vladte.devhack.domain.service.ai.AiPromptCategoryService;
 import com.vladte.devhack.domain.service.ai.AiPromptService;
 import com.vladte.devhack.infra.message.MessageDestinations;
 import com.vladte.devhack.infra.message.MessageTypes;
-import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import com.vladte.devhack.infra.topics.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -36,14 +43,22 @@ public class QuestionKafkaProviderImpl
 
     private final AiPromptService aiPromptService;
     private final AiPromptCategoryService aiPromptCategoryService;
+    private final RequestAdmission bulkAdmission;
 
-    public QuestionKafkaProviderImpl(KafkaTemplate<String, KafkaMessage<AiRenderedRequestPayload>> kafkaTemplate,
+    public QuestionKafkaProviderImpl(MessageTransport transport,
                                      @Qualifier("questionGeneratePendingRequestManager") PendingRequestManager<QuestionGenerateResponseArguments> pendingRequestManager,
                                      ObjectMapper objectMapper,
+                                     KafkaReplyTopics replyTopics,
+                                     @Qualifier("questionGenerateRequestAdmission") RequestAdmission admission,
+                                     @Qualifier("questionGenerateBulkRequestAdmission") RequestAdmission bulkAdmission,
+                                     @Qualifier("questionGenerateRequestCoalescer") RequestCoalescer<QuestionGenerateResponseArguments> coalescer,
+                                     KafkaOutbox outbox,
+                                     HttpRpcClient rpcClient,
                                      AiPromptService aiPromptService, AiPromptCategoryService aiPromptCategoryService) {
-        super(kafkaTemplate, pendingRequestManager, objectMapper);
+        super(transport, pendingRequestManager, objectMapper, replyTopics, admission, coalescer, outbox, rpcClient);
         this.aiPromptService = aiPromptService;
         this.aiPromptCategoryService = aiPromptCategoryService;
+        this.bulkAdmission = bulkAdmission;
     }
 
     @Override
@@ -51,6 +66,21 @@ public class QuestionKafkaProviderImpl
         return Topics.QUESTION_GENERATE_REQUEST;
     }
 
+    @Override
+    protected String getBulkTopic() {
+        return Topics.QUESTION_GENERATE_BULK_REQUEST;
+    }
+
+    @Override
+    protected RequestAdmission getBulkAdmission() {
+        return bulkAdmission;
+    }
+
+    @Override
+    protected String getResponseTopic() {
+        return Topics.QUESTION_GENERATE_RESULT;
+    }
+
     @Override
     protected String getMessageType() {
         return MessageTypes.QUESTION_GENERATE.getValue();
@@ -74,16 +104,45 @@ public class QuestionKafkaProviderImpl
         log.info("Sending request to generate {} {} difficulty questions for tag: {} with ID: {}",
                 count, difficulty, tagName, messageId);
 
-        AiPromptCategory category = aiPromptCategoryService.findByCode(getTopic()).get();
-        AiPrompt prompt = aiPromptService.findLatestByCategory(category).get();
+        AiRenderedRequestPayload payload = buildPayload(findPrompt(), tagName, count, difficulty);
+        return subscribeToResponse(messageId, payload);
+    }
+
+    /**
+     * Sends question generation requests for several tags as one Kafka batch, on the bulk lane.
+     */
+    @Override
+    public Map<String, CompletableFuture<QuestionGenerateResponseArguments>> subscribeToQuestionGeneration(
+            List<String> tagNames, int count, String difficulty) {
+        log.info("Sending batch request to generate {} {} difficulty questions for {} tags",
+                count, difficulty, tagNames.size());
 
+        AiPrompt prompt = findPrompt();
+        Map<String, String> tagNamesByMessageId = new LinkedHashMap<>();
+        Map<String, AiRenderedRequestPayload> payloads = new LinkedHashMap<>();
+        for (String tagName : tagNames) {
+            String messageId = UUID.randomUUID().toString();
+            tagNamesByMessageId.put(messageId, tagName);
+            payloads.put(messageId, buildPayload(prompt, tagName, count, difficulty));
+        }
 
+        Map<String, CompletableFuture<QuestionGenerateResponseArguments>> responsesByTag = new LinkedHashMap<>();
+        subscribeToResponses(payloads).forEach((messageId, future) ->
+                responsesByTag.put(tagNamesByMessageId.get(messageId), future));
+        return responsesByTag;
+    }
+
+    private AiPrompt findPrompt() {
+        AiPromptCategory category = aiPromptCategoryService.findByCode(getTopic()).get();
+        return aiPromptService.findLatestByCategory(category).get();
+    }
+
+    private AiRenderedRequestPayload buildPayload(AiPrompt prompt, String tagName, int count, String difficulty) {
         Map<String, Object> args = new HashMap<>();
         args.put("tag", tagName);
         args.put("count", count);
         args.put("difficulty", difficulty);
 
-        AiRenderedRequestPayload payload = super.buildAiMessagePayloadFromSources(prompt, args);
-        return subscribeToResponse(messageId, payload);
+        return super.buildAiMessagePayloadFromSources(prompt, args);
     }
 }
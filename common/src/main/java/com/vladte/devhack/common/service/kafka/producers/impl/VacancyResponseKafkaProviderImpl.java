@@ -2,7 +2,9 @@ package com.vladte.devhack.common.service.kafka.producers.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.common.service.kafka.KafkaRequestSubscriber;
+import com.vladte.devhack.common.service.kafka.outbox.KafkaOutbox;
 import com.vladte.devhack.common.service.kafka.producers.VacancyResponseKafkaProvider;
+import com.vladte.devhack.common.service.kafka.util.KafkaReplyTopics;
 import com.vladte.devhack.common.util.JsonFieldExtractor;
 import com.vladte.devhack.domain.entities.global.Vacancy;
 import com.vladte.devhack.domain.entities.global.ai.AiPrompt;
@@ -11,15 +13,17 @@ import com.vladte.devhack.domain.service.ai.AiPromptCategoryService;
 import com.vladte.devhack.domain.service.ai.AiPromptService;
 import com.vladte.devhack.infra.message.MessageDestinations;
 import com.vladte.devhack.infra.message.MessageTypes;
-import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.VacancyParseResultArguments;
 import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import com.vladte.devhack.infra.topics.Topics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -36,11 +40,16 @@ public class VacancyResponseKafkaProviderImpl
     private final AiPromptService aiPromptService;
     private final AiPromptCategoryService aiPromptCategoryService;
 
-    public VacancyResponseKafkaProviderImpl(KafkaTemplate<String, KafkaMessage<AiRenderedRequestPayload>> kafkaTemplate,
+    public VacancyResponseKafkaProviderImpl(MessageTransport transport,
                                             @Qualifier("vacancyPendingRequestManager") PendingRequestManager<VacancyParseResultArguments> pendingRequestManager,
                                             ObjectMapper objectMapper,
+                                            KafkaReplyTopics replyTopics,
+                                            @Qualifier("vacancyRequestAdmission") RequestAdmission admission,
+                                            @Qualifier("vacancyRequestCoalescer") RequestCoalescer<VacancyParseResultArguments> coalescer,
+                                            KafkaOutbox outbox,
+                                            HttpRpcClient rpcClient,
                                             AiPromptService aiPromptService, AiPromptCategoryService aiPromptCategoryService) {
-        super(kafkaTemplate, pendingRequestManager, objectMapper);
+        super(transport, pendingRequestManager, objectMapper, replyTopics, admission, coalescer, outbox, rpcClient);
         this.aiPromptService = aiPromptService;
         this.aiPromptCategoryService = aiPromptCategoryService;
     }
@@ -50,6 +59,11 @@ public class VacancyResponseKafkaProviderImpl
         return Topics.VACANCY_PARSING_REQUEST;
     }
 
+    @Override
+    protected String getResponseTopic() {
+        return Topics.VACANCY_PARSING_RESULT;
+    }
+
     @Override
     protected String getMessageType() {
         return MessageTypes.VACANCY_PARSING.getValue();
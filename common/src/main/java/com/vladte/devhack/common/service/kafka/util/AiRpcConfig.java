@@ -0,0 +1,26 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.util.Set;
+
+@Configuration
+public class AiRpcConfig {
+
+    /**
+     * With the HTTP transport disabled the client handles no message type, so every request goes through Kafka.
+     */
+    @Bean
+    public HttpRpcClient aiRpcClient(AiRpcProperties properties, MeterRegistry meterRegistry) {
+        return new HttpRpcClient(
+                URI.create(properties.getUrl()),
+                properties.getConnectTimeout(),
+                properties.getTimeout(),
+                properties.isEnabled() ? properties.getTypes() : Set.of(),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Configuration properties of the direct HTTP transport to the AI module, used instead of Kafka for selected request types.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "devhack.ai.rpc")
+public class AiRpcProperties {
+
+    /**
+     * Whether the selected request types are sent over HTTP. When disabled all requests go through Kafka.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Base URL of the AI module.
+     */
+    private String url = "http://ai:8083";
+
+    /**
+     * Message types sent over HTTP, see {@link com.vladte.devhack.infra.message.MessageTypes}.
+     * Requests sent to the bulk lane always go through Kafka.
+     */
+    private Set<String> types = new LinkedHashSet<>(Set.of("check-answer-with-feedback"));
+
+    /**
+     * Time to establish a connection. When the AI module cannot be reached the request falls back to Kafka.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Timeout of requests without a deadline.
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+}
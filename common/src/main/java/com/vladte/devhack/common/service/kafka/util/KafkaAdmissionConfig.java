@@ -0,0 +1,45 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class KafkaAdmissionConfig {
+
+    private final KafkaAdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public KafkaAdmissionConfig(KafkaAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public RequestAdmission answerRequestAdmission() {
+        return createAdmission(Topics.ANSWER_FEEDBACK_REQUEST);
+    }
+
+    @Bean
+    public RequestAdmission vacancyRequestAdmission() {
+        return createAdmission(Topics.VACANCY_PARSING_REQUEST);
+    }
+
+    @Bean
+    public RequestAdmission questionGenerateRequestAdmission() {
+        return createAdmission(Topics.QUESTION_GENERATE_REQUEST);
+    }
+
+    @Bean
+    public RequestAdmission questionGenerateBulkRequestAdmission() {
+        return createAdmission(Topics.QUESTION_GENERATE_BULK_REQUEST);
+    }
+
+    private RequestAdmission createAdmission(String topic) {
+        KafkaAdmissionProperties.Limits limits = properties.forTopic(topic);
+        return new RequestAdmission(topic, limits.getMaxInFlight(), limits.getMaxQueued(),
+                limits.getMaxQueueWait(), meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the admission control of requests sent to the AI module.
+ * The top level values apply to every request topic, entries of {@code topics} override them per topic.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "devhack.kafka.admission")
+public class KafkaAdmissionProperties {
+
+    /**
+     * Maximum number of requests of a topic waiting for their response at once.
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * Maximum number of requests of a topic waiting for admission. Requests above it are rejected immediately.
+     */
+    private int maxQueued = 100;
+
+    /**
+     * Time a request may wait for admission before it is rejected.
+     */
+    private Duration maxQueueWait = Duration.ofSeconds(10);
+
+    /**
+     * Per topic overrides, keyed by request topic.
+     */
+    private Map<String, Limits> topics = new HashMap<>();
+
+    public Limits forTopic(String topic) {
+        Limits limits = topics.get(topic);
+        return new Limits(
+                limits != null && limits.getMaxInFlight() != null ? limits.getMaxInFlight() : maxInFlight,
+                limits != null && limits.getMaxQueued() != null ? limits.getMaxQueued() : maxQueued,
+                limits != null && limits.getMaxQueueWait() != null ? limits.getMaxQueueWait() : maxQueueWait);
+    }
+
+    @Data
+    public static class Limits {
+        private Integer maxInFlight;
+        private Integer maxQueued;
+        private Duration maxQueueWait;
+
+        public Limits() {
+        }
+
+        public Limits(Integer maxInFlight, Integer maxQueued, Duration maxQueueWait) {
+            this.maxInFlight = maxInFlight;
+            this.maxQueued = maxQueued;
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+}
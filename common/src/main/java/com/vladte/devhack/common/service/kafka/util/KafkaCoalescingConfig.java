@@ -0,0 +1,39 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
+import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
+import com.vladte.devhack.infra.model.arguments.response.VacancyParseResultArguments;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class KafkaCoalescingConfig {
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+
+    public KafkaCoalescingConfig(@Value("${devhack.kafka.coalescing.enabled:true}") boolean enabled,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public RequestCoalescer<AnswerCheckResponseArguments> answerRequestCoalescer() {
+        return new RequestCoalescer<>(Topics.ANSWER_FEEDBACK_REQUEST, enabled, meterRegistry);
+    }
+
+    @Bean
+    public RequestCoalescer<VacancyParseResultArguments> vacancyRequestCoalescer() {
+        return new RequestCoalescer<>(Topics.VACANCY_PARSING_REQUEST, enabled, meterRegistry);
+    }
+
+    @Bean
+    public RequestCoalescer<QuestionGenerateResponseArguments> questionGenerateRequestCoalescer() {
+        return new RequestCoalescer<>(Topics.QUESTION_GENERATE_REQUEST, enabled, meterRegistry);
+    }
+}
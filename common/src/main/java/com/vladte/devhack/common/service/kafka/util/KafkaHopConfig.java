@@ -0,0 +1,15 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class KafkaHopConfig {
+
+    @Bean
+    public KafkaHopRecorder kafkaHopRecorder(MeterRegistry meterRegistry) {
+        return new KafkaHopRecorder(meterRegistry);
+    }
+}
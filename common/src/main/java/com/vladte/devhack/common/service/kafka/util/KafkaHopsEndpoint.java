@@ -0,0 +1,63 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator view of the Kafka round trip latency: p50, p95 and p99 of every hop per request type,
+ * available at {@code /actuator/kafkahops}.
+ */
+@Component
+@Endpoint(id = "kafkahops")
+public class KafkaHopsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    public KafkaHopsEndpoint(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, HopLatency>> hops() {
+        Map<String, Map<String, HopLatency>> hops = new TreeMap<>();
+        for (Timer timer : meterRegistry.find(KafkaHopRecorder.METRIC).timers()) {
+            hops.computeIfAbsent(timer.getId().getTag("type"), type -> new TreeMap<>())
+                    .put(timer.getId().getTag("hop"), HopLatency.of(timer.takeSnapshot()));
+        }
+        return hops;
+    }
+
+    /**
+     * Latency of a hop in milliseconds.
+     */
+    public record HopLatency(long count, double mean, double p50, double p95, double p99, double max) {
+
+        static HopLatency of(HistogramSnapshot snapshot) {
+            return new HopLatency(snapshot.count(),
+                    snapshot.mean(TimeUnit.MILLISECONDS),
+                    percentile(snapshot, 0.5),
+                    percentile(snapshot, 0.95),
+                    percentile(snapshot, 0.99),
+                    snapshot.max(TimeUnit.MILLISECONDS));
+        }
+
+        private static double percentile(HistogramSnapshot snapshot, double percentile) {
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                if (value.percentile() == percentile) {
+                    return value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxRecord;
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxRelay;
+import com.vladte.devhack.infra.service.kafka.outbox.OutboxStore;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.List;
+
+@Configuration
+@EnableScheduling
+public class KafkaOutboxConfig {
+
+    @Bean
+    public OutboxRelay outboxRelay(MessageTransport transport, OutboxStore outboxStore,
+                                   KafkaOutboxProperties properties, List<PendingRequestManager<?>> pendingManagers,
+                                   MeterRegistry meterRegistry) {
+        return new OutboxRelay(transport, outboxStore, properties.getBatchSize(), properties.getMaxAttempts(),
+                properties.getSendTimeout(), (record, ex) -> failPending(pendingManagers, record, ex), meterRegistry);
+    }
+
+    /**
+     * Fails the request of a dead message when it is pending on this instance; on another instance it times out.
+     */
+    private static void failPending(List<PendingRequestManager<?>> pendingManagers, OutboxRecord record, Throwable ex) {
+        String messageId = record.message().getId();
+        pendingManagers.stream()
+                .filter(manager -> manager.hasPending(messageId))
+                .forEach(manager -> manager.completeExceptionally(messageId, ex));
+    }
+}
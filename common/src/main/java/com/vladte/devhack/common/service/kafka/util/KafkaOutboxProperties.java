@@ -0,0 +1,46 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties of the outbox that AI requests are written to before being relayed to Kafka.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "devhack.kafka.outbox")
+public class KafkaOutboxProperties {
+
+    /**
+     * Whether requests go through the outbox. When disabled they are sent to Kafka on the calling thread.
+     * Off by default: relaying adds the latency of a database round trip and, when a relay is skipped,
+     * up to one poll interval to every request.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of messages relayed per transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Number of failed attempts after which a message is given up. It stays in the outbox as dead and the
+     * request waiting for it fails.
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * Interval of polling the outbox. Messages are also relayed right after the transaction writing them committed,
+     * polling picks up messages whose relay failed or was skipped.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * Time to wait for the broker to acknowledge a batch, which bounds the transaction of the batch.
+     * Unacknowledged messages are relayed again. Keep the {@code max.block.ms} of the producer well below it.
+     */
+    private Duration sendTimeout = Duration.ofSeconds(30);
+}
@@ -1,27 +1,67 @@
 package com.vladte.devhack.common.service.kafka.util;
 
+import com.vladte.devhack.infra.model.arguments.KafkaPayloadArguments;
 import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
 import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
 import com.vladte.devhack.infra.model.arguments.response.VacancyParseResultArguments;
+import com.vladte.devhack.infra.service.kafka.AdaptiveTimeout;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class KafkaPendingManagerConfig {
 
+    private final PendingRequestProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public KafkaPendingManagerConfig(PendingRequestProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Bean
     public PendingRequestManager<AnswerCheckResponseArguments> answerPendingRequestManager() {
-        return new PendingRequestManager<>();
+        return createManager("answer");
     }
 
     @Bean
     public PendingRequestManager<VacancyParseResultArguments> vacancyPendingRequestManager() {
-        return new PendingRequestManager<>();
+        return createManager("vacancy");
     }
 
     @Bean
     public PendingRequestManager<QuestionGenerateResponseArguments> questionGeneratePendingRequestManager() {
-        return new PendingRequestManager<>();
+        return createManager("question-generate");
+    }
+
+    private <T extends KafkaPayloadArguments> PendingRequestManager<T> createManager(String name) {
+        return new PendingRequestManager<>(
+                name,
+                properties.getTimeout(),
+                properties.getCapacity(),
+                properties.getTick(),
+                properties.getTicksPerWheel(),
+                createAdaptiveTimeout(name),
+                meterRegistry);
+    }
+
+    private AdaptiveTimeout createAdaptiveTimeout(String name) {
+        PendingRequestProperties.Adaptive adaptive = properties.getAdaptive();
+        if (!adaptive.isEnabled()) {
+            return null;
+        }
+        return new AdaptiveTimeout(
+                name,
+                properties.getTimeout(),
+                adaptive.getMin(),
+                adaptive.getMax(),
+                adaptive.getPercentile(),
+                adaptive.getMultiplier(),
+                adaptive.getWindow(),
+                adaptive.getMinSamples(),
+                adaptive.getSampleAge(),
+                meterRegistry);
     }
 }
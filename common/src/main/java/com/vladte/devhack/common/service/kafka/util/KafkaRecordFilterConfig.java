@@ -0,0 +1,29 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.message.MessageDestinations;
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.service.kafka.consumer.MessageHeaderRecordFilterStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Header based record filters of the AI response listeners.
+ */
+@Configuration
+public class KafkaRecordFilterConfig {
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy questionGenerateResultFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.MAIN_APP, MessageTypes.QUESTION_GENERATE_RESULT);
+    }
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy answerResultFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.MAIN_APP, MessageTypes.CHECK_ANSWER_RESULT);
+    }
+
+    @Bean
+    public MessageHeaderRecordFilterStrategy vacancyParsingResultFilter() {
+        return new MessageHeaderRecordFilterStrategy(MessageDestinations.MAIN_APP, MessageTypes.VACANCY_PARSING_RESULT);
+    }
+}
@@ -0,0 +1,39 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+
+/**
+ * Creates the reply topics owned by this main-app instance.
+ * Replies are kept for {@code devhack.kafka.reply-topic.retention} only, a reply older than that has no pending
+ * request left to complete. Topics of instance ids that are not used anymore are not deleted automatically,
+ * see "Reply Topics" in the README.
+ */
+@Configuration
+public class KafkaReplyTopicConfig {
+
+    @Bean
+    public KafkaAdmin.NewTopics instanceReplyTopics(KafkaReplyTopics replyTopics,
+                                                    @Value("${devhack.kafka.reply-topic.retention:1h}") Duration retention) {
+        return new KafkaAdmin.NewTopics(
+                replyTopic(replyTopics, Topics.QUESTION_GENERATE_RESULT, retention),
+                replyTopic(replyTopics, Topics.ANSWER_FEEDBACK_RESULT, retention),
+                replyTopic(replyTopics, Topics.VACANCY_PARSING_RESULT, retention));
+    }
+
+    private NewTopic replyTopic(KafkaReplyTopics replyTopics, String resultTopic, Duration retention) {
+        return TopicBuilder.name(replyTopics.resolve(resultTopic))
+                .partitions(1)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retention.toMillis()))
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import com.vladte.devhack.infra.topics.Topics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the reply topics owned by this main-app instance.
+ * Requests are stamped with the reply topic of the sending instance and the AI module publishes
+ * the response there, so a response is never consumed by a node that did not register the request.
+ * <p>
+ * The instance id must survive restarts: replies to requests made before a restart are consumed from the same
+ * topic and group once the instance is back, see {@code devhack.kafka.instance-id}.
+ */
+@Component("kafkaReplyTopics")
+public class KafkaReplyTopics {
+
+    private final String instanceId;
+    private final String groupId;
+
+    public KafkaReplyTopics(@Value("${devhack.kafka.instance-id}") String instanceId,
+                            @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        if (instanceId == null || instanceId.isBlank()) {
+            throw new IllegalArgumentException("devhack.kafka.instance-id must not be blank");
+        }
+        this.instanceId = instanceId;
+        this.groupId = groupId;
+    }
+
+    /**
+     * Reply topic of this instance for the given result topic.
+     */
+    public String resolve(String resultTopic) {
+        return Topics.replyTopic(resultTopic, instanceId);
+    }
+
+    /**
+     * Consumer group for the reply listeners of this instance.
+     */
+    public String groupId() {
+        return groupId + "." + instanceId;
+    }
+}
@@ -0,0 +1,87 @@
+package com.vladte.devhack.common.service.kafka.util;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the registries of requests awaiting a response from the AI module.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "devhack.kafka.pending")
+public class PendingRequestProperties {
+
+    /**
+     * Time after which a request without response is failed with a timeout.
+     * With adaptive timeouts enabled, used until enough responses of a message type were observed.
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+
+    /**
+     * Maximum number of requests waiting for a response per registry.
+     * New requests above this limit are rejected.
+     */
+    private int capacity = 10_000;
+
+    /**
+     * Resolution of the timer wheel that expires pending requests.
+     */
+    private Duration tick = Duration.ofMillis(100);
+
+    /**
+     * Number of slots in the timer wheel.
+     */
+    private int ticksPerWheel = 512;
+
+    /**
+     * Timeouts derived from the observed response latency of each message type.
+     */
+    private Adaptive adaptive = new Adaptive();
+
+    @Data
+    public static class Adaptive {
+
+        /**
+         * Whether timeouts adapt to the observed latency. When disabled every request uses the fixed timeout.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Latency percentile the timeout is derived from.
+         */
+        private double percentile = 0.99;
+
+        /**
+         * Factor applied to the latency percentile, the headroom above the observed latency.
+         */
+        private double multiplier = 2.0;
+
+        /**
+         * Lower bound of the timeout.
+         */
+        private Duration min = Duration.ofSeconds(5);
+
+        /**
+         * Upper bound of the timeout.
+         */
+        private Duration max = Duration.ofSeconds(120);
+
+        /**
+         * Number of most recent responses per message type the percentile is computed over.
+         */
+        private int window = 200;
+
+        /**
+         * Number of responses of a message type required before its timeout adapts.
+         */
+        private int minSamples = 20;
+
+        /**
+         * Age after which a response is no longer part of the window.
+         */
+        private Duration sampleAge = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset liquibase:1
+--comment: Create outbox of Kafka messages, written in the transaction of the change that produced them
+CREATE TABLE IF NOT EXISTS kafka_outbox
+(
+    id              UUID PRIMARY KEY,
+    sequence_number BIGSERIAL    NOT NULL UNIQUE,
+    aggregate_id    VARCHAR(255) NOT NULL,
+    topic           VARCHAR(255) NOT NULL,
+    payload         TEXT         NOT NULL,
+    headers         JSONB        NOT NULL DEFAULT '{}',
+    attempts        INTEGER      NOT NULL DEFAULT 0,
+    last_error      TEXT,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -7,8 +7,10 @@ import com.vladte.devhack.infra.message.MessageTypes;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.response.VacancyParseResultArguments;
 import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
 import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -50,7 +52,8 @@ class VacancyResponseKafkaConsumerTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        vacancyResponseKafkaConsumer = new VacancyResponseKafkaConsumer(objectMapper, pendingRequestManager);
+        vacancyResponseKafkaConsumer = new VacancyResponseKafkaConsumer(objectMapper, pendingRequestManager,
+                new KafkaHopRecorder(new SimpleMeterRegistry()));
     }
 
     @Test
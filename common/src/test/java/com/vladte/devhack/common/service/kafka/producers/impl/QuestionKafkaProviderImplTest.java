@@ -0,0 +1,117 @@
+package com.vladte.devhack.common.service.kafka.producers.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.common.service.kafka.outbox.KafkaOutbox;
+import com.vladte.devhack.common.service.kafka.util.KafkaOutboxProperties;
+import com.vladte.devhack.common.service.kafka.util.KafkaReplyTopics;
+import com.vladte.devhack.domain.service.ai.AiPromptCategoryService;
+import com.vladte.devhack.domain.service.ai.AiPromptService;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
+import com.vladte.devhack.infra.service.kafka.RequestAdmission;
+import com.vladte.devhack.infra.service.kafka.RequestCoalescer;
+import com.vladte.devhack.infra.service.kafka.transport.HttpRpcClient;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class QuestionKafkaProviderImplTest {
+
+    private final List<ProducerRecord<String, ?>> sent = new CopyOnWriteArrayList<>();
+
+    private PendingRequestManager<QuestionGenerateResponseArguments> pendingRequestManager;
+    private RequestAdmission admission;
+    private QuestionKafkaProviderImpl provider;
+
+    @BeforeEach
+    void setUp() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MessageTransport transport = new MessageTransport() {
+            @Override
+            public <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record) {
+                sent.add(record);
+                return CompletableFuture.completedFuture(new SendResult<>(record, null));
+            }
+        };
+        pendingRequestManager = new PendingRequestManager<>("question-test", registry);
+        admission = new RequestAdmission("question-test", 1, 10, Duration.ofSeconds(5), registry);
+        KafkaOutboxProperties outboxProperties = new KafkaOutboxProperties();
+        outboxProperties.setEnabled(false);
+        HttpRpcClient rpcClient = new HttpRpcClient(URI.create("http://localhost:1"), Duration.ofSeconds(1),
+                Duration.ofSeconds(1), Set.of(), registry);
+        provider = new QuestionKafkaProviderImpl(transport, pendingRequestManager, new ObjectMapper(),
+                new KafkaReplyTopics("node-1", "main-group"), admission, admission,
+                new RequestCoalescer<>("question-test", false, registry),
+                new KafkaOutbox(null, null, outboxProperties), rpcClient,
+                mock(AiPromptService.class), mock(AiPromptCategoryService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        pendingRequestManager.close();
+    }
+
+    @Test
+    void queuedRequestCarriesTheUserWhoSubmittedIt() throws Exception {
+        authenticate("first-user");
+        provider.subscribeToResponse("id-1", payload("first"));
+        authenticate("second-user");
+        CompletableFuture<QuestionGenerateResponseArguments> queued = provider.subscribeToResponse("id-2", payload("second"));
+        SecurityContextHolder.clearContext();
+
+        assertEquals(1, admission.queued());
+        assertEquals(1, sent.size());
+
+        // the first response arrives on a listener thread, which dispatches the queued request
+        CompletableFuture.runAsync(() -> pendingRequestManager.complete("id-1", new QuestionGenerateResponseArguments()))
+                .get(5, TimeUnit.SECONDS);
+
+        assertFalse(queued.isDone());
+        assertEquals(2, sent.size());
+        assertEquals("first-user", userIdOf(sent.get(0)));
+        assertEquals("second-user", userIdOf(sent.get(1)));
+    }
+
+    @Test
+    void requestWithoutAuthenticatedUserCarriesNoUserId() {
+        provider.subscribeToResponse("id-1", payload("first"));
+
+        assertEquals(1, sent.size());
+        assertNull(userIdOf(sent.get(0)));
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+    }
+
+    private static AiRenderedRequestPayload payload(String input) {
+        return AiRenderedRequestPayload.builder().input(input).build();
+    }
+
+    private static String userIdOf(ProducerRecord<String, ?> record) {
+        return ((KafkaMessage<?>) record.value()).getHeaders().get(MessageHeaders.USER_ID);
+    }
+}
@@ -0,0 +1,60 @@
+package com.vladte.devhack.domain.entities.global;
+
+import com.vladte.devhack.domain.entities.BasicEntity;
+import io.hypersistence.utils.hibernate.type.json.JsonType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Type;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entity for messages waiting to be relayed to Kafka.
+ * Written in the transaction of the domain change that produced the message, so the message is sent
+ * if and only if the change was committed.
+ */
+@Entity
+@Table(name = "kafka_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxMessage extends BasicEntity {
+
+    /**
+     * Insertion order, assigned by the database. Messages are relayed in this order.
+     */
+    @Column(name = "sequence_number", insertable = false, updatable = false)
+    private Long sequenceNumber;
+
+    /**
+     * Identifier of the aggregate the message is about, used as the Kafka record key.
+     */
+    @Column(name = "aggregate_id", nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    private String topic;
+
+    /**
+     * The message envelope, encoded as JSON.
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(columnDefinition = "jsonb", nullable = false)
+    @Type(JsonType.class)
+    @Builder.Default
+    private Map<String, String> headers = new HashMap<>();
+
+    /**
+     * Number of failed attempts to relay the message.
+     */
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+}
@@ -0,0 +1,38 @@
+package com.vladte.devhack.domain.repository.outbox;
+
+import com.vladte.devhack.domain.entities.global.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for accessing and manipulating OutboxMessage entities.
+ */
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, UUID> {
+
+    /**
+     * Takes the transaction scoped advisory lock of the outbox relay.
+     * Only one relay drains the outbox at a time, so messages of an aggregate are never sent out of order.
+     *
+     * @return {@code false} when another transaction holds the lock
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockKey)", nativeQuery = true)
+    boolean tryLockRelay(@Param("lockKey") long lockKey);
+
+    /**
+     * Finds the oldest messages that failed fewer than {@code maxAttempts} times; the others are dead.
+     */
+    @Query(value = "SELECT * FROM kafka_outbox WHERE attempts < :maxAttempts ORDER BY sequence_number LIMIT :limit",
+            nativeQuery = true)
+    List<OutboxMessage> findOldest(@Param("limit") int limit, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.attempts = m.attempts + 1, m.lastError = :error WHERE m.id = :id")
+    void recordFailure(@Param("id") UUID id, @Param("error") String error);
+}
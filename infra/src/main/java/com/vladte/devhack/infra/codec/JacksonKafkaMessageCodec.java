@@ -0,0 +1,58 @@
+package com.vladte.devhack.infra.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link KafkaMessageCodec} backed by a Jackson {@link ObjectMapper}; the data format (JSON, Smile, ...)
+ * is defined by the mapper's factory. Readers are resolved once per payload type and reused.
+ */
+public class JacksonKafkaMessageCodec implements KafkaMessageCodec {
+
+    private final String name;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JacksonKafkaMessageCodec(String name, ObjectMapper objectMapper) {
+        this.name = name;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(KafkaMessage.class);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte[] encode(KafkaMessage<?> message) {
+        try {
+            return writer.writeValueAsBytes(message);
+        } catch (IOException e) {
+            throw new SerializationException("Can't encode message " + message.getId() + " as " + name, e);
+        }
+    }
+
+    @Override
+    public <T> KafkaMessage<T> decode(byte[] data, Class<T> payloadType) {
+        try {
+            return readers.computeIfAbsent(payloadType, this::readerFor).readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException("Can't decode " + name + " message with " + payloadType.getSimpleName() + " payload", e);
+        }
+    }
+
+    private ObjectReader readerFor(Class<?> payloadType) {
+        JavaType messageType = objectMapper.getTypeFactory().constructParametricType(KafkaMessage.class, payloadType);
+        return objectMapper.readerFor(messageType);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vladte.devhack.infra.codec;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+
+/**
+ * Wire format of a {@link KafkaMessage} envelope.
+ * The codec used for a record is written to the {@link com.vladte.devhack.infra.message.MessageHeaders#CODEC}
+ * header, so producers and consumers can switch formats independently.
+ */
+public interface KafkaMessageCodec {
+
+    /**
+     * Name of the codec, written to the codec header of every encoded record.
+     */
+    String name();
+
+    byte[] encode(KafkaMessage<?> message);
+
+    /**
+     * Decodes the envelope binding the payload straight to the given type.
+     *
+     * @param data        encoded envelope
+     * @param payloadType expected payload type, {@code Object.class} leaves the payload untyped
+     */
+    <T> KafkaMessage<T> decode(byte[] data, Class<T> payloadType);
+}
@@ -0,0 +1,49 @@
+package com.vladte.devhack.infra.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Available {@link KafkaMessageCodec}s.
+ */
+public final class KafkaMessageCodecs {
+
+    /**
+     * Plain JSON, the format written by Spring's {@code JsonSerializer}. Records without a codec header are read with it.
+     */
+    public static final KafkaMessageCodec JSON = new JacksonKafkaMessageCodec("json", mapper(new JsonFactory()));
+
+    /**
+     * Binary JSON (Smile): same data model as JSON, with back references for repeated property names and strings.
+     */
+    public static final KafkaMessageCodec SMILE = new JacksonKafkaMessageCodec("smile", mapper(new SmileFactory()));
+
+    public static final KafkaMessageCodec DEFAULT = SMILE;
+
+    public static KafkaMessageCodec forName(String name) {
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "json" -> JSON;
+            case "smile" -> SMILE;
+            default -> throw new IllegalArgumentException("Unknown Kafka message codec: " + name);
+        };
+    }
+
+    private static JsonMapper mapper(JsonFactory factory) {
+        // Same settings as Spring Kafka's JsonSerializer, so both formats map the envelope identically
+        return JsonMapper.builder(factory)
+                .configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .addModule(new JavaTimeModule())
+                .build();
+    }
+
+    private KafkaMessageCodecs() {
+    }
+}
@@ -0,0 +1,110 @@
+package com.vladte.devhack.infra.codec;
+
+import com.vladte.devhack.infra.codec.claimcheck.ClaimCheck;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Kafka value deserializer reading {@link KafkaMessage}s written by {@link KafkaMessageSerializer}.
+ * The payload is bound directly to the type registered for the topic in {@link Topics#payloadType(String)},
+ * so consumers get a typed payload without an intermediate map tree.
+ * <p>
+ * When the envelope travels in the record headers (see {@link MessageHeaders}) it is built from them,
+ * and the body is only decoded on the first {@link KafkaMessage#getPayload()} call. Records discarded by a
+ * header based filter therefore never have their payload parsed.
+ * Records without a codec header are read as JSON.
+ * <p>
+ * The latency tracing headers are copied onto the message, so listeners receiving the bare message can
+ * still pass them on, see {@link com.vladte.devhack.infra.service.kafka.KafkaHopRecorder}.
+ * <p>
+ * Values moved to a blob store by a {@link ClaimCheck} are read back from it, together with the payload.
+ */
+public class KafkaMessageDeserializer implements Deserializer<KafkaMessage<?>> {
+
+    private final ClaimCheck claimCheck;
+
+    public KafkaMessageDeserializer() {
+        this(null);
+    }
+
+    /**
+     * @param claimCheck reads values referenced by the claim-check header, {@code null} when no blob store is configured
+     */
+    public KafkaMessageDeserializer(ClaimCheck claimCheck) {
+        this.claimCheck = claimCheck;
+    }
+
+    @Override
+    public KafkaMessage<?> deserialize(String topic, byte[] data) {
+        return data == null ? null : KafkaMessageCodecs.JSON.decode(data, Topics.payloadType(topic));
+    }
+
+    @Override
+    public KafkaMessage<?> deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        String codecName = header(headers, MessageHeaders.CODEC);
+        KafkaMessageCodec codec = codecName != null ? KafkaMessageCodecs.forName(codecName) : KafkaMessageCodecs.JSON;
+        Class<?> payloadType = Topics.payloadType(topic);
+        Supplier<byte[]> value = value(topic, headers, data);
+
+        String messageId = header(headers, MessageHeaders.MESSAGE_ID);
+        KafkaMessage<?> message = messageId == null
+                ? codec.decode(value.get(), payloadType)
+                : deferred(codec, value, payloadType, messageId, headers);
+        copyTracingHeaders(headers, message);
+        return message;
+    }
+
+    private Supplier<byte[]> value(String topic, Headers headers, byte[] data) {
+        String reference = header(headers, MessageHeaders.CLAIM_CHECK);
+        if (reference == null) {
+            return () -> data;
+        }
+        if (claimCheck == null) {
+            throw new IllegalStateException("Record of " + topic + " references blob " + reference
+                    + " but no claim-check blob store is configured");
+        }
+        return () -> claimCheck.checkOut(reference);
+    }
+
+    private static <T> KafkaMessage<T> deferred(KafkaMessageCodec codec, Supplier<byte[]> data, Class<T> payloadType,
+                                                String messageId, Headers headers) {
+        String timestamp = header(headers, MessageHeaders.TIMESTAMP);
+        String deadline = header(headers, MessageHeaders.DEADLINE);
+        return KafkaMessage.<T>builder()
+                .id(messageId)
+                .type(header(headers, MessageHeaders.TYPE))
+                .source(header(headers, MessageHeaders.SOURCE))
+                .destination(header(headers, MessageHeaders.DESTINATION))
+                .timestamp(timestamp != null ? LocalDateTime.parse(timestamp) : null)
+                .deadline(deadline != null ? Instant.ofEpochMilli(Long.parseLong(deadline)) : null)
+                .payloadDecoder(() -> codec.decode(data.get(), payloadType).getPayload())
+                .build();
+    }
+
+    private static void copyTracingHeaders(Headers headers, KafkaMessage<?> message) {
+        for (Header header : headers) {
+            String name = header.key();
+            if (header.value() != null && (name.startsWith(MessageHeaders.HOP_PREFIX)
+                    || name.equals(MessageHeaders.SENT_AT) || name.equals(MessageHeaders.REQUEST_TYPE))) {
+                message.getHeaders().put(name, new String(header.value(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String header(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.vladte.devhack.infra.codec;
+
+import com.vladte.devhack.infra.codec.claimcheck.ClaimCheck;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Kafka value serializer writing {@link KafkaMessage}s with a {@link KafkaMessageCodec}.
+ * The codec is chosen with the {@value #CODEC_CONFIG} producer property and defaults to {@link KafkaMessageCodecs#DEFAULT}.
+ * <p>
+ * With a {@link ClaimCheck}, values above its threshold are moved to the blob store and the record only
+ * carries their reference.
+ */
+public class KafkaMessageSerializer implements Serializer<KafkaMessage<?>> {
+
+    public static final String CODEC_CONFIG = "devhack.kafka.codec";
+
+    private KafkaMessageCodec codec;
+    private byte[] codecHeader;
+    private final ClaimCheck claimCheck;
+
+    public KafkaMessageSerializer() {
+        this(KafkaMessageCodecs.DEFAULT);
+    }
+
+    public KafkaMessageSerializer(KafkaMessageCodec codec) {
+        this(codec, null);
+    }
+
+    /**
+     * @param claimCheck moves large values to a blob store, {@code null} to always send values inline
+     */
+    public KafkaMessageSerializer(KafkaMessageCodec codec, ClaimCheck claimCheck) {
+        useCodec(codec);
+        this.claimCheck = claimCheck;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object codecName = configs.get(CODEC_CONFIG);
+        if (codecName != null) {
+            useCodec(KafkaMessageCodecs.forName(codecName.toString()));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, KafkaMessage<?> data) {
+        return data == null ? null : codec.encode(data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, KafkaMessage<?> data) {
+        if (data == null) {
+            return null;
+        }
+        headers.remove(MessageHeaders.CODEC);
+        headers.add(MessageHeaders.CODEC, codecHeader);
+        byte[] value = codec.encode(data);
+        if (claimCheck == null || !claimCheck.exceedsThreshold(value)) {
+            return value;
+        }
+        String reference = claimCheck.checkIn(topic, value);
+        headers.remove(MessageHeaders.CLAIM_CHECK);
+        headers.add(MessageHeaders.CLAIM_CHECK, reference.getBytes(StandardCharsets.UTF_8));
+        return ClaimCheck.placeholder();
+    }
+
+    private void useCodec(KafkaMessageCodec codec) {
+        this.codec = codec;
+        this.codecHeader = codec.name().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package com.vladte.devhack.infra.codec.claimcheck;
+
+/**
+ * Storage of record values checked in by {@link ClaimCheck}.
+ * Blobs are never deleted by the application, the store expires them, e.g. with a bucket lifecycle rule.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores a blob under the given key, replacing an existing one.
+     *
+     * @throws java.io.UncheckedIOException when the blob cannot be written
+     */
+    void put(String key, byte[] data);
+
+    /**
+     * @throws java.io.UncheckedIOException when the blob cannot be read or does not exist
+     */
+    byte[] get(String key);
+}
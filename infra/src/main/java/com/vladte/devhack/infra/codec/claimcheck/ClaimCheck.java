@@ -0,0 +1,81 @@
+package com.vladte.devhack.infra.codec.claimcheck;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Claim-check of large record values.
+ * Values above the threshold are compressed and written to a {@link BlobStore}; the record only carries
+ * a reference to the blob in the {@link com.vladte.devhack.infra.message.MessageHeaders#CLAIM_CHECK} header,
+ * and the value is read back from the store when the record is consumed.
+ */
+public class ClaimCheck {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final BlobStore store;
+    private final int threshold;
+
+    /**
+     * @param threshold size in bytes above which a value is checked in
+     */
+    public ClaimCheck(BlobStore store, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+        }
+        this.store = store;
+        this.threshold = threshold;
+    }
+
+    public boolean exceedsThreshold(byte[] value) {
+        return value.length > threshold;
+    }
+
+    /**
+     * Writes the value to the blob store.
+     *
+     * @return reference of the stored blob, to be sent instead of the value
+     */
+    public String checkIn(String topic, byte[] value) {
+        String reference = topic + "/" + UUID.randomUUID() + ".gz";
+        store.put(reference, compress(value));
+        return reference;
+    }
+
+    /**
+     * @return the value checked in under the reference
+     */
+    public byte[] checkOut(String reference) {
+        return decompress(store.get(reference));
+    }
+
+    /**
+     * Value sent in place of a checked in one. Not {@code null}, which would make the record a tombstone.
+     */
+    public static byte[] placeholder() {
+        return EMPTY;
+    }
+
+    private static byte[] compress(byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, value.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress record value", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] blob) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(blob))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress checked in record value", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.vladte.devhack.infra.codec.claimcheck;
+
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link BlobStore} in a MinIO bucket, created on first use when missing.
+ */
+public class MinioBlobStore implements BlobStore {
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private volatile boolean bucketChecked;
+
+    public MinioBlobStore(MinioClient minioClient, String bucket) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void put(String key, byte[] data) {
+        try {
+            ensureBucket();
+            minioClient.putObject(PutObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(key)
+                    .stream(new ByteArrayInputStream(data), data.length, -1)
+                    .contentType(CONTENT_TYPE)
+                    .build());
+        } catch (Exception e) {
+            throw new UncheckedIOException(new IOException("Failed to upload blob " + key + " to bucket " + bucket, e));
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        try (InputStream stream = minioClient.getObject(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(key)
+                .build())) {
+            return stream.readAllBytes();
+        } catch (Exception e) {
+            throw new UncheckedIOException(new IOException("Failed to download blob " + key + " from bucket " + bucket, e));
+        }
+    }
+
+    private void ensureBucket() throws Exception {
+        if (bucketChecked) {
+            return;
+        }
+        synchronized (this) {
+            if (!bucketChecked) {
+                if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+                    minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+                }
+                bucketChecked = true;
+            }
+        }
+    }
+}
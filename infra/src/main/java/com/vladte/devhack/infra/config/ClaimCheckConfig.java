@@ -0,0 +1,74 @@
+package com.vladte.devhack.infra.config;
+
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.claimcheck.BlobStore;
+import com.vladte.devhack.infra.codec.claimcheck.ClaimCheck;
+import com.vladte.devhack.infra.codec.claimcheck.FileSystemBlobStore;
+import com.vladte.devhack.infra.codec.claimcheck.MinioBlobStore;
+import io.minio.MinioClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.nio.file.Path;
+
+/**
+ * Claim-check mode of the Kafka messages, enabled with {@code devhack.kafka.claim-check.enabled}.
+ * Values above {@code devhack.kafka.claim-check.threshold} bytes are stored in MinIO
+ * ({@code devhack.kafka.claim-check.store=minio}) or in a shared directory ({@code filesystem}),
+ * and the records carry a reference to them. Producers and consumers of all modules must use the same store.
+ */
+@Configuration
+@ConditionalOnProperty(name = "devhack.kafka.claim-check.enabled", havingValue = "true")
+public class ClaimCheckConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.kafka.claim-check.store", havingValue = "filesystem", matchIfMissing = true)
+    public BlobStore fileSystemBlobStore(
+            @Value("${devhack.kafka.claim-check.directory:${java.io.tmpdir}/devhack-claim-check}") String directory) {
+        return new FileSystemBlobStore(Path.of(directory));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "devhack.kafka.claim-check.store", havingValue = "minio")
+    public BlobStore minioBlobStore(@Value("${minio.url}") String url,
+                                    @Value("${minio.access-key}") String accessKey,
+                                    @Value("${minio.secret-key}") String secretKey,
+                                    @Value("${devhack.kafka.claim-check.bucket:kafka-claim-check}") String bucket) {
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .build();
+        return new MinioBlobStore(minioClient, bucket);
+    }
+
+    @Bean
+    public ClaimCheck claimCheck(BlobStore blobStore,
+                                 @Value("${devhack.kafka.claim-check.threshold:262144}") int threshold) {
+        return new ClaimCheck(blobStore, threshold);
+    }
+
+    /**
+     * The serializer is still configured from the producer properties, e.g. its codec.
+     */
+    @Bean
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DefaultKafkaProducerFactoryCustomizer claimCheckProducerFactoryCustomizer(ClaimCheck claimCheck) {
+        return producerFactory -> ((DefaultKafkaProducerFactory) producerFactory)
+                .setValueSerializerSupplier(() -> new KafkaMessageSerializer(KafkaMessageCodecs.DEFAULT, claimCheck));
+    }
+
+    @Bean
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DefaultKafkaConsumerFactoryCustomizer claimCheckConsumerFactoryCustomizer(ClaimCheck claimCheck) {
+        return consumerFactory -> ((DefaultKafkaConsumerFactory) consumerFactory)
+                .setValueDeserializerSupplier(() -> new KafkaMessageDeserializer(claimCheck));
+    }
+}
@@ -0,0 +1,48 @@
+package com.vladte.devhack.infra.config;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.transport.InProcessListenerRegistrar;
+import com.vladte.devhack.infra.service.kafka.transport.InProcessMessageBus;
+import com.vladte.devhack.infra.service.kafka.transport.KafkaTemplateTransport;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+
+/**
+ * Transport of the messages between the modules.
+ * By default messages go through the Kafka broker; with the {@value #IN_PROCESS_PROFILE} profile they are
+ * passed by reference over an {@link InProcessMessageBus} and the Kafka listener containers stay stopped.
+ */
+@Configuration
+public class MessageTransportConfig {
+
+    public static final String IN_PROCESS_PROFILE = "inprocess";
+
+    @Bean
+    @Profile("!" + IN_PROCESS_PROFILE)
+    public MessageTransport kafkaMessageTransport(KafkaTemplate<String, KafkaMessage<?>> kafkaTemplate) {
+        return new KafkaTemplateTransport(kafkaTemplate);
+    }
+
+    @Bean(destroyMethod = "close")
+    @Profile(IN_PROCESS_PROFILE)
+    public InProcessMessageBus inProcessMessageBus(
+            @Value("${devhack.kafka.inprocess.offer-timeout:1s}") Duration offerTimeout,
+            MeterRegistry meterRegistry) {
+        return new InProcessMessageBus(offerTimeout, meterRegistry);
+    }
+
+    @Bean
+    @Profile(IN_PROCESS_PROFILE)
+    public InProcessListenerRegistrar inProcessListenerRegistrar(
+            InProcessMessageBus inProcessMessageBus,
+            @Value("${devhack.kafka.inprocess.capacity:1000}") int capacity) {
+        return new InProcessListenerRegistrar(inProcessMessageBus, capacity);
+    }
+}
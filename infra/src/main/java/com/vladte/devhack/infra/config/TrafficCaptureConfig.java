@@ -0,0 +1,50 @@
+package com.vladte.devhack.infra.config;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.replay.TrafficCapture;
+import com.vladte.devhack.infra.service.kafka.replay.TrafficCaptureWriter;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Capture mode, enabled with {@code devhack.kafka.capture.enabled}: every request and response exchanged over the
+ * request, result and reply topics is appended to {@code devhack.kafka.capture.file}, for replay with
+ * {@link com.vladte.devhack.infra.service.kafka.replay.TrafficReplayTool}. The capture consumer has its own group,
+ * so the modules still receive every record.
+ */
+@Configuration
+@ConditionalOnProperty(name = "devhack.kafka.capture.enabled", havingValue = "true")
+public class TrafficCaptureConfig {
+
+    @Bean(destroyMethod = "close")
+    public TrafficCaptureWriter trafficCaptureWriter(@Value("${devhack.kafka.capture.file:kafka-capture.jsonl}") String file) {
+        return new TrafficCaptureWriter(Path.of(file));
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public KafkaMessageListenerContainer<String, KafkaMessage<?>> trafficCaptureContainer(
+            ConsumerFactory<?, ?> consumerFactory,
+            TrafficCaptureWriter writer,
+            @Value("${devhack.kafka.capture.group-id:devhack-capture}") String groupId) {
+        ContainerProperties properties = new ContainerProperties(TrafficCapture.TOPICS);
+        properties.setGroupId(groupId);
+        properties.setMessageListener((MessageListener<String, KafkaMessage<?>>) writer::write);
+        Properties consumerProperties = new Properties();
+        // only traffic from now on, and reply topics of new instances are picked up within seconds
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerProperties.put(ConsumerConfig.METADATA_MAX_AGE_CONFIG, "5000");
+        properties.setKafkaConsumerProperties(consumerProperties);
+        return new KafkaMessageListenerContainer<>((ConsumerFactory<String, KafkaMessage<?>>) consumerFactory, properties);
+    }
+}
@@ -0,0 +1,44 @@
+package com.vladte.devhack.infra.message;
+
+import org.springframework.kafka.support.KafkaHeaders;
+
+/**
+ * Centralized definition of Kafka record headers used for communication between modules.
+ * This class contains constants for all envelope headers that travel next to the message payload.
+ */
+public class MessageHeaders {
+
+    // Prefix of the headers defined by the application
+    public static final String PREFIX = "devhack_";
+
+    // Envelope fields of KafkaMessage, promoted to headers so records can be filtered without parsing the payload
+    public static final String MESSAGE_ID = "devhack_message_id";
+    public static final String TYPE = "devhack_type";
+    public static final String SOURCE = "devhack_source";
+    public static final String DESTINATION = "devhack_destination";
+    public static final String TIMESTAMP = "devhack_timestamp";
+    // Epoch millis after which the sender no longer waits for a response
+    public static final String DEADLINE = "devhack_deadline";
+
+    // User a request is made for, the AI module schedules requests fairly between users
+    public static final String USER_ID = "devhack_user_id";
+
+    // Topic the response to a request must be published to
+    public static final String REPLY_TOPIC = KafkaHeaders.REPLY_TOPIC;
+
+    // Codec the record value was encoded with, see KafkaMessageCodec
+    public static final String CODEC = "devhack_codec";
+
+    // Reference of the blob holding the record value, see ClaimCheck; the value itself is empty
+    public static final String CLAIM_CHECK = "devhack_claim_check";
+
+    // Latency tracing: epoch millis the record was handed to the producer
+    public static final String SENT_AT = "devhack_sent_at";
+    // Latency tracing: type of the request a response answers, copied onto the response
+    public static final String REQUEST_TYPE = "devhack_request_type";
+    // Latency tracing: prefix of the timestamps collected along the request, copied onto the response
+    public static final String HOP_PREFIX = "devhack_hop_";
+
+    private MessageHeaders() {
+    }
+}
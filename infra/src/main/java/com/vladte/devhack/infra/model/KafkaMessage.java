@@ -1,12 +1,19 @@
 package com.vladte.devhack.infra.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Generic message class for Kafka communication between modules.
@@ -24,4 +31,51 @@ public class KafkaMessage<T> implements Serializable {
     private T payload;
     private LocalDateTime timestamp;
 
+    /**
+     * Instant after which the sender no longer waits for a response, {@code null} when it waits indefinitely.
+     * Work on an expired request is wasted and is dropped by the receiver.
+     */
+    private Instant deadline;
+
+    /**
+     * Kafka record headers of the message. They travel next to the payload, not inside it.
+     */
+    @JsonIgnore
+    @Builder.Default
+    private transient Map<String, String> headers = new HashMap<>();
+
+    /**
+     * Decodes the payload on first access. Set when the envelope was read from the record headers,
+     * so records that are filtered out by their headers never have their payload parsed.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient Supplier<T> payloadDecoder;
+
+    public T getPayload() {
+        if (payloadDecoder != null) {
+            payload = payloadDecoder.get();
+            payloadDecoder = null;
+        }
+        return payload;
+    }
+
+    public void setPayload(T payload) {
+        this.payload = payload;
+        this.payloadDecoder = null;
+    }
+
+    /**
+     * @return whether the deadline of the message has passed
+     */
+    @JsonIgnore
+    public boolean isExpired() {
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    @JsonIgnore
+    public String getHeader(String name) {
+        return headers != null ? headers.get(name) : null;
+    }
 }
\ No newline at end of file
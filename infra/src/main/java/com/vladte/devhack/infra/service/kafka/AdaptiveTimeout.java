@@ -0,0 +1,194 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Request timeouts derived from the observed response latency of each message type.
+ * The latencies of the last {@code windowSize} responses of a type are kept; the timeout of the type is
+ * the configured percentile of them times {@code multiplier}, bounded by {@code min} and {@code max}.
+ * Until {@code minSamples} responses of a type were observed, the initial timeout is used.
+ * Responses older than {@code sampleAge} are left out, so the timeout follows the current latency.
+ * <p>
+ * A request that timed out is not a latency sample, but its type is given {@link #EXPIRY_BACKOFF} times the timeout
+ * of that request, at most {@code max}. When responses become slower than the timeout, every request expires and its
+ * receiver drops it, no response would ever raise the timeout again; each generation of expired requests raises it
+ * one step instead, until responses arrive in time and their latency takes over.
+ */
+public class AdaptiveTimeout {
+
+    /**
+     * Factor the timeout of a type grows by when its requests expire.
+     */
+    public static final double EXPIRY_BACKOFF = 2.0;
+
+    private final String name;
+    private final Duration initial;
+    private final Duration min;
+    private final Duration max;
+    private final double percentile;
+    private final double multiplier;
+    private final int windowSize;
+    private final int minSamples;
+    private final long sampleAgeNanos;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public AdaptiveTimeout(String name,
+                           Duration initial,
+                           Duration min,
+                           Duration max,
+                           double percentile,
+                           double multiplier,
+                           int windowSize,
+                           int minSamples,
+                           Duration sampleAge,
+                           MeterRegistry meterRegistry) {
+        this(name, initial, min, max, percentile, multiplier, windowSize, minSamples, sampleAge, meterRegistry,
+                System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock clock in nanoseconds the age of the samples is measured with
+     */
+    AdaptiveTimeout(String name,
+                    Duration initial,
+                    Duration min,
+                    Duration max,
+                    double percentile,
+                    double multiplier,
+                    int windowSize,
+                    int minSamples,
+                    Duration sampleAge,
+                    MeterRegistry meterRegistry,
+                    LongSupplier nanoClock) {
+        if (min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Minimum timeout " + min + " exceeds maximum " + max);
+        }
+        if (percentile <= 0.0 || percentile > 1.0) {
+            throw new IllegalArgumentException("Percentile must be in (0, 1]: " + percentile);
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.name = name;
+        this.initial = initial;
+        this.min = min;
+        this.max = max;
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.windowSize = windowSize;
+        this.minSamples = Math.max(1, Math.min(minSamples, windowSize));
+        this.sampleAgeNanos = sampleAge.toNanos();
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param type message type of the request, {@code null} for requests without a type
+     * @return the timeout for the next request of the type
+     */
+    public Duration timeoutFor(String type) {
+        LatencyWindow window = windows.get(key(type));
+        return window != null ? window.timeout() : initial;
+    }
+
+    /**
+     * Records the time between sending a request of the type and receiving its response.
+     */
+    public void record(String type, Duration latency) {
+        windows.computeIfAbsent(key(type), this::openWindow).add(latency.toNanos());
+    }
+
+    /**
+     * Records a request of the type that got no response within its timeout.
+     *
+     * @param timeout the timeout the request was given
+     */
+    public void expired(String type, Duration timeout) {
+        windows.computeIfAbsent(key(type), this::openWindow).expired(timeout);
+    }
+
+    private static String key(String type) {
+        return type != null ? type : "unknown";
+    }
+
+    private LatencyWindow openWindow(String type) {
+        LatencyWindow window = new LatencyWindow();
+        Gauge.builder("devhack.kafka.timeout.adaptive", window, w -> w.timeout().toMillis() / 1_000.0)
+                .description("Current timeout of requests waiting for a Kafka response")
+                .tag("manager", name)
+                .tag("type", type)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        return window;
+    }
+
+    private final class LatencyWindow {
+        private final long[] samples = new long[windowSize];
+        private final long[] recordedNanos = new long[windowSize];
+        private int next;
+        private int count;
+        private volatile Duration timeout = initial;
+
+        private synchronized void add(long latencyNanos) {
+            samples[next] = latencyNanos;
+            recordedNanos[next] = nanoClock.getAsLong();
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            Duration computed = computeTimeout();
+            if (computed != null) {
+                timeout = computed;
+            }
+        }
+
+        private synchronized void expired(Duration requestTimeout) {
+            Duration raised = Duration.ofNanos((long) (requestTimeout.toNanos() * EXPIRY_BACKOFF));
+            if (raised.compareTo(max) > 0) {
+                raised = max;
+            }
+            // requests that expired together were given the same timeout, they raise it once
+            if (raised.compareTo(timeout) > 0) {
+                timeout = raised;
+            }
+        }
+
+        private Duration timeout() {
+            return timeout;
+        }
+
+        /**
+         * Called with the monitor held.
+         *
+         * @return the timeout derived from the recent samples, {@code null} while there are fewer than the minimum
+         */
+        private Duration computeTimeout() {
+            long oldest = nanoClock.getAsLong() - sampleAgeNanos;
+            long[] recent = new long[count];
+            int fresh = 0;
+            for (int i = 0; i < count; i++) {
+                if (recordedNanos[i] - oldest >= 0) {
+                    recent[fresh++] = samples[i];
+                }
+            }
+            if (fresh < minSamples) {
+                return null;
+            }
+            long[] sorted = Arrays.copyOf(recent, fresh);
+            Arrays.sort(sorted);
+            int index = Math.min(fresh - 1, (int) Math.ceil(percentile * fresh) - 1);
+            Duration candidate = Duration.ofNanos((long) (sorted[Math.max(0, index)] * multiplier));
+            if (candidate.compareTo(min) < 0) {
+                return min;
+            }
+            return candidate.compareTo(max) > 0 ? max : candidate;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every hop of a request/response round trip between the modules.
+ * <p>
+ * The timestamps are collected along the way in {@link MessageHeaders#HOP_PREFIX} headers: the sender
+ * stamps {@link MessageHeaders#SENT_AT} on every record, the receiving module stamps the points it passes
+ * with {@link #stamp} and copies them onto its response. When the response arrives, {@link #record}
+ * turns the timestamps into one {@value #METRIC} timer per hop and request type.
+ * <p>
+ * Timestamps are wall clock millis of different hosts, so hops crossing hosts include their clock skew.
+ */
+public class KafkaHopRecorder {
+
+    public static final String METRIC = "devhack.kafka.hop";
+
+    // Points stamped along a request
+    public static final String REQUEST_SENT = "request_sent";
+    public static final String REQUEST_RECEIVED = "request_received";
+    public static final String PROVIDER_STARTED = "provider_started";
+    public static final String PROVIDER_FINISHED = "provider_finished";
+
+    // Hops measured between the points
+    public static final String HOP_REQUEST_QUEUE = "request.queue";
+    public static final String HOP_AI_QUEUE = "ai.queue";
+    public static final String HOP_PROVIDER_CALL = "provider.call";
+    public static final String HOP_RESPONSE_PUBLISH = "response.publish";
+    public static final String HOP_RESPONSE_QUEUE = "response.queue";
+    public static final String HOP_ROUND_TRIP = "round.trip";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public KafkaHopRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Stamps the current time as the given point of the request.
+     */
+    public static void stamp(KafkaMessage<?> message, String point) {
+        stamp(message, point, System.currentTimeMillis());
+    }
+
+    public static void stamp(KafkaMessage<?> message, String point, long epochMillis) {
+        message.getHeaders().put(MessageHeaders.HOP_PREFIX + point, String.valueOf(epochMillis));
+    }
+
+    /**
+     * Stamps the time the request was sent, taken from its {@link MessageHeaders#SENT_AT} header.
+     */
+    public static void stampReceived(KafkaMessage<?> request) {
+        String sentAt = request.getHeader(MessageHeaders.SENT_AT);
+        if (sentAt != null) {
+            request.getHeaders().putIfAbsent(MessageHeaders.HOP_PREFIX + REQUEST_SENT, sentAt);
+        }
+        stamp(request, REQUEST_RECEIVED);
+    }
+
+    /**
+     * Copies the collected timestamps and the request type from a request onto its response.
+     */
+    public static void propagate(KafkaMessage<?> request, KafkaMessage<?> response) {
+        request.getHeaders().forEach((name, value) -> {
+            if (name.startsWith(MessageHeaders.HOP_PREFIX)) {
+                response.getHeaders().put(name, value);
+            }
+        });
+        if (request.getType() != null) {
+            response.getHeaders().put(MessageHeaders.REQUEST_TYPE, request.getType());
+        }
+    }
+
+    /**
+     * Records the hops of a response that has just been received.
+     */
+    public void record(KafkaMessage<?> response) {
+        record(response, System.currentTimeMillis());
+    }
+
+    public void record(KafkaMessage<?> response, long receivedAtMillis) {
+        String type = response.getHeader(MessageHeaders.REQUEST_TYPE);
+        if (type == null) {
+            type = response.getType() != null ? response.getType() : "unknown";
+        }
+        Long requestSent = point(response, REQUEST_SENT);
+        Long requestReceived = point(response, REQUEST_RECEIVED);
+        Long providerStarted = point(response, PROVIDER_STARTED);
+        Long providerFinished = point(response, PROVIDER_FINISHED);
+        Long responseSent = millis(response.getHeader(MessageHeaders.SENT_AT));
+
+        record(type, HOP_REQUEST_QUEUE, requestSent, requestReceived);
+        record(type, HOP_AI_QUEUE, requestReceived, providerStarted);
+        record(type, HOP_PROVIDER_CALL, providerStarted, providerFinished);
+        record(type, HOP_RESPONSE_PUBLISH, providerFinished, responseSent);
+        record(type, HOP_RESPONSE_QUEUE, responseSent, receivedAtMillis);
+        record(type, HOP_ROUND_TRIP, requestSent, receivedAtMillis);
+    }
+
+    private void record(String type, String hop, Long from, Long to) {
+        if (from == null || to == null) {
+            return;
+        }
+        timers.computeIfAbsent(type + '|' + hop, key -> Timer.builder(METRIC)
+                        .description("Latency of a hop of the Kafka request/response round trip")
+                        .tag("type", type)
+                        .tag("hop", hop)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(Math.max(0L, to - from), TimeUnit.MILLISECONDS);
+    }
+
+    private static Long point(KafkaMessage<?> message, String point) {
+        return millis(message.getHeader(MessageHeaders.HOP_PREFIX + point));
+    }
+
+    private static Long millis(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
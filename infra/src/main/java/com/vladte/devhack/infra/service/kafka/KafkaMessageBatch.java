@@ -0,0 +1,44 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Messages sent together by {@link KafkaMessageSender#buildAndSendBatch}.
+ * The messages are handed to the producer back to back, so they end up in the same producer batches and share
+ * compression; how long the producer waits to fill a batch is up to its {@code linger.ms} and {@code batch.size}.
+ * <p>
+ * Every message has its own future, {@link #completion()} aggregates them.
+ *
+ * @param <T> type of the message payload
+ */
+public class KafkaMessageBatch<T> {
+
+    private final Map<String, CompletableFuture<SendResult<String, KafkaMessage<T>>>> futures;
+
+    KafkaMessageBatch(Map<String, CompletableFuture<SendResult<String, KafkaMessage<T>>>> futures) {
+        this.futures = Collections.unmodifiableMap(new LinkedHashMap<>(futures));
+    }
+
+    /**
+     * Per-message futures keyed by message id, in the order the messages were sent.
+     */
+    public Map<String, CompletableFuture<SendResult<String, KafkaMessage<T>>>> futures() {
+        return futures;
+    }
+
+    /**
+     * Aggregated completion of the batch.
+     *
+     * @return a future completed when every message of the batch is acknowledged,
+     * or completed exceptionally when at least one of them failed
+     */
+    public CompletableFuture<Void> completion() {
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new));
+    }
+}
@@ -1,19 +1,34 @@
 package com.vladte.devhack.infra.service.kafka;
 
+import com.vladte.devhack.infra.message.MessageHeaders;
 import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.transport.KafkaTemplateTransport;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public abstract class KafkaMessageSender<T> {
 
-    protected final KafkaTemplate<String, KafkaMessage<T>> kafkaTemplate;
+    protected final MessageTransport transport;
 
     protected KafkaMessageSender(KafkaTemplate<String, KafkaMessage<T>> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+        this(new KafkaTemplateTransport(kafkaTemplate));
+    }
+
+    /**
+     * @param transport carries the messages, see {@link com.vladte.devhack.infra.config.MessageTransportConfig}
+     */
+    protected KafkaMessageSender(MessageTransport transport) {
+        this.transport = transport;
     }
 
     protected abstract String getTopic();
@@ -24,22 +39,90 @@ public abstract class KafkaMessageSender<T> {
 
     protected abstract String getDestination();
 
+    /**
+     * Topic the receiver should publish its response to, or {@code null} when no response is expected
+     * or the receiver should use its default topic.
+     */
+    protected String getReplyTopic() {
+        return null;
+    }
+
     public CompletableFuture<SendResult<String, KafkaMessage<T>>> buildAndSend(String messageId, T payload) {
+        return send(getTopic(), buildMessage(messageId, payload));
+    }
+
+    /**
+     * Builds the message and sends it to the given topic instead of the default one.
+     */
+    public CompletableFuture<SendResult<String, KafkaMessage<T>>> buildAndSend(String messageId, T payload, String topic) {
+        return send(topic != null ? topic : getTopic(), buildMessage(messageId, payload));
+    }
+
+    /**
+     * Sends several messages as one batch.
+     *
+     * @param payloadsByMessageId payloads keyed by their message ids, so every id is sent once
+     * @return the batch, holding a future per message and the aggregated completion
+     */
+    public KafkaMessageBatch<T> buildAndSendBatch(Map<String, T> payloadsByMessageId) {
+        return buildAndSendBatch(payloadsByMessageId, getTopic());
+    }
+
+    /**
+     * Sends several messages as one batch to the given topic instead of the default one.
+     * A message that cannot be built fails its own future, the others are still sent.
+     */
+    public KafkaMessageBatch<T> buildAndSendBatch(Map<String, T> payloadsByMessageId, String topic) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        Map<String, CompletableFuture<SendResult<String, KafkaMessage<T>>>> futures = new LinkedHashMap<>();
+        payloadsByMessageId.forEach((messageId, payload) -> {
+            try {
+                futures.put(messageId, send(topic, buildMessage(messageId, payload, timestamp)));
+            } catch (RuntimeException e) {
+                futures.put(messageId, CompletableFuture.failedFuture(e));
+            }
+        });
+        return new KafkaMessageBatch<>(futures);
+    }
+
+    /**
+     * Sends messages built by the caller as one batch, see {@link #buildAndSendBatch(Map, String)}.
+     */
+    protected KafkaMessageBatch<T> sendBatch(String topic, List<KafkaMessage<T>> messages) {
+        Map<String, CompletableFuture<SendResult<String, KafkaMessage<T>>>> futures = new LinkedHashMap<>();
+        for (KafkaMessage<T> message : messages) {
+            try {
+                futures.put(message.getId(), send(topic, message));
+            } catch (RuntimeException e) {
+                futures.put(message.getId(), CompletableFuture.failedFuture(e));
+            }
+        }
+        return new KafkaMessageBatch<>(futures);
+    }
+
+    protected KafkaMessage<T> buildMessage(String messageId, T payload) {
+        return buildMessage(messageId, payload, LocalDateTime.now());
+    }
+
+    protected KafkaMessage<T> buildMessage(String messageId, T payload, LocalDateTime timestamp) {
         KafkaMessage<T> message = KafkaMessage.<T>builder()
                 .id(messageId)
                 .source(getSource())
                 .destination(getDestination())
                 .type(getMessageType())
                 .payload(payload)
-                .timestamp(LocalDateTime.now())
+                .timestamp(timestamp)
                 .build();
 
-        return sendToKafka(getTopic(), message);
+        String replyTopic = getReplyTopic();
+        if (replyTopic != null) {
+            message.getHeaders().put(MessageHeaders.REPLY_TOPIC, replyTopic);
+        }
+        return message;
     }
 
-
-    private CompletableFuture<SendResult<String, KafkaMessage<T>>> sendToKafka(String topic, KafkaMessage<T> message) {
-        return kafkaTemplate.send(topic, message.getId(), message)
+    protected CompletableFuture<SendResult<String, KafkaMessage<T>>> send(String topic, KafkaMessage<T> message) {
+        return transport.send(toRecord(topic, message.getId(), message))
                 .whenComplete((result, ex) -> {
                     if (ex == null) {
                         LoggerFactory.getLogger(getClass()).debug("Sent message: {}", message.getId());
@@ -48,4 +131,32 @@ public abstract class KafkaMessageSender<T> {
                     }
                 });
     }
+
+    /**
+     * Builds the record of a message, with the envelope and the message headers as record headers.
+     *
+     * @param key record key, decides the partition and therefore the ordering of the record
+     */
+    public static <M extends KafkaMessage<?>> ProducerRecord<String, M> toRecord(String topic, String key, M message) {
+        ProducerRecord<String, M> record = new ProducerRecord<>(topic, key, message);
+        addHeader(record, MessageHeaders.MESSAGE_ID, message.getId());
+        addHeader(record, MessageHeaders.TYPE, message.getType());
+        addHeader(record, MessageHeaders.SOURCE, message.getSource());
+        addHeader(record, MessageHeaders.DESTINATION, message.getDestination());
+        if (message.getTimestamp() != null) {
+            addHeader(record, MessageHeaders.TIMESTAMP, message.getTimestamp().toString());
+        }
+        if (message.getDeadline() != null) {
+            addHeader(record, MessageHeaders.DEADLINE, String.valueOf(message.getDeadline().toEpochMilli()));
+        }
+        message.getHeaders().forEach((name, value) -> addHeader(record, name, value));
+        addHeader(record, MessageHeaders.SENT_AT, String.valueOf(System.currentTimeMillis()));
+        return record;
+    }
+
+    private static void addHeader(ProducerRecord<?, ?> record, String name, String value) {
+        if (value != null) {
+            record.headers().add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
 }
@@ -1,57 +1,264 @@
 package com.vladte.devhack.infra.service.kafka;
 
 import com.vladte.devhack.infra.model.arguments.KafkaPayloadArguments;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A thread-safe registry for managing pending requests and their futures.
  * Allows producers and consumers to coordinate using messageId.
+ * <p>
+ * Every registered request gets a deadline; a timer wheel fails the futures of requests whose
+ * response never arrived, so callers waiting on them are released. The number of pending requests
+ * is bounded, registrations above the capacity are rejected immediately. A future completed by its caller,
+ * e.g. cancelled or timed out with {@link CompletableFuture#orTimeout}, frees its entry right away.
+ * <p>
+ * With an {@link AdaptiveTimeout} the deadline of a request follows the observed response latency of
+ * its message type instead of a fixed timeout.
  */
-@Component
-public class PendingRequestManager<PayloadArguments extends KafkaPayloadArguments> {
+public class PendingRequestManager<PayloadArguments extends KafkaPayloadArguments> implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(PendingRequestManager.class);
 
-    private final Map<String, CompletableFuture<PayloadArguments>> pendingRequests = new ConcurrentHashMap<>();
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private final String name;
+    private final Duration defaultTimeout;
+    private final int capacity;
+    private final Map<String, PendingRequest<PayloadArguments>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final TimeoutWheel<PendingRequest<PayloadArguments>> timeoutWheel;
+    private final AdaptiveTimeout adaptiveTimeout;
+
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final Timer expiredTimer;
+    private final Timer abandonedTimer;
+    private final Counter rejectedCounter;
+
+    public PendingRequestManager(String name, MeterRegistry meterRegistry) {
+        this(name, DEFAULT_TIMEOUT, DEFAULT_CAPACITY, DEFAULT_TICK, DEFAULT_TICKS_PER_WHEEL, meterRegistry);
+    }
+
+    public PendingRequestManager(String name,
+                                 Duration defaultTimeout,
+                                 int capacity,
+                                 Duration tickDuration,
+                                 int ticksPerWheel,
+                                 MeterRegistry meterRegistry) {
+        this(name, defaultTimeout, capacity, tickDuration, ticksPerWheel, null, meterRegistry);
+    }
+
+    /**
+     * @param adaptiveTimeout derives the timeout of requests registered with their message type,
+     *                        {@code null} to always use the default timeout
+     */
+    public PendingRequestManager(String name,
+                                 Duration defaultTimeout,
+                                 int capacity,
+                                 Duration tickDuration,
+                                 int ticksPerWheel,
+                                 AdaptiveTimeout adaptiveTimeout,
+                                 MeterRegistry meterRegistry) {
+        this.name = name;
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.defaultTimeout = defaultTimeout;
+        this.capacity = capacity;
+        this.timeoutWheel = new TimeoutWheel<>(name, tickDuration, ticksPerWheel,
+                request -> request.future().isDone(), this::expire);
+
+        Gauge.builder("devhack.kafka.pending.inflight", pendingRequests, Map::size)
+                .description("Number of requests waiting for a Kafka response")
+                .tag("manager", name)
+                .register(meterRegistry);
+        Gauge.builder("devhack.kafka.pending.oldest.age", this, PendingRequestManager::oldestAgeSeconds)
+                .description("Age of the oldest request waiting for a Kafka response")
+                .tag("manager", name)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.successTimer = completionTimer(meterRegistry, "success");
+        this.errorTimer = completionTimer(meterRegistry, "error");
+        this.expiredTimer = completionTimer(meterRegistry, "expired");
+        this.abandonedTimer = completionTimer(meterRegistry, "abandoned");
+        this.rejectedCounter = Counter.builder("devhack.kafka.pending.rejected")
+                .description("Requests rejected because the pending request capacity was reached")
+                .tag("manager", name)
+                .register(meterRegistry);
+    }
+
+    private Timer completionTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("devhack.kafka.pending.completion")
+                .description("Time between registering a request and resolving its future")
+                .tag("manager", name)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public CompletableFuture<PayloadArguments> register(String messageId) {
+        return register(messageId, defaultTimeout);
+    }
+
+    /**
+     * Registers a pending request of the given message type. Its timeout is derived from the latency
+     * observed for the type when an {@link AdaptiveTimeout} is configured, the default timeout otherwise.
+     */
+    public CompletableFuture<PayloadArguments> register(String messageId, String messageType) {
+        Duration timeout = adaptiveTimeout != null ? adaptiveTimeout.timeoutFor(messageType) : defaultTimeout;
+        return register(messageId, messageType, timeout);
+    }
+
+    /**
+     * Registers a pending request that fails with {@link TimeoutException} when no response
+     * arrives within the given timeout. When the registry is full the returned future is
+     * already failed with {@link RejectedExecutionException}.
+     */
+    public CompletableFuture<PayloadArguments> register(String messageId, Duration timeout) {
+        return register(messageId, null, timeout);
+    }
+
+    private CompletableFuture<PayloadArguments> register(String messageId, String messageType, Duration timeout) {
+        if (reserved.incrementAndGet() > capacity) {
+            reserved.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("Rejecting pending request {}: capacity of {} reached for {}", messageId, capacity, name);
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Too many pending requests for " + name + " (capacity " + capacity + ")"));
+        }
+
         log.info("Registering pending request: {}", messageId);
-        CompletableFuture<PayloadArguments> future = new CompletableFuture<>();
-        pendingRequests.put(messageId, future);
-        return future;
+        long now = System.nanoTime();
+        PendingRequest<PayloadArguments> request =
+                new PendingRequest<>(messageId, messageType, new CompletableFuture<>(), now, now + timeout.toNanos());
+        PendingRequest<PayloadArguments> previous = pendingRequests.put(messageId, request);
+        if (previous != null) {
+            release(previous, errorTimer);
+            previous.future().completeExceptionally(
+                    new IllegalStateException("Pending request replaced by a new registration: " + messageId));
+        }
+        timeoutWheel.schedule(request, request.deadlineNanos());
+        // the entry is still registered only when the future was completed by someone else than this manager
+        request.future().whenComplete((result, ex) -> {
+            if (pendingRequests.remove(messageId, request)) {
+                log.info("Pending request {} completed by its caller", messageId);
+                release(request, abandonedTimer);
+            }
+        });
+        return request.future();
     }
 
     public void complete(String messageId, PayloadArguments result) {
-        CompletableFuture<PayloadArguments> future = pendingRequests.remove(messageId);
-        if (future != null) {
+        PendingRequest<PayloadArguments> request = pendingRequests.remove(messageId);
+        if (request != null) {
             log.info("Completing future for messageId: {}", messageId);
-            future.complete(result);
+            release(request, successTimer);
+            recordLatency(request);
+            request.future().complete(result);
         } else {
             log.warn("No pending future found for messageId: {}", messageId);
         }
     }
 
     public void completeExceptionally(String messageId, Throwable throwable) {
-        CompletableFuture<PayloadArguments> future = pendingRequests.remove(messageId);
-        if (future != null) {
+        PendingRequest<PayloadArguments> request = pendingRequests.remove(messageId);
+        if (request != null) {
             log.info("Completing future exceptionally for messageId: {}", messageId);
-            future.completeExceptionally(throwable);
+            release(request, errorTimer);
+            request.future().completeExceptionally(throwable);
         } else {
             log.warn("No pending future found for messageId (exceptional): {}", messageId);
         }
     }
 
+    /**
+     * @return time left until the request times out, {@link Duration#ZERO} when it is not pending anymore
+     */
+    public Duration remaining(String messageId) {
+        PendingRequest<PayloadArguments> request = pendingRequests.get(messageId);
+        if (request == null) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0L, request.deadlineNanos() - System.nanoTime()));
+    }
+
     public boolean hasPending(String messageId) {
         return pendingRequests.containsKey(messageId);
     }
 
+    public int size() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Fails all pending futures, so no caller keeps waiting on a response that will never be delivered.
+     */
     public void clear() {
-        pendingRequests.clear();
+        pendingRequests.values().forEach(request -> {
+            if (pendingRequests.remove(request.messageId(), request)) {
+                release(request, errorTimer);
+                request.future().completeExceptionally(
+                        new CancellationException("Pending request cleared: " + request.messageId()));
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        timeoutWheel.close();
+        clear();
+    }
+
+    private void expire(PendingRequest<PayloadArguments> request) {
+        if (pendingRequests.remove(request.messageId(), request)) {
+            log.warn("Pending request {} expired after {} ms", request.messageId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.registeredNanos()));
+            release(request, expiredTimer);
+            if (adaptiveTimeout != null && request.messageType() != null) {
+                adaptiveTimeout.expired(request.messageType(),
+                        Duration.ofNanos(request.deadlineNanos() - request.registeredNanos()));
+            }
+            request.future().completeExceptionally(
+                    new TimeoutException("No response received in time for messageId: " + request.messageId()));
+        }
+    }
+
+    private void release(PendingRequest<PayloadArguments> request, Timer timer) {
+        reserved.decrementAndGet();
+        timer.record(System.nanoTime() - request.registeredNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void recordLatency(PendingRequest<PayloadArguments> request) {
+        if (adaptiveTimeout != null && request.messageType() != null) {
+            adaptiveTimeout.record(request.messageType(), Duration.ofNanos(System.nanoTime() - request.registeredNanos()));
+        }
+    }
+
+    private double oldestAgeSeconds() {
+        long now = System.nanoTime();
+        return pendingRequests.values().stream()
+                .mapToLong(request -> now - request.registeredNanos())
+                .max()
+                .orElse(0L) / 1_000_000_000.0;
+    }
+
+    private record PendingRequest<T>(String messageId, String messageType, CompletableFuture<T> future,
+                                     long registeredNanos, long deadlineNanos) {
     }
 }
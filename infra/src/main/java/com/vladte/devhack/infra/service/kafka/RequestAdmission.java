@@ -0,0 +1,198 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for the requests of a single topic.
+ * At most {@code maxInFlight} requests run at once; further requests wait in a bounded FIFO queue for
+ * at most {@code maxQueueWait}. Requests arriving to a full queue, or waiting in it for too long,
+ * are shed with {@link RequestRejectedException}, so callers get a fast "busy, retry later" instead of
+ * piling more work on a saturated AI module.
+ * <p>
+ * A request holds its slot until the future returned by its supplier completes.
+ */
+public class RequestAdmission {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestAdmission.class);
+
+    private static final ScheduledExecutorService QUEUE_TIMEOUTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kafka-admission-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Duration maxQueueWait;
+
+    private final Deque<QueuedRequest<?>> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    private final Timer queueWaitTimer;
+    private final Counter queueFullCounter;
+    private final Counter queueTimeoutCounter;
+
+    public RequestAdmission(String name, int maxInFlight, int maxQueued, Duration maxQueueWait, MeterRegistry meterRegistry) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive: " + maxInFlight);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("Max queued requests must not be negative: " + maxQueued);
+        }
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.maxQueueWait = maxQueueWait;
+
+        Gauge.builder("devhack.kafka.admission.inflight", this, RequestAdmission::inFlight)
+                .description("Number of admitted requests waiting for their response")
+                .tag("topic", name)
+                .register(meterRegistry);
+        Gauge.builder("devhack.kafka.admission.queued", this, RequestAdmission::queued)
+                .description("Number of requests waiting for admission")
+                .tag("topic", name)
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("devhack.kafka.admission.wait")
+                .description("Time a request waited for admission")
+                .tag("topic", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueFullCounter = rejectedCounter(meterRegistry, "queue-full");
+        this.queueTimeoutCounter = rejectedCounter(meterRegistry, "queue-timeout");
+    }
+
+    private Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("devhack.kafka.admission.rejected")
+                .description("Requests shed by admission control")
+                .tag("topic", name)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the request as soon as a slot is free.
+     *
+     * @param request starts the request, its future completes when the response arrived
+     * @return the future of the request, or a future failed with {@link RequestRejectedException} when it was shed
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        synchronized (this) {
+            if (inFlight < maxInFlight) {
+                inFlight++;
+            } else if (queue.size() < maxQueued) {
+                QueuedRequest<T> queued = new QueuedRequest<>(request, new CompletableFuture<>(), System.nanoTime());
+                queue.addLast(queued);
+                queued.timeout = QUEUE_TIMEOUTS.schedule(() -> expire(queued), maxQueueWait.toNanos(), TimeUnit.NANOSECONDS);
+                return queued.future;
+            } else {
+                queueFullCounter.increment();
+                log.warn("Shedding request for {}: {} in flight and {} queued", name, inFlight, queue.size());
+                return CompletableFuture.failedFuture(new RequestRejectedException(name, maxQueueWait));
+            }
+        }
+        return start(request);
+    }
+
+    /**
+     * Takes a slot without queueing, for callers sending several requests at once.
+     * A successful call must be paired with {@link #release()}.
+     *
+     * @return {@code true} when a slot was free
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < maxInFlight && queue.isEmpty()) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Frees a slot and starts the next queued request.
+     */
+    public void release() {
+        QueuedRequest<?> next;
+        synchronized (this) {
+            next = queue.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            // the slot passes to the next request, in-flight count stays the same
+        }
+        next.timeout.cancel(false);
+        queueWaitTimer.record(System.nanoTime() - next.queuedNanos, TimeUnit.NANOSECONDS);
+        dispatch(next);
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private <T> void dispatch(QueuedRequest<T> queued) {
+        start(queued.request).whenComplete((result, ex) -> {
+            if (ex == null) {
+                queued.future.complete(result);
+            } else {
+                queued.future.completeExceptionally(ex);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            release();
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, ex) -> release());
+        return future;
+    }
+
+    private void expire(QueuedRequest<?> queued) {
+        synchronized (this) {
+            if (!queue.remove(queued)) {
+                return;
+            }
+        }
+        queueTimeoutCounter.increment();
+        queueWaitTimer.record(System.nanoTime() - queued.queuedNanos, TimeUnit.NANOSECONDS);
+        log.warn("Shedding request for {}: no slot freed within {}", name, maxQueueWait);
+        queued.future.completeExceptionally(new RequestRejectedException(name, maxQueueWait));
+    }
+
+    private static final class QueuedRequest<T> {
+        private final Supplier<CompletableFuture<T>> request;
+        private final CompletableFuture<T> future;
+        private final long queuedNanos;
+        private ScheduledFuture<?> timeout;
+
+        private QueuedRequest(Supplier<CompletableFuture<T>> request, CompletableFuture<T> future, long queuedNanos) {
+            this.request = request;
+            this.future = future;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
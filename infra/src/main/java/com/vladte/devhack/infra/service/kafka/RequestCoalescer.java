@@ -0,0 +1,100 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical requests.
+ * The first request of a key is sent, identical requests arriving while it is in flight attach to its
+ * future instead of being sent again. Once the response arrived the key is forgotten, so later requests
+ * are sent anew; responses are not cached.
+ *
+ * @param <R> type of the response
+ */
+public class RequestCoalescer<R> {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private final String name;
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<R>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter coalescedCounter;
+
+    public RequestCoalescer(String name, boolean enabled, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.sentCounter = requestCounter(meterRegistry, "sent");
+        this.coalescedCounter = requestCounter(meterRegistry, "coalesced");
+        Gauge.builder("devhack.kafka.coalescing.ratio", this, RequestCoalescer::coalescingRatio)
+                .description("Share of requests served by attaching to an identical request in flight")
+                .tag("topic", name)
+                .register(meterRegistry);
+        Gauge.builder("devhack.kafka.coalescing.inflight", inFlight, Map::size)
+                .description("Number of distinct requests in flight")
+                .tag("topic", name)
+                .register(meterRegistry);
+    }
+
+    private Counter requestCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("devhack.kafka.coalescing.requests")
+                .description("Requests passed through the coalescing layer")
+                .tag("topic", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the response of the identical request in flight, or sends a new one.
+     *
+     * @param key     fingerprint of the request, see {@link RequestFingerprint}
+     * @param request sends the request, its future completes with the response
+     * @return a future of the response; completing or cancelling it does not affect other callers
+     */
+    public CompletableFuture<R> execute(String key, Supplier<CompletableFuture<R>> request) {
+        if (!enabled) {
+            sentCounter.increment();
+            return request.get();
+        }
+        CompletableFuture<R> leader = new CompletableFuture<>();
+        CompletableFuture<R> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalescedCounter.increment();
+            log.debug("Coalescing request {} for {} with the one in flight", key, name);
+            return existing.copy();
+        }
+
+        sentCounter.increment();
+        CompletableFuture<R> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, ex) -> {
+            inFlight.remove(key, leader);
+            if (ex == null) {
+                leader.complete(result);
+            } else {
+                leader.completeExceptionally(ex);
+            }
+        });
+        return leader.copy();
+    }
+
+    private double coalescingRatio() {
+        double sent = sentCounter.count();
+        double coalesced = coalescedCounter.count();
+        double total = sent + coalesced;
+        return total == 0 ? 0.0 : coalesced / total;
+    }
+}
@@ -0,0 +1,23 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a request to the AI module is shed because too many requests of its topic are in progress.
+ * The caller should retry after {@link #getRetryAfter()}.
+ */
+@Getter
+public class RequestRejectedException extends RejectedExecutionException {
+
+    private final String topic;
+    private final Duration retryAfter;
+
+    public RequestRejectedException(String topic, Duration retryAfter) {
+        super("Too many requests in progress for " + topic + ", retry later");
+        this.topic = topic;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,99 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Hashed timer wheel used to expire pending requests.
+ * Scheduling is O(1); every tick only visits the entries of a single slot, so the cost of sweeping
+ * does not grow with the total number of pending requests.
+ *
+ * @param <T> type of the scheduled element
+ */
+class TimeoutWheel<T> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeoutWheel.class);
+
+    private final long tickNanos;
+    private final Queue<Entry<T>>[] slots;
+    private final Predicate<T> isDone;
+    private final Consumer<T> onExpire;
+    private final ScheduledExecutorService ticker;
+    private final long startNanos;
+
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimeoutWheel(String name, Duration tickDuration, int ticksPerWheel, Predicate<T> isDone, Consumer<T> onExpire) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Ticks per wheel must be positive: " + ticksPerWheel);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.slots = new Queue[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.isDone = isDone;
+        this.onExpire = onExpire;
+        this.startNanos = System.nanoTime();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedules an element to be expired once the given deadline has passed.
+     *
+     * @param element       element to expire
+     * @param deadlineNanos deadline in {@link System#nanoTime()} units
+     */
+    void schedule(T element, long deadlineNanos) {
+        long deadlineTick = Math.max(currentTick + 1, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        slots[(int) (deadlineTick % slots.length)].add(new Entry<>(element, deadlineNanos));
+    }
+
+    private void tick() {
+        try {
+            long tick = currentTick + 1;
+            long now = System.nanoTime();
+            Iterator<Entry<T>> iterator = slots[(int) (tick % slots.length)].iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                if (isDone.test(entry.element())) {
+                    iterator.remove();
+                } else if (entry.deadlineNanos() - now <= 0) {
+                    iterator.remove();
+                    onExpire.accept(entry.element());
+                }
+                // otherwise the deadline lies in a later rotation of the wheel
+            }
+            currentTick = tick;
+        } catch (Exception e) {
+            log.error("Error while expiring pending requests: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private record Entry<T>(T element, long deadlineNanos) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.vladte.devhack.infra.service.kafka.consumer;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Lag of a consumer group on a set of topics: the records between the committed offsets of the group
+ * and the end of each partition, summed over all partitions of the topics the group committed offsets for.
+ * Owns the admin client, closing it closes the client.
+ */
+public class ConsumerGroupLag implements LongSupplier, AutoCloseable {
+
+    private final Admin admin;
+    private final String groupId;
+    private final Set<String> topics;
+    private final Duration timeout;
+
+    public ConsumerGroupLag(Admin admin, String groupId, Set<String> topics, Duration timeout) {
+        this.admin = admin;
+        this.groupId = groupId;
+        this.topics = Set.copyOf(topics);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @throws KafkaException when the offsets could not be read within the timeout
+     */
+    @Override
+    public long getAsLong() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata()
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.forEach((partition, offset) -> {
+                if (offset != null && topics.contains(partition.topic())) {
+                    latest.put(partition, OffsetSpec.latest());
+                }
+            });
+            if (latest.isEmpty()) {
+                return 0L;
+            }
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest)
+                    .all()
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            long lag = 0L;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+                lag += Math.max(0L, end.getValue().offset() - committed.get(end.getKey()).offset());
+            }
+            return lag;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while reading the lag of group " + groupId, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Failed to read the lag of group " + groupId, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        admin.close(timeout);
+    }
+}
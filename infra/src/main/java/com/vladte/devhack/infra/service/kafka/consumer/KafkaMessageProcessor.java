@@ -2,8 +2,15 @@ package com.vladte.devhack.infra.service.kafka.consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Generic base class for Kafka consumers that processes raw messages.
@@ -20,6 +27,32 @@ public abstract class KafkaMessageProcessor<MessagePayload> {
     }
 
 
+    /**
+     * Entry point to consume a raw record, keeping its headers on the message.
+     */
+    protected void processRecord(ConsumerRecord<String, ? extends KafkaMessage<?>> record) {
+        processMessage(withHeaders(record));
+    }
+
+    /**
+     * Entry point of batch listeners, keeping the headers of every record on its message.
+     */
+    protected void processRecords(List<? extends ConsumerRecord<String, ? extends KafkaMessage<?>>> records) {
+        List<KafkaMessage<?>> rawMessages = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, ? extends KafkaMessage<?>> record : records) {
+            rawMessages.add(withHeaders(record));
+        }
+        try {
+            processBatch(rawMessages);
+        } catch (BatchListenerFailedException e) {
+            // Point at the record itself: the listener may have received a filtered subset of the poll
+            if (e.getRecord() == null && e.getIndex() >= 0 && e.getIndex() < records.size()) {
+                throw new BatchListenerFailedException(e.getMessage(), e.getCause(), records.get(e.getIndex()));
+            }
+            throw e;
+        }
+    }
+
     /**
      * Entry point to consume and convert raw message.
      */
@@ -35,10 +68,52 @@ public abstract class KafkaMessageProcessor<MessagePayload> {
         }
     }
 
+    /**
+     * Entry point to consume a batch of raw messages, in the order they were polled.
+     * A failing message is passed to {@link #handleError} and does not affect the rest of the batch.
+     * When {@link #handleError} rethrows, a {@link BatchListenerFailedException} with the index of the message
+     * is raised: the container commits the offsets of the messages before it and redelivers the rest.
+     * <p>
+     * Subclasses can override it to handle the whole batch at once.
+     */
+    protected void processBatch(List<? extends KafkaMessage<?>> rawMessages) {
+        log.debug("Received batch of {} Kafka messages", rawMessages.size());
+        for (int index = 0; index < rawMessages.size(); index++) {
+            KafkaMessage<?> rawMessage = rawMessages.get(index);
+            try {
+                processMessage(rawMessage);
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("Failed to process message " + rawMessage.getId(), e, index);
+            }
+        }
+    }
+
+    /**
+     * Value of the record with the record headers copied onto the message.
+     */
+    protected KafkaMessage<?> withHeaders(ConsumerRecord<String, ? extends KafkaMessage<?>> record) {
+        KafkaMessage<?> rawMessage = record.value();
+        if (rawMessage != null) {
+            for (Header header : record.headers()) {
+                if (header.value() != null) {
+                    rawMessage.getHeaders().put(header.key(), new String(header.value(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return rawMessage;
+    }
+
     /**
      * Converts untyped message into a typed one.
+     * Messages decoded by {@link com.vladte.devhack.infra.codec.KafkaMessageDeserializer} already carry
+     * the typed payload and are passed through as they are.
      */
+    @SuppressWarnings("unchecked")
     protected KafkaMessage<MessagePayload> convertMessage(KafkaMessage<?> rawMessage) {
+        Object payload = rawMessage.getPayload();
+        if (payload == null || payloadClass.isInstance(payload)) {
+            return (KafkaMessage<MessagePayload>) rawMessage;
+        }
         MessagePayload typedPayload = objectMapper.convertValue(rawMessage.getPayload(), payloadClass);
         return KafkaMessage.<MessagePayload>builder()
                 .id(rawMessage.getId())
@@ -46,7 +121,9 @@ public abstract class KafkaMessageProcessor<MessagePayload> {
                 .destination(rawMessage.getDestination())
                 .type(rawMessage.getType())
                 .timestamp(rawMessage.getTimestamp())
+                .deadline(rawMessage.getDeadline())
                 .payload(typedPayload)
+                .headers(rawMessage.getHeaders())
                 .build();
     }
 
@@ -3,6 +3,7 @@ package com.vladte.devhack.infra.service.kafka.consumer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.arguments.KafkaPayloadArguments;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.PendingRequestManager;
 
 /**
@@ -17,18 +18,22 @@ public abstract class KafkaSubscribedMessageHandler<ResponseArguments extends Ka
         extends KafkaMessageProcessor<ResponsePayload> {
 
     private final PendingRequestManager<ResponseArguments> pendingRequestManager;
+    private final KafkaHopRecorder hopRecorder;
 
     public KafkaSubscribedMessageHandler(ObjectMapper objectMapper,
                                          Class<ResponsePayload> responsePayloadClass,
-                                         PendingRequestManager<ResponseArguments> pendingRequestManager) {
+                                         PendingRequestManager<ResponseArguments> pendingRequestManager,
+                                         KafkaHopRecorder hopRecorder) {
         super(objectMapper, responsePayloadClass);
         this.pendingRequestManager = pendingRequestManager;
+        this.hopRecorder = hopRecorder;
     }
 
     protected abstract boolean isExpectedResponse(KafkaMessage<ResponsePayload> message);
 
     @Override
     protected void processIncomingMessage(KafkaMessage<ResponsePayload> message) {
+        hopRecorder.record(message);
         String messageId = message.getId();
         var payload = message.getPayload();
         if (payload.isHasErrors() || !isExpectedResponse(message)) {
@@ -0,0 +1,54 @@
+package com.vladte.devhack.infra.service.kafka.consumer;
+
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Discards records that are addressed to another destination or carry a message type the listener does not handle.
+ * The check only reads the envelope, which {@link com.vladte.devhack.infra.codec.KafkaMessageDeserializer}
+ * builds from the record headers, so discarded records never have their payload parsed.
+ * Use it on a listener with {@code @KafkaListener(filter = "beanName")}.
+ */
+public class MessageHeaderRecordFilterStrategy implements RecordFilterStrategy<String, KafkaMessage<?>> {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageHeaderRecordFilterStrategy.class);
+
+    private final String destination;
+    private final Set<String> acceptedTypes;
+
+    /**
+     * @param destination   destination the listener is part of, see {@link com.vladte.devhack.infra.message.MessageDestinations}
+     * @param acceptedTypes message types handled by the listener
+     */
+    public MessageHeaderRecordFilterStrategy(String destination, MessageTypes... acceptedTypes) {
+        this.destination = destination;
+        this.acceptedTypes = Arrays.stream(acceptedTypes)
+                .map(MessageTypes::getValue)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public boolean filter(ConsumerRecord<String, KafkaMessage<?>> consumerRecord) {
+        KafkaMessage<?> message = consumerRecord.value();
+        if (message == null) {
+            return true;
+        }
+        if (message.getDestination() != null && !message.getDestination().equals(destination)) {
+            log.debug("Discarding message {} addressed to {}", message.getId(), message.getDestination());
+            return true;
+        }
+        if (!acceptedTypes.contains(message.getType())) {
+            log.debug("Discarding message {} of type {}", message.getId(), message.getType());
+            return true;
+        }
+        return false;
+    }
+}
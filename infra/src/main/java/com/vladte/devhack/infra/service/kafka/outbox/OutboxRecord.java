@@ -0,0 +1,20 @@
+package com.vladte.devhack.infra.service.kafka.outbox;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message waiting in the outbox to be relayed to Kafka.
+ *
+ * @param id          identifier of the outbox entry
+ * @param aggregateId identifier of the aggregate the message is about; messages of one aggregate are relayed in
+ *                    the order they were written and share the record key, so they land on the same partition
+ * @param topic       topic the message is relayed to
+ * @param message     the message, with its headers
+ * @param createdAt   time the message was written to the outbox
+ * @param attempts    number of failed attempts to relay the message
+ */
+public record OutboxRecord(String id, String aggregateId, String topic, KafkaMessage<?> message,
+                           LocalDateTime createdAt, int attempts) {
+}
@@ -0,0 +1,190 @@
+package com.vladte.devhack.infra.service.kafka.outbox;
+
+import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * Relays messages from the outbox to Kafka in batches.
+ * Messages of different aggregates are sent concurrently; messages of one aggregate are sent one after the
+ * other, each once the previous one was acknowledged. When a send fails, the rest of that aggregate stays in
+ * the outbox, so its messages are never reordered. Delivery is at least once: a message acknowledged by the
+ * broker but not yet removed from the outbox is sent again by the next batch.
+ * <p>
+ * A message failing {@code maxAttempts} times is given up: it stays in the outbox as dead and the rest of its
+ * aggregate is relayed without it. Sends started before the send timeout of a batch ran out may each block for
+ * up to the {@code max.block.ms} of the producer, which should be kept well below the send timeout.
+ */
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final MessageTransport transport;
+    private final OutboxStore store;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration sendTimeout;
+    private final BiConsumer<OutboxRecord, Throwable> deadLetters;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter deadCounter;
+    private final Timer lagTimer;
+
+    /**
+     * @param deadLetters called with each message given up and the failure of its last attempt
+     */
+    public OutboxRelay(MessageTransport transport, OutboxStore store, int batchSize, int maxAttempts,
+                       Duration sendTimeout, BiConsumer<OutboxRecord, Throwable> deadLetters,
+                       MeterRegistry meterRegistry) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        this.transport = transport;
+        this.store = store;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.sendTimeout = sendTimeout;
+        this.deadLetters = deadLetters;
+        this.sentCounter = relayedCounter(meterRegistry, "sent");
+        this.failedCounter = relayedCounter(meterRegistry, "failed");
+        this.deadCounter = relayedCounter(meterRegistry, "dead");
+        this.lagTimer = Timer.builder("devhack.kafka.outbox.lag")
+                .description("Time from writing a message to the outbox until the broker acknowledged it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Counter relayedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("devhack.kafka.outbox.relayed")
+                .description("Outbox messages relayed to Kafka")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Relays one batch and waits, at most for the send timeout, for the broker to acknowledge it.
+     *
+     * @return whether more messages may be waiting: the batch was full and the broker acknowledged all of it;
+     * after a failure the rest is left to a later poll instead of retrying it right away
+     */
+    public boolean relayBatch() {
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<OutboxRecord> records = store.claimBatch(batchSize, maxAttempts);
+        if (records.isEmpty()) {
+            return false;
+        }
+        Map<String, List<OutboxRecord>> byAggregate = new LinkedHashMap<>();
+        records.forEach(record -> byAggregate.computeIfAbsent(record.aggregateId(), id -> new ArrayList<>()).add(record));
+
+        Queue<String> sent = new ConcurrentLinkedQueue<>();
+        Map<String, Throwable> failed = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] aggregates = byAggregate.values().stream()
+                .map(aggregate -> sendInOrder(aggregate.iterator(), deadline, sent, failed))
+                .toArray(CompletableFuture[]::new);
+        awaitAcknowledgements(CompletableFuture.allOf(aggregates), deadline);
+
+        List<String> sentIds = List.copyOf(sent);
+        if (!sentIds.isEmpty()) {
+            store.markSent(sentIds);
+        }
+        // sends acknowledged after the timeout may still add failures, only those seen now are recorded
+        Map<String, Throwable> failures = Map.copyOf(failed);
+        for (OutboxRecord record : records) {
+            Throwable failure = failures.get(record.id());
+            if (failure != null) {
+                fail(record, failure);
+            }
+        }
+        sentCounter.increment(sentIds.size());
+        log.debug("Relayed {} of {} outbox messages, {} failed", sentIds.size(), records.size(), failures.size());
+        return records.size() == batchSize && sentIds.size() == records.size();
+    }
+
+    private void fail(OutboxRecord record, Throwable failure) {
+        Throwable ex = NestedExceptionUtils.getMostSpecificCause(failure);
+        store.markFailed(record.id(), ex.getMessage());
+        if (record.attempts() + 1 < maxAttempts) {
+            failedCounter.increment();
+            return;
+        }
+        deadCounter.increment();
+        log.error("Giving up outbox message {} to {} after {} attempts", record.id(), record.topic(), maxAttempts, ex);
+        try {
+            deadLetters.accept(record, ex);
+        } catch (RuntimeException e) {
+            log.error("Failed to handle dead outbox message {}", record.id(), e);
+        }
+    }
+
+    private CompletableFuture<Void> sendInOrder(Iterator<OutboxRecord> records, long deadline, Queue<String> sent,
+                                                Map<String, Throwable> failed) {
+        if (!records.hasNext() || System.nanoTime() - deadline >= 0) {
+            // the rest of the aggregate is left to a later batch
+            return CompletableFuture.completedFuture(null);
+        }
+        OutboxRecord record = records.next();
+        CompletableFuture<Void> acknowledged;
+        try {
+            acknowledged = transport.send(KafkaMessageSender.toRecord(record.topic(), record.aggregateId(), record.message()))
+                    .thenAccept(result -> {
+                        sent.add(record.id());
+                        recordLag(record.createdAt());
+                    });
+        } catch (RuntimeException e) {
+            acknowledged = CompletableFuture.failedFuture(e);
+        }
+        return acknowledged.handle((ignored, ex) -> {
+            if (ex != null) {
+                log.warn("Failed to relay outbox message {} to {}: {}", record.id(), record.topic(),
+                        NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+                failed.put(record.id(), ex);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return sendInOrder(records, deadline, sent, failed);
+        }).thenCompose(next -> next);
+    }
+
+    private void awaitAcknowledgements(CompletableFuture<Void> acknowledgements, long deadline) {
+        try {
+            acknowledgements.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // unacknowledged messages stay in the outbox and are sent again
+            log.warn("Outbox batch not acknowledged within {}", sendTimeout);
+        } catch (ExecutionException e) {
+            // failures are collected per message
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void recordLag(LocalDateTime createdAt) {
+        if (createdAt != null) {
+            lagTimer.record(Duration.between(createdAt, LocalDateTime.now()));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.vladte.devhack.infra.service.kafka.outbox;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage of the outbox. All calls of one {@link OutboxRelay#relayBatch()} are made in one transaction,
+ * so a store backed by a database can lock the claimed entries until the batch is done.
+ */
+public interface OutboxStore {
+
+    /**
+     * Claims the oldest pending entries that failed fewer than {@code maxAttempts} times, in the order they were
+     * written. Returns an empty list when another relay currently holds the outbox.
+     */
+    List<OutboxRecord> claimBatch(int limit, int maxAttempts);
+
+    /**
+     * Removes entries that were acknowledged by the broker.
+     */
+    void markSent(Collection<String> ids);
+
+    /**
+     * Keeps an entry whose send failed, counting the attempt and recording the error. It is relayed again by a later
+     * batch, until it failed the maximum number of times: it then stays in the store, dead, and is never claimed again.
+     */
+    void markFailed(String id, String error);
+}
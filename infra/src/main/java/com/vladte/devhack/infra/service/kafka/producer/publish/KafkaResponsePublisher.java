@@ -1,9 +1,15 @@
 package com.vladte.devhack.infra.service.kafka.producer.publish;
 
+import com.vladte.devhack.infra.message.MessageHeaders;
 import com.vladte.devhack.infra.model.KafkaMessage;
 import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
 import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
 
 
 public abstract class KafkaResponsePublisher<T extends ResponsePayload<?>> extends KafkaMessageSender<T> {
@@ -11,4 +17,28 @@ public abstract class KafkaResponsePublisher<T extends ResponsePayload<?>> exten
     protected KafkaResponsePublisher(KafkaTemplate<String, KafkaMessage<T>> kafkaTemplate) {
         super(kafkaTemplate);
     }
+
+    protected KafkaResponsePublisher(MessageTransport transport) {
+        super(transport);
+    }
+
+    /**
+     * Publishes the response to a request. The response goes to the reply topic requested by the sender,
+     * so it reaches the instance waiting for it, or to the default result topic when none was requested.
+     * The hop timestamps collected on the request travel back with the response.
+     */
+    public CompletableFuture<SendResult<String, KafkaMessage<T>>> reply(KafkaMessage<?> request, T payload) {
+        KafkaMessage<T> response = buildResponse(request, payload);
+        String replyTopic = request.getHeader(MessageHeaders.REPLY_TOPIC);
+        return send(replyTopic != null ? replyTopic : getTopic(), response);
+    }
+
+    /**
+     * Builds the response to a request without publishing it, for requests answered over another channel.
+     */
+    public KafkaMessage<T> buildResponse(KafkaMessage<?> request, T payload) {
+        KafkaMessage<T> response = buildMessage(request.getId(), payload);
+        KafkaHopRecorder.propagate(request, response);
+        return response;
+    }
 }
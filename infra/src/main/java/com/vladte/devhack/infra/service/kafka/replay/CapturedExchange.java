@@ -0,0 +1,14 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+
+/**
+ * A captured request together with the response it got.
+ *
+ * @param promptKey      prompt of the request, {@code null} when it had none
+ * @param requestType    message type of the request
+ * @param providerMillis time the AI provider took to answer
+ * @param response       payload of the response
+ */
+public record CapturedExchange(String promptKey, String requestType, long providerMillis, ResponsePayload<?> response) {
+}
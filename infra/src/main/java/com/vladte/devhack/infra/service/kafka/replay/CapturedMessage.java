@@ -0,0 +1,40 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One record of a traffic capture, a line of the capture file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CapturedMessage {
+
+    /**
+     * Timestamp of the record in epoch millis, the time it was produced.
+     */
+    private long timestamp;
+
+    private String topic;
+
+    private String key;
+
+    /**
+     * Record headers as strings.
+     */
+    @Builder.Default
+    private Map<String, String> headers = new HashMap<>();
+
+    /**
+     * The message envelope as JSON, whatever codec the record was written with.
+     */
+    private JsonNode value;
+}
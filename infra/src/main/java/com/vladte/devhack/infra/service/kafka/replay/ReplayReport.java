@@ -0,0 +1,68 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of a replay run.
+ *
+ * @param sent            requests sent
+ * @param answered        responses received within the drain timeout
+ * @param elapsed         time from the first request to the last response
+ * @param latencyMillis   round trip of every answered request, sorted
+ * @param queueingMillis  time every answered request waited before the provider was called, sorted;
+ *                        only requests whose response carried the hop timestamps
+ */
+public record ReplayReport(int sent, int answered, Duration elapsed, long[] latencyMillis, long[] queueingMillis) {
+
+    public static ReplayReport of(int sent, Duration elapsed, List<Long> latencyMillis, List<Long> queueingMillis) {
+        long[] latencies = latencyMillis.stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] queueing = queueingMillis.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new ReplayReport(sent, latencies.length, elapsed, latencies, queueing);
+    }
+
+    public int unanswered() {
+        return sent - answered;
+    }
+
+    /**
+     * @return answered requests per second
+     */
+    public double throughput() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds > 0 ? answered / seconds : 0.0;
+    }
+
+    public long latency(double percentile) {
+        return percentile(latencyMillis, percentile);
+    }
+
+    public long queueing(double percentile) {
+        return percentile(queueingMillis, percentile);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public String format() {
+        return String.format("""
+                        requests   %,d sent, %,d answered, %,d unanswered
+                        throughput %.1f responses/s over %.1f s
+                        latency    p50 %,d ms, p95 %,d ms, p99 %,d ms, max %,d ms
+                        queueing   p50 %,d ms, p95 %,d ms, p99 %,d ms, max %,d ms""",
+                sent, answered, unanswered(),
+                throughput(), elapsed.toMillis() / 1_000.0,
+                latency(0.5), latency(0.95), latency(0.99), latency(1.0),
+                queueing(0.5), queueing(0.95), queueing(0.99), queueing(1.0));
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -0,0 +1,137 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.ResponsePayload;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import com.vladte.devhack.infra.topics.Topics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Capture files of the Kafka traffic between the modules: one {@link CapturedMessage} as JSON per line.
+ * Written by {@link TrafficCaptureWriter}, read by the {@link TrafficReplayer} and by stub AI providers
+ * that answer with the captured responses and latencies.
+ */
+public final class TrafficCapture {
+
+    static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+    /**
+     * Request and result topics, including the bulk lane and the per-instance reply topics.
+     * Retry and dead letter topics also match, see {@link #isRetryTopic(String)}.
+     */
+    public static final Pattern TOPICS = Pattern.compile("^(" + Stream.of(
+                    Topics.QUESTION_GENERATE_REQUEST, Topics.QUESTION_GENERATE_RESULT,
+                    Topics.ANSWER_FEEDBACK_REQUEST, Topics.ANSWER_FEEDBACK_RESULT,
+                    Topics.VACANCY_PARSING_REQUEST, Topics.VACANCY_PARSING_RESULT)
+            .map(Pattern::quote)
+            .reduce((left, right) -> left + "|" + right)
+            .orElseThrow() + ")(\\..+)?$");
+
+    /**
+     * Reads a capture file, in the order the records were captured.
+     */
+    public static List<CapturedMessage> read(Path file) {
+        List<CapturedMessage> messages = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    messages.add(MAPPER.readValue(line, CapturedMessage.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read traffic capture " + file, e);
+        }
+        return messages;
+    }
+
+    /**
+     * Decodes the captured envelope to the payload type of its topic, with the captured headers.
+     */
+    public static KafkaMessage<?> decode(CapturedMessage captured) {
+        try {
+            KafkaMessage<?> message = KafkaMessageCodecs.JSON.decode(MAPPER.writeValueAsBytes(captured.getValue()),
+                    Topics.payloadType(captured.getTopic()));
+            message.getHeaders().putAll(captured.getHeaders());
+            return message;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode captured message from " + captured.getTopic(), e);
+        }
+    }
+
+    public static boolean isRequestTopic(String topic) {
+        return Topics.payloadType(topic) == AiRenderedRequestPayload.class && !isRetryTopic(topic);
+    }
+
+    public static boolean isRetryTopic(String topic) {
+        return topic.contains("-retry") || topic.endsWith("-dlt");
+    }
+
+    /**
+     * Pairs the captured requests with their responses. The provider latency comes from the hop timestamps
+     * of the response, or from the time between request and response when they are missing.
+     */
+    public static List<CapturedExchange> exchanges(List<CapturedMessage> capture) {
+        Map<String, CapturedMessage> requests = new HashMap<>();
+        for (CapturedMessage captured : capture) {
+            if (isRequestTopic(captured.getTopic())) {
+                requests.put(captured.getKey(), captured);
+            }
+        }
+        List<CapturedExchange> exchanges = new ArrayList<>();
+        for (CapturedMessage captured : capture) {
+            CapturedMessage request = requests.get(captured.getKey());
+            if (request == null || isRequestTopic(captured.getTopic()) || isRetryTopic(captured.getTopic())) {
+                continue;
+            }
+            KafkaMessage<?> response = decode(captured);
+            if (!(response.getPayload() instanceof ResponsePayload<?> payload)) {
+                continue;
+            }
+            AiRenderedRequestPayload requestPayload = (AiRenderedRequestPayload) decode(request).getPayload();
+            exchanges.add(new CapturedExchange(
+                    requestPayload != null ? requestPayload.getPromptKey() : null,
+                    request.getHeaders().get(MessageHeaders.TYPE),
+                    providerMillis(request, captured),
+                    payload));
+        }
+        return exchanges;
+    }
+
+    private static long providerMillis(CapturedMessage request, CapturedMessage response) {
+        Long started = millis(response.getHeaders().get(MessageHeaders.HOP_PREFIX + KafkaHopRecorder.PROVIDER_STARTED));
+        Long finished = millis(response.getHeaders().get(MessageHeaders.HOP_PREFIX + KafkaHopRecorder.PROVIDER_FINISHED));
+        if (started != null && finished != null) {
+            return Math.max(0L, finished - started);
+        }
+        return Math.max(0L, response.getTimestamp() - request.getTimestamp());
+    }
+
+    static Long millis(String value) {
+        try {
+            return value != null ? Long.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private TrafficCapture() {
+    }
+}
@@ -0,0 +1,75 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends consumed records to a capture file, see {@link TrafficCapture}.
+ * Retry and dead letter records are skipped, they repeat requests that were already captured.
+ */
+public class TrafficCaptureWriter implements AutoCloseable {
+
+    private final BufferedWriter writer;
+
+    public TrafficCaptureWriter(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open traffic capture " + file, e);
+        }
+    }
+
+    public void write(ConsumerRecord<String, ? extends KafkaMessage<?>> record) {
+        if (record.value() == null || TrafficCapture.isRetryTopic(record.topic())) {
+            return;
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (Header header : record.headers()) {
+            if (header.value() != null) {
+                headers.put(header.key(), new String(header.value(), StandardCharsets.UTF_8));
+            }
+        }
+        try {
+            CapturedMessage captured = CapturedMessage.builder()
+                    .timestamp(record.timestamp())
+                    .topic(record.topic())
+                    .key(record.key() != null ? record.key() : record.value().getId())
+                    .headers(headers)
+                    .value(TrafficCapture.MAPPER.readTree(KafkaMessageCodecs.JSON.encode(record.value())))
+                    .build();
+            String line = TrafficCapture.MAPPER.writeValueAsString(captured);
+            synchronized (this) {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to capture record from " + record.topic(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
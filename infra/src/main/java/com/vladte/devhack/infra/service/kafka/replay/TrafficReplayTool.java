@@ -0,0 +1,47 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line entry point of the {@link TrafficReplayer}:
+ * <pre>
+ * gradle :infra:replay --args="--capture=kafka-capture.jsonl --bootstrap=localhost:9092 --speed=4 --drain-timeout=120"
+ * </pre>
+ * {@code --speed} defaults to 1, {@code --drain-timeout} (seconds) to 60 and {@code --bootstrap} to {@code localhost:9092}.
+ */
+public final class TrafficReplayTool {
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        String capture = options.get("capture");
+        if (capture == null) {
+            System.err.println("Usage: --capture=<file> [--bootstrap=localhost:9092] [--speed=1] [--drain-timeout=60]");
+            System.exit(2);
+        }
+        List<CapturedMessage> messages = TrafficCapture.read(Path.of(capture));
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        Duration drainTimeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("drain-timeout", "60")));
+
+        try (TrafficReplayer replayer = TrafficReplayer.connect(options.getOrDefault("bootstrap", "localhost:9092"))) {
+            ReplayReport report = replayer.replay(messages, speed, drainTimeout);
+            System.out.printf("Replay of %s at %.1fx%n%s%n", capture, speed, report.format());
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private TrafficReplayTool() {
+    }
+}
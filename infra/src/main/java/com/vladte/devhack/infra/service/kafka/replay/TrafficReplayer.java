@@ -0,0 +1,241 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
+import com.vladte.devhack.infra.topics.Topics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Replays the requests of a traffic capture against running modules and measures how they are answered.
+ * <p>
+ * Requests are sent to their captured topics with the captured spacing divided by {@code speed}, under new
+ * identifiers so idempotency stores and caches do not answer them from earlier runs. They keep their reply
+ * topic, so the responses travel through the reply topics of the main app as in production; the replayer
+ * reads them with its own consumer group. Deadlines keep their captured distance to the send time.
+ */
+@Slf4j
+public class TrafficReplayer implements AutoCloseable {
+
+    /**
+     * Result topics and the per-instance reply topics derived from them.
+     */
+    static final Pattern RESULT_TOPICS = Pattern.compile("^(" + Stream.of(
+                    Topics.QUESTION_GENERATE_RESULT, Topics.ANSWER_FEEDBACK_RESULT, Topics.VACANCY_PARSING_RESULT)
+            .map(Pattern::quote)
+            .reduce((left, right) -> left + "|" + right)
+            .orElseThrow() + ")(\\..+)?$");
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(50);
+
+    private final Producer<String, KafkaMessage<?>> producer;
+    private final Consumer<String, KafkaMessage<?>> consumer;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> queueing = Collections.synchronizedList(new ArrayList<>());
+    private volatile long lastResponseNanos;
+    private volatile boolean polling;
+
+    public TrafficReplayer(Producer<String, KafkaMessage<?>> producer, Consumer<String, KafkaMessage<?>> consumer) {
+        this.producer = producer;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Replayer with its own producer and consumer, sending JSON-encoded records.
+     */
+    public static TrafficReplayer connect(String bootstrapServers) {
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        producerConfig.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+
+        Map<String, Object> consumerConfig = new HashMap<>();
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "devhack-replay-" + UUID.randomUUID());
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerConfig.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // reply topics created during the run are picked up quickly
+        consumerConfig.put(ConsumerConfig.METADATA_MAX_AGE_CONFIG, 1_000);
+
+        return new TrafficReplayer(
+                new KafkaProducer<>(producerConfig, new StringSerializer(), new KafkaMessageSerializer(KafkaMessageCodecs.JSON)),
+                new KafkaConsumer<>(consumerConfig, new StringDeserializer(), new KafkaMessageDeserializer()));
+    }
+
+    /**
+     * Sends the captured requests and waits for their responses.
+     *
+     * @param speed        replay speed, 2 sends the requests twice as fast as they were captured
+     * @param drainTimeout time to wait for responses after the last request was sent
+     */
+    public ReplayReport replay(List<CapturedMessage> capture, double speed, Duration drainTimeout) throws InterruptedException {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive: " + speed);
+        }
+        List<CapturedMessage> requests = capture.stream()
+                .filter(captured -> TrafficCapture.isRequestTopic(captured.getTopic()))
+                .sorted(Comparator.comparingLong(CapturedMessage::getTimestamp))
+                .toList();
+        if (requests.isEmpty()) {
+            return ReplayReport.of(0, Duration.ZERO, List.of(), List.of());
+        }
+
+        Thread poller = startPolling();
+        long startNanos = System.nanoTime();
+        long firstTimestamp = requests.getFirst().getTimestamp();
+        try {
+            for (int index = 0; index < requests.size(); index++) {
+                CapturedMessage captured = requests.get(index);
+                long dueNanos = startNanos + (long) ((captured.getTimestamp() - firstTimestamp) * 1_000_000L / speed);
+                waitUntil(dueNanos);
+                send(captured, runId + "-" + index);
+            }
+            producer.flush();
+            log.info("Replayed {} requests at {}x, waiting for responses", requests.size(), speed);
+
+            long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+            while (!pending.isEmpty() && System.nanoTime() < drainDeadline) {
+                Thread.sleep(POLL_TIMEOUT.toMillis());
+            }
+        } finally {
+            polling = false;
+            poller.join();
+        }
+        long endNanos = latencies.isEmpty() ? System.nanoTime() : lastResponseNanos;
+        return ReplayReport.of(requests.size(), Duration.ofNanos(endNanos - startNanos), latencies, queueing);
+    }
+
+    private void send(CapturedMessage captured, String id) {
+        KafkaMessage<?> message = TrafficCapture.decode(captured);
+        Instant now = Instant.now();
+        if (message.getDeadline() != null) {
+            Long sentAt = TrafficCapture.millis(captured.getHeaders().get(MessageHeaders.SENT_AT));
+            long budget = message.getDeadline().toEpochMilli() - (sentAt != null ? sentAt : captured.getTimestamp());
+            message.setDeadline(now.plusMillis(Math.max(0L, budget)));
+        }
+        message.setId(id);
+        Map<String, String> headers = new HashMap<>();
+        copyHeader(captured, headers, MessageHeaders.REPLY_TOPIC);
+        copyHeader(captured, headers, MessageHeaders.USER_ID);
+        message.setHeaders(headers);
+
+        pending.put(id, System.nanoTime());
+        producer.send(KafkaMessageSender.toRecord(captured.getTopic(), id, message), (metadata, error) -> {
+            if (error != null) {
+                log.warn("Failed to replay request {} to {}: {}", id, captured.getTopic(), error.getMessage());
+                pending.remove(id);
+            }
+        });
+    }
+
+    private static void copyHeader(CapturedMessage captured, Map<String, String> headers, String name) {
+        String value = captured.getHeaders().get(name);
+        if (value != null) {
+            headers.put(name, value);
+        }
+    }
+
+    private Thread startPolling() throws InterruptedException {
+        CountDownLatch assigned = new CountDownLatch(1);
+        polling = true;
+        Thread poller = new Thread(() -> {
+            consumer.subscribe(RESULT_TOPICS, new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    // resolve the start positions now, responses to the first requests must not be skipped
+                    partitions.forEach(consumer::position);
+                    assigned.countDown();
+                }
+            });
+            while (polling) {
+                for (ConsumerRecord<String, KafkaMessage<?>> record : consumer.poll(POLL_TIMEOUT)) {
+                    onResponse(record);
+                }
+            }
+            consumer.unsubscribe();
+        }, "traffic-replay-poller");
+        poller.setDaemon(true);
+        poller.start();
+        if (!assigned.await(30, TimeUnit.SECONDS)) {
+            log.warn("No result topic partitions assigned yet, early responses may be missed");
+        }
+        return poller;
+    }
+
+    private void onResponse(ConsumerRecord<String, KafkaMessage<?>> record) {
+        String id = record.value() != null ? record.value().getId() : record.key();
+        Long sentNanos = id != null ? pending.remove(id) : null;
+        if (sentNanos == null) {
+            // live traffic or a response to an earlier run
+            return;
+        }
+        long now = System.nanoTime();
+        lastResponseNanos = now;
+        latencies.add(TimeUnit.NANOSECONDS.toMillis(now - sentNanos));
+        Long requestSent = headerMillis(record, MessageHeaders.HOP_PREFIX + KafkaHopRecorder.REQUEST_SENT);
+        Long providerStarted = headerMillis(record, MessageHeaders.HOP_PREFIX + KafkaHopRecorder.PROVIDER_STARTED);
+        if (requestSent != null && providerStarted != null) {
+            queueing.add(Math.max(0L, providerStarted - requestSent));
+        }
+    }
+
+    private static Long headerMillis(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && header.value() != null
+                ? TrafficCapture.millis(new String(header.value(), StandardCharsets.UTF_8))
+                : null;
+    }
+
+    private static void waitUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public void close() {
+        producer.close();
+        consumer.close();
+    }
+}
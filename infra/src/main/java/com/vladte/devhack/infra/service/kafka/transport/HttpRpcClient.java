@@ -0,0 +1,131 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Request/response over HTTP/2 as an alternative to the Kafka request and reply topics, for request types
+ * whose latency matters more than buffering, e.g. interactive answer checks.
+ * <p>
+ * The request envelope is posted as JSON to {@value #PATH}{@code <request topic>} of the receiving module;
+ * envelope headers travel as HTTP headers. The receiver answers with the response envelope in the body,
+ * so both transports carry the same message contract. All calls share one client, whose connections are
+ * multiplexed over HTTP/2 when the server supports it and pooled otherwise.
+ * <p>
+ * A request is only sent over HTTP when its message type was selected, see {@link #handles(String)}.
+ */
+public class HttpRpcClient {
+
+    public static final String PATH = "/internal/rpc/";
+    public static final String CONTENT_TYPE = "application/json";
+
+    private final URI baseUri;
+    private final Duration requestTimeout;
+    private final Set<String> messageTypes;
+    private final HttpClient httpClient;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param baseUri        base URI of the receiving module
+     * @param requestTimeout timeout of requests without a deadline
+     * @param messageTypes   message types sent over HTTP, empty to send none
+     */
+    public HttpRpcClient(URI baseUri,
+                         Duration connectTimeout,
+                         Duration requestTimeout,
+                         Set<String> messageTypes,
+                         MeterRegistry meterRegistry) {
+        this.baseUri = baseUri;
+        this.requestTimeout = requestTimeout;
+        this.messageTypes = Set.copyOf(messageTypes);
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * @return whether requests of the message type are sent over HTTP
+     */
+    public boolean handles(String messageType) {
+        return messageType != null && messageTypes.contains(messageType);
+    }
+
+    /**
+     * Sends a request and returns its response. The request times out at its deadline.
+     *
+     * @param topic         request topic, selects the handler of the receiver
+     * @param responseTopic topic the response would be published to over Kafka, decides the payload type
+     * @return a future of the response envelope; it fails with {@link TimeoutException} when the deadline passed
+     * or the receiver dropped the expired request, with {@link java.io.IOException} when the receiver is unreachable
+     */
+    public CompletableFuture<KafkaMessage<?>> call(String topic, String responseTopic, KafkaMessage<?> request) {
+        Duration timeout = timeout(request);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(PATH + topic))
+                .timeout(timeout)
+                .header("Content-Type", CONTENT_TYPE)
+                .header("Accept", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(KafkaMessageCodecs.JSON.encode(request)));
+        request.getHeaders().forEach((name, value) -> {
+            if (value != null && name.startsWith(MessageHeaders.PREFIX)) {
+                builder.header(name, value);
+            }
+        });
+
+        long start = System.nanoTime();
+        Class<?> payloadType = Topics.payloadType(responseTopic);
+        CompletableFuture<KafkaMessage<?>> response = httpClient
+                .sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(httpResponse -> decode(request, httpResponse, payloadType));
+        response.whenComplete((result, ex) ->
+                callTimer(topic, ex == null ? "success" : "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return response;
+    }
+
+    private KafkaMessage<?> decode(KafkaMessage<?> request, HttpResponse<byte[]> httpResponse, Class<?> payloadType) {
+        int status = httpResponse.statusCode();
+        if (status == 200) {
+            return KafkaMessageCodecs.JSON.decode(httpResponse.body(), payloadType);
+        }
+        if (status == 504) {
+            throw new CompletionException(new TimeoutException("Request " + request.getId() + " expired before it was answered"));
+        }
+        throw new CompletionException(new IllegalStateException("Request " + request.getId() + " failed with HTTP " + status));
+    }
+
+    private Duration timeout(KafkaMessage<?> request) {
+        Instant deadline = request.getDeadline();
+        if (deadline == null) {
+            return requestTimeout;
+        }
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        // HttpClient rejects non-positive timeouts, an expired request fails right away
+        return remaining.compareTo(Duration.ofMillis(1)) < 0 ? Duration.ofMillis(1) : remaining;
+    }
+
+    private Timer callTimer(String topic, String outcome) {
+        return Timer.builder("devhack.kafka.rpc.call")
+                .description("Round trip of requests sent over HTTP instead of Kafka")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
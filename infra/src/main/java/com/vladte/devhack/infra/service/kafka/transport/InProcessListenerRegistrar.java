@@ -0,0 +1,102 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Moves the {@code @KafkaListener}s of the application from the broker to the {@link InProcessMessageBus}.
+ * As a {@link ContainerCustomizer} it keeps the listener containers from starting, remembering the ones that
+ * would have started; on start it subscribes their listeners to the bus with the container's topics and
+ * concurrency. The listeners keep their filters and argument resolution, they just receive records from the bus.
+ * <p>
+ * Retry topics are not used in-process: a record whose listener fails is logged and dropped.
+ * Records on the bus have no offsets to commit, listeners acknowledging manually get an acknowledgment that does nothing.
+ */
+public class InProcessListenerRegistrar
+        implements ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessListenerRegistrar.class);
+    private static final int DEFAULT_MAX_POLL_RECORDS = 500;
+    private static final Acknowledgment NO_OFFSET = () -> {
+    };
+
+    private final InProcessMessageBus bus;
+    private final int capacity;
+    private final List<ConcurrentMessageListenerContainer<Object, Object>> containers = new ArrayList<>();
+    private final List<InProcessMessageBus.Subscription> subscriptions = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * @param capacity queue capacity of every subscription
+     */
+    public InProcessListenerRegistrar(InProcessMessageBus bus, int capacity) {
+        this.bus = bus;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void configure(ConcurrentMessageListenerContainer<Object, Object> container) {
+        if (container.isAutoStartup()) {
+            containers.add(container);
+        }
+        container.setAutoStartup(false);
+    }
+
+    @Override
+    public synchronized void start() {
+        for (ConcurrentMessageListenerContainer<Object, Object> container : containers) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (topics == null) {
+                log.warn("Listener {} does not name its topics, it is not subscribed in-process", container.getListenerId());
+                continue;
+            }
+            Object listener = container.getContainerProperties().getMessageListener();
+            for (String topic : topics) {
+                subscriptions.add(subscribe(container, topic, listener));
+            }
+        }
+        running = true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private InProcessMessageBus.Subscription subscribe(ConcurrentMessageListenerContainer<Object, Object> container,
+                                                       String topic, Object listener) {
+        String name = container.getListenerId() != null ? container.getListenerId() : topic;
+        if (listener instanceof BatchMessageListener batchListener) {
+            return bus.subscribe(topic, name, capacity, container.getConcurrency(), maxPollRecords(container),
+                    records -> batchListener.onMessage(records, NO_OFFSET, null));
+        }
+        MessageListener recordListener = (MessageListener) listener;
+        return bus.subscribe(topic, name, capacity, container.getConcurrency(), 1,
+                records -> records.forEach(record -> recordListener.onMessage(record, NO_OFFSET, null)));
+    }
+
+    private static int maxPollRecords(ConcurrentMessageListenerContainer<Object, Object> container) {
+        Properties properties = container.getContainerProperties().getKafkaConsumerProperties();
+        String maxPollRecords = properties.getProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG);
+        return maxPollRecords != null ? Integer.parseInt(maxPollRecords.trim()) : DEFAULT_MAX_POLL_RECORDS;
+    }
+
+    @Override
+    public synchronized void stop() {
+        subscriptions.forEach(InProcessMessageBus.Subscription::close);
+        subscriptions.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
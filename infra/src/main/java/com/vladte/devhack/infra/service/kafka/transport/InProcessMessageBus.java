@@ -0,0 +1,184 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM replacement of the Kafka broker for single-node deployments and benchmarks.
+ * Records are handed to the listeners of their topic by reference: no serialization, no network hop.
+ * <p>
+ * Every subscription has a bounded queue served by its own worker threads. Each subscription receives every
+ * record of its topics, like a consumer group of its own; records of one key are only ordered when the
+ * subscription has a single worker. A sender waits up to the offer timeout for queue space and then fails,
+ * so a slow listener slows its senders down instead of growing the heap.
+ */
+public class InProcessMessageBus implements MessageTransport, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessMessageBus.class);
+
+    private final Duration offerTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong offsets = new AtomicLong();
+    private final Counter rejectedCounter;
+
+    public InProcessMessageBus(Duration offerTimeout, MeterRegistry meterRegistry) {
+        this.offerTimeout = offerTimeout;
+        this.meterRegistry = meterRegistry;
+        this.rejectedCounter = Counter.builder("devhack.kafka.inprocess.rejected")
+                .description("Records rejected because a subscription queue stayed full for the offer timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes a listener to a topic.
+     *
+     * @param name         name of the subscription, used for its worker threads and metrics
+     * @param capacity     maximum number of records waiting in the queue of the subscription
+     * @param workers      number of threads delivering records to the listener
+     * @param maxBatchSize maximum number of records delivered per call; 1 delivers them one by one
+     * @param listener     receives the records, in queue order per worker
+     * @return the subscription; closing it stops its workers
+     */
+    public Subscription subscribe(String topic, String name, int capacity, int workers, int maxBatchSize,
+                                  Consumer<List<ConsumerRecord<String, KafkaMessage<?>>>> listener) {
+        Subscription subscription = new Subscription(topic, name, capacity, workers, Math.max(1, maxBatchSize), listener);
+        subscriptions.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(subscription);
+        log.info("Subscribed {} to in-process topic {} with {} workers", name, topic, workers);
+        return subscription;
+    }
+
+    @Override
+    public <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record) {
+        List<Subscription> targets = subscriptions.getOrDefault(record.topic(), List.of());
+        if (targets.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "No in-process listener is subscribed to topic " + record.topic()));
+        }
+        long offset = offsets.getAndIncrement();
+        long timestamp = record.timestamp() != null ? record.timestamp() : System.currentTimeMillis();
+        try {
+            for (Subscription subscription : targets) {
+                subscription.offer(toConsumerRecord(record, offset, timestamp));
+            }
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), offset, 0, timestamp, -1, -1);
+        return CompletableFuture.completedFuture(new SendResult<>(record, metadata));
+    }
+
+    @Override
+    public void close() {
+        subscriptions.values().forEach(topicSubscriptions -> topicSubscriptions.forEach(Subscription::close));
+        subscriptions.clear();
+    }
+
+    private static ConsumerRecord<String, KafkaMessage<?>> toConsumerRecord(ProducerRecord<String, ? extends KafkaMessage<?>> record,
+                                                                          long offset, long timestamp) {
+        return new ConsumerRecord<>(record.topic(), 0, offset, timestamp, TimestampType.CREATE_TIME, -1, -1,
+                record.key(), record.value(), new RecordHeaders(record.headers().toArray()), Optional.empty());
+    }
+
+    /**
+     * Listener of a topic with its queue and workers.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String topic;
+        private final String name;
+        private final int maxBatchSize;
+        private final BlockingQueue<ConsumerRecord<String, KafkaMessage<?>>> queue;
+        private final Consumer<List<ConsumerRecord<String, KafkaMessage<?>>>> listener;
+        private final List<Thread> workers = new ArrayList<>();
+        private final Gauge depthGauge;
+        private volatile boolean running = true;
+
+        private Subscription(String topic, String name, int capacity, int workerCount, int maxBatchSize,
+                             Consumer<List<ConsumerRecord<String, KafkaMessage<?>>>> listener) {
+            this.topic = topic;
+            this.name = name;
+            this.maxBatchSize = maxBatchSize;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.listener = listener;
+            this.depthGauge = Gauge.builder("devhack.kafka.inprocess.queued", queue, BlockingQueue::size)
+                    .description("Records waiting in the queue of an in-process subscription")
+                    .tag("topic", topic)
+                    .tag("subscription", name)
+                    .register(meterRegistry);
+            for (int i = 0; i < Math.max(1, workerCount); i++) {
+                Thread worker = new Thread(this::work, "inprocess-" + name + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        private void offer(ConsumerRecord<String, KafkaMessage<?>> record) throws InterruptedException {
+            if (!queue.offer(record, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("In-process subscription " + name + " of topic " + topic
+                        + " stayed full for " + offerTimeout);
+            }
+        }
+
+        private void work() {
+            List<ConsumerRecord<String, KafkaMessage<?>>> batch = new ArrayList<>(maxBatchSize);
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    listener.accept(List.copyOf(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("In-process listener {} failed on {} records of {}: {}",
+                            name, batch.size(), topic, e.getMessage(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            workers.forEach(Thread::interrupt);
+            List<Subscription> topicSubscriptions = subscriptions.get(topic);
+            if (topicSubscriptions != null) {
+                topicSubscriptions.remove(this);
+            }
+            meterRegistry.remove(depthGauge);
+        }
+    }
+}
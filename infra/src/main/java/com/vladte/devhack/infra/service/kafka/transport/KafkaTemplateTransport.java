@@ -0,0 +1,26 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends records to the Kafka broker.
+ */
+public class KafkaTemplateTransport implements MessageTransport {
+
+    private final KafkaTemplate<String, ? extends KafkaMessage<?>> kafkaTemplate;
+
+    public KafkaTemplateTransport(KafkaTemplate<String, ? extends KafkaMessage<?>> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record) {
+        return ((KafkaTemplate<String, V>) kafkaTemplate).send(record);
+    }
+}
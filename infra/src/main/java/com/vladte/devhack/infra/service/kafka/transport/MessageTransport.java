@@ -0,0 +1,19 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries message records from senders to listeners: the Kafka broker ({@link KafkaTemplateTransport}),
+ * or the in-JVM bus of single-node deployments ({@link InProcessMessageBus}).
+ */
+public interface MessageTransport {
+
+    /**
+     * @return a future completed once the transport accepted the record
+     */
+    <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record);
+}
@@ -1,5 +1,13 @@
 package com.vladte.devhack.infra.topics;
 
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.model.payload.response.VacancyParseResponsePayload;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Centralized definition of Kafka topics used for communication between modules.
  * This class contains constants for all topics used in the application.
@@ -10,6 +18,9 @@ public class Topics {
     // New specific topic names for question generation
     public static final String QUESTION_GENERATE_REQUEST = "question.generate.request";
     public static final String QUESTION_GENERATE_RESULT = "question.generate.result";
+    // Bulk lane of question generation: multi-tag runs are consumed by their own listeners,
+    // so they never queue in front of interactive requests
+    public static final String QUESTION_GENERATE_BULK_REQUEST = QUESTION_GENERATE_REQUEST + ".bulk";
 
     // New specific topic names for answer feedback
     public static final String ANSWER_FEEDBACK_REQUEST = "answer.feedback.request";
@@ -19,6 +30,47 @@ public class Topics {
     public static final String VACANCY_PARSING_REQUEST = "vacancy.parsing.request";
     public static final String VACANCY_PARSING_RESULT = "vacancy.parsing.result";
 
+    // Payload type carried by the messages of every topic
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            QUESTION_GENERATE_REQUEST, AiRenderedRequestPayload.class,
+            QUESTION_GENERATE_BULK_REQUEST, AiRenderedRequestPayload.class,
+            QUESTION_GENERATE_RESULT, QuestionGenerateResponsePayload.class,
+            ANSWER_FEEDBACK_REQUEST, AiRenderedRequestPayload.class,
+            ANSWER_FEEDBACK_RESULT, AnswerCheckResponsePayload.class,
+            VACANCY_PARSING_REQUEST, AiRenderedRequestPayload.class,
+            VACANCY_PARSING_RESULT, VacancyParseResponsePayload.class
+    );
+
+    private static final Map<String, Class<?>> RESOLVED_PAYLOAD_TYPES = new ConcurrentHashMap<>(PAYLOAD_TYPES);
+
+    /**
+     * Payload type of the messages published to a topic.
+     * Reply topics ({@code <topic>.<instance>}) and retry or dead letter topics ({@code <topic>-retry-0}, {@code <topic>-dlt})
+     * resolve to the payload type of the topic they derive from.
+     *
+     * @param topic the topic name
+     * @return the payload type, or {@code Object.class} for unknown topics
+     */
+    public static Class<?> payloadType(String topic) {
+        return RESOLVED_PAYLOAD_TYPES.computeIfAbsent(topic, name -> PAYLOAD_TYPES.entrySet().stream()
+                .filter(entry -> name.startsWith(entry.getKey() + ".") || name.startsWith(entry.getKey() + "-"))
+                .<Class<?>>map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(Object.class));
+    }
+
+    /**
+     * Name of the per-instance reply topic for a result topic.
+     * Every main-app instance consumes its own reply topics, so responses reach the node waiting for them.
+     *
+     * @param resultTopic the shared result topic, e.g. {@link #QUESTION_GENERATE_RESULT}
+     * @param instanceId  the identifier of the receiving instance
+     * @return the reply topic name
+     */
+    public static String replyTopic(String resultTopic, String instanceId) {
+        return resultTopic + "." + instanceId;
+    }
+
     private Topics() {
         // Private constructor to prevent instantiation
     }
@@ -0,0 +1,94 @@
+package com.vladte.devhack.infra.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Compares the JSON path (JsonSerializer, JsonDeserializer and convertValue of the untyped payload)
+ * with the codec path (KafkaMessageSerializer and typed KafkaMessageDeserializer).
+ * Excluded from the regular test run, start it with {@code gradle :infra:benchmark}.
+ */
+@Test(groups = "benchmark")
+public class KafkaMessageCodecBenchmark {
+
+    private static final String TOPIC = Topics.QUESTION_GENERATE_REQUEST;
+    private static final int WARMUP_ROUNDS = 50_000;
+    private static final int ROUNDS = 200_000;
+
+    private final KafkaMessage<AiRenderedRequestPayload> message = KafkaMessageCodecTest.request();
+
+    @Test
+    public void jsonWithConvertValue() {
+        ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+        try (JsonSerializer<KafkaMessage<?>> serializer = new JsonSerializer<>();
+             JsonDeserializer<KafkaMessage<?>> deserializer = new JsonDeserializer<>()) {
+            deserializer.addTrustedPackages("com.vladte.devhack.infra.model");
+
+            measure("json + convertValue", () -> {
+                Headers headers = new RecordHeaders();
+                byte[] data = serializer.serialize(TOPIC, headers, message);
+                KafkaMessage<?> raw = deserializer.deserialize(TOPIC, headers, data);
+                AiRenderedRequestPayload payload = objectMapper.convertValue(raw.getPayload(), AiRenderedRequestPayload.class);
+                return KafkaMessage.<AiRenderedRequestPayload>builder()
+                        .id(raw.getId())
+                        .source(raw.getSource())
+                        .destination(raw.getDestination())
+                        .type(raw.getType())
+                        .timestamp(raw.getTimestamp())
+                        .payload(payload)
+                        .headers(raw.getHeaders())
+                        .build();
+            }, serializer.serialize(TOPIC, new RecordHeaders(), message).length);
+        }
+    }
+
+    @Test
+    public void jsonCodec() {
+        runCodec(KafkaMessageCodecs.JSON);
+    }
+
+    @Test
+    public void smileCodec() {
+        runCodec(KafkaMessageCodecs.SMILE);
+    }
+
+    private void runCodec(KafkaMessageCodec codec) {
+        KafkaMessageSerializer serializer = new KafkaMessageSerializer(codec);
+        KafkaMessageDeserializer deserializer = new KafkaMessageDeserializer();
+        measure(codec.name() + " codec", () -> {
+            Headers headers = new RecordHeaders();
+            return deserializer.deserialize(TOPIC, headers, serializer.serialize(TOPIC, headers, message));
+        }, codec.encode(message).length);
+    }
+
+    private static void measure(String name, Supplier<KafkaMessage<?>> roundTrip, int encodedSize) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            roundTrip.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            if (!(roundTrip.get().getPayload() instanceof AiRenderedRequestPayload)) {
+                throw new IllegalStateException("Payload was not decoded to its type");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-20s %4d bytes/record  %,10.0f round trips/s  %,7d bytes allocated/round trip%n",
+                name, encodedSize, ROUNDS / (elapsed / 1_000_000_000.0), allocated / ROUNDS);
+    }
+}
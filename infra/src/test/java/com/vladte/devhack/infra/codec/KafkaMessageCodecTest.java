@@ -0,0 +1,148 @@
+package com.vladte.devhack.infra.codec;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.arguments.response.QuestionGenerateResponseArguments;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.QuestionGenerateResponsePayload;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class KafkaMessageCodecTest {
+
+    private final KafkaMessageSerializer serializer = new KafkaMessageSerializer();
+    private final KafkaMessageDeserializer deserializer = new KafkaMessageDeserializer();
+
+    @Test
+    public void smile_shouldDecodeTypedRequestPayload() {
+        Headers headers = new RecordHeaders();
+        KafkaMessage<AiRenderedRequestPayload> request = request();
+
+        byte[] data = serializer.serialize(Topics.QUESTION_GENERATE_REQUEST, headers, request);
+        KafkaMessage<?> decoded = deserializer.deserialize(Topics.QUESTION_GENERATE_REQUEST, headers, data);
+
+        Assert.assertEquals(new String(headers.lastHeader(MessageHeaders.CODEC).value(), StandardCharsets.UTF_8), "smile");
+        Assert.assertTrue(decoded.getPayload() instanceof AiRenderedRequestPayload);
+        Assert.assertEquals(decoded.getPayload(), request.getPayload());
+        Assert.assertEquals(decoded.getId(), request.getId());
+        Assert.assertEquals(decoded.getTimestamp(), request.getTimestamp());
+    }
+
+    @Test
+    public void replyTopic_shouldResolvePayloadTypeOfResultTopic() {
+        Headers headers = new RecordHeaders();
+        String replyTopic = Topics.replyTopic(Topics.QUESTION_GENERATE_RESULT, "node-1");
+        KafkaMessage<QuestionGenerateResponsePayload> response = KafkaMessage.<QuestionGenerateResponsePayload>builder()
+                .id("id-1")
+                .payload(QuestionGenerateResponsePayload.fromGeneratedText("first\nsecond"))
+                .build();
+
+        byte[] data = serializer.serialize(replyTopic, headers, response);
+        KafkaMessage<?> decoded = deserializer.deserialize(replyTopic, headers, data);
+
+        QuestionGenerateResponsePayload payload = (QuestionGenerateResponsePayload) decoded.getPayload();
+        QuestionGenerateResponseArguments arguments = payload.getArguments();
+        Assert.assertEquals(arguments.getQuestions(), new String[]{"first", "second"});
+    }
+
+    @Test
+    public void recordWithoutCodecHeader_shouldBeReadAsJson() {
+        Headers headers = new RecordHeaders();
+        KafkaMessage<AiRenderedRequestPayload> request = request();
+        byte[] data;
+        try (JsonSerializer<KafkaMessage<?>> legacySerializer = new JsonSerializer<>()) {
+            legacySerializer.setAddTypeInfo(false);
+            data = legacySerializer.serialize(Topics.QUESTION_GENERATE_REQUEST, headers, request);
+        }
+
+        KafkaMessage<?> decoded = deserializer.deserialize(Topics.QUESTION_GENERATE_REQUEST, headers, data);
+
+        Assert.assertEquals(decoded.getPayload(), request.getPayload());
+    }
+
+    @Test
+    public void unknownTopic_shouldKeepUntypedPayload() {
+        Headers headers = new RecordHeaders();
+
+        byte[] data = serializer.serialize("unknown.topic", headers, request());
+        KafkaMessage<?> decoded = deserializer.deserialize("unknown.topic", headers, data);
+
+        Assert.assertTrue(decoded.getPayload() instanceof Map);
+    }
+
+    @Test
+    public void envelopeHeaders_shouldDeferPayloadDecoding() {
+        Headers headers = envelopeHeaders();
+        byte[] encoded = serializer.serialize(Topics.QUESTION_GENERATE_REQUEST, headers, request());
+        byte[] data = Arrays.copyOf(encoded, encoded.length / 2); // a truncated body only fails once the payload is read
+
+        KafkaMessage<?> decoded = deserializer.deserialize(Topics.QUESTION_GENERATE_REQUEST, headers, data);
+
+        Assert.assertEquals(decoded.getId(), "id-1");
+        Assert.assertEquals(decoded.getType(), "question-generate");
+        Assert.assertEquals(decoded.getDestination(), "ai-app");
+        Assert.assertThrows(SerializationException.class, decoded::getPayload);
+    }
+
+    @Test
+    public void envelopeHeaders_shouldDecodePayloadOnFirstAccess() {
+        Headers headers = envelopeHeaders();
+        KafkaMessage<AiRenderedRequestPayload> request = request();
+        byte[] data = serializer.serialize(Topics.QUESTION_GENERATE_REQUEST, headers, request);
+
+        KafkaMessage<?> decoded = deserializer.deserialize(Topics.QUESTION_GENERATE_REQUEST, headers, data);
+
+        Assert.assertEquals(decoded.getPayload(), request.getPayload());
+        Assert.assertSame(decoded.getPayload(), decoded.getPayload());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void forName_shouldRejectUnknownCodec() {
+        KafkaMessageCodecs.forName("xml");
+    }
+
+    private static Headers envelopeHeaders() {
+        Headers headers = new RecordHeaders();
+        headers.add(MessageHeaders.MESSAGE_ID, "id-1".getBytes(StandardCharsets.UTF_8));
+        headers.add(MessageHeaders.TYPE, "question-generate".getBytes(StandardCharsets.UTF_8));
+        headers.add(MessageHeaders.DESTINATION, "ai-app".getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    static KafkaMessage<AiRenderedRequestPayload> request() {
+        AiRenderedRequestPayload payload = AiRenderedRequestPayload.builder()
+                .promptKey("question.generate")
+                .arguments(JsonNodeFactory.instance.objectNode().put("tag", "Java").put("count", 3))
+                .responseContract(JsonNodeFactory.instance.objectNode().put("type", "array"))
+                .model("gpt-4o-mini")
+                .language("en")
+                .parameters(Map.of("temperature", 0.7, "max_tokens", 512))
+                .version(1)
+                .input("Generate 3 easy questions about Java")
+                .messages(List.of(
+                        new Message("system", "You are an interviewer"),
+                        new Message("user", "Generate 3 easy questions about Java")))
+                .build();
+        return KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id("id-1")
+                .source("main-app")
+                .destination("ai-app")
+                .type("question-generate")
+                .payload(payload)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
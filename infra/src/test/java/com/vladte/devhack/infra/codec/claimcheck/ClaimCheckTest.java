@@ -0,0 +1,92 @@
+package com.vladte.devhack.infra.codec.claimcheck;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ClaimCheckTest {
+
+    private Path directory;
+    private ClaimCheck claimCheck;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("claim-check");
+        claimCheck = new ClaimCheck(new FileSystemBlobStore(directory), 1_024);
+    }
+
+    @Test
+    public void serialize_shouldCheckInValuesAboveThreshold() {
+        Headers headers = new RecordHeaders();
+        KafkaMessage<AiRenderedRequestPayload> request = request("x".repeat(10_000));
+
+        byte[] data = new KafkaMessageSerializer(KafkaMessageCodecs.SMILE, claimCheck)
+                .serialize(Topics.VACANCY_PARSING_REQUEST, headers, request);
+        KafkaMessage<?> decoded = new KafkaMessageDeserializer(claimCheck)
+                .deserialize(Topics.VACANCY_PARSING_REQUEST, headers, data);
+
+        String reference = new String(headers.lastHeader(MessageHeaders.CLAIM_CHECK).value(), StandardCharsets.UTF_8);
+        Assert.assertEquals(data.length, 0);
+        Assert.assertTrue(reference.startsWith(Topics.VACANCY_PARSING_REQUEST + "/"), reference);
+        Assert.assertTrue(Files.exists(directory.resolve(reference)));
+        Assert.assertEquals(decoded.getPayload(), request.getPayload());
+    }
+
+    @Test
+    public void serialize_shouldSendSmallValuesInline() {
+        Headers headers = new RecordHeaders();
+        KafkaMessage<AiRenderedRequestPayload> request = request("short");
+
+        byte[] data = new KafkaMessageSerializer(KafkaMessageCodecs.SMILE, claimCheck)
+                .serialize(Topics.VACANCY_PARSING_REQUEST, headers, request);
+
+        Assert.assertNull(headers.lastHeader(MessageHeaders.CLAIM_CHECK));
+        Assert.assertEquals(new KafkaMessageDeserializer().deserialize(Topics.VACANCY_PARSING_REQUEST, headers, data)
+                .getPayload(), request.getPayload());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void deserialize_shouldFailForReferenceWithoutBlobStore() {
+        Headers headers = new RecordHeaders();
+        byte[] data = new KafkaMessageSerializer(KafkaMessageCodecs.SMILE, claimCheck)
+                .serialize(Topics.VACANCY_PARSING_REQUEST, headers, request("x".repeat(10_000)));
+
+        new KafkaMessageDeserializer().deserialize(Topics.VACANCY_PARSING_REQUEST, headers, data);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void fileSystemBlobStore_shouldRejectKeysOutsideItsDirectory() {
+        new FileSystemBlobStore(directory).get("../outside");
+    }
+
+    private static KafkaMessage<AiRenderedRequestPayload> request(String description) {
+        return KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id("id-1")
+                .type("vacancy-parse")
+                .payload(AiRenderedRequestPayload.builder()
+                        .promptKey("vacancy.parse")
+                        .version(1)
+                        .arguments(JsonNodeFactory.instance.objectNode().put("length", description.length()))
+                        .responseContract(JsonNodeFactory.instance.objectNode().put("type", "object"))
+                        .messages(List.of(new Message("user", description)))
+                        .build())
+                .build();
+    }
+}
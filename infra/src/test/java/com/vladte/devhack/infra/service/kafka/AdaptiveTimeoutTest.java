@@ -0,0 +1,141 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdaptiveTimeoutTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveTimeout timeout;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        timeout = new AdaptiveTimeout("test", Duration.ofSeconds(60), Duration.ofSeconds(1), Duration.ofSeconds(30),
+                0.9, 2.0, 10, 5, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    @Test
+    public void timeoutFor_shouldUseInitialTimeoutUntilEnoughSamples() {
+        for (int i = 0; i < 4; i++) {
+            timeout.record("check", Duration.ofSeconds(2));
+        }
+
+        Assert.assertEquals(timeout.timeoutFor("check"), Duration.ofSeconds(60));
+        Assert.assertEquals(timeout.timeoutFor("other"), Duration.ofSeconds(60));
+    }
+
+    @Test
+    public void timeoutFor_shouldFollowPercentileOfEachType() {
+        for (int i = 1; i <= 10; i++) {
+            timeout.record("check", Duration.ofMillis(i * 1_000L));
+            timeout.record("parse", Duration.ofMillis(500));
+        }
+
+        // p90 of 1..10 s is 9 s, times two
+        Assert.assertEquals(timeout.timeoutFor("check"), Duration.ofSeconds(18));
+        // twice 500 ms lies below the minimum
+        Assert.assertEquals(timeout.timeoutFor("parse"), Duration.ofSeconds(1));
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.timeout.adaptive").tag("type", "check").gauge().value(), 18.0);
+    }
+
+    @Test
+    public void timeoutFor_shouldForgetSamplesOutsideTheWindow() {
+        for (int i = 0; i < 10; i++) {
+            timeout.record("check", Duration.ofSeconds(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            timeout.record("check", Duration.ofSeconds(3));
+        }
+
+        Assert.assertEquals(timeout.timeoutFor("check"), Duration.ofSeconds(6));
+    }
+
+    @Test
+    public void timeoutFor_shouldNotExceedMaximum() {
+        for (int i = 0; i < 10; i++) {
+            timeout.record("check", Duration.ofSeconds(25));
+        }
+
+        Assert.assertEquals(timeout.timeoutFor("check"), Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void pendingRequestManager_shouldTimeOutByObservedLatency() throws Exception {
+        AdaptiveTimeout fast = new AdaptiveTimeout("test", Duration.ofSeconds(60), Duration.ofMillis(50),
+                Duration.ofSeconds(30), 0.9, 2.0, 10, 1, Duration.ofMinutes(10), meterRegistry);
+        try (PendingRequestManager<AnswerCheckResponseArguments> manager = new PendingRequestManager<>(
+                "test", Duration.ofSeconds(60), 10, Duration.ofMillis(10), 8, fast, meterRegistry)) {
+            manager.register("id-1", "check");
+            manager.complete("id-1", AnswerCheckResponseArguments.builder().build());
+
+            manager.register("id-2", "check");
+            Duration remaining = manager.remaining("id-2");
+
+            Assert.assertTrue(remaining.compareTo(Duration.ofMillis(50)) <= 0, "Remaining time " + remaining);
+            Assert.assertEquals(manager.remaining("unknown"), Duration.ZERO);
+        }
+    }
+
+    @Test
+    public void expired_shouldRaiseTheTimeoutUpToMaximum() {
+        for (int i = 0; i < 5; i++) {
+            timeout.record("check", Duration.ofSeconds(2));
+        }
+        Duration learned = timeout.timeoutFor("check");
+
+        timeout.expired("check", learned);
+        timeout.expired("check", learned);
+
+        Assert.assertEquals(timeout.timeoutFor("check"), learned.multipliedBy(2),
+                "Requests that expired together raise the timeout once");
+        for (int i = 0; i < 5; i++) {
+            timeout.expired("check", timeout.timeoutFor("check"));
+        }
+        Assert.assertEquals(timeout.timeoutFor("check"), Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void timeoutFor_shouldForgetOldSamples() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveTimeout aging = new AdaptiveTimeout("test", Duration.ofSeconds(60), Duration.ofSeconds(1),
+                Duration.ofSeconds(30), 0.9, 2.0, 10, 2, Duration.ofMinutes(10), meterRegistry, clock::get);
+        for (int i = 0; i < 9; i++) {
+            aging.record("check", Duration.ofSeconds(10));
+        }
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        aging.record("check", Duration.ofSeconds(2));
+        Assert.assertEquals(aging.timeoutFor("check"), Duration.ofSeconds(20), "A single recent sample is too few");
+        aging.record("check", Duration.ofSeconds(2));
+
+        Assert.assertEquals(aging.timeoutFor("check"), Duration.ofSeconds(4));
+    }
+
+    @Test
+    public void pendingRequestManager_shouldRaiseTheTimeoutOfExpiredRequests() throws Exception {
+        AdaptiveTimeout fast = new AdaptiveTimeout("test", Duration.ofMillis(50), Duration.ofMillis(50),
+                Duration.ofSeconds(30), 0.9, 2.0, 10, 1, Duration.ofMinutes(10), meterRegistry);
+        try (PendingRequestManager<AnswerCheckResponseArguments> manager = new PendingRequestManager<>(
+                "test", Duration.ofSeconds(60), 10, Duration.ofMillis(10), 8, fast, meterRegistry)) {
+            for (int i = 1; i <= 3; i++) {
+                Duration previous = fast.timeoutFor("check");
+                CompletableFuture<AnswerCheckResponseArguments> future = manager.register("id-" + i, "check");
+
+                Assert.expectThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+                Assert.assertTrue(fast.timeoutFor("check").compareTo(previous) > 0,
+                        "Timeout " + fast.timeoutFor("check") + " after expiry " + i);
+            }
+        }
+    }
+}
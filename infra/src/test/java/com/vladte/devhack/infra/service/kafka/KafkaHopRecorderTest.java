@@ -0,0 +1,89 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class KafkaHopRecorderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaHopRecorder recorder;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new KafkaHopRecorder(meterRegistry);
+    }
+
+    @Test
+    public void record_shouldMeasureEveryHopOfTheRoundTrip() {
+        KafkaMessage<String> request = message("id-1", MessageTypes.QUESTION_GENERATE.getValue());
+        request.getHeaders().put(MessageHeaders.SENT_AT, "1000");
+        KafkaHopRecorder.stampReceived(request);
+        KafkaHopRecorder.stamp(request, KafkaHopRecorder.REQUEST_RECEIVED, 1010);
+        KafkaHopRecorder.stamp(request, KafkaHopRecorder.PROVIDER_STARTED, 1015);
+        KafkaHopRecorder.stamp(request, KafkaHopRecorder.PROVIDER_FINISHED, 3015);
+
+        KafkaMessage<String> response = message("id-1", MessageTypes.QUESTION_GENERATE_RESULT.getValue());
+        KafkaHopRecorder.propagate(request, response);
+        response.getHeaders().put(MessageHeaders.SENT_AT, "3020");
+        recorder.record(response, 3050);
+
+        String type = MessageTypes.QUESTION_GENERATE.getValue();
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_REQUEST_QUEUE), 10.0);
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_AI_QUEUE), 5.0);
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_PROVIDER_CALL), 2000.0);
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_RESPONSE_PUBLISH), 5.0);
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_RESPONSE_QUEUE), 30.0);
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_ROUND_TRIP), 2050.0);
+    }
+
+    @Test
+    public void record_shouldSkipHopsWithoutTimestamps() {
+        KafkaMessage<String> response = message("id-2", MessageTypes.CHECK_ANSWER_RESULT.getValue());
+        response.getHeaders().put(MessageHeaders.SENT_AT, "2000");
+        recorder.record(response, 2040);
+
+        String type = MessageTypes.CHECK_ANSWER_RESULT.getValue();
+        Assert.assertEquals(hopMillis(type, KafkaHopRecorder.HOP_RESPONSE_QUEUE), 40.0);
+        Assert.assertNull(meterRegistry.find(KafkaHopRecorder.METRIC).tag("hop", KafkaHopRecorder.HOP_ROUND_TRIP).timer());
+    }
+
+    @Test
+    public void record_shouldPublishPercentiles() {
+        KafkaMessage<String> response = message("id-3", MessageTypes.VACANCY_PARSING_RESULT.getValue());
+        for (int i = 1; i <= 100; i++) {
+            response.getHeaders().put(MessageHeaders.SENT_AT, "0");
+            recorder.record(response, i);
+        }
+
+        Timer timer = meterRegistry.get(KafkaHopRecorder.METRIC)
+                .tag("hop", KafkaHopRecorder.HOP_RESPONSE_QUEUE)
+                .timer();
+        Assert.assertEquals(timer.count(), 100);
+        Assert.assertEquals(timer.takeSnapshot().percentileValues().length, 3);
+    }
+
+    private double hopMillis(String type, String hop) {
+        return meterRegistry.get(KafkaHopRecorder.METRIC)
+                .tag("type", type)
+                .tag("hop", hop)
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    private static KafkaMessage<String> message(String id, String type) {
+        return KafkaMessage.<String>builder()
+                .id(id)
+                .type(type)
+                .payload("payload")
+                .build();
+    }
+}
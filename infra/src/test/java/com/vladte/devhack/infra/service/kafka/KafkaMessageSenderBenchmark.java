@@ -0,0 +1,159 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.transport.InProcessMessageBus;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares one-by-one awaited sends with batched sends against an embedded broker,
+ * and with sends over the in-process bus that replaces the broker on single-node deployments.
+ * Excluded from the regular test run, start it with {@code gradle :infra:benchmark}.
+ */
+@Test(groups = "benchmark")
+public class KafkaMessageSenderBenchmark {
+
+    private static final String TOPIC = "benchmark-requests";
+    private static final int MESSAGES = 5_000;
+    private static final int WARMUP_MESSAGES = 500;
+    private static final int BATCH_SIZE = 100;
+    private static final String PAYLOAD = "Generate 3 easy interview questions about Java concurrency. ".repeat(8);
+
+    private EmbeddedKafkaKraftBroker broker;
+    private DefaultKafkaProducerFactory<String, KafkaMessage<String>> producerFactory;
+    private BenchmarkSender sender;
+
+    @BeforeClass(alwaysRun = true)
+    public void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaMessageSerializer.class);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, 65_536);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producerFactory = new DefaultKafkaProducerFactory<>(config);
+        sender = new BenchmarkSender(new KafkaTemplate<>(producerFactory));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopBroker() {
+        if (producerFactory != null) {
+            producerFactory.destroy();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+
+    @Test
+    public void singleSends() {
+        runSingle(WARMUP_MESSAGES);
+        long start = System.nanoTime();
+        runSingle(MESSAGES);
+        report("single send", System.nanoTime() - start);
+    }
+
+    @Test
+    public void batchedSends() {
+        runBatched(WARMUP_MESSAGES);
+        long start = System.nanoTime();
+        runBatched(MESSAGES);
+        report("batched send", System.nanoTime() - start);
+    }
+
+    @Test
+    public void inProcessSends() throws InterruptedException {
+        try (InProcessMessageBus bus = new InProcessMessageBus(Duration.ofSeconds(1), new SimpleMeterRegistry())) {
+            AtomicInteger received = new AtomicInteger();
+            bus.subscribe(TOPIC, "benchmark", 1_000, 1, 1, records -> received.addAndGet(records.size()));
+            BenchmarkSender inProcessSender = new BenchmarkSender(bus);
+
+            runSingle(inProcessSender, WARMUP_MESSAGES);
+            long start = System.nanoTime();
+            runSingle(inProcessSender, MESSAGES);
+            while (received.get() < WARMUP_MESSAGES + MESSAGES) {
+                Thread.sleep(1);
+            }
+            report("in-process", System.nanoTime() - start);
+        }
+    }
+
+    private void runSingle(int count) {
+        runSingle(sender, count);
+    }
+
+    private static void runSingle(BenchmarkSender sender, int count) {
+        for (int i = 0; i < count; i++) {
+            sender.buildAndSend("single-" + i, PAYLOAD).join();
+        }
+    }
+
+    private void runBatched(int count) {
+        Map<String, String> payloads = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            payloads.put("batch-" + i, PAYLOAD);
+            if (payloads.size() == BATCH_SIZE) {
+                sender.buildAndSendBatch(payloads).completion().join();
+                payloads.clear();
+            }
+        }
+        if (!payloads.isEmpty()) {
+            sender.buildAndSendBatch(payloads).completion().join();
+        }
+    }
+
+    private static void report(String name, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%-14s %,d messages in %.2f s -> %,.0f msgs/s%n", name, MESSAGES, seconds, MESSAGES / seconds);
+    }
+
+    private static class BenchmarkSender extends KafkaMessageSender<String> {
+
+        BenchmarkSender(KafkaTemplate<String, KafkaMessage<String>> kafkaTemplate) {
+            super(kafkaTemplate);
+        }
+
+        BenchmarkSender(MessageTransport transport) {
+            super(transport);
+        }
+
+        @Override
+        protected String getTopic() {
+            return TOPIC;
+        }
+
+        @Override
+        protected String getMessageType() {
+            return "benchmark";
+        }
+
+        @Override
+        protected String getSource() {
+            return "main-app";
+        }
+
+        @Override
+        protected String getDestination() {
+            return "ai-app";
+        }
+    }
+}
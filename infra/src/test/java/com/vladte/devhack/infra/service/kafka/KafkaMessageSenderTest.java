@@ -0,0 +1,225 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.service.kafka.producer.publish.KafkaResponsePublisher;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KafkaMessageSenderTest {
+
+    private final List<MockProducer<String, KafkaMessage<?>>> producers = new ArrayList<>();
+
+    @BeforeMethod
+    public void resetProducers() {
+        producers.clear();
+    }
+
+    @Test
+    public void buildAndSend_shouldStampReplyTopicHeader() {
+        RequestSender sender = new RequestSender(template());
+
+        sender.buildAndSend("id-1", "payload").join();
+
+        ProducerRecord<String, KafkaMessage<?>> record = lastRecord();
+        Assert.assertEquals(record.topic(), "requests");
+        Assert.assertEquals(record.key(), "id-1");
+        Assert.assertEquals(header(record, MessageHeaders.REPLY_TOPIC), "replies.node-1");
+        Assert.assertEquals(record.value().getType(), "request");
+        Assert.assertEquals(header(record, MessageHeaders.MESSAGE_ID), "id-1");
+        Assert.assertEquals(header(record, MessageHeaders.TYPE), "request");
+        Assert.assertEquals(header(record, MessageHeaders.SOURCE), "main-app");
+        Assert.assertEquals(header(record, MessageHeaders.DESTINATION), "ai-app");
+    }
+
+    @Test
+    public void reply_shouldPublishToRequestedReplyTopic() {
+        ResponsePublisher publisher = new ResponsePublisher(template());
+        KafkaMessage<String> request = KafkaMessage.<String>builder().id("id-1").build();
+        request.getHeaders().put(MessageHeaders.REPLY_TOPIC, "replies.node-2");
+
+        publisher.reply(request, AnswerCheckResponsePayload.fromCheatingResult(false)).join();
+
+        ProducerRecord<String, KafkaMessage<?>> record = lastRecord();
+        Assert.assertEquals(record.topic(), "replies.node-2");
+        Assert.assertEquals(record.key(), "id-1");
+        Assert.assertNull(header(record, MessageHeaders.REPLY_TOPIC), "Responses must not request a reply");
+    }
+
+    @Test
+    public void toRecord_shouldCarryDeadlineThroughHeaders() {
+        Instant deadline = Instant.ofEpochMilli(1_700_000_000_000L);
+        KafkaMessage<String> message = KafkaMessage.<String>builder().id("id-1").type("request").deadline(deadline).build();
+
+        ProducerRecord<String, KafkaMessage<String>> record = KafkaMessageSender.toRecord("answer.feedback.request", "id-1", message);
+        KafkaMessage<?> received = new KafkaMessageDeserializer().deserialize(record.topic(), record.headers(),
+                KafkaMessageCodecs.JSON.encode(message));
+
+        Assert.assertEquals(header(record, MessageHeaders.DEADLINE), "1700000000000");
+        Assert.assertEquals(received.getDeadline(), deadline);
+        Assert.assertTrue(received.isExpired());
+    }
+
+    @Test
+    public void reply_shouldFallBackToDefaultTopicWithoutReplyHeader() {
+        ResponsePublisher publisher = new ResponsePublisher(template());
+        KafkaMessage<String> request = KafkaMessage.<String>builder().id("id-1").build();
+
+        publisher.reply(request, AnswerCheckResponsePayload.fromCheatingResult(false)).join();
+
+        Assert.assertEquals(lastRecord().topic(), "responses");
+    }
+
+    @Test
+    public void buildAndSendBatch_shouldSendAllMessagesWithOwnFutures() {
+        RequestSender sender = new RequestSender(template());
+        Map<String, String> payloads = new LinkedHashMap<>();
+        payloads.put("id-1", "first");
+        payloads.put("id-2", "second");
+        payloads.put("id-3", "third");
+
+        KafkaMessageBatch<String> batch = sender.buildAndSendBatch(payloads);
+        batch.completion().join();
+
+        List<ProducerRecord<String, KafkaMessage<?>>> history = sentRecords();
+        Assert.assertEquals(history.stream().map(ProducerRecord::key).toList(), List.of("id-1", "id-2", "id-3"));
+        Assert.assertEquals(header(history.getFirst(), MessageHeaders.REPLY_TOPIC), "replies.node-1");
+        Assert.assertEquals(batch.futures().keySet(), payloads.keySet());
+        batch.futures().values().forEach(future -> Assert.assertTrue(future.isDone()));
+    }
+
+    @Test
+    public void buildAndSendBatch_shouldSendToGivenTopic() {
+        RequestSender sender = new RequestSender(template());
+
+        sender.buildAndSendBatch(Map.of("id-1", "first"), "requests.bulk").completion().join();
+
+        Assert.assertEquals(lastRecord().topic(), "requests.bulk");
+    }
+
+    @Test
+    public void buildAndSendBatch_shouldFailOnlyMessagesThatCannotBeBuilt() {
+        RequestSender sender = new RequestSender(template()) {
+            @Override
+            protected KafkaMessage<String> buildMessage(String messageId, String payload, LocalDateTime timestamp) {
+                if (payload == null) {
+                    throw new IllegalArgumentException("No payload for " + messageId);
+                }
+                return super.buildMessage(messageId, payload, timestamp);
+            }
+        };
+        Map<String, String> payloads = new LinkedHashMap<>();
+        payloads.put("id-1", "first");
+        payloads.put("id-2", null);
+        payloads.put("id-3", "third");
+
+        KafkaMessageBatch<String> batch = sender.buildAndSendBatch(payloads);
+
+        Assert.assertEquals(sentRecords().stream().map(ProducerRecord::key).toList(), List.of("id-1", "id-3"));
+        Assert.assertTrue(batch.futures().get("id-2").isCompletedExceptionally());
+        Assert.assertFalse(batch.futures().get("id-3").isCompletedExceptionally());
+        Assert.assertTrue(batch.completion().isCompletedExceptionally());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> KafkaTemplate<String, KafkaMessage<T>> template() {
+        ProducerFactory factory = () -> {
+            MockProducer<String, KafkaMessage<?>> producer =
+                    new MockProducer<>(true, new StringSerializer(), (topic, data) -> new byte[0]);
+            producers.add(producer);
+            return producer;
+        };
+        return new KafkaTemplate<>(factory);
+    }
+
+    private ProducerRecord<String, KafkaMessage<?>> lastRecord() {
+        List<ProducerRecord<String, KafkaMessage<?>>> history = producers.getLast().history();
+        return history.getLast();
+    }
+
+    private List<ProducerRecord<String, KafkaMessage<?>>> sentRecords() {
+        return producers.stream().flatMap(producer -> producer.history().stream()).toList();
+    }
+
+    private static String header(ProducerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static class RequestSender extends KafkaMessageSender<String> {
+
+        RequestSender(KafkaTemplate<String, KafkaMessage<String>> kafkaTemplate) {
+            super(kafkaTemplate);
+        }
+
+        @Override
+        protected String getTopic() {
+            return "requests";
+        }
+
+        @Override
+        protected String getMessageType() {
+            return "request";
+        }
+
+        @Override
+        protected String getSource() {
+            return "main-app";
+        }
+
+        @Override
+        protected String getDestination() {
+            return "ai-app";
+        }
+
+        @Override
+        protected String getReplyTopic() {
+            return "replies.node-1";
+        }
+    }
+
+    private static class ResponsePublisher extends KafkaResponsePublisher<AnswerCheckResponsePayload> {
+
+        ResponsePublisher(KafkaTemplate<String, KafkaMessage<AnswerCheckResponsePayload>> kafkaTemplate) {
+            super(kafkaTemplate);
+        }
+
+        @Override
+        protected String getTopic() {
+            return "responses";
+        }
+
+        @Override
+        protected String getMessageType() {
+            return "response";
+        }
+
+        @Override
+        protected String getSource() {
+            return "ai-app";
+        }
+
+        @Override
+        protected String getDestination() {
+            return "main-app";
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.model.arguments.response.AnswerCheckResponseArguments;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class PendingRequestManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PendingRequestManager<AnswerCheckResponseArguments> manager;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        manager = new PendingRequestManager<>("test", Duration.ofMillis(200), 2,
+                Duration.ofMillis(10), 8, meterRegistry);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Test
+    public void complete_shouldResolveFutureAndRecordLatency() throws Exception {
+        CompletableFuture<AnswerCheckResponseArguments> future = manager.register("id-1");
+        AnswerCheckResponseArguments result = AnswerCheckResponseArguments.builder().score(42.0).build();
+
+        manager.complete("id-1", result);
+
+        Assert.assertSame(future.get(1, TimeUnit.SECONDS), result);
+        Assert.assertFalse(manager.hasPending("id-1"));
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.completion")
+                .tag("outcome", "success").timer().count(), 1L);
+    }
+
+    @Test
+    public void register_shouldExpireRequestWithoutResponse() throws Exception {
+        CompletableFuture<AnswerCheckResponseArguments> future = manager.register("id-1");
+
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            Assert.fail("Future should have expired");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(manager.size(), 0);
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.completion")
+                .tag("outcome", "expired").timer().count(), 1L);
+    }
+
+    @Test
+    public void register_shouldExpireDeadlinesBeyondOneWheelRotation() throws Exception {
+        // 8 slots * 10ms = 80ms per rotation, the deadline lies several rotations ahead
+        CompletableFuture<AnswerCheckResponseArguments> future = manager.register("id-1", Duration.ofMillis(300));
+
+        Thread.sleep(150);
+        Assert.assertFalse(future.isDone(), "Request must not expire before its deadline");
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            Assert.fail("Future should have expired");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void register_shouldRejectAboveCapacity() {
+        manager.register("id-1");
+        manager.register("id-2");
+
+        CompletableFuture<AnswerCheckResponseArguments> rejected = manager.register("id-3");
+
+        Assert.assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.join();
+        } catch (Exception e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.rejected").counter().count(), 1.0);
+
+        manager.complete("id-1", new AnswerCheckResponseArguments());
+        Assert.assertFalse(manager.register("id-3").isDone(), "Capacity must be released on completion");
+    }
+
+    @Test
+    public void cancel_shouldReleaseEntryAndCapacity() {
+        CompletableFuture<AnswerCheckResponseArguments> cancelled = manager.register("id-1");
+        CompletableFuture<AnswerCheckResponseArguments> timedOut = manager.register("id-2");
+
+        cancelled.cancel(false);
+        timedOut.completeExceptionally(new TimeoutException("gave up waiting"));
+
+        Assert.assertEquals(manager.size(), 0);
+        Assert.assertFalse(manager.hasPending("id-1"));
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.inflight").gauge().value(), 0.0);
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.completion")
+                .tag("outcome", "abandoned").timer().count(), 2L);
+        Assert.assertFalse(manager.register("id-3").isDone(), "Capacity must be released on cancellation");
+        Assert.assertFalse(manager.register("id-4").isDone(), "Capacity must be released on cancellation");
+    }
+
+    @Test
+    public void complete_shouldReleaseCapacityOnlyOnce() {
+        manager.register("id-1");
+        manager.complete("id-1", new AnswerCheckResponseArguments());
+        manager.register("id-2");
+
+        Assert.assertFalse(manager.register("id-3").isDone());
+        Assert.assertTrue(manager.register("id-4").isCompletedExceptionally(), "Capacity must stay at 2");
+    }
+
+    @Test
+    public void gauges_shouldReflectInFlightRequests() {
+        manager.register("id-1");
+
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.inflight").gauge().value(), 1.0);
+
+        manager.completeExceptionally("id-1", new RuntimeException("boom"));
+
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.inflight").gauge().value(), 0.0);
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.pending.oldest.age").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void clear_shouldFailOutstandingFutures() {
+        CompletableFuture<AnswerCheckResponseArguments> future = manager.register("id-1");
+
+        manager.clear();
+
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(manager.size(), 0);
+    }
+}
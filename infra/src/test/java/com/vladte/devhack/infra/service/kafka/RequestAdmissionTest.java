@@ -0,0 +1,88 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestAdmissionTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestAdmission admission;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        admission = new RequestAdmission("test", 1, 1, Duration.ofMillis(100), meterRegistry);
+    }
+
+    @Test
+    public void submit_shouldQueueUntilSlotIsReleased() throws Exception {
+        CompletableFuture<String> firstResponse = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> first = admission.submit(() -> {
+            started.incrementAndGet();
+            return firstResponse;
+        });
+        CompletableFuture<String> second = admission.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        });
+
+        Assert.assertEquals(started.get(), 1);
+        Assert.assertEquals(admission.queued(), 1);
+
+        firstResponse.complete("first");
+
+        Assert.assertEquals(first.get(1, TimeUnit.SECONDS), "first");
+        Assert.assertEquals(second.get(1, TimeUnit.SECONDS), "second");
+        Assert.assertEquals(admission.inFlight(), 0);
+        Assert.assertEquals(admission.queued(), 0);
+    }
+
+    @Test
+    public void submit_shouldShedWhenQueueIsFull() {
+        admission.submit(CompletableFuture::new);
+        admission.submit(CompletableFuture::new);
+
+        CompletableFuture<Object> shed = admission.submit(CompletableFuture::new);
+
+        Assert.assertTrue(shed.isCompletedExceptionally());
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.admission.rejected")
+                .tag("reason", "queue-full").counter().count(), 1.0);
+    }
+
+    @Test
+    public void submit_shouldShedAfterQueueWait() throws Exception {
+        admission.submit(CompletableFuture::new);
+        CompletableFuture<Object> queued = admission.submit(CompletableFuture::new);
+
+        try {
+            queued.get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected the queued request to be shed");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RequestRejectedException);
+        }
+        Assert.assertEquals(admission.queued(), 0);
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.admission.rejected")
+                .tag("reason", "queue-timeout").counter().count(), 1.0);
+    }
+
+    @Test
+    public void tryAcquire_shouldNotOvertakeQueuedRequests() {
+        Assert.assertTrue(admission.tryAcquire());
+        Assert.assertFalse(admission.tryAcquire());
+
+        admission.release();
+
+        Assert.assertEquals(admission.inFlight(), 0);
+        Assert.assertTrue(admission.tryAcquire());
+    }
+}
@@ -0,0 +1,94 @@
+package com.vladte.devhack.infra.service.kafka;
+
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer<String> coalescer;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer<>("test", true, meterRegistry);
+    }
+
+    @Test
+    public void execute_shouldAttachIdenticalRequestsToTheOneInFlight() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+
+        CompletableFuture<String> first = coalescer.execute("key", () -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<String> second = coalescer.execute("key", () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        response.complete("result");
+
+        Assert.assertEquals(sent.get(), 1);
+        Assert.assertEquals(first.join(), "result");
+        Assert.assertEquals(second.join(), "result");
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.coalescing.ratio").gauge().value(), 0.5);
+    }
+
+    @Test
+    public void execute_shouldSendAgainOnceTheResponseArrived() {
+        AtomicInteger sent = new AtomicInteger();
+
+        coalescer.execute("key", () -> CompletableFuture.completedFuture("first " + sent.incrementAndGet())).join();
+        String second = coalescer.execute("key", () -> CompletableFuture.completedFuture("second " + sent.incrementAndGet())).join();
+
+        Assert.assertEquals(second, "second 2");
+    }
+
+    @Test
+    public void execute_shouldNotLetCallersCancelEachOther() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute("key", () -> response);
+        CompletableFuture<String> second = coalescer.execute("key", CompletableFuture::new);
+
+        first.cancel(true);
+        response.complete("result");
+
+        Assert.assertEquals(second.join(), "result");
+    }
+
+    @Test
+    public void fingerprint_shouldIgnoreParameterOrder() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("temperature", 0.2);
+        parameters.put("max_tokens", 800);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("max_tokens", 800);
+        reordered.put("temperature", 0.2);
+
+        String fingerprint = RequestFingerprint.of("topic", payload(parameters, "Java"));
+
+        Assert.assertEquals(RequestFingerprint.of("topic", payload(reordered, "Java")), fingerprint);
+        Assert.assertNotEquals(RequestFingerprint.of("topic", payload(parameters, "Kotlin")), fingerprint);
+        Assert.assertNotEquals(RequestFingerprint.of("other-topic", payload(parameters, "Java")), fingerprint);
+    }
+
+    private static AiRenderedRequestPayload payload(Map<String, Object> parameters, String tag) {
+        return AiRenderedRequestPayload.builder()
+                .promptKey("question.generate")
+                .version(3)
+                .parameters(parameters)
+                .messages(List.of(new Message("user", "Generate 3 easy questions about " + tag)))
+                .build();
+    }
+}
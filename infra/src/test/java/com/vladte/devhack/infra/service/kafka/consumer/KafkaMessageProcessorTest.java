@@ -0,0 +1,107 @@
+package com.vladte.devhack.infra.service.kafka.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KafkaMessageProcessorTest {
+
+    @Test
+    public void processRecords_shouldIsolateFailingMessages() {
+        RecordingProcessor processor = new RecordingProcessor(false);
+
+        processor.processRecords(List.of(record(0, "id-1", "ok"), record(1, "id-2", "fail"), record(2, "id-3", "ok")));
+
+        Assert.assertEquals(processor.processed, List.of("id-1", "id-3"));
+        Assert.assertEquals(processor.failed, List.of("id-2"));
+    }
+
+    @Test
+    public void processRecords_shouldPointAtFailedRecordWhenErrorIsRethrown() {
+        RecordingProcessor processor = new RecordingProcessor(true);
+        ConsumerRecord<String, KafkaMessage<String>> failing = record(7, "id-2", "fail");
+
+        BatchListenerFailedException exception = Assert.expectThrows(BatchListenerFailedException.class,
+                () -> processor.processRecords(List.of(record(6, "id-1", "ok"), failing, record(8, "id-3", "ok"))));
+
+        Assert.assertSame(exception.getRecord(), failing);
+        Assert.assertEquals(processor.processed, List.of("id-1"), "Records after the failed one must be redelivered");
+    }
+
+    @Test
+    public void processRecords_shouldKeepRecordHeaders() {
+        RecordingProcessor processor = new RecordingProcessor(false);
+        ConsumerRecord<String, KafkaMessage<String>> record = record(0, "id-1", "ok");
+        record.headers().add("trace", "abc".getBytes());
+
+        processor.processRecords(List.of(record));
+
+        Assert.assertEquals(processor.lastMessage.getHeader("trace"), "abc");
+    }
+
+    @Test
+    public void convertMessage_shouldKeepTheEnvelopeOfConvertedMessages() {
+        RecordingProcessor processor = new RecordingProcessor(false);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Instant deadline = Instant.parse("2024-01-01T12:00:30Z");
+        KafkaMessage<Object> rawMessage = KafkaMessage.builder()
+                .id("id-1").source("main-app").destination("ai-app").type("check")
+                .timestamp(timestamp).deadline(deadline).payload(42)
+                .build();
+        rawMessage.getHeaders().put("trace", "abc");
+
+        KafkaMessage<String> message = processor.convertMessage(rawMessage);
+
+        Assert.assertEquals(message.getPayload(), "42");
+        Assert.assertEquals(message.getId(), "id-1");
+        Assert.assertEquals(message.getSource(), "main-app");
+        Assert.assertEquals(message.getDestination(), "ai-app");
+        Assert.assertEquals(message.getType(), "check");
+        Assert.assertEquals(message.getTimestamp(), timestamp);
+        Assert.assertEquals(message.getDeadline(), deadline);
+        Assert.assertEquals(message.getHeader("trace"), "abc");
+    }
+
+    private static ConsumerRecord<String, KafkaMessage<String>> record(long offset, String id, String payload) {
+        KafkaMessage<String> message = KafkaMessage.<String>builder().id(id).payload(payload).build();
+        return new ConsumerRecord<>("topic", 0, offset, id, message);
+    }
+
+    private static class RecordingProcessor extends KafkaMessageProcessor<String> {
+
+        private final boolean rethrow;
+        private final List<String> processed = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+        private KafkaMessage<String> lastMessage;
+
+        RecordingProcessor(boolean rethrow) {
+            super(new ObjectMapper(), String.class);
+            this.rethrow = rethrow;
+        }
+
+        @Override
+        protected void processIncomingMessage(KafkaMessage<String> message) {
+            if ("fail".equals(message.getPayload())) {
+                throw new IllegalStateException("Cannot process " + message.getId());
+            }
+            lastMessage = message;
+            processed.add(message.getId());
+        }
+
+        @Override
+        protected void handleError(KafkaMessage<?> message, Exception error) {
+            failed.add(message.getId());
+            if (rethrow) {
+                throw new IllegalStateException(error);
+            }
+        }
+    }
+}
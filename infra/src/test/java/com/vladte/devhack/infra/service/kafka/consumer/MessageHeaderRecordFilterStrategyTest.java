@@ -0,0 +1,54 @@
+package com.vladte.devhack.infra.service.kafka.consumer;
+
+import com.vladte.devhack.infra.message.MessageDestinations;
+import com.vladte.devhack.infra.message.MessageTypes;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MessageHeaderRecordFilterStrategyTest {
+
+    private final MessageHeaderRecordFilterStrategy filter = new MessageHeaderRecordFilterStrategy(
+            MessageDestinations.AI_APP, MessageTypes.CHECK_ANSWER_FOR_CHEATING, MessageTypes.CHECK_ANSWER_WITH_FEEDBACK);
+
+    @Test
+    public void filter_shouldKeepAcceptedTypes() {
+        Assert.assertFalse(filter.filter(record(MessageDestinations.AI_APP, MessageTypes.CHECK_ANSWER_FOR_CHEATING)));
+        Assert.assertFalse(filter.filter(record(MessageDestinations.AI_APP, MessageTypes.CHECK_ANSWER_WITH_FEEDBACK)));
+    }
+
+    @Test
+    public void filter_shouldDiscardOtherTypes() {
+        Assert.assertTrue(filter.filter(record(MessageDestinations.AI_APP, MessageTypes.QUESTION_GENERATE)));
+    }
+
+    @Test
+    public void filter_shouldDiscardOtherDestinations() {
+        Assert.assertTrue(filter.filter(record(MessageDestinations.MAIN_APP, MessageTypes.CHECK_ANSWER_FOR_CHEATING)));
+    }
+
+    @Test
+    public void filter_shouldNotDecodePayload() {
+        KafkaMessage<String> message = KafkaMessage.<String>builder()
+                .id("id-1")
+                .destination(MessageDestinations.AI_APP)
+                .type(MessageTypes.QUESTION_GENERATE.getValue())
+                .payloadDecoder(() -> {
+                    throw new AssertionError("Payload must not be decoded by the filter");
+                })
+                .build();
+
+        Assert.assertTrue(filter.filter(new ConsumerRecord<>("topic", 0, 0L, "id-1", message)));
+    }
+
+    private static ConsumerRecord<String, KafkaMessage<?>> record(String destination, MessageTypes type) {
+        KafkaMessage<String> message = KafkaMessage.<String>builder()
+                .id("id-1")
+                .destination(destination)
+                .type(type.getValue())
+                .payload("payload")
+                .build();
+        return new ConsumerRecord<>("topic", 0, 0L, "id-1", message);
+    }
+}
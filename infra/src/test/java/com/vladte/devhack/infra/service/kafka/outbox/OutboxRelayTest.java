@@ -0,0 +1,213 @@
+package com.vladte.devhack.infra.service.kafka.outbox;
+
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.transport.KafkaTemplateTransport;
+import com.vladte.devhack.infra.service.kafka.transport.MessageTransport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class OutboxRelayTest {
+
+    private InMemoryOutboxStore store;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeMethod
+    public void setUp() {
+        store = new InMemoryOutboxStore();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void relayBatch_shouldSendPendingMessagesKeyedByAggregate() {
+        MockProducer<String, KafkaMessage<?>> broker = broker(true);
+        store.write("answer-1", "requests", "m-1");
+        store.write("answer-2", "requests", "m-2");
+        store.write("answer-1", "requests", "m-3");
+
+        Assert.assertFalse(relay(broker, 10).relayBatch(), "The batch was not full");
+
+        List<ProducerRecord<String, KafkaMessage<?>>> history = broker.history();
+        Assert.assertEquals(history.size(), 3);
+        Assert.assertEquals(history.stream().filter(record -> record.key().equals("answer-1"))
+                .map(record -> record.value().getId()).toList(), List.of("m-1", "m-3"));
+        Assert.assertEquals(history.stream().filter(record -> record.key().equals("answer-2"))
+                .map(record -> record.value().getId()).toList(), List.of("m-2"));
+        Assert.assertEquals(header(history.getFirst(), MessageHeaders.MESSAGE_ID), "m-1");
+        Assert.assertEquals(header(history.getFirst(), "custom"), "value-m-1");
+        Assert.assertTrue(store.pending().isEmpty());
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.outbox.relayed").tag("outcome", "sent").counter().count(), 3.0);
+    }
+
+    @Test
+    public void relayBatch_shouldClaimAtMostBatchSize() {
+        MockProducer<String, KafkaMessage<?>> broker = broker(true);
+        store.write("answer-1", "requests", "m-1");
+        store.write("answer-2", "requests", "m-2");
+        store.write("answer-3", "requests", "m-3");
+        OutboxRelay relay = relay(broker, 2);
+
+        Assert.assertTrue(relay.relayBatch());
+        Assert.assertFalse(relay.relayBatch());
+        Assert.assertFalse(relay.relayBatch());
+        Assert.assertEquals(broker.history().size(), 3);
+    }
+
+    @Test
+    public void relayBatch_shouldHoldBackRestOfAggregateAfterFailedSend() throws Exception {
+        MockProducer<String, KafkaMessage<?>> broker = broker(false);
+        store.write("answer-1", "requests", "m-1");
+        store.write("answer-2", "requests", "m-2");
+        store.write("answer-1", "requests", "m-3");
+        OutboxRelay relay = relay(broker, 10);
+
+        CompletableFuture<Boolean> batch = CompletableFuture.supplyAsync(relay::relayBatch);
+        awaitSends(broker, 2);
+        Assert.assertTrue(broker.errorNext(new IllegalStateException("broker unavailable")));
+        Assert.assertTrue(broker.completeNext());
+        batch.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(broker.history().stream().map(record -> record.value().getId()).toList(), List.of("m-1", "m-2"));
+        Assert.assertEquals(store.pending().stream().map(record -> record.message().getId()).toList(), List.of("m-1", "m-3"));
+        Assert.assertEquals(store.errors.get(store.pending().getFirst().id()), "broker unavailable");
+
+        CompletableFuture<Boolean> retry = CompletableFuture.supplyAsync(relay::relayBatch);
+        awaitSends(broker, 3);
+        Assert.assertTrue(broker.completeNext());
+        awaitSends(broker, 4);
+        Assert.assertTrue(broker.completeNext());
+        Assert.assertFalse(retry.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(broker.history().stream().skip(2).map(record -> record.value().getId()).toList(), List.of("m-1", "m-3"));
+        Assert.assertTrue(store.pending().isEmpty());
+    }
+
+    @Test
+    public void relayBatch_shouldGiveUpMessageFailingMaxAttempts() {
+        store.write("answer-1", "requests", "poison");
+        store.write("answer-2", "requests", "m-2");
+        store.write("answer-1", "requests", "m-3");
+        List<String> sent = new ArrayList<>();
+        MessageTransport transport = new MessageTransport() {
+            @Override
+            public <V extends KafkaMessage<?>> CompletableFuture<SendResult<String, V>> send(ProducerRecord<String, V> record) {
+                if (record.value().getId().equals("poison")) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("record too large"));
+                }
+                sent.add(record.value().getId());
+                return CompletableFuture.completedFuture(new SendResult<>(record, null));
+            }
+        };
+        List<String> dead = new ArrayList<>();
+        OutboxRelay relay = new OutboxRelay(transport, store, 2, 3, Duration.ofSeconds(5),
+                (record, ex) -> dead.add(record.id() + ": " + ex.getMessage()), meterRegistry);
+
+        Assert.assertFalse(relay.relayBatch(), "A batch with failures ends draining");
+        Assert.assertEquals(sent, List.of("m-2"));
+        Assert.assertFalse(relay.relayBatch());
+        Assert.assertFalse(relay.relayBatch());
+        Assert.assertEquals(dead, List.of("poison: record too large"));
+        Assert.assertEquals(store.attempts.get("poison"), 3);
+
+        Assert.assertFalse(relay.relayBatch());
+
+        Assert.assertEquals(sent, List.of("m-2", "m-3"));
+        Assert.assertEquals(store.pending().stream().map(OutboxRecord::id).toList(), List.of("poison"),
+                "The dead message stays in the outbox");
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.outbox.relayed").tag("outcome", "failed").counter().count(), 2.0);
+        Assert.assertEquals(meterRegistry.get("devhack.kafka.outbox.relayed").tag("outcome", "dead").counter().count(), 1.0);
+    }
+
+    private OutboxRelay relay(MockProducer<String, KafkaMessage<?>> broker, int batchSize) {
+        return new OutboxRelay(new KafkaTemplateTransport(template(broker)), store, batchSize, 3, Duration.ofSeconds(5),
+                (record, ex) -> {
+                }, meterRegistry);
+    }
+
+    /**
+     * In-memory broker stand-in; stays open when the template closes its producer after a send.
+     */
+    private static MockProducer<String, KafkaMessage<?>> broker(boolean autoComplete) {
+        return new MockProducer<>(autoComplete, new StringSerializer(), (topic, data) -> new byte[0]) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static KafkaTemplate<String, KafkaMessage<?>> template(MockProducer<String, KafkaMessage<?>> broker) {
+        ProducerFactory factory = () -> broker;
+        return new KafkaTemplate<>(factory);
+    }
+
+    private static void awaitSends(MockProducer<?, ?> broker, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (broker.history().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(broker.history().size(), count);
+    }
+
+    private static String header(ProducerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static class InMemoryOutboxStore implements OutboxStore {
+
+        private final List<OutboxRecord> entries = new ArrayList<>();
+        private final Map<String, String> errors = new HashMap<>();
+        private final Map<String, Integer> attempts = new HashMap<>();
+
+        void write(String aggregateId, String topic, String messageId) {
+            KafkaMessage<String> message = KafkaMessage.<String>builder().id(messageId).payload("payload").build();
+            message.getHeaders().put("custom", "value-" + messageId);
+            entries.add(new OutboxRecord(messageId, aggregateId, topic, message, LocalDateTime.now(), 0));
+        }
+
+        synchronized List<OutboxRecord> pending() {
+            return List.copyOf(entries);
+        }
+
+        @Override
+        public synchronized List<OutboxRecord> claimBatch(int limit, int maxAttempts) {
+            return entries.stream()
+                    .map(record -> new OutboxRecord(record.id(), record.aggregateId(), record.topic(), record.message(),
+                            record.createdAt(), attempts.getOrDefault(record.id(), 0)))
+                    .filter(record -> record.attempts() < maxAttempts)
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public synchronized void markSent(Collection<String> ids) {
+            entries.removeIf(record -> ids.contains(record.id()));
+        }
+
+        @Override
+        public synchronized void markFailed(String id, String error) {
+            errors.put(id, error);
+            attempts.merge(id, 1, Integer::sum);
+        }
+    }
+}
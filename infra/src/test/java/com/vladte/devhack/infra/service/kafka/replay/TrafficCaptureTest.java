@@ -0,0 +1,110 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class TrafficCaptureTest {
+
+    private Path file;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = Files.createTempDirectory("capture").resolve("capture.jsonl");
+    }
+
+    @Test
+    public void writer_shouldCaptureRecordsReadableAsMessages() {
+        try (TrafficCaptureWriter writer = new TrafficCaptureWriter(file)) {
+            writer.write(record(Topics.ANSWER_FEEDBACK_REQUEST, 1_000L, request(), Map.of(MessageHeaders.USER_ID, "user-1")));
+            writer.write(record(Topics.ANSWER_FEEDBACK_REQUEST + "-retry-0", 1_500L, request(), Map.of()));
+            writer.write(record(Topics.replyTopic(Topics.ANSWER_FEEDBACK_RESULT, "main-app-1"), 3_000L, response(), Map.of(
+                    MessageHeaders.HOP_PREFIX + KafkaHopRecorder.PROVIDER_STARTED, "1200",
+                    MessageHeaders.HOP_PREFIX + KafkaHopRecorder.PROVIDER_FINISHED, "2700")));
+        }
+
+        List<CapturedMessage> capture = TrafficCapture.read(file);
+
+        Assert.assertEquals(capture.size(), 2, "Retry records must not be captured");
+        KafkaMessage<?> request = TrafficCapture.decode(capture.getFirst());
+        Assert.assertEquals(request.getPayload(), request().getPayload());
+        Assert.assertEquals(request.getHeader(MessageHeaders.USER_ID), "user-1");
+        Assert.assertEquals(capture.getFirst().getTimestamp(), 1_000L);
+
+        List<CapturedExchange> exchanges = TrafficCapture.exchanges(capture);
+        Assert.assertEquals(exchanges.size(), 1);
+        Assert.assertEquals(exchanges.getFirst().promptKey(), "answer.check");
+        Assert.assertEquals(exchanges.getFirst().providerMillis(), 1_500L);
+        Assert.assertTrue(((AnswerCheckResponsePayload) exchanges.getFirst().response()).getArguments().isHasCheating());
+    }
+
+    @Test
+    public void topics_shouldMatchRequestResultAndReplyTopics() {
+        Assert.assertTrue(TrafficCapture.TOPICS.matcher(Topics.QUESTION_GENERATE_BULK_REQUEST).matches());
+        Assert.assertTrue(TrafficCapture.TOPICS.matcher(Topics.replyTopic(Topics.VACANCY_PARSING_RESULT, "node-1")).matches());
+        Assert.assertFalse(TrafficCapture.TOPICS.matcher("answer.feedback.request-retry-0").matches());
+        Assert.assertFalse(TrafficCapture.TOPICS.matcher("audit.events").matches());
+        Assert.assertTrue(TrafficCapture.isRequestTopic(Topics.QUESTION_GENERATE_BULK_REQUEST));
+        Assert.assertFalse(TrafficCapture.isRequestTopic(Topics.ANSWER_FEEDBACK_RESULT));
+    }
+
+    @Test
+    public void report_shouldSummariseLatencies() {
+        ReplayReport report = ReplayReport.of(5, Duration.ofSeconds(2), List.of(40L, 10L, 30L, 20L), List.of(5L, 1L));
+
+        Assert.assertEquals(report.unanswered(), 1);
+        Assert.assertEquals(report.throughput(), 2.0);
+        Assert.assertEquals(report.latency(0.5), 20L);
+        Assert.assertEquals(report.latency(0.99), 40L);
+        Assert.assertEquals(report.queueing(0.5), 1L);
+        Assert.assertTrue(report.format().contains("p99 40 ms"), report.format());
+    }
+
+    private static ConsumerRecord<String, KafkaMessage<?>> record(String topic, long timestamp, KafkaMessage<?> message,
+                                                                  Map<String, String> headers) {
+        RecordHeaders recordHeaders = new RecordHeaders();
+        headers.forEach((name, value) -> recordHeaders.add(name, value.getBytes(StandardCharsets.UTF_8)));
+        return new ConsumerRecord<>(topic, 0, 0L, timestamp, TimestampType.CREATE_TIME, -1, -1,
+                message.getId(), message, recordHeaders, Optional.empty());
+    }
+
+    private static KafkaMessage<AiRenderedRequestPayload> request() {
+        return KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id("id-1")
+                .type("check-answer-for-cheating")
+                .payload(AiRenderedRequestPayload.builder()
+                        .promptKey("answer.check")
+                        .messages(List.of(new Message("user", "Is this answer copied?")))
+                        .arguments(TrafficCapture.MAPPER.createObjectNode())
+                        .responseContract(TrafficCapture.MAPPER.createObjectNode())
+                        .build())
+                .build();
+    }
+
+    private static KafkaMessage<AnswerCheckResponsePayload> response() {
+        return KafkaMessage.<AnswerCheckResponsePayload>builder()
+                .id("id-1")
+                .type("check-answer-result")
+                .payload(AnswerCheckResponsePayload.fromCheatingResult(true))
+                .build();
+    }
+}
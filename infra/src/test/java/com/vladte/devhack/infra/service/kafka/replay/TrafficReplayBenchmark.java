@@ -0,0 +1,145 @@
+package com.vladte.devhack.infra.service.kafka.replay;
+
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.service.kafka.KafkaHopRecorder;
+import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
+import com.vladte.devhack.infra.topics.Topics;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a synthetic capture against an embedded broker with a stub AI module answering after a fixed latency,
+ * and prints the replay report for increasing speeds.
+ * Excluded from the regular test run, start it with {@code gradle :infra:benchmark}.
+ */
+@Test(groups = "benchmark")
+public class TrafficReplayBenchmark {
+
+    private static final String REPLY_TOPIC = Topics.replyTopic(Topics.ANSWER_FEEDBACK_RESULT, "main-app-1");
+    private static final int REQUESTS = 200;
+    private static final long SPACING_MILLIS = 20;
+    private static final long MODEL_MILLIS = 5;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private KafkaProducer<String, KafkaMessage<?>> producer;
+    private Thread stubModel;
+    private volatile boolean running = true;
+
+    @BeforeClass(alwaysRun = true)
+    public void start() throws InterruptedException {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, Topics.ANSWER_FEEDBACK_REQUEST, REPLY_TOPIC);
+        broker.afterPropertiesSet();
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        producer = new KafkaProducer<>(producerConfig, new StringSerializer(), new KafkaMessageSerializer(KafkaMessageCodecs.JSON));
+
+        Map<String, Object> consumerConfig = new HashMap<>();
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "stub-model");
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        stubModel = new Thread(() -> {
+            try (KafkaConsumer<String, KafkaMessage<?>> consumer =
+                         new KafkaConsumer<>(consumerConfig, new StringDeserializer(), new KafkaMessageDeserializer())) {
+                consumer.subscribe(List.of(Topics.ANSWER_FEEDBACK_REQUEST));
+                while (running) {
+                    for (ConsumerRecord<String, KafkaMessage<?>> record : consumer.poll(Duration.ofMillis(5))) {
+                        answer(record);
+                    }
+                }
+            }
+        }, "stub-model");
+        stubModel.setDaemon(true);
+        stubModel.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stop() throws InterruptedException {
+        running = false;
+        if (stubModel != null) {
+            stubModel.join();
+        }
+        if (producer != null) {
+            producer.close();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+
+    @Test
+    public void replayAtIncreasingSpeed() throws InterruptedException {
+        List<CapturedMessage> capture = capture();
+        for (double speed : new double[]{1, 4, 16}) {
+            try (TrafficReplayer replayer = TrafficReplayer.connect(broker.getBrokersAsString())) {
+                ReplayReport report = replayer.replay(capture, speed, Duration.ofSeconds(30));
+                System.out.printf("speed %.0fx%n%s%n", speed, report.format());
+                Assert.assertEquals(report.answered(), REQUESTS);
+            }
+        }
+    }
+
+    private void answer(ConsumerRecord<String, KafkaMessage<?>> record) {
+        KafkaMessage<?> request = record.value();
+        record.headers().forEach(header -> request.getHeaders().put(header.key(), new String(header.value())));
+        KafkaHopRecorder.stampReceived(request);
+        KafkaHopRecorder.stamp(request, KafkaHopRecorder.PROVIDER_STARTED);
+        try {
+            Thread.sleep(MODEL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        KafkaHopRecorder.stamp(request, KafkaHopRecorder.PROVIDER_FINISHED);
+        KafkaMessage<AnswerCheckResponsePayload> response = KafkaMessage.<AnswerCheckResponsePayload>builder()
+                .id(request.getId())
+                .type("check-answer-result")
+                .payload(AnswerCheckResponsePayload.fromCheatingResult(false))
+                .build();
+        KafkaHopRecorder.propagate(request, response);
+        producer.send(KafkaMessageSender.toRecord(request.getHeader(MessageHeaders.REPLY_TOPIC), request.getId(), response));
+    }
+
+    private static List<CapturedMessage> capture() {
+        List<CapturedMessage> capture = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            KafkaMessage<AiRenderedRequestPayload> request = KafkaMessage.<AiRenderedRequestPayload>builder()
+                    .id("captured-" + i)
+                    .type("check-answer-for-cheating")
+                    .payload(AiRenderedRequestPayload.builder()
+                            .promptKey("answer.check")
+                            .messages(List.of(new Message("user", "Is this answer about Java generics copied?")))
+                            .build())
+                    .build();
+            capture.add(CapturedMessage.builder()
+                    .timestamp(i * SPACING_MILLIS)
+                    .topic(Topics.ANSWER_FEEDBACK_REQUEST)
+                    .key(request.getId())
+                    .headers(new HashMap<>(Map.of(MessageHeaders.REPLY_TOPIC, REPLY_TOPIC)))
+                    .value(TrafficCapture.MAPPER.valueToTree(request))
+                    .build());
+        }
+        return capture;
+    }
+}
@@ -0,0 +1,119 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HttpRpcClientTest {
+
+    private HttpServer server;
+    private HttpRpcClient client;
+    private final AtomicReference<String> receivedUser = new AtomicReference<>();
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(HttpRpcClient.PATH + Topics.ANSWER_FEEDBACK_REQUEST, exchange -> {
+            KafkaMessage<AiRenderedRequestPayload> request =
+                    KafkaMessageCodecs.JSON.decode(exchange.getRequestBody().readAllBytes(), AiRenderedRequestPayload.class);
+            receivedUser.set(exchange.getRequestHeaders().getFirst(MessageHeaders.USER_ID));
+            KafkaMessage<AnswerCheckResponsePayload> response = KafkaMessage.<AnswerCheckResponsePayload>builder()
+                    .id(request.getId())
+                    .type("check-answer-result")
+                    .payload(AnswerCheckResponsePayload.fromCheatingResult(true))
+                    .build();
+            byte[] body = KafkaMessageCodecs.JSON.encode(response);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext(HttpRpcClient.PATH + Topics.VACANCY_PARSING_REQUEST, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(504, -1);
+            exchange.close();
+        });
+        server.start();
+        client = client(server.getAddress().getPort());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void call_shouldReturnResponseEnvelope() {
+        KafkaMessage<AiRenderedRequestPayload> request = request();
+        request.getHeaders().put(MessageHeaders.USER_ID, "user-1");
+
+        KafkaMessage<?> response = client.call(Topics.ANSWER_FEEDBACK_REQUEST, Topics.ANSWER_FEEDBACK_RESULT, request).join();
+
+        Assert.assertEquals(response.getId(), "id-1");
+        Assert.assertTrue(((AnswerCheckResponsePayload) response.getPayload()).getArguments().isHasCheating());
+        Assert.assertEquals(receivedUser.get(), "user-1");
+    }
+
+    @Test
+    public void call_shouldFailWithTimeoutWhenReceiverDroppedTheRequest() {
+        CompletionException failure = Assert.expectThrows(CompletionException.class,
+                () -> client.call(Topics.VACANCY_PARSING_REQUEST, Topics.VACANCY_PARSING_RESULT, request()).join());
+
+        Assert.assertTrue(failure.getCause() instanceof TimeoutException, String.valueOf(failure.getCause()));
+    }
+
+    @Test
+    public void call_shouldReportUnreachableReceiver() {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+
+        CompletionException failure = Assert.expectThrows(CompletionException.class,
+                () -> client(port).call(Topics.ANSWER_FEEDBACK_REQUEST, Topics.ANSWER_FEEDBACK_RESULT, request()).join());
+
+        Assert.assertTrue(failure.getCause() instanceof ConnectException, String.valueOf(failure.getCause()));
+    }
+
+    @Test
+    public void handles_shouldOnlyAcceptSelectedTypes() {
+        Assert.assertTrue(client.handles("check-answer-with-feedback"));
+        Assert.assertFalse(client.handles("question-generate"));
+        Assert.assertFalse(client.handles(null));
+    }
+
+    private static HttpRpcClient client(int port) {
+        return new HttpRpcClient(URI.create("http://localhost:" + port), Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Set.of("check-answer-with-feedback"), new SimpleMeterRegistry());
+    }
+
+    private static KafkaMessage<AiRenderedRequestPayload> request() {
+        return KafkaMessage.<AiRenderedRequestPayload>builder()
+                .id("id-1")
+                .type("check-answer-with-feedback")
+                .deadline(Instant.now().plusSeconds(5))
+                .payload(AiRenderedRequestPayload.builder().promptKey("answer.check").messages(List.of(new Message("user", "Is this answer correct?"))).build())
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.vladte.devhack.infra.message.MessageHeaders;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.service.kafka.KafkaMessageSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class InProcessMessageBusTest {
+
+    private InProcessMessageBus bus;
+
+    @BeforeMethod
+    public void setUp() {
+        bus = new InProcessMessageBus(Duration.ofMillis(50), new SimpleMeterRegistry());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        bus.close();
+    }
+
+    @Test
+    public void send_shouldHandMessageToSubscriberByReference() throws Exception {
+        BlockingQueue<ConsumerRecord<String, KafkaMessage<?>>> received = new LinkedBlockingQueue<>();
+        bus.subscribe("requests", "test", 10, 1, 1, received::addAll);
+        KafkaMessage<String> message = message("id-1");
+
+        bus.send(KafkaMessageSender.toRecord("requests", "key-1", message)).join();
+
+        ConsumerRecord<String, KafkaMessage<?>> record = received.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(record);
+        Assert.assertSame(record.value(), message);
+        Assert.assertEquals(record.key(), "key-1");
+        Assert.assertEquals(new String(record.headers().lastHeader(MessageHeaders.MESSAGE_ID).value(), StandardCharsets.UTF_8), "id-1");
+    }
+
+    @Test
+    public void send_shouldFailWithoutSubscriber() {
+        CompletableFuture<?> sent = bus.send(KafkaMessageSender.toRecord("requests", "key-1", message("id-1")));
+
+        Assert.assertTrue(sent.isCompletedExceptionally());
+    }
+
+    @Test
+    public void send_shouldRejectWhenQueueStaysFull() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe("requests", "slow", 1, 1, 1, records -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        bus.send(KafkaMessageSender.toRecord("requests", "key", message("id-1"))).join();
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        bus.send(KafkaMessageSender.toRecord("requests", "key", message("id-2"))).join();
+        CompletableFuture<?> rejected = bus.send(KafkaMessageSender.toRecord("requests", "key", message("id-3")));
+        release.countDown();
+
+        try {
+            rejected.join();
+            Assert.fail("A full queue must reject the record");
+        } catch (Exception e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void registrar_shouldMoveKafkaListenersToTheBus() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(Map.of()));
+        InProcessListenerRegistrar registrar = new InProcessListenerRegistrar(bus, 10);
+        factory.setContainerCustomizer(registrar);
+
+        ConcurrentMessageListenerContainer<Object, Object> container =
+                factory.createListenerContainer(endpoint(listener, "listen", "requests"));
+        factory.setBatchListener(true);
+        ConcurrentMessageListenerContainer<Object, Object> batchContainer =
+                factory.createListenerContainer(endpoint(listener, "listenBatch", "bulk-requests"));
+        registrar.start();
+
+        Assert.assertFalse(container.isAutoStartup(), "Listener containers must not connect to a broker");
+        Assert.assertFalse(batchContainer.isAutoStartup());
+        KafkaMessage<String> message = message("id-1");
+        bus.send(KafkaMessageSender.toRecord("requests", "key", message)).join();
+        bus.send(KafkaMessageSender.toRecord("bulk-requests", "key", message("id-2"))).join();
+
+        Assert.assertSame(listener.records.poll(5, TimeUnit.SECONDS), message);
+        Assert.assertEquals(listener.batches.poll(5, TimeUnit.SECONDS), List.of("id-2"));
+        registrar.stop();
+    }
+
+    private static MethodKafkaListenerEndpoint<Object, Object> endpoint(Object bean, String method, String topic)
+            throws NoSuchMethodException {
+        MethodKafkaListenerEndpoint<Object, Object> endpoint = new MethodKafkaListenerEndpoint<>();
+        endpoint.setId(method);
+        endpoint.setGroupId("test");
+        endpoint.setTopics(topic);
+        endpoint.setBean(bean);
+        endpoint.setMethod(bean.getClass().getMethod(method, method.equals("listen") ? ConsumerRecord.class : List.class));
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+        return endpoint;
+    }
+
+    private static KafkaMessage<String> message(String id) {
+        return KafkaMessage.<String>builder().id(id).type("request").payload("payload").build();
+    }
+
+    public static class RecordingListener {
+
+        final BlockingQueue<KafkaMessage<?>> records = new LinkedBlockingQueue<>();
+        final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+
+        public void listen(ConsumerRecord<String, KafkaMessage<?>> record) {
+            records.add(record.value());
+        }
+
+        public void listenBatch(List<ConsumerRecord<String, KafkaMessage<?>>> batch) {
+            batches.add(batch.stream().map(record -> record.value().getId()).toList());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.vladte.devhack.infra.service.kafka.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vladte.devhack.infra.codec.KafkaMessageCodecs;
+import com.vladte.devhack.infra.codec.KafkaMessageDeserializer;
+import com.vladte.devhack.infra.codec.KafkaMessageSerializer;
+import com.vladte.devhack.infra.model.KafkaMessage;
+import com.vladte.devhack.infra.model.payload.request.AiRenderedRequestPayload;
+import com.vladte.devhack.infra.model.payload.request.Message;
+import com.vladte.devhack.infra.model.payload.response.AnswerCheckResponsePayload;
+import com.vladte.devhack.infra.topics.Topics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compares the round trip of answer checks sent over the Kafka request and reply topics with the round trip
+ * over {@link HttpRpcClient}. Both receivers share a stub model that answers after {@link #MODEL_MILLIS},
+ * so the difference is the transport overhead.
+ * Excluded from the regular test run, start it with {@code gradle :infra:benchmark}.
+ */
+@Test(groups = "benchmark")
+public class RpcTransportBenchmark {
+
+    private static final int CALLS = 1_000;
+    private static final int WARMUP_CALLS = 100;
+    private static final long MODEL_MILLIS = 2;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private KafkaProducer<String, KafkaMessage<?>> producer;
+    private final Map<String, CompletableFuture<KafkaMessage<?>>> pending = new ConcurrentHashMap<>();
+    private final List<Thread> pollers = new ArrayList<>();
+    private volatile boolean running = true;
+    private HttpServer server;
+
+    @BeforeClass(alwaysRun = true)
+    public void start() throws Exception {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, Topics.ANSWER_FEEDBACK_REQUEST, Topics.ANSWER_FEEDBACK_RESULT);
+        broker.afterPropertiesSet();
+        producer = new KafkaProducer<>(producerConfig());
+        startPoller("stub-model", Topics.ANSWER_FEEDBACK_REQUEST, request ->
+                producer.send(new ProducerRecord<>(Topics.ANSWER_FEEDBACK_RESULT, request.getId(), answer(request))));
+        startPoller("reply-listener", Topics.ANSWER_FEEDBACK_RESULT, response -> {
+            CompletableFuture<KafkaMessage<?>> future = pending.remove(response.getId());
+            if (future != null) {
+                future.complete(response);
+            }
+        });
+
+        // the JDK server writes headers and body separately, without this Nagle's algorithm delays every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext(HttpRpcClient.PATH + Topics.ANSWER_FEEDBACK_REQUEST, exchange -> {
+            KafkaMessage<AiRenderedRequestPayload> request =
+                    KafkaMessageCodecs.JSON.decode(exchange.getRequestBody().readAllBytes(), AiRenderedRequestPayload.class);
+            byte[] body = KafkaMessageCodecs.JSON.encode(answer(request));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread poller : pollers) {
+            poller.join();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        if (producer != null) {
+            producer.close();
+        }
+        if (broker != null) {
+            broker.destroy();
+        }
+    }
+
+    @Test
+    public void kafkaRoundTrip() {
+        run("kafka", WARMUP_CALLS, this::callOverKafka);
+        report("kafka", run("kafka", CALLS, this::callOverKafka));
+    }
+
+    @Test
+    public void httpRoundTrip() {
+        HttpRpcClient client = new HttpRpcClient(URI.create("http://localhost:" + server.getAddress().getPort()),
+                Duration.ofSeconds(2), Duration.ofSeconds(10), Set.of("check-answer-with-feedback"), new SimpleMeterRegistry());
+        Call http = request -> client.call(Topics.ANSWER_FEEDBACK_REQUEST, Topics.ANSWER_FEEDBACK_RESULT, request);
+        run("http", WARMUP_CALLS, http);
+        report("http", run("http", CALLS, http));
+    }
+
+    private CompletableFuture<KafkaMessage<?>> callOverKafka(KafkaMessage<AiRenderedRequestPayload> request) {
+        CompletableFuture<KafkaMessage<?>> response = new CompletableFuture<>();
+        pending.put(request.getId(), response);
+        producer.send(new ProducerRecord<>(Topics.ANSWER_FEEDBACK_REQUEST, request.getId(), request));
+        return response;
+    }
+
+    private static long[] run(String name, int calls, Call call) {
+        long[] latencies = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            KafkaMessage<AiRenderedRequestPayload> request = KafkaMessage.<AiRenderedRequestPayload>builder()
+                    .id(name + "-" + System.nanoTime())
+                    .type("check-answer-with-feedback")
+                    .payload(AiRenderedRequestPayload.builder()
+                            .promptKey("answer.check")
+                            .messages(List.of(new Message("user", "Check the answer about Java memory model.")))
+                            .build())
+                    .build();
+            long start = System.nanoTime();
+            call.send(request).orTimeout(10, TimeUnit.SECONDS).join();
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static KafkaMessage<AnswerCheckResponsePayload> answer(KafkaMessage<?> request) {
+        try {
+            Thread.sleep(MODEL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return KafkaMessage.<AnswerCheckResponsePayload>builder()
+                .id(request.getId())
+                .type("check-answer-result")
+                .payload(AnswerCheckResponsePayload.fromCheatingResult(false))
+                .build();
+    }
+
+    private void startPoller(String name, String topic, Consumer<KafkaMessage<?>> handler) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, name);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        Thread poller = new Thread(() -> {
+            try (KafkaConsumer<String, KafkaMessage<?>> consumer =
+                         new KafkaConsumer<>(config, new StringDeserializer(), new KafkaMessageDeserializer())) {
+                consumer.subscribe(List.of(topic));
+                while (running) {
+                    for (ConsumerRecord<String, KafkaMessage<?>> record : consumer.poll(Duration.ofMillis(5))) {
+                        handler.accept(record.value());
+                    }
+                }
+            }
+        }, name);
+        poller.setDaemon(true);
+        poller.start();
+        pollers.add(poller);
+        // wait for the partition assignment, requests sent before it would be skipped with offset reset latest
+        try {
+            Thread.sleep(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> producerConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaMessageSerializer.class);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        return config;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-6s %,d calls, model %d ms -> p50 %.2f ms, p99 %.2f ms%n", name, CALLS, MODEL_MILLIS,
+                sorted[sorted.length / 2] / 1_000_000.0, sorted[(int) (sorted.length * 0.99)] / 1_000_000.0);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        CompletableFuture<KafkaMessage<?>> send(KafkaMessage<AiRenderedRequestPayload> request);
+    }
+}